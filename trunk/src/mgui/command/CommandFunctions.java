@@ -19,20 +19,21 @@
 
 package mgui.command;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.attribute.PosixFilePermission;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.EventObject;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import mgui.interfaces.InterfaceEnvironment;
 import mgui.interfaces.InterfaceSession;
@@ -52,6 +53,14 @@ public class CommandFunctions extends Utility{
 	
 	static boolean is_init = false;
 	
+	/** Maximum time, in milliseconds, to wait for output to be drained once a process has exited. */
+	public static final long CAPTURE_TIMEOUT = 10000;
+	
+	static File process_log_dir;
+	static boolean process_log_dir_set = false;
+	static final Map<Process, ProcessOutputCapture> captures = 
+								Collections.synchronizedMap(new WeakHashMap<Process, ProcessOutputCapture>());
+	
 	public static enum ProcessState{
 		NotStarted,
 		Running,
@@ -72,6 +81,68 @@ public class CommandFunctions extends Utility{
 		return "";
 	}
 	
+	/*************************************************
+	 * Sets the directory to which the output of each process is written, as a separate log file
+	 * named by process and start time. If {@code null}, process output is written only to the session
+	 * log. By default, this is the "processes" subdirectory of the session's log directory; see 
+	 * {@link #getProcessLogDirectory()}.
+	 * 
+	 * @param dir
+	 */
+	public static void setProcessLogDirectory(File dir){
+		process_log_dir = dir;
+		process_log_dir_set = true;
+	}
+	
+	/*************************************************
+	 * Returns the directory to which the output of each process is written; {@code null} if none. Unless
+	 * set with {@link #setProcessLogDirectory(File)}, this is the "processes" subdirectory of the directory
+	 * containing the session log file or, if the session is not logging to a file, of the "logs" directory
+	 * under the application data directory.
+	 * 
+	 * @return
+	 */
+	public static File getProcessLogDirectory(){
+		if (process_log_dir_set) return process_log_dir;
+		File log_file = InterfaceEnvironment.getLogFile();
+		File log_dir = null;
+		if (log_file != null)
+			log_dir = log_file.getAbsoluteFile().getParentFile();
+		if (log_dir == null)
+			log_dir = new File(InterfaceEnvironment.getApplicationDataDir(), "logs");
+		return new File(log_dir, "processes");
+	}
+	
+	/*************************************************
+	 * Returns the output capture for {@code process}, if it was started by this class, or {@code null}
+	 * otherwise.
+	 * 
+	 * @param process
+	 * @return
+	 */
+	public static ProcessOutputCapture getOutputCapture(Process process){
+		return captures.get(process);
+	}
+	
+	/*************************************************
+	 * Starts capturing the output and error streams of {@code process}.
+	 * 
+	 * @param name
+	 * @param process
+	 * @return
+	 */
+	protected static ProcessOutputCapture startCapture(String name, Process process){
+		File log_file = null;
+		File log_dir = getProcessLogDirectory();
+		if (log_dir != null){
+			String stamp = new SimpleDateFormat("yyyyMMdd_HHmmss_SSS").format(new Date());
+			log_file = new File(log_dir, name.replaceAll("[^A-Za-z0-9._-]", "_") + "_" + stamp + ".log");
+			}
+		ProcessOutputCapture capture = new ProcessOutputCapture(name, process, log_file);
+		captures.put(process, capture);
+		return capture;
+	}
+	
 	/*************************************************
 	 * Makes a call to the command console and returns immediately
 	 * 
@@ -136,17 +207,9 @@ public class CommandFunctions extends Utility{
 				env.putAll(environment);
 			
 			Process process = pb.start();
-						
-			StreamGobbler errorGobbler = new 
-	        StreamGobbler(process.getErrorStream(), "ERROR");            
-	     
-			// any output?
-	    	StreamGobbler outputGobbler = new 
-	        StreamGobbler(process.getInputStream(), "OUTPUT");
-	         
-	    	// kick them off
-	    	errorGobbler.start();
-	    	outputGobbler.start();
+			
+			// Drain output and error streams in the background
+			startCapture(name, process);
 	                             
 	    	return process;
 	    	
@@ -265,34 +328,27 @@ public class CommandFunctions extends Utility{
 				return ProcessState.TerminatedWithError;
 			}
 						
-			StreamGobbler errorGobbler = new 
-	        StreamGobbler(process.getErrorStream(), "ERROR");            
-	     
-			// any output?
-	    	StreamGobbler outputGobbler = new 
-	        StreamGobbler(process.getInputStream(), "OUTPUT");
-	         
-	    	// kick them off
-	    	errorGobbler.start();
-	    	outputGobbler.start();
+			ProcessOutputCapture capture = startCapture(name, process);
 	    	
 	    	final MguiBoolean was_killed = new MguiBoolean(false);
 	    	
 	    	// This will kill the process if the error stream encounters input
 	    	if (fail_on_err){
-	    		errorGobbler.addStreamListener(new StreamListener(){
+	    		capture.addStreamListener(new StreamListener(){
 					@Override
 					public void streamUpdated(EventObject event) {
+						if (((ProcessOutputEvent)event).getStream() != ProcessOutputCapture.Stream.Error) return;
 						was_killed.setTrue(true);
 						process.destroy();
 					}
 	    		});
 	    		}
 	        
-	    	// Sleep for 50 ms to give error stream time to process
-	    	Thread.sleep(50);
 			int exitVal = process.waitFor();
 			
+			// Allow remaining output to be drained and published
+			capture.waitFor(CAPTURE_TIMEOUT);
+			
 			script.delete();
 			
 			if (was_killed.getTrue())
@@ -333,59 +389,6 @@ public class CommandFunctions extends Utility{
 		}
 		
 	}
-	
-	
-	static class StreamGobbler extends Thread{
-	    InputStream is;
-	    String type;
-	    
-	    ArrayList<StreamListener> listeners = new ArrayList<StreamListener>();
-	    
-	    StreamGobbler(InputStream is, String type)
-	    {
-	        this.is = is;
-	        this.type = type;
-	    }
-	    
-	    public void addStreamListener(StreamListener listener){
-	    	listeners.add(listener);
-	    }
-	    
-	    public void removeStreamListener(StreamListener listener){
-	    	listeners.remove(listener);
-	    }
-	    
-	    @Override
-		public void run()
-	    {
-	        try
-	        {
-	            InputStreamReader isr = new InputStreamReader(is);
-	            BufferedReader br = new BufferedReader(isr);
-	            String line=br.readLine();
-	            boolean has_input = false;
-	            while ( line != null ){
-	            	has_input = true;
-	            	if (type.equals("ERROR")){
-	            		InterfaceSession.log(line, LoggingType.Errors);
-	            	}else{
-	            		InterfaceSession.log(line, LoggingType.Concise);
-	            		}
-	            	if (!br.ready()) break;
-	            	line = br.readLine();
-	            	}
-	            if (has_input){
-	            	for (int i = 0; i < listeners.size(); i++)
-	      	        	listeners.get(i).streamUpdated(new EventObject(this));
-	            	}
-	            } catch (IOException ioe)
-	              {
-	            	InterfaceSession.log("CommandFunctions: I/O stream error encountered: " + ioe.getMessage(), LoggingType.Errors);
-	            	//InterfaceSession.handleException(ioe);
-	              }
-	      
-	    }
-	}
 
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,457 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.command;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import mgui.interfaces.InterfaceSession;
+import mgui.interfaces.logs.LoggingType;
+
+/*************************************************************
+ * Captures the standard output and error streams of a native process. Each stream is drained 
+ * continuously by its own thread, so the process never blocks on a full pipe, and lines are kept in
+ * bounded ring buffers, so that the tail of the output is always available (see {@link #getTail(Stream)}).
+ * 
+ * <p>If a log file is specified, all output is written to it through a single buffered writer, which is 
+ * kept open until the process completes.
+ * 
+ * <p>Lines are not forwarded one at a time. Instead, a shared publisher thread periodically (every 
+ * {@link #getUpdateInterval()} milliseconds) writes each stream's new lines to the session log as a single
+ * message, summarised if there are more than {@link #getMaxLinesPerUpdate()}, and notifies listeners with a
+ * {@link ProcessOutputEvent}.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class ProcessOutputCapture {
+
+	public static enum Stream{
+		Output,
+		Error;
+	}
+	
+	static int default_buffer_lines = 1000;
+	static long update_interval = 250;
+	static int max_lines_per_update = 200;
+	
+	static ScheduledExecutorService publisher;
+	static final CopyOnWriteArrayList<ProcessOutputCapture> active_captures = new CopyOnWriteArrayList<ProcessOutputCapture>();
+	
+	protected final String name;
+	protected final StreamState[] streams = new StreamState[2];
+	protected volatile Writer log_writer;
+	protected File log_file;
+	protected final CopyOnWriteArrayList<StreamListener> listeners = new CopyOnWriteArrayList<StreamListener>();
+	protected boolean log_to_session = true;
+	
+	/*************************************************************
+	 * Starts capturing the output and error streams of {@code process}.
+	 * 
+	 * @param name			Name of the process, used for thread names and log messages
+	 * @param process		
+	 * @param log_file		File to write all output to; can be {@code null}
+	 */
+	public ProcessOutputCapture(String name, Process process, File log_file){
+		this(name, process.getInputStream(), process.getErrorStream(), log_file, default_buffer_lines);
+	}
+	
+	/*************************************************************
+	 * Starts capturing the given output and error streams.
+	 * 
+	 * @param name			Name of the process, used for thread names and log messages
+	 * @param output		
+	 * @param error
+	 * @param log_file		File to write all output to; can be {@code null}
+	 * @param buffer_lines	Number of lines to retain for each stream
+	 */
+	public ProcessOutputCapture(String name, InputStream output, InputStream error, File log_file, int buffer_lines){
+		this.name = name;
+		this.log_file = log_file;
+		
+		if (log_file != null){
+			try{
+				File dir = log_file.getParentFile();
+				if (dir != null && !dir.exists()) dir.mkdirs();
+				log_writer = new BufferedWriter(new FileWriter(log_file, true), 1 << 16);
+			}catch (IOException ex){
+				InterfaceSession.log("ProcessOutputCapture: Could not open log file '" + log_file.getAbsolutePath() + 
+									 "': " + ex.getMessage(), LoggingType.Errors);
+				log_writer = null;
+				this.log_file = null;
+				}
+			}
+		
+		streams[0] = new StreamState(Stream.Output, buffer_lines);
+		streams[1] = new StreamState(Stream.Error, buffer_lines);
+		
+		active_captures.add(this);
+		getPublisher();
+		
+		startDrain(streams[0], output);
+		startDrain(streams[1], error);
+	}
+	
+	/*************************************************************
+	 * Returns the interval, in milliseconds, at which output updates are published.
+	 * 
+	 * @return
+	 */
+	public static long getUpdateInterval(){
+		return update_interval;
+	}
+	
+	/*************************************************************
+	 * Sets the interval, in milliseconds, at which output updates are published. Takes effect only if
+	 * no process has yet been captured.
+	 * 
+	 * @param interval
+	 */
+	public static void setUpdateInterval(long interval){
+		update_interval = Math.max(10, interval);
+	}
+	
+	/*************************************************************
+	 * Returns the maximum number of lines written to the session log per stream per update; further
+	 * lines are summarised.
+	 * 
+	 * @return
+	 */
+	public static int getMaxLinesPerUpdate(){
+		return max_lines_per_update;
+	}
+	
+	public static void setMaxLinesPerUpdate(int max){
+		max_lines_per_update = Math.max(1, max);
+	}
+	
+	/*************************************************************
+	 * Returns the default number of lines retained for each stream.
+	 * 
+	 * @return
+	 */
+	public static int getDefaultBufferLines(){
+		return default_buffer_lines;
+	}
+	
+	public static void setDefaultBufferLines(int lines){
+		default_buffer_lines = Math.max(1, lines);
+	}
+	
+	public String getName(){
+		return name;
+	}
+	
+	/*************************************************************
+	 * Returns the file to which output is written; {@code null} if none.
+	 * 
+	 * @return
+	 */
+	public File getLogFile(){
+		return log_file;
+	}
+	
+	/*************************************************************
+	 * Sets whether captured output is written to the session log (default {@code true}).
+	 * 
+	 * @param b
+	 */
+	public void setLogToSession(boolean b){
+		log_to_session = b;
+	}
+	
+	public void addStreamListener(StreamListener listener){
+		listeners.add(listener);
+	}
+	
+	public void removeStreamListener(StreamListener listener){
+		listeners.remove(listener);
+	}
+	
+	/*************************************************************
+	 * Returns the last lines (up to the buffer size) received on {@code stream}.
+	 * 
+	 * @param stream
+	 * @return
+	 */
+	public ArrayList<String> getTail(Stream stream){
+		return streams[stream.ordinal()].getLines();
+	}
+	
+	/*************************************************************
+	 * Returns the total number of lines received on {@code stream}.
+	 * 
+	 * @param stream
+	 * @return
+	 */
+	public long getLineCount(Stream stream){
+		return streams[stream.ordinal()].getTotal();
+	}
+	
+	/*************************************************************
+	 * Indicates whether both streams have been fully drained.
+	 * 
+	 * @return
+	 */
+	public boolean isComplete(){
+		return streams[0].isClosed() && streams[1].isClosed();
+	}
+	
+	/*************************************************************
+	 * Waits until both streams have been fully drained (which occurs after the process has exited),
+	 * and pending output has been published.
+	 * 
+	 * @param timeout		Maximum time to wait, in milliseconds
+	 * @return {@code true} if complete
+	 * @throws InterruptedException
+	 */
+	public boolean waitFor(long timeout) throws InterruptedException{
+		long end = System.currentTimeMillis() + timeout;
+		synchronized(this){
+			while (!isComplete() || active_captures.contains(this)){
+				long wait = end - System.currentTimeMillis();
+				if (wait <= 0) return false;
+				wait(wait);
+				}
+			}
+		return true;
+	}
+	
+	protected void startDrain(final StreamState state, final InputStream is){
+		Thread thread = new Thread(new Runnable(){
+			public void run(){
+				try{
+					BufferedReader reader = new BufferedReader(new InputStreamReader(is), 1 << 14);
+					String line = reader.readLine();
+					while (line != null){
+						state.add(line);
+						writeToLog(state.stream, line);
+						line = reader.readLine();
+						}
+				}catch (IOException ex){
+					InterfaceSession.log("ProcessOutputCapture: I/O stream error encountered for '" + name + "': " + 
+										 ex.getMessage(), LoggingType.Errors);
+				}finally{
+					state.close();
+					}
+				}
+			}, "ProcessOutputCapture-" + name + "-" + state.stream.name().toLowerCase());
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	protected void writeToLog(Stream stream, String line){
+		Writer writer = log_writer;
+		if (writer == null) return;
+		synchronized(writer){
+			if (log_writer != writer) return;		// closed
+			try{
+				if (stream == Stream.Error)
+					writer.write("ERROR: ");
+				writer.write(line);
+				writer.write('\n');
+			}catch (IOException ex){
+				InterfaceSession.log("ProcessOutputCapture: Error writing to log file '" + log_file.getAbsolutePath() + 
+									 "': " + ex.getMessage(), LoggingType.Errors);
+				closeLog();
+				}
+			}
+	}
+	
+	protected void flushLog(){
+		Writer writer = log_writer;
+		if (writer == null) return;
+		synchronized(writer){
+			if (log_writer != writer) return;		// closed
+			try{
+				writer.flush();
+			}catch (IOException ex){
+				//already reported on write
+				}
+			}
+	}
+	
+	protected void closeLog(){
+		Writer writer = log_writer;
+		if (writer == null) return;
+		synchronized(writer){
+			if (log_writer != writer) return;		// already closed
+			try{
+				writer.close();
+			}catch (IOException ex){
+				InterfaceSession.log("ProcessOutputCapture: Error closing log file '" + log_file.getAbsolutePath() + 
+						 			 "': " + ex.getMessage(), LoggingType.Errors);
+				}
+			log_writer = null;
+			}
+	}
+	
+	/*************************************************************
+	 * Publishes pending output; called periodically by the publisher thread.
+	 * 
+	 */
+	protected void publish(){
+		boolean complete = isComplete();
+		
+		for (int s = 0; s < streams.length; s++){
+			StreamState state = streams[s];
+			long[] new_count = new long[1];
+			ArrayList<String> pending = state.takePending(new_count);
+			if (pending == null) continue;
+			
+			if (log_to_session){
+				LoggingType type = state.stream == Stream.Error ? LoggingType.Errors : LoggingType.Concise;
+				StringBuilder message = new StringBuilder();
+				int count = Math.min(pending.size(), max_lines_per_update);
+				for (int i = 0; i < count; i++){
+					if (i > 0) message.append('\n');
+					message.append(pending.get(i));
+					}
+				if (new_count[0] > count){
+					message.append("\n... [" + name + ": " + (new_count[0] - count) + " more line(s)");
+					if (log_file != null)
+						message.append("; see '" + log_file.getAbsolutePath() + "'");
+					message.append("]");
+					}
+				InterfaceSession.log(message.toString(), type);
+				}
+			
+			ProcessOutputEvent event = new ProcessOutputEvent(this, state.stream, (int)Math.min(Integer.MAX_VALUE, new_count[0]), 
+															  pending.get(pending.size() - 1));
+			for (StreamListener listener : listeners)
+				listener.streamUpdated(event);
+			}
+		
+		if (complete){
+			closeLog();
+			active_captures.remove(this);
+			synchronized(this){
+				notifyAll();
+				}
+		}else{
+			flushLog();
+			}
+	}
+	
+	static synchronized ScheduledExecutorService getPublisher(){
+		if (publisher == null){
+			publisher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+				public Thread newThread(Runnable r){
+					Thread thread = new Thread(r, "ProcessOutputCapture-publisher");
+					thread.setDaemon(true);
+					return thread;
+					}
+				});
+			publisher.scheduleWithFixedDelay(new Runnable(){
+				public void run(){
+					for (ProcessOutputCapture capture : active_captures){
+						try{
+							capture.publish();
+						}catch (Exception ex){
+							InterfaceSession.handleException(ex);
+							}
+						}
+					}
+				}, update_interval, update_interval, TimeUnit.MILLISECONDS);
+			}
+		return publisher;
+	}
+	
+	/*************************************************************
+	 * State of a single captured stream: a ring buffer of recent lines, plus the lines received since
+	 * the last publication (bounded by the ring buffer size).
+	 *
+	 */
+	static class StreamState {
+		
+		final Stream stream;
+		final String[] ring;
+		int head = 0, size = 0;
+		long total = 0, published = 0;
+		boolean closed = false;
+		
+		StreamState(Stream stream, int capacity){
+			this.stream = stream;
+			this.ring = new String[Math.max(1, capacity)];
+		}
+		
+		synchronized void add(String line){
+			ring[(head + size) % ring.length] = line;
+			if (size < ring.length)
+				size++;
+			else
+				head = (head + 1) % ring.length;
+			total++;
+		}
+		
+		synchronized ArrayList<String> getLines(){
+			ArrayList<String> lines = new ArrayList<String>(size);
+			for (int i = 0; i < size; i++)
+				lines.add(ring[(head + i) % ring.length]);
+			return lines;
+		}
+		
+		/**********************************
+		 * Returns the lines received since the last call (or those still buffered, if more were received
+		 * than the buffer can hold), or {@code null} if there are none. The actual number of new lines
+		 * is returned in {@code count[0]}.
+		 * 
+		 */
+		synchronized ArrayList<String> takePending(long[] count){
+			long pending = total - published;
+			if (pending == 0) return null;
+			int n = (int)Math.min(pending, size);
+			ArrayList<String> lines = new ArrayList<String>(n);
+			for (int i = size - n; i < size; i++)
+				lines.add(ring[(head + i) % ring.length]);
+			count[0] = pending;
+			published = total;
+			return lines;
+		}
+		
+		synchronized long getTotal(){
+			return total;
+		}
+		
+		synchronized void close(){
+			closed = true;
+		}
+		
+		synchronized boolean isClosed(){
+			return closed;
+		}
+		
+	}
+	
+}
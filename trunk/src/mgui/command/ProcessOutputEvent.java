@@ -0,0 +1,77 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.command;
+
+import java.util.EventObject;
+
+/*************************************************************
+ * Summarises output captured from a native process since the last update; published by a
+ * {@link ProcessOutputCapture} to its {@link StreamListener}s.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class ProcessOutputEvent extends EventObject {
+
+	protected final ProcessOutputCapture.Stream stream;
+	protected final int new_lines;
+	protected final String last_line;
+	
+	public ProcessOutputEvent(ProcessOutputCapture source, ProcessOutputCapture.Stream stream, int new_lines, String last_line){
+		super(source);
+		this.stream = stream;
+		this.new_lines = new_lines;
+		this.last_line = last_line;
+	}
+	
+	/*************************************************************
+	 * Returns the stream on which output was received.
+	 * 
+	 * @return
+	 */
+	public ProcessOutputCapture.Stream getStream(){
+		return stream;
+	}
+	
+	/*************************************************************
+	 * Returns the number of lines received since the last update.
+	 * 
+	 * @return
+	 */
+	public int getNewLineCount(){
+		return new_lines;
+	}
+	
+	/*************************************************************
+	 * Returns the most recent line received.
+	 * 
+	 * @return
+	 */
+	public String getLastLine(){
+		return last_line;
+	}
+	
+	public ProcessOutputCapture getCapture(){
+		return (ProcessOutputCapture)getSource();
+	}
+	
+}
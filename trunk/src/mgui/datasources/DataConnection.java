@@ -39,6 +39,7 @@ import mgui.interfaces.trees.InterfaceTreeNode;
 import mgui.interfaces.xml.XMLFunctions;
 import mgui.interfaces.xml.XMLObject;
 import mgui.io.standard.xml.XMLOutputOptions;
+import mgui.numbers.MguiInteger;
 import mgui.resources.icons.IconObject;
 
 import org.xml.sax.Attributes;
@@ -87,6 +88,7 @@ public class DataConnection extends AbstractInterfaceObject
 		Attribute<String> a = new Attribute<String>("password" , "");
 		a.setSecret(true);
 		attributes.add(a);
+		attributes.add(new Attribute<MguiInteger>("pool_size", new MguiInteger(4)));
 		
 	}
 	
@@ -138,6 +140,15 @@ public class DataConnection extends AbstractInterfaceObject
 		return (File)attributes.getValue("file");
 	}
 	
+	/*********************************
+	 * Returns the maximum number of pooled connections to open for asynchronous queries.
+	 * 
+	 * @return
+	 */
+	public int getPoolSize(){
+		return ((MguiInteger)attributes.getValue("pool_size")).getInt();
+	}
+	
 	//setters
 	public void setDriver(String s){
 		attributes.setValue("driver", s);
@@ -170,6 +181,10 @@ public class DataConnection extends AbstractInterfaceObject
 		attributes.getAttribute("file").setValue(f);
 	}
 	
+	public void setPoolSize(int size){
+		attributes.setValue("pool_size", new MguiInteger(size));
+	}
+	
 	@Override
 	public void setTreeNode(InterfaceTreeNode treeNode){
 		super.setTreeNode(treeNode);
@@ -222,6 +237,7 @@ public class DataConnection extends AbstractInterfaceObject
 					if (item.equals("login")) setLogin(value);
 					if (item.equals("url")) setUrl(value);
 					if (item.equals("driver")) setDriver(value);
+					if (item.equals("pool_size")) setPoolSize(Integer.valueOf(value));
 					}
 				line = reader.readLine();
 				}
@@ -307,6 +323,7 @@ public class DataConnection extends AbstractInterfaceObject
 					 "\n" + _tab2 + "password='" + getPassword() + "'" +
 					 "\n" + _tab2 + "url='" + getUrl() + "'" +
 					 "\n" + _tab2 + "file='" + getFile() + "'" +
+					 "\n" + _tab2 + "pool_size='" + getPoolSize() + "'" +
 					 "\n" + _tab + "/>\n");
 		
 	}
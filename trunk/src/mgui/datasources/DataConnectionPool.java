@@ -0,0 +1,209 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+*
+* This file is part of ModelGUI[core] (mgui-core).
+*
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.datasources;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import mgui.datasources.security.SecureDataSourceFunctions;
+import mgui.interfaces.InterfaceSession;
+import mgui.interfaces.logs.LoggingType;
+
+/*********************************
+ * Maintains a bounded pool of JDBC connections for a single {@link DataSource}, opened with the
+ * parameters of its {@link DataConnection}. Connections are opened lazily, up to
+ * {@link DataConnection#getPoolSize()}; callers block in {@link #acquire()} until a connection is
+ * free, and must return it with {@link #release(Connection)}.
+ *
+ * <p>Pooled connections are used by the asynchronous query methods of {@link DataSource}, so that
+ * several queries can run concurrently without sharing a (non thread-safe) JDBC connection.
+ *
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class DataConnectionPool {
+
+	protected DataConnection parameters;
+	protected int max_connections;
+	protected LinkedBlockingQueue<Connection> idle = new LinkedBlockingQueue<Connection>();
+	protected int open_count = 0;
+	protected volatile boolean is_closed = false;
+
+	public DataConnectionPool(DataConnection parameters){
+		this(parameters, parameters.getPoolSize());
+	}
+
+	public DataConnectionPool(DataConnection parameters, int max_connections){
+		this.parameters = parameters;
+		this.max_connections = Math.max(1, max_connections);
+	}
+
+	/***************************************
+	 * Returns the maximum number of connections this pool will open.
+	 *
+	 * @return
+	 */
+	public int getMaxConnections(){
+		return max_connections;
+	}
+
+	/***************************************
+	 * Returns the number of connections currently open (idle or in use).
+	 *
+	 * @return
+	 */
+	public synchronized int getOpenCount(){
+		return open_count;
+	}
+
+	public boolean isClosed(){
+		return is_closed;
+	}
+
+	/***************************************
+	 * Obtains a connection from this pool, opening a new one if fewer than the maximum are open,
+	 * or otherwise blocking until one is released.
+	 *
+	 * @return an open connection
+	 * @throws DataSourceException if the pool is closed, a connection cannot be opened, or the calling
+	 * 							   thread is interrupted while waiting
+	 */
+	public Connection acquire() throws DataSourceException{
+
+		while (true){
+			if (is_closed)
+				throw new DataSourceException("DataConnectionPool: Pool is closed.");
+
+			Connection connection = idle.poll();
+			if (connection != null){
+				if (isUsable(connection)) return connection;
+				discard(connection);
+				continue;
+				}
+
+			boolean can_open = false;
+			synchronized(this){
+				// Reserve a slot so concurrent callers do not exceed the maximum
+				if (open_count < max_connections){
+					open_count++;
+					can_open = true;
+					}
+				}
+
+			if (can_open){
+				try{
+					connection = openConnection();
+				}catch (Exception e){
+					synchronized(this){
+						open_count--;
+						}
+					throw new DataSourceException("DataConnectionPool: Could not open connection to '" +
+												  parameters.getUrl() + "': " + e.getMessage());
+					}
+				return connection;
+				}
+
+			try{
+				// Wait with a timeout, since a slot may also be freed by a discarded connection
+				connection = idle.poll(250, TimeUnit.MILLISECONDS);
+			}catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new DataSourceException("DataConnectionPool: Interrupted while waiting for a connection.");
+				}
+			if (connection == null) continue;
+			if (isUsable(connection)) return connection;
+			discard(connection);
+			}
+
+	}
+
+	/***************************************
+	 * Returns {@code connection} to this pool. If the pool has been closed, the connection is closed.
+	 *
+	 * @param connection
+	 */
+	public void release(Connection connection){
+		if (connection == null) return;
+		if (is_closed){
+			discard(connection);
+			return;
+			}
+		idle.offer(connection);
+	}
+
+	/***************************************
+	 * Closes all idle connections and marks this pool as closed; connections currently in use
+	 * will be closed when they are released.
+	 *
+	 */
+	public void close(){
+		is_closed = true;
+		ArrayList<Connection> to_close = new ArrayList<Connection>();
+		idle.drainTo(to_close);
+		for (int i = 0; i < to_close.size(); i++)
+			discard(to_close.get(i));
+	}
+
+	protected void discard(Connection connection){
+		synchronized(this){
+			open_count--;
+			}
+		try{
+			if (!connection.isClosed())
+				connection.close();
+		}catch (SQLException e){
+			InterfaceSession.log("DataConnectionPool: Error closing connection: " + e.getMessage(),
+								 LoggingType.Errors);
+			}
+	}
+
+	protected boolean isUsable(Connection connection){
+		try{
+			return !connection.isClosed();
+		}catch (SQLException e){
+			return false;
+			}
+	}
+
+	/***************************************
+	 * Opens a new JDBC connection using this pool's connection parameters.
+	 *
+	 * @return
+	 * @throws Exception
+	 */
+	protected Connection openConnection() throws Exception{
+		Class.forName(parameters.getDriver());
+
+		String login = parameters.getLogin();
+		String pass = parameters.getPassword();
+		if (login == null || login.length() == 0 || pass == null || pass.length() == 0)
+			return DriverManager.getConnection(parameters.getUrl());
+
+		//connects using encrypted password
+		return SecureDataSourceFunctions.getSecureConnection(parameters.getUrl(), login, pass);
+	}
+
+}
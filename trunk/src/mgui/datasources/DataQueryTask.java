@@ -0,0 +1,177 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.datasources;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import javax.swing.SwingUtilities;
+
+/**************************************************************
+ * An asynchronous SQL task executed on a connection obtained from a {@link DataConnectionPool}. The
+ * connection is acquired when the task starts and released when it completes, fails or is cancelled.
+ * Cancelling the task with {@link #cancel(boolean)} also cancels the currently executing JDBC
+ * statement, where the driver supports it.
+ * 
+ * <p>Completion callbacks can be added with {@link #addCompletionCallback(Runnable)}; these are run on
+ * the event dispatch thread, so they can safely update the interface.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ * @param <T> The type of result
+ */
+public class DataQueryTask<T> extends FutureTask<T> {
+
+	protected final QueryCallable<T> query;
+	protected ArrayList<Runnable> callbacks = new ArrayList<Runnable>();
+	
+	protected DataQueryTask(DataConnectionPool pool, String sql, StatementJob<T> job){
+		this(pool, sql, job, false);
+	}
+	
+	protected DataQueryTask(DataConnectionPool pool, String sql, StatementJob<T> job, boolean updatable){
+		this(new QueryCallable<T>(pool, sql, job, updatable));
+	}
+	
+	private DataQueryTask(QueryCallable<T> query){
+		super(query);
+		this.query = query;
+	}
+	
+	/**************************************************************
+	 * Returns the SQL statement executed by this task.
+	 * 
+	 * @return
+	 */
+	public String getSQL(){
+		return query.sql;
+	}
+	
+	/**************************************************************
+	 * Adds a callback to be run on the event dispatch thread when this task completes, fails or
+	 * is cancelled. If the task is already done, the callback is scheduled immediately.
+	 * 
+	 * @param callback
+	 */
+	public void addCompletionCallback(Runnable callback){
+		synchronized(callbacks){
+			if (!isDone()){
+				callbacks.add(callback);
+				return;
+				}
+			}
+		SwingUtilities.invokeLater(callback);
+	}
+	
+	@Override
+	protected void done(){
+		ArrayList<Runnable> to_run;
+		synchronized(callbacks){
+			to_run = new ArrayList<Runnable>(callbacks);
+			callbacks.clear();
+			}
+		for (int i = 0; i < to_run.size(); i++)
+			SwingUtilities.invokeLater(to_run.get(i));
+	}
+	
+	@Override
+	public boolean cancel(boolean may_interrupt){
+		query.cancelStatement();
+		return super.cancel(may_interrupt);
+	}
+	
+	/**************************************************************
+	 * Executes an SQL statement and returns its result.
+	 *
+	 * @param <T>
+	 */
+	protected interface StatementJob<T> {
+		public T execute(Statement statement, String sql) throws SQLException;
+	}
+	
+	static class QueryCallable<T> implements Callable<T> {
+		
+		final DataConnectionPool pool;
+		final String sql;
+		final StatementJob<T> job;
+		final boolean updatable;
+		volatile Statement statement;
+		volatile boolean cancelled;
+		
+		QueryCallable(DataConnectionPool pool, String sql, StatementJob<T> job, boolean updatable){
+			this.pool = pool;
+			this.sql = sql;
+			this.job = job;
+			this.updatable = updatable;
+		}
+		
+		@Override
+		public T call() throws Exception{
+			Connection connection = pool.acquire();
+			try{
+				statement = createStatement(connection);
+				if (cancelled) return null;
+				return job.execute(statement, sql);
+			}finally{
+				Statement s = statement;
+				statement = null;
+				if (s != null){
+					try{
+						s.close();
+					}catch (SQLException e){
+						//already closed
+						}
+					}
+				pool.release(connection);
+				}
+		}
+		
+		Statement createStatement(Connection connection) throws SQLException{
+			if (!updatable) return connection.createStatement();
+			try{
+				return connection.createStatement(ResultSet.TYPE_SCROLL_SENSITIVE,
+												  ResultSet.CONCUR_UPDATABLE);
+			}catch (SQLException e){
+				//try without concurrency, as DataSource.getResultSet does
+				return connection.createStatement();
+				}
+		}
+		
+		void cancelStatement(){
+			cancelled = true;
+			Statement s = statement;
+			if (s == null) return;
+			try{
+				s.cancel();
+			}catch (SQLException e){
+				//not supported by this driver; rely on interrupt
+				}
+		}
+		
+	}
+	
+}
@@ -78,6 +78,29 @@ public class DataRecordSet implements DataSet {
 		return setFields();
 	}
 		
+	/***********************************************
+	 * Sets this record set from an existing result set; e.g., one passed to a {@link ResultSetHandler}
+	 * by {@link DataSource#submitQuery(String, ResultSetHandler, boolean)}. The result set must 
+	 * be scrollable, and remains owned by its caller.
+	 * 
+	 * @param result_set
+	 * @param sort_fields
+	 * @return
+	 * @throws DataSourceException
+	 */
+	public boolean set(ResultSet result_set, boolean sort_fields) throws DataSourceException{
+		recordSet = result_set;
+		this.sort_fields = sort_fields;
+		if (recordSet == null) return false;
+		try{
+		    isUpdatable = (recordSet.getConcurrency() == ResultSet.CONCUR_UPDATABLE);
+		    }
+		catch (SQLException e){
+		    throw new DataSourceException("DataRecordSet.set: SQLException encountered: " + e.getMessage());
+		    }
+		return setFields();
+	}
+	
 	public ArrayList<DataField> getFields(){
 		return new ArrayList<DataField>(fields);
 	}
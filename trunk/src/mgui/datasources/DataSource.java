@@ -32,6 +32,10 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
@@ -70,6 +74,7 @@ import org.xml.sax.Attributes;
  * <ul>
  * <li>Build a DataTableSet from meta data
  * <li>Create/delete databases
+ * <li>Execute queries asynchronously on a pool of connections (see {@link #submitQuery(String, ResultSetHandler)})
  * </ul>
  *   
  * @author Andrew Reid
@@ -92,6 +97,8 @@ public class DataSource extends AbstractInterfaceObject implements Cloneable,
 	protected ArrayList<DataSourceListener> listeners = new ArrayList<DataSourceListener>();
 	protected ArrayList<DataTable> temp_tables = new ArrayList<DataTable>();
 	protected InterfaceWorkspace workspace;
+	protected DataConnectionPool connection_pool;
+	protected ExecutorService query_executor;
 	
 	public DataSource(){
 		setConnection(new DataConnection());
@@ -344,6 +351,7 @@ public class DataSource extends AbstractInterfaceObject implements Cloneable,
 	 */
 	public boolean disconnect(){
 		if (!isConnected) return false;
+		closeConnectionPool();
 		if (connection != null){
 		      try {
 		        if (!connection.isClosed()){
@@ -660,6 +668,122 @@ public class DataSource extends AbstractInterfaceObject implements Cloneable,
 		   
 	  }
 	  
+	  /*****************************************************
+	   * Returns the pool of connections used for asynchronous queries on this data source, creating
+	   * it if necessary.
+	   * 
+	   * @return the pool
+	   * @throws DataSourceException if this data source is not connected
+	   */
+	  public synchronized DataConnectionPool getConnectionPool() throws DataSourceException{
+		  if (!isConnected) 
+			  throw new DataSourceException("DataSource.getConnectionPool: Data source is not connected!");
+		  if (connection_pool == null || connection_pool.isClosed()){
+			  connection_pool = new DataConnectionPool(conn);
+			  final String name = getName();
+			  final AtomicInteger count = new AtomicInteger();
+			  query_executor = Executors.newFixedThreadPool(connection_pool.getMaxConnections(), 
+					  										new ThreadFactory(){
+				  public Thread newThread(Runnable r){
+					  Thread thread = new Thread(r, "DataSource-" + name + "-query-" + count.incrementAndGet());
+					  thread.setDaemon(true);
+					  return thread;
+				  	  }
+			  	  });
+		  	  }
+		  return connection_pool;
+	  }
+	  
+	  /*****************************************************
+	   * Cancels all pending asynchronous queries and closes the connection pool.
+	   * 
+	   */
+	  protected synchronized void closeConnectionPool(){
+		  if (query_executor != null){
+			  query_executor.shutdownNow();
+			  query_executor = null;
+		  	  }
+		  if (connection_pool != null){
+			  connection_pool.close();
+			  connection_pool = null;
+		  	  }
+	  }
+	  
+	  /*****************************************************
+	   * Submits the SQL query {@code SQLStr} for asynchronous execution on a pooled connection. The
+	   * result set is passed to {@code handler} on a query thread; the returned task can be used to
+	   * obtain the handler's result or to cancel the query. 
+	   * 
+	   * <p>Note that {@code handler} is not called on the event dispatch thread.
+	   * 
+	   * @param SQLStr
+	   * @param handler
+	   * @return the submitted task
+	   * @throws DataSourceException if this data source is not connected
+	   */
+	  public <T> DataQueryTask<T> submitQuery(String SQLStr, final ResultSetHandler<T> handler) throws DataSourceException{
+		  return submitQuery(SQLStr, handler, false);
+	  }
+	  
+	  /*****************************************************
+	   * Submits the SQL query {@code SQLStr} for asynchronous execution on a pooled connection. If
+	   * {@code updatable} is {@code true}, the result set passed to {@code handler} is scrollable and 
+	   * (where the driver supports it) updatable, so it can be wrapped in a {@link DataRecordSet} with
+	   * {@link DataRecordSet#set(ResultSet, boolean)}.
+	   * 
+	   * <p>Note that {@code handler} is not called on the event dispatch thread.
+	   * 
+	   * @param SQLStr
+	   * @param handler
+	   * @param updatable
+	   * @return the submitted task
+	   * @throws DataSourceException if this data source is not connected
+	   */
+	  public <T> DataQueryTask<T> submitQuery(String SQLStr, final ResultSetHandler<T> handler, boolean updatable) throws DataSourceException{
+		  return submitTask(SQLStr, updatable, new DataQueryTask.StatementJob<T>(){
+			  public T execute(Statement statement, String sql) throws SQLException{
+				  ResultSet result_set = statement.executeQuery(sql);
+				  try{
+					  return handler.handleResultSet(result_set);
+				  }finally{
+					  result_set.close();
+				  	  }
+			  	  }
+		  	  });
+	  }
+	  
+	  /*****************************************************
+	   * Submits the update statement {@code SQLStr} for asynchronous execution on a pooled connection.
+	   * 
+	   * @param SQLStr
+	   * @return the submitted task, whose result is the number of rows affected
+	   * @throws DataSourceException if this data source is not connected
+	   */
+	  public DataQueryTask<Integer> submitUpdate(String SQLStr) throws DataSourceException{
+		  return submitTask(SQLStr, false, new DataQueryTask.StatementJob<Integer>(){
+			  public Integer execute(Statement statement, String sql) throws SQLException{
+				  return statement.executeUpdate(sql);
+			  	  }
+		  	  });
+	  }
+	  
+	  /*****************************************************
+	   * Submits the update query {@code query} for asynchronous execution on a pooled connection.
+	   * 
+	   * @param query
+	   * @return the submitted task, whose result is the number of rows affected
+	   * @throws DataSourceException if this data source is not connected
+	   */
+	  public DataQueryTask<Integer> submitUpdate(DataQuery query) throws DataSourceException{
+		  return submitUpdate(query.getSQLStatement(getDataSourceDriver()));
+	  }
+	  
+	  protected synchronized <T> DataQueryTask<T> submitTask(String SQLStr, boolean updatable, DataQueryTask.StatementJob<T> job) throws DataSourceException{
+		  DataQueryTask<T> task = new DataQueryTask<T>(getConnectionPool(), SQLStr, job, updatable);
+		  query_executor.execute(task);
+		  return task;
+	  }
+	  
 	  /*******************************************************
 	   * Returns a {@link DataRecordSet} object accessing the specified table in this data source.
 	   * 
@@ -19,11 +19,15 @@
 
 package mgui.datasources;
 
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
@@ -51,8 +55,8 @@ public class LinkedDataStream<T extends Comparable<T>> extends AbstractInterface
 	protected DataSource data_source;
 	protected boolean cached = false;
 	protected HashMap<T, HashMap<String, Object>> cache = new HashMap<T, HashMap<String, Object>>();
-	protected DataRecordSet record_set;
-	protected DataIndex<T> index;
+	protected DataQueryTask<LinkedRecords<T>> load_task;
+	protected LinkedRecords<T> records;
 	protected double unknown_value = 0;
 	//protected boolean is_name_mapped = false;
 	
@@ -85,7 +89,7 @@ public class LinkedDataStream<T extends Comparable<T>> extends AbstractInterface
 			throw new DataSourceException("LinkedDataStream: DataTable '" + table.getName() + "' has no field" +
 										  " named '" + link_field + "..");
 		
-		//make an index if one doesn't already exist
+		//start loading the linked table
 		refresh();
 		this.setName(name);
 		this.cached = cached;
@@ -154,23 +158,68 @@ public class LinkedDataStream<T extends Comparable<T>> extends AbstractInterface
 		return (new LinkedDataStream()).getObjectIcon();
 	}
 	
+	/***********************************************************
+	 * Reloads the linked table from the data source. The table is read asynchronously into memory
+	 * on a pooled connection (see {@link DataSource#submitQuery(String, ResultSetHandler)}); calls to
+	 * {@link #getValue(Comparable, String)} wait for the load to complete.
+	 * 
+	 * @throws DataSourceException
+	 */
 	public void refresh() throws DataSourceException{
 		DataTable table = data_source.getTableSet().getTable(data_table);
-		try{
-			index = (DataIndex<T>)table.getIndex(link_field);
-		}catch (ClassCastException ex){
-			throw new DataSourceException("LinkedDataStream: Index for field '" + link_field + "' of wrong type: " 
-										  + ex.getMessage());
-			}
+		if (table == null)
+			throw new DataSourceException("LinkedDataStream: DataSource '" + data_source.getName() + "' has no table" +
+										  " named '" + data_table + "..");
 		
-		if (index == null){
-			index = new DataIndex<T>(link_field);
-			table.addIndex(link_field, index);
+		synchronized (this){
+			if (load_task != null) load_task.cancel(true);
+			load_task = data_source.submitQuery(table.getSQLStatement(data_source.getDataSourceDriver()), 
+												new ResultSetHandler<LinkedRecords<T>>(){
+					public LinkedRecords<T> handleResultSet(ResultSet result_set) throws SQLException{
+						return new LinkedRecords<T>(result_set, link_field);
+						}
+					});
+			records = null;
+			}
+	}
+	
+	/***********************************************************
+	 * Determines whether the linked table has been loaded.
+	 * 
+	 * @return
+	 */
+	public synchronized boolean isLoaded(){
+		return records != null || (load_task != null && load_task.isDone() && !load_task.isCancelled());
+	}
+	
+	/***********************************************************
+	 * Returns the loaded records, waiting for a pending load if necessary.
+	 * 
+	 * @return
+	 * @throws DataSourceException if the load failed
+	 */
+	protected LinkedRecords<T> getRecords() throws DataSourceException{
+		DataQueryTask<LinkedRecords<T>> task;
+		synchronized (this){
+			if (records != null) return records;
+			if (load_task == null) refresh();
+			task = load_task;
+			}
+		try{
+			LinkedRecords<T> loaded = task.get();
+			synchronized (this){
+				if (task == load_task) records = loaded;
+				}
+			return loaded;
+		}catch (InterruptedException ex){
+			throw new DataSourceException("LinkedDataStream: Interrupted loading table '" + data_table + "'.");
+		}catch (CancellationException ex){
+			throw new DataSourceException("LinkedDataStream: Load of table '" + data_table + "' was cancelled.");
+		}catch (ExecutionException ex){
+			Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+			throw new DataSourceException("LinkedDataStream: Error loading table '" + data_table + "':\n" + 
+										  cause.getMessage());
 			}
-		
-		record_set = new DataRecordSet(table.getDataSource());
-		record_set.set(table);
-		index.populate(record_set);		//NB: this takes care of row count
 	}
 	
 	public String getLinkTable(){
@@ -247,21 +296,16 @@ public class LinkedDataStream<T extends Comparable<T>> extends AbstractInterface
 			if (obj != null) return obj;
 			}
 		
-		if (index == null) refresh();
-		Integer record = index.seek(key);
-		if (record < 0)
+		LinkedRecords<T> loaded = getRecords();
+		Object[] record = loaded.rows.get(key);
+		if (record == null)
 			throw new DataSourceException("LinkedDataStream: No record for field '" + link_field + "' = '" + key +"'..");
-		int idx = record_set.getFieldIndex(field);
-		try{
-			Object obj = record_set.getValueAt(record, idx);
-			if (obj == null)
-				throw new DataSourceException("LinkedDataStream: Null record for field '" + link_field + "' = '" + key +"'..");
-			if (cached) cache.get(key).put(field, obj);
-			return obj;
-		}catch (SQLException ex){
-			throw new DataSourceException("LinkedDataStream: Error getting data for field '" + link_field + "' = '" + key +"':\n" + 
-										  ex.getMessage());
-			}
+		Integer idx = loaded.fields.get(field);
+		Object obj = idx == null ? null : record[idx];
+		if (obj == null)
+			throw new DataSourceException("LinkedDataStream: Null record for field '" + link_field + "' = '" + key +"'..");
+		if (cached) cache.get(key).put(field, obj);
+		return obj;
 		
 	}
 	
@@ -298,4 +342,35 @@ public class LinkedDataStream<T extends Comparable<T>> extends AbstractInterface
 	}
 	
 
-}
\ No newline at end of file
+	/***********************************************************
+	 * In-memory copy of a linked table, indexed by the link field. Since the result set of an 
+	 * asynchronous query is closed once it has been handled, the records are copied out.
+	 *
+	 * @param <T>
+	 */
+	protected static class LinkedRecords<T> {
+		
+		final HashMap<T, Object[]> rows = new HashMap<T, Object[]>();
+		final HashMap<String, Integer> fields = new HashMap<String, Integer>();
+		
+		@SuppressWarnings("unchecked")
+		LinkedRecords(ResultSet result_set, String link_field) throws SQLException{
+			ResultSetMetaData meta_data = result_set.getMetaData();
+			int n = meta_data.getColumnCount();
+			for (int i = 0; i < n; i++)
+				fields.put(meta_data.getColumnName(i + 1), i);
+			Integer link_index = fields.get(link_field);
+			if (link_index == null)
+				throw new SQLException("LinkedDataStream: Result set has no field '" + link_field + "'.");
+			
+			while (result_set.next()){
+				Object[] row = new Object[n];
+				for (int i = 0; i < n; i++)
+					row[i] = result_set.getObject(i + 1);
+				rows.put((T)row[link_index], row);
+				}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,41 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.datasources;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**************************************************************
+ * Processes the result set of an asynchronous query submitted with
+ * {@link DataSource#submitQuery(String, ResultSetHandler)}. The result set is only valid for the
+ * duration of {@link #handleResultSet(ResultSet)}, since its pooled connection is released afterward;
+ * implementations should therefore copy out whatever they need.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ * @param <T> The type of the processed result
+ */
+public interface ResultSetHandler<T> {
+
+	public T handleResultSet(ResultSet result_set) throws SQLException;
+	
+}
@@ -333,6 +333,48 @@ public class Grid3D extends Box3D {
 	public Object clone(){
 		return new Grid3D(this);
 	}
+
+	/******************************
+	 * Returns a grid whose axes are a permutation of this grid's axes, with optional flips;
+	 * new axis {@code a} corresponds to this grid's axis {@code axes[a]} (0=S, 1=T, 2=R), reversed
+	 * if {@code flip[a]} is {@code true}. Together these describe all 48 axis-aligned orientations.
+	 *
+	 * <p>If {@code preserve_geometry} is {@code true}, the axis vectors and base point are permuted
+	 * such that every voxel keeps its world-space position (i.e., only the storage order changes).
+	 * Otherwise, the base point and axis directions of this grid are retained and only the axis
+	 * lengths are permuted, so that the reoriented data occupies the same frame.
+	 *
+	 * @param axes
+	 * @param flip
+	 * @param preserve_geometry
+	 * @return
+	 */
+	public Grid3D getPermutedGrid(int[] axes, boolean[] flip, boolean preserve_geometry){
+
+		int[] dims = new int[]{s_size, t_size, r_size};
+		Vector3f[] vectors = new Vector3f[]{getSAxis(), getTAxis(), getRAxis()};
+		Vector3f[] new_vectors = new Vector3f[3];
+		Point3f base = getBasePt();
+
+		for (int a = 0; a < 3; a++){
+			if (preserve_geometry){
+				new_vectors[a] = new Vector3f(vectors[axes[a]]);
+				if (flip[a]){
+					// Reversed axis runs from the opposite face
+					base.add(new_vectors[a]);
+					new_vectors[a].negate();
+					}
+			}else{
+				new_vectors[a] = new Vector3f(vectors[a]);
+				new_vectors[a].normalize();
+				new_vectors[a].scale(vectors[axes[a]].length());
+				}
+			}
+
+		return new Grid3D(dims[axes[0]], dims[axes[1]], dims[axes[2]], v_size,
+						  new Box3D(base, new_vectors[0], new_vectors[1], new_vectors[2]));
+
+	}
 	
 //	/************
 //	 * Returns a copy of this box's S-axis (analogous to X-axis), plus one voxel. This is useful for
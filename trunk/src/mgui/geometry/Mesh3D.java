@@ -35,6 +35,8 @@ import org.xml.sax.SAXException;
 
 import java.util.Base64;
 
+import mgui.geometry.mesh.MeshAdjacency;
+import mgui.geometry.mesh.MeshBVH;
 import mgui.geometry.mesh.MeshFunctions;
 import mgui.geometry.util.GeometryFunctions;
 import mgui.interfaces.InterfaceSession;
@@ -62,6 +64,9 @@ public class Mesh3D extends Shape3D {
 	public int[] faces = new int[10];
 	public int n = 0, f = 0;
 	
+	protected MeshAdjacency adjacency;
+	protected MeshBVH bvh;
+	
 	public Mesh3D(){
 		
 	}
@@ -105,6 +110,7 @@ public class Mesh3D extends Shape3D {
 		faces = new int[10];
 		n = 0;
 		f = 0;
+		topologyChanged();
 	}
 	
 	@Override
@@ -151,6 +157,7 @@ public class Mesh3D extends Shape3D {
 		faces = new int[f * 3];
 		System.arraycopy(mesh.nodes, 0, nodes, 0, n * 3);
 		System.arraycopy(mesh.faces, 0, faces, 0, f * 3);
+		topologyChanged();
 	}
 	
 	/****************************************
@@ -176,6 +183,7 @@ public class Mesh3D extends Shape3D {
 		faces[(f * 3) + 2] = c;
 		
 		f++;
+		topologyChanged();
 		
 		return true;
 	}
@@ -216,6 +224,7 @@ public class Mesh3D extends Shape3D {
 				if (faces[(a * 3) + 2] > i) faces[(a * 3) + 2]--;
 				}
 			}
+		topologyChanged();
 	}
 	
 	/********************************
@@ -231,6 +240,7 @@ public class Mesh3D extends Shape3D {
 			faces = new int[10];
 			f = 0;
 			}
+		topologyChanged();
 	}
 	
 	/********************************
@@ -313,6 +323,7 @@ public class Mesh3D extends Shape3D {
 			faces[(a * 3) + 2] = faces[(a * 3) + 5];
 			}
 		f--;
+		topologyChanged();
 	}
 	
 	@Override
@@ -388,7 +399,7 @@ public class Mesh3D extends Shape3D {
 			faces[(i * 3) + 1] = list.get(i).B;
 			faces[(i * 3) + 2] = list.get(i).C;
 			}
-		
+		topologyChanged();
 	}
 	
 	public int[] getFaceIndexArray(){
@@ -410,6 +421,7 @@ public class Mesh3D extends Shape3D {
 	public void removeAllFaces(){
 		faces = new int[0];
 		f = 0;
+		topologyChanged();
 	}
 	
 	@Override
@@ -420,7 +432,42 @@ public class Mesh3D extends Shape3D {
 		int[] fBuffer = new int[(f * 3)];
 		System.arraycopy(faces, 0, fBuffer, 0, f * 3);
 		faces = fBuffer;
-		
+		topologyChanged();
+	}
+	
+	/**************************************************
+	 * Returns the vertex adjacency of this mesh, building it if necessary. The adjacency is cached 
+	 * until the topology (vertices or faces) of this mesh changes.
+	 * 
+	 * @return
+	 */
+	public synchronized MeshAdjacency getAdjacency(){
+		if (adjacency == null || !adjacency.isValidFor(this))
+			adjacency = new MeshAdjacency(this);
+		return adjacency;
+	}
+	
+	/**************************************************
+	 * Notifies this mesh that its topology has changed, discarding cached adjacency. Must be called
+	 * if {@link #faces} is modified directly.
+	 * 
+	 */
+	public synchronized void topologyChanged(){
+		adjacency = null;
+		bvh = null;
+	}
+	
+	/**************************************************
+	 * Returns a bounding volume hierarchy over the faces of this mesh, for fast ray casting and 
+	 * intersection queries, building it if necessary. The hierarchy is cached until the vertex 
+	 * coordinates or faces of this mesh change.
+	 * 
+	 * @return
+	 */
+	public synchronized MeshBVH getBVH(){
+		if (bvh == null || !bvh.isValidFor(this))
+			bvh = new MeshBVH(this);
+		return bvh;
 	}
 	
 	//is this face clockwise?
@@ -450,6 +497,7 @@ public class Mesh3D extends Shape3D {
 		int t = faces[i * 3];
 		faces[i * 3] = faces[i * 3 + 1];
 		faces[i * 3 + 1] = t;
+		topologyChanged();
 	}
 	
 	/**************************************************
@@ -750,6 +798,7 @@ public class Mesh3D extends Shape3D {
 //					loadBinaryFaces(s, 2);
 //					break;
 				}
+			topologyChanged();
 			
 			return;
 			}
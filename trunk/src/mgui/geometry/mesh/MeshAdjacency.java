@@ -0,0 +1,173 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.geometry.mesh;
+
+import java.util.Arrays;
+
+import mgui.geometry.Mesh3D;
+import mgui.interfaces.util.ParallelFunctions;
+
+/********************************
+ * Compact, array-based vertex adjacency for a {@link Mesh3D}: for each vertex, its neighbouring vertices
+ * and its incident faces, stored in compressed row format. Unlike {@link NeighbourhoodMesh}, no per-vertex
+ * objects are created, so it is cheap to build for large surfaces and safe to read concurrently.
+ * 
+ * <p>Instances are normally obtained from {@link Mesh3D#getAdjacency()}, which caches the adjacency until
+ * the mesh topology changes; vertex positions may change freely.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class MeshAdjacency {
+
+	protected int n, f;
+	protected int[] faces;
+	
+	/** Offsets into {@code neighbours}; the neighbours of vertex i are at [nbr_offsets[i], nbr_offsets[i+1]) */
+	public final int[] nbr_offsets;
+	/** Neighbouring vertex indices, sorted ascending for each vertex */
+	public final int[] neighbours;
+	/** Offsets into {@code vertex_faces}; the faces of vertex i are at [face_offsets[i], face_offsets[i+1]) */
+	public final int[] face_offsets;
+	/** Incident face indices, ascending for each vertex */
+	public final int[] vertex_faces;
+	
+	/********************************
+	 * Builds the adjacency of {@code mesh}.
+	 * 
+	 * @param mesh
+	 */
+	public MeshAdjacency(Mesh3D mesh){
+		
+		this.n = mesh.n;
+		this.f = mesh.f;
+		this.faces = mesh.faces;
+		
+		final int[] m_faces = mesh.faces;
+		final int n_faces = mesh.f;
+		
+		// Vertex -> face
+		face_offsets = new int[n + 1];
+		for (int i = 0; i < n_faces * 3; i++)
+			face_offsets[m_faces[i] + 1]++;
+		for (int i = 0; i < n; i++)
+			face_offsets[i + 1] += face_offsets[i];
+		vertex_faces = new int[face_offsets[n]];
+		int[] fill = Arrays.copyOf(face_offsets, n);
+		for (int i = 0; i < n_faces; i++){
+			int o = i * 3;
+			vertex_faces[fill[m_faces[o]]++] = i;
+			vertex_faces[fill[m_faces[o + 1]]++] = i;
+			vertex_faces[fill[m_faces[o + 2]]++] = i;
+			}
+		
+		// Vertex -> vertex; gather the other two nodes of each incident face, then sort and 
+		// remove duplicates for each vertex
+		final int[] counts = new int[n];
+		final int[] candidates = new int[vertex_faces.length * 2];
+		try{
+			ParallelFunctions.runPartitioned(n, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					for (int v = start; v < end; v++){
+						int c0 = face_offsets[v] * 2;
+						int c = c0;
+						for (int j = face_offsets[v]; j < face_offsets[v + 1]; j++){
+							int o = vertex_faces[j] * 3;
+							for (int k = 0; k < 3; k++){
+								int w = m_faces[o + k];
+								if (w != v) candidates[c++] = w;
+								}
+							}
+						Arrays.sort(candidates, c0, c);
+						int u = c0;
+						for (int j = c0; j < c; j++)
+							if (j == c0 || candidates[j] != candidates[u - 1])
+								candidates[u++] = candidates[j];
+						counts[v] = u - c0;
+						}
+					}
+				});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
+		
+		nbr_offsets = new int[n + 1];
+		for (int i = 0; i < n; i++)
+			nbr_offsets[i + 1] = nbr_offsets[i] + counts[i];
+		neighbours = new int[nbr_offsets[n]];
+		for (int i = 0; i < n; i++)
+			System.arraycopy(candidates, face_offsets[i] * 2, neighbours, nbr_offsets[i], counts[i]);
+		
+	}
+	
+	/********************************
+	 * Determines whether this adjacency was built from the current topology of {@code mesh}; i.e.,
+	 * it has the same vertex and face counts and face array. In-place changes to the face array
+	 * are not detected; see {@link Mesh3D#topologyChanged()}.
+	 * 
+	 * @param mesh
+	 * @return
+	 */
+	public boolean isValidFor(Mesh3D mesh){
+		return mesh.n == n && mesh.f == f && mesh.faces == faces;
+	}
+	
+	/********************************
+	 * Returns the number of vertices.
+	 * 
+	 * @return
+	 */
+	public int getVertexCount(){
+		return n;
+	}
+	
+	/********************************
+	 * Returns the number of neighbours of vertex {@code i}.
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public int getNeighbourCount(int i){
+		return nbr_offsets[i + 1] - nbr_offsets[i];
+	}
+	
+	/********************************
+	 * Returns a copy of the neighbours of vertex {@code i}.
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public int[] getNeighbours(int i){
+		return Arrays.copyOfRange(neighbours, nbr_offsets[i], nbr_offsets[i + 1]);
+	}
+	
+	/********************************
+	 * Returns a copy of the faces incident to vertex {@code i}.
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public int[] getFaces(int i){
+		return Arrays.copyOfRange(vertex_faces, face_offsets[i], face_offsets[i + 1]);
+	}
+	
+}
@@ -0,0 +1,930 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.geometry.mesh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mgui.geometry.Mesh3D;
+import mgui.interfaces.ProgressUpdater;
+import mgui.interfaces.util.ParallelFunctions;
+
+import org.jogamp.vecmath.Point3f;
+import org.jogamp.vecmath.Tuple3d;
+import org.jogamp.vecmath.Tuple3f;
+
+/***********************************************
+ * A bounding volume hierarchy (BVH) of axis-aligned boxes over the faces of a {@linkplain Mesh3D}.
+ * The tree is built by median splits along the longest axis of each node's centroid bounds, and is 
+ * stored in flat arrays in depth-first order: the left child of an internal node immediately follows it,
+ * and the index of its right child is stored in place of a face range.
+ * 
+ * <p>The tree holds a copy of the mesh geometry at construction, so it must be rebuilt if the mesh changes.
+ * 
+ * <p>Rays (or segments) can be cast against the mesh with {@link #getFirstHit} and {@link #getAllHits}; 
+ * a cached hierarchy for a mesh is available from {@link Mesh3D#getBVH()}.
+ * 
+ * <p>Pairs of intersecting faces, within a single mesh or between two meshes, are found with
+ * {@link #getSelfIntersectingPairs(MeshBVH, ProgressUpdater)} and 
+ * {@link #getIntersectingPairs(MeshBVH, MeshBVH, ProgressUpdater)}, which traverse the trees 
+ * simultaneously, in parallel, and apply an exact triangle-triangle test to overlapping leaves. 
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class MeshBVH {
+
+	/** Maximum number of faces in a leaf node */
+	public static int LEAF_SIZE = 4;
+	
+	protected float[] coords;
+	protected int[] faces;
+	protected int face_count;
+	
+	// Node arrays; for leaves, node_start is the first index into face_order and node_count > 0;
+	// for internal nodes, node_start is the index of the right child and node_count == 0
+	protected float[] node_bounds;
+	protected int[] node_start;
+	protected int[] node_count;
+	protected int node_total;
+	protected int[] face_order;
+	
+	/***********************************************
+	 * Builds a hierarchy over the faces of {@code mesh}.
+	 * 
+	 * @param mesh
+	 */
+	public MeshBVH(Mesh3D mesh){
+		coords = Arrays.copyOf(mesh.nodes, mesh.n * 3);
+		faces = Arrays.copyOf(mesh.faces, mesh.f * 3);
+		face_count = mesh.f;
+		build();
+	}
+	
+	/***********************************************
+	 * Determines whether this hierarchy still describes {@code mesh}; i.e., whether the mesh has the same
+	 * vertex coordinates and faces as when this hierarchy was built. This is a linear-time comparison, 
+	 * which is much cheaper than a rebuild.
+	 * 
+	 * @param mesh
+	 * @return
+	 */
+	public boolean isValidFor(Mesh3D mesh){
+		if (mesh.n * 3 != coords.length || mesh.f != face_count) return false;
+		if (mesh.nodes.length < coords.length || mesh.faces.length < faces.length) return false;
+		for (int i = 0; i < coords.length; i++)
+			if (Float.floatToRawIntBits(coords[i]) != Float.floatToRawIntBits(mesh.nodes[i])) return false;
+		for (int i = 0; i < faces.length; i++)
+			if (faces[i] != mesh.faces[i]) return false;
+		return true;
+	}
+	
+	/***********************************************
+	 * Returns the number of faces in this hierarchy.
+	 * 
+	 * @return
+	 */
+	public int getFaceCount(){
+		return face_count;
+	}
+	
+	/***********************************************
+	 * Returns the number of nodes in this hierarchy.
+	 * 
+	 * @return
+	 */
+	public int getNodeCount(){
+		return node_total;
+	}
+	
+	/***********************************************
+	 * Returns the bounds of the entire mesh, as {min_x, min_y, min_z, max_x, max_y, max_z}, or
+	 * {@code null} if the mesh has no faces.
+	 * 
+	 * @return
+	 */
+	public float[] getBounds(){
+		if (node_total == 0) return null;
+		return Arrays.copyOf(node_bounds, 6);
+	}
+	
+	protected void build(){
+		
+		int f = face_count;
+		node_bounds = new float[Math.max(1, 2 * f) * 6];
+		node_start = new int[Math.max(1, 2 * f)];
+		node_count = new int[Math.max(1, 2 * f)];
+		face_order = new int[f];
+		node_total = 0;
+		if (f == 0) return;
+		
+		// Face bounds and centroids
+		final float[] face_bounds = new float[f * 6];
+		final float[] centroids = new float[f * 3];
+		for (int i = 0; i < f; i++){
+			face_order[i] = i;
+			int a = faces[i * 3] * 3, b = faces[i * 3 + 1] * 3, c = faces[i * 3 + 2] * 3;
+			for (int k = 0; k < 3; k++){
+				float va = coords[a + k], vb = coords[b + k], vc = coords[c + k];
+				face_bounds[i * 6 + k] = Math.min(va, Math.min(vb, vc));
+				face_bounds[i * 6 + 3 + k] = Math.max(va, Math.max(vb, vc));
+				centroids[i * 3 + k] = (va + vb + vc) / 3f;
+				}
+			}
+		
+		node_total = buildNode(0, 0, f, face_bounds, centroids);
+	}
+	
+	/***********************************************
+	 * Builds the subtree at {@code node} over {@code face_order[start..end)}; returns the index of the next
+	 * free node. The recursion depth is logarithmic in the face count, since splits are at the median.
+	 * 
+	 */
+	private int buildNode(int node, int start, int end, float[] face_bounds, float[] centroids){
+		
+		int nb = node * 6;
+		if (end - start <= LEAF_SIZE){
+			for (int k = 0; k < 3; k++){
+				node_bounds[nb + k] = Float.MAX_VALUE;
+				node_bounds[nb + 3 + k] = -Float.MAX_VALUE;
+				}
+			for (int i = start; i < end; i++){
+				int fb = face_order[i] * 6;
+				for (int k = 0; k < 3; k++){
+					node_bounds[nb + k] = Math.min(node_bounds[nb + k], face_bounds[fb + k]);
+					node_bounds[nb + 3 + k] = Math.max(node_bounds[nb + 3 + k], face_bounds[fb + 3 + k]);
+					}
+				}
+			node_start[node] = start;
+			node_count[node] = end - start;
+			return node + 1;
+			}
+		
+		// Split along the longest axis of the centroid bounds
+		float min_x = Float.MAX_VALUE, min_y = Float.MAX_VALUE, min_z = Float.MAX_VALUE;
+		float max_x = -Float.MAX_VALUE, max_y = -Float.MAX_VALUE, max_z = -Float.MAX_VALUE;
+		for (int i = start; i < end; i++){
+			int c = face_order[i] * 3;
+			float x = centroids[c], y = centroids[c + 1], z = centroids[c + 2];
+			if (x < min_x) min_x = x; if (x > max_x) max_x = x;
+			if (y < min_y) min_y = y; if (y > max_y) max_y = y;
+			if (z < min_z) min_z = z; if (z > max_z) max_z = z;
+			}
+		int axis = 0;
+		if (max_y - min_y > max_x - min_x) axis = 1;
+		if (max_z - min_z > Math.max(max_x - min_x, max_y - min_y)) axis = 2;
+		
+		int mid = (start + end) >>> 1;
+		selectMedian(centroids, axis, start, end - 1, mid);
+		
+		int left = node + 1;
+		int right = buildNode(left, start, mid, face_bounds, centroids);
+		int next = buildNode(right, mid, end, face_bounds, centroids);
+		node_start[node] = right;
+		node_count[node] = 0;
+		
+		// Bounds are the union of the children's bounds
+		int lb = left * 6, rb = right * 6;
+		for (int k = 0; k < 3; k++){
+			node_bounds[nb + k] = Math.min(node_bounds[lb + k], node_bounds[rb + k]);
+			node_bounds[nb + 3 + k] = Math.max(node_bounds[lb + 3 + k], node_bounds[rb + 3 + k]);
+			}
+		return next;
+	}
+	
+	/***********************************************
+	 * Partially orders {@code face_order[lo..hi]} such that element {@code k} has the median centroid 
+	 * along {@code axis}, with smaller elements before it and larger after (quickselect).
+	 * 
+	 */
+	private void selectMedian(float[] centroids, int axis, int lo, int hi, int k){
+		while (hi > lo){
+			float pivot = centroids[face_order[(lo + hi) >>> 1] * 3 + axis];
+			int i = lo, j = hi;
+			while (i <= j){
+				while (centroids[face_order[i] * 3 + axis] < pivot) i++;
+				while (centroids[face_order[j] * 3 + axis] > pivot) j--;
+				if (i <= j){
+					int t = face_order[i]; face_order[i] = face_order[j]; face_order[j] = t;
+					i++; j--;
+					}
+				}
+			if (k <= j) hi = j;
+			else if (k >= i) lo = i;
+			else return;
+			}
+	}
+	
+	protected boolean overlaps(int node_a, MeshBVH other, int node_b){
+		int a = node_a * 6, b = node_b * 6;
+		float[] bb = other.node_bounds;
+		return node_bounds[a] <= bb[b + 3] && node_bounds[a + 3] >= bb[b] &&
+			   node_bounds[a + 1] <= bb[b + 4] && node_bounds[a + 4] >= bb[b + 1] &&
+			   node_bounds[a + 2] <= bb[b + 5] && node_bounds[a + 5] >= bb[b + 2];
+	}
+	
+	protected float getNodeExtent(int node){
+		int b = node * 6;
+		return (node_bounds[b + 3] - node_bounds[b]) + 
+			   (node_bounds[b + 4] - node_bounds[b + 1]) + 
+			   (node_bounds[b + 5] - node_bounds[b + 2]);
+	}
+	
+	/***********************************************
+	 * Returns all pairs of faces in the mesh of {@code bvh} which intersect each other. Faces which share an
+	 * edge are not tested; faces which share a single vertex are reported only if they intersect somewhere
+	 * other than that vertex.
+	 * 
+	 * @param bvh
+	 * @param progress 		Optional progress updater; can be {@code null}
+	 * @return an array of face index pairs {i0, j0, i1, j1, ...}, with {@code i < j}
+	 */
+	public static int[] getSelfIntersectingPairs(MeshBVH bvh, ProgressUpdater progress){
+		return getPairs(bvh, bvh, true, progress);
+	}
+	
+	/***********************************************
+	 * Returns all pairs of faces, one from each mesh, which intersect (or touch) each other.
+	 * 
+	 * @param bvh_1
+	 * @param bvh_2
+	 * @param progress 		Optional progress updater; can be {@code null}
+	 * @return an array of face index pairs {i0, j0, i1, j1, ...}, where {@code i} indexes a face of 
+	 * 		   {@code bvh_1} and {@code j} a face of {@code bvh_2}
+	 */
+	public static int[] getIntersectingPairs(MeshBVH bvh_1, MeshBVH bvh_2, ProgressUpdater progress){
+		return getPairs(bvh_1, bvh_2, false, progress);
+	}
+	
+	/***********************************************
+	 * Returns the sorted, distinct face indices appearing in {@code pairs}, at position {@code which} 
+	 * (0 or 1) of each pair.
+	 * 
+	 * @param pairs 		Face pairs, as returned by {@link #getIntersectingPairs}
+	 * @param which 		0 for the first face of each pair, 1 for the second
+	 * @param face_count 	Number of faces in the corresponding mesh
+	 * @return
+	 */
+	public static int[] getFaces(int[] pairs, int which, int face_count){
+		boolean[] flags = new boolean[face_count];
+		int count = 0;
+		for (int i = which; i < pairs.length; i += 2)
+			if (!flags[pairs[i]]){
+				flags[pairs[i]] = true;
+				count++;
+				}
+		int[] result = new int[count];
+		int k = 0;
+		for (int i = 0; i < face_count; i++)
+			if (flags[i]) result[k++] = i;
+		return result;
+	}
+	
+	/***********************************************
+	 * Returns the sorted, distinct face indices appearing at either position of {@code pairs}.
+	 * 
+	 * @param pairs
+	 * @param face_count
+	 * @return
+	 */
+	public static int[] getFaces(int[] pairs, int face_count){
+		int[] result = new int[pairs.length];
+		for (int i = 0; i < pairs.length; i++)
+			result[i] = pairs[i];
+		Arrays.sort(result);
+		int k = 0;
+		for (int i = 0; i < result.length; i++)
+			if (k == 0 || result[k - 1] != result[i])
+				result[k++] = result[i];
+		return Arrays.copyOf(result, k);
+	}
+	
+	/***********************************************
+	 * Runs the dual traversal. The top of the traversal is expanded sequentially into a list of independent
+	 * node pairs, which are then processed in parallel, each partition writing to its own result buffer.
+	 * 
+	 */
+	protected static int[] getPairs(final MeshBVH bvh_1, final MeshBVH bvh_2, final boolean self, 
+									final ProgressUpdater progress){
+		
+		if (bvh_1.node_total == 0 || bvh_2.node_total == 0) return new int[0];
+		
+		// Work items: {node_1, node_2, is_self}
+		int target = ParallelFunctions.getThreadCount() * 16;
+		IntList work = new IntList();
+		IntList next = new IntList();
+		IntList leaf_work = new IntList();
+		work.add(0); work.add(0); work.add(self ? 1 : 0);
+		
+		while (work.size > 0 && work.size / 3 + leaf_work.size / 3 < target){
+			next.size = 0;
+			for (int i = 0; i < work.size; i += 3)
+				expand(bvh_1, bvh_2, work.data[i], work.data[i + 1], work.data[i + 2] == 1, next, leaf_work);
+			IntList t = work; work = next; next = t;
+			}
+		for (int i = 0; i < leaf_work.size; i++)
+			work.add(leaf_work.data[i]);
+		
+		final int[] items = Arrays.copyOf(work.data, work.size);
+		final int n_items = items.length / 3;
+		if (n_items == 0) return new int[0];
+		
+		if (progress != null){
+			progress.setMinimum(0);
+			progress.setMaximum(n_items);
+			progress.update(0);
+			}
+		
+		// Smaller partitions than threads, for load balancing
+		int[][] partitions = ParallelFunctions.getPartitions(n_items, 
+									Math.min(n_items, ParallelFunctions.getPartitionCount(n_items) * 4));
+		final IntList[] results = new IntList[partitions.length];
+		final AtomicInteger done = new AtomicInteger();
+		
+		try{
+			ParallelFunctions.runPartitioned(partitions, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					IntList result = new IntList();
+					IntList stack = new IntList();
+					double[] scratch = new double[TRI_SCRATCH];
+					for (int i = start; i < end; i++){
+						stack.size = 0;
+						stack.add(items[i * 3]); stack.add(items[i * 3 + 1]); stack.add(items[i * 3 + 2]);
+						traverse(bvh_1, bvh_2, stack, result, scratch);
+						if (progress != null)
+							progress.update(done.incrementAndGet());
+						}
+					results[partition] = result;
+					}
+				});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
+		
+		int total = 0;
+		for (int i = 0; i < results.length; i++)
+			total += results[i].size;
+		int[] pairs = new int[total];
+		int k = 0;
+		for (int i = 0; i < results.length; i++){
+			System.arraycopy(results[i].data, 0, pairs, k, results[i].size);
+			k += results[i].size;
+			}
+		return pairs;
+	}
+	
+	/***********************************************
+	 * Expands one level of the traversal from the pair {@code (a, b)}. Pairs involving two leaves are added 
+	 * to {@code leaves}, since they cannot be expanded further.
+	 * 
+	 */
+	private static void expand(MeshBVH bvh_1, MeshBVH bvh_2, int a, int b, boolean is_self, 
+							   IntList next, IntList leaves){
+		if (is_self){
+			if (bvh_1.node_count[a] > 0){
+				leaves.add(a); leaves.add(a); leaves.add(1);
+				return;
+				}
+			int left = a + 1, right = bvh_1.node_start[a];
+			next.add(left); next.add(left); next.add(1);
+			next.add(right); next.add(right); next.add(1);
+			if (bvh_1.overlaps(left, bvh_1, right)){
+				next.add(left); next.add(right); next.add(0);
+				}
+			return;
+			}
+		
+		if (!bvh_1.overlaps(a, bvh_2, b)) return;
+		boolean leaf_a = bvh_1.node_count[a] > 0, leaf_b = bvh_2.node_count[b] > 0;
+		if (leaf_a && leaf_b){
+			leaves.add(a); leaves.add(b); leaves.add(0);
+			return;
+			}
+		if (leaf_b || (!leaf_a && bvh_1.getNodeExtent(a) >= bvh_2.getNodeExtent(b))){
+			next.add(a + 1); next.add(b); next.add(0);
+			next.add(bvh_1.node_start[a]); next.add(b); next.add(0);
+		}else{
+			next.add(a); next.add(b + 1); next.add(0);
+			next.add(a); next.add(bvh_2.node_start[b]); next.add(0);
+			}
+	}
+	
+	/***********************************************
+	 * Depth-first traversal of the node pairs on {@code stack}, descending into the larger node of each 
+	 * overlapping pair and testing the faces of overlapping leaves.
+	 * 
+	 */
+	private static void traverse(MeshBVH bvh_1, MeshBVH bvh_2, IntList stack, IntList result, double[] scratch){
+		
+		while (stack.size > 0){
+			boolean is_self = stack.data[--stack.size] == 1;
+			int b = stack.data[--stack.size];
+			int a = stack.data[--stack.size];
+			
+			if (is_self){
+				// Pairs within a single subtree of the same mesh
+				if (bvh_1.node_count[a] > 0){
+					int start = bvh_1.node_start[a], end = start + bvh_1.node_count[a];
+					for (int i = start; i < end; i++)
+						for (int j = i + 1; j < end; j++)
+							testFaces(bvh_1, bvh_1.face_order[i], bvh_1, bvh_1.face_order[j], true, result, scratch);
+					continue;
+					}
+				int left = a + 1, right = bvh_1.node_start[a];
+				stack.add(left); stack.add(left); stack.add(1);
+				stack.add(right); stack.add(right); stack.add(1);
+				stack.add(left); stack.add(right); stack.add(0);
+				continue;
+				}
+			
+			if (!bvh_1.overlaps(a, bvh_2, b)) continue;
+			boolean leaf_a = bvh_1.node_count[a] > 0, leaf_b = bvh_2.node_count[b] > 0;
+			if (leaf_a && leaf_b){
+				int start_a = bvh_1.node_start[a], end_a = start_a + bvh_1.node_count[a];
+				int start_b = bvh_2.node_start[b], end_b = start_b + bvh_2.node_count[b];
+				boolean same = bvh_1 == bvh_2;
+				for (int i = start_a; i < end_a; i++)
+					for (int j = start_b; j < end_b; j++)
+						testFaces(bvh_1, bvh_1.face_order[i], bvh_2, bvh_2.face_order[j], same, result, scratch);
+				continue;
+				}
+			if (leaf_b || (!leaf_a && bvh_1.getNodeExtent(a) >= bvh_2.getNodeExtent(b))){
+				stack.add(a + 1); stack.add(b); stack.add(0);
+				stack.add(bvh_1.node_start[a]); stack.add(b); stack.add(0);
+			}else{
+				stack.add(a); stack.add(b + 1); stack.add(0);
+				stack.add(a); stack.add(bvh_2.node_start[b]); stack.add(0);
+				}
+			}
+	}
+	
+	private static void testFaces(MeshBVH bvh_1, int face_1, MeshBVH bvh_2, int face_2, boolean same, 
+								  IntList result, double[] scratch){
+		
+		int[] f1 = bvh_1.faces, f2 = bvh_2.faces;
+		int a0 = f1[face_1 * 3], a1 = f1[face_1 * 3 + 1], a2 = f1[face_1 * 3 + 2];
+		int b0 = f2[face_2 * 3], b1 = f2[face_2 * 3 + 1], b2 = f2[face_2 * 3 + 2];
+		
+		// Count shared vertices, which can only occur within a single mesh
+		int shared = 0, s_a = -1, s_b = -1;
+		if (same){
+			for (int i = 0; i < 3; i++){
+				int v = i == 0 ? a0 : (i == 1 ? a1 : a2);
+				int j = v == b0 ? 0 : (v == b1 ? 1 : (v == b2 ? 2 : -1));
+				if (j >= 0){
+					shared++;
+					s_a = i;
+					s_b = j;
+					}
+				}
+			if (shared > 1) return;
+			}
+		
+		// Quick face bounds test, since leaves contain several faces
+		float[] c1 = bvh_1.coords, c2 = bvh_2.coords;
+		for (int k = 0; k < 3; k++){
+			float min_a = Math.min(c1[a0 * 3 + k], Math.min(c1[a1 * 3 + k], c1[a2 * 3 + k]));
+			float max_a = Math.max(c1[a0 * 3 + k], Math.max(c1[a1 * 3 + k], c1[a2 * 3 + k]));
+			float min_b = Math.min(c2[b0 * 3 + k], Math.min(c2[b1 * 3 + k], c2[b2 * 3 + k]));
+			float max_b = Math.max(c2[b0 * 3 + k], Math.max(c2[b1 * 3 + k], c2[b2 * 3 + k]));
+			if (min_a > max_b || min_b > max_a) return;
+			}
+		
+		loadTriangle(c1, a0, a1, a2, scratch, 0);
+		loadTriangle(c2, b0, b1, b2, scratch, 9);
+		boolean intersects;
+		if (shared == 1){
+			// Faces sharing a vertex intersect elsewhere only if an edge opposite the shared vertex 
+			// meets the other face
+			intersects = segmentTriangle(scratch, 0, (s_a + 1) % 3, (s_a + 2) % 3, 9) ||
+						 segmentTriangle(scratch, 9, (s_b + 1) % 3, (s_b + 2) % 3, 0);
+		}else{
+			intersects = triangleTriangle(scratch);
+			}
+		
+		if (!intersects) return;
+		if (same && face_2 < face_1){
+			result.add(face_2); result.add(face_1);
+		}else{
+			result.add(face_1); result.add(face_2);
+			}
+	}
+	
+	/************************** Ray casting **********************************/
+	
+	/***********************************************
+	 * The intersection of a ray with a face of a mesh.
+	 *
+	 */
+	public static class RayHit implements Comparable<RayHit> {
+		
+		/** Index of the face hit, or -1 if there was no hit */
+		public int face = -1;
+		/** Distance along the ray, in units of its direction vector */
+		public double t = Double.MAX_VALUE;
+		/** Barycentric coordinates of the hit point, relative to the face's second and third vertices */
+		public double u, v;
+		
+		public boolean isHit(){
+			return face >= 0;
+		}
+		
+		/***********************************************
+		 * Returns the index of the vertex of the hit face which is closest to the hit point, or -1 if
+		 * there was no hit.
+		 * 
+		 * @param bvh 		The hierarchy which produced this hit
+		 * @return
+		 */
+		public int getClosestVertex(MeshBVH bvh){
+			if (face < 0) return -1;
+			double w = 1.0 - u - v;
+			int k = 0;
+			if (u > w && u >= v) k = 1;
+			else if (v > w && v > u) k = 2;
+			return bvh.faces[face * 3 + k];
+		}
+		
+		/***********************************************
+		 * Returns the hit point, given the origin and direction of the ray which produced it.
+		 * 
+		 * @param origin
+		 * @param direction
+		 * @return
+		 */
+		public Point3f getPoint(Tuple3f origin, Tuple3f direction){
+			return new Point3f((float)(origin.x + t * direction.x), 
+							   (float)(origin.y + t * direction.y), 
+							   (float)(origin.z + t * direction.z));
+		}
+		
+		public int compareTo(RayHit other){
+			return Double.compare(t, other.t);
+		}
+		
+	}
+	
+	/***********************************************
+	 * Returns the closest intersection of the ray {@code origin + t * direction}, with {@code 0 <= t <= max_t}, 
+	 * with a face of this mesh. Both sides of each face can be hit.
+	 * 
+	 * @param origin
+	 * @param direction
+	 * @param max_t 		Maximum distance along the ray, in units of {@code direction}; use 
+	 * 						{@code Double.POSITIVE_INFINITY} for an unbounded ray, or 1 for the
+	 * 						segment from {@code origin} to {@code origin + direction} 
+	 * @return the hit; test with {@link RayHit#isHit()}
+	 */
+	public RayHit getFirstHit(Tuple3f origin, Tuple3f direction, double max_t){
+		return getFirstHit(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z, max_t);
+	}
+	
+	/***********************************************
+	 * Returns the closest intersection of the ray {@code origin + t * direction}, with {@code 0 <= t <= max_t}, 
+	 * with a face of this mesh.
+	 * 
+	 * @param origin
+	 * @param direction
+	 * @param max_t
+	 * @return the hit; test with {@link RayHit#isHit()}
+	 */
+	public RayHit getFirstHit(Tuple3d origin, Tuple3d direction, double max_t){
+		return getFirstHit(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z, max_t);
+	}
+	
+	protected RayHit getFirstHit(double ox, double oy, double oz, double dx, double dy, double dz, double max_t){
+		RayHit hit = new RayHit();
+		hit.t = max_t;
+		castRay(ox, oy, oz, dx, dy, dz, hit, null);
+		if (hit.face < 0) hit.t = Double.MAX_VALUE;
+		return hit;
+	}
+	
+	/***********************************************
+	 * Returns all intersections of the ray {@code origin + t * direction}, with {@code 0 <= t <= max_t}, 
+	 * with faces of this mesh, sorted by increasing distance.
+	 * 
+	 * @param origin
+	 * @param direction
+	 * @param max_t
+	 * @return
+	 */
+	public RayHit[] getAllHits(Tuple3f origin, Tuple3f direction, double max_t){
+		RayHit bound = new RayHit();
+		bound.t = max_t;
+		ArrayList<RayHit> hits = new ArrayList<RayHit>();
+		castRay(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z, bound, hits);
+		RayHit[] result = hits.toArray(new RayHit[0]);
+		Arrays.sort(result);
+		return result;
+	}
+	
+	/***********************************************
+	 * Traverses the tree along a ray, nearest child first. If {@code all} is {@code null}, {@code closest}
+	 * is updated with the nearest hit and used to prune the traversal; otherwise every hit within 
+	 * {@code closest.t} is added to {@code all}.
+	 * 
+	 */
+	private void castRay(double ox, double oy, double oz, double dx, double dy, double dz, 
+						 RayHit closest, List<RayHit> all){
+		
+		if (node_total == 0) return;
+		double ix = 1.0 / dx, iy = 1.0 / dy, iz = 1.0 / dz;
+		double max_t = closest.t;
+		
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = 0;
+		
+		while (top > 0){
+			int node = stack[--top];
+			double limit = all == null ? closest.t : max_t;
+			if (getBoxEntry(node, ox, oy, oz, ix, iy, iz, limit) < 0) continue;
+			
+			int count = node_count[node];
+			if (count > 0){
+				int start = node_start[node];
+				for (int i = start; i < start + count; i++){
+					int face = face_order[i];
+					RayHit hit = intersectFace(face, ox, oy, oz, dx, dy, dz, all == null ? closest.t : max_t);
+					if (hit == null) continue;
+					if (all != null){
+						all.add(hit);
+					}else{
+						closest.face = hit.face;
+						closest.t = hit.t;
+						closest.u = hit.u;
+						closest.v = hit.v;
+						}
+					}
+				continue;
+				}
+			
+			// Push the farther child first, so the nearer is visited first
+			int left = node + 1, right = node_start[node];
+			double t_left = getBoxEntry(left, ox, oy, oz, ix, iy, iz, limit);
+			double t_right = getBoxEntry(right, ox, oy, oz, ix, iy, iz, limit);
+			if (top + 2 > stack.length)
+				stack = Arrays.copyOf(stack, stack.length * 2);
+			if (t_left < 0){
+				if (t_right >= 0) stack[top++] = right;
+			}else if (t_right < 0){
+				stack[top++] = left;
+			}else if (t_left <= t_right){
+				stack[top++] = right;
+				stack[top++] = left;
+			}else{
+				stack[top++] = left;
+				stack[top++] = right;
+				}
+			}
+	}
+	
+	/***********************************************
+	 * Returns the distance at which the ray enters the bounds of {@code node} (slab test), or -1 if 
+	 * it misses them within [0, {@code max_t}].
+	 * 
+	 */
+	private double getBoxEntry(int node, double ox, double oy, double oz, double ix, double iy, double iz, 
+							   double max_t){
+		int b = node * 6;
+		double t0 = 0, t1 = max_t;
+		double a = (node_bounds[b] - ox) * ix, c = (node_bounds[b + 3] - ox) * ix;
+		if (a > c){ double t = a; a = c; c = t; }
+		if (a > t0) t0 = a;
+		if (c < t1) t1 = c;
+		a = (node_bounds[b + 1] - oy) * iy; c = (node_bounds[b + 4] - oy) * iy;
+		if (a > c){ double t = a; a = c; c = t; }
+		if (a > t0) t0 = a;
+		if (c < t1) t1 = c;
+		a = (node_bounds[b + 2] - oz) * iz; c = (node_bounds[b + 5] - oz) * iz;
+		if (a > c){ double t = a; a = c; c = t; }
+		if (a > t0) t0 = a;
+		if (c < t1) t1 = c;
+		// NaN (ray parallel to and on a slab boundary) is treated as a hit
+		if (t0 > t1) return -1;
+		return t0;
+	}
+	
+	/***********************************************
+	 * Moller-Trumbore ray-triangle intersection; returns {@code null} if the ray misses {@code face} 
+	 * within [0, {@code max_t}].
+	 * 
+	 */
+	private RayHit intersectFace(int face, double ox, double oy, double oz, double dx, double dy, double dz, 
+								 double max_t){
+		int a = faces[face * 3] * 3, b = faces[face * 3 + 1] * 3, c = faces[face * 3 + 2] * 3;
+		double e1x = coords[b] - coords[a], e1y = coords[b + 1] - coords[a + 1], e1z = coords[b + 2] - coords[a + 2];
+		double e2x = coords[c] - coords[a], e2y = coords[c + 1] - coords[a + 1], e2z = coords[c + 2] - coords[a + 2];
+		double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+		double det = e1x * px + e1y * py + e1z * pz;
+		if (det == 0) return null;
+		double inv = 1.0 / det;
+		double sx = ox - coords[a], sy = oy - coords[a + 1], sz = oz - coords[a + 2];
+		double u = (sx * px + sy * py + sz * pz) * inv;
+		if (u < 0 || u > 1) return null;
+		double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+		double v = (dx * qx + dy * qy + dz * qz) * inv;
+		if (v < 0 || u + v > 1) return null;
+		double t = (e2x * qx + e2y * qy + e2z * qz) * inv;
+		if (t < 0 || t > max_t) return null;
+		RayHit hit = new RayHit();
+		hit.face = face;
+		hit.t = t;
+		hit.u = u;
+		hit.v = v;
+		return hit;
+	}
+	
+	/************************** Triangle tests **********************************/
+	
+	// Scratch layout: triangle A at [0, 9), triangle B at [9, 18), normals at [18, 24)
+	static final int TRI_SCRATCH = 24;
+	
+	private static void loadTriangle(float[] coords, int a, int b, int c, double[] t, int offset){
+		for (int k = 0; k < 3; k++){
+			t[offset + k] = coords[a * 3 + k];
+			t[offset + 3 + k] = coords[b * 3 + k];
+			t[offset + 6 + k] = coords[c * 3 + k];
+			}
+	}
+	
+	/***********************************************
+	 * Tests whether two triangles intersect (including touching), given as nine coordinates each.
+	 * Two non-coplanar triangles intersect if and only if an edge of one meets the other; coplanar
+	 * triangles are tested in the projection onto their dominant plane.
+	 * 
+	 * @param t 	Array of at least 24 elements, with triangle A at [0, 9) and triangle B at [9, 18); the 
+	 * 				remainder is used as working space
+	 * @return
+	 */
+	public static boolean triangleTriangle(double[] t){
+		
+		// Signed distances of each triangle's vertices to the other's plane
+		getNormal(t, 9, 21);
+		double da0 = planeDistance(t, 0, 9, 21), da1 = planeDistance(t, 3, 9, 21), 
+			   da2 = planeDistance(t, 6, 9, 21);
+		if ((da0 > 0 && da1 > 0 && da2 > 0) || (da0 < 0 && da1 < 0 && da2 < 0)) return false;
+		
+		getNormal(t, 0, 18);
+		double db0 = planeDistance(t, 9, 0, 18), db1 = planeDistance(t, 12, 0, 18), 
+			   db2 = planeDistance(t, 15, 0, 18);
+		if ((db0 > 0 && db1 > 0 && db2 > 0) || (db0 < 0 && db1 < 0 && db2 < 0)) return false;
+		
+		if (da0 == 0 && da1 == 0 && da2 == 0)
+			return coplanarTriangles(t, getDominantAxis(t, 21));
+		
+		for (int i = 0; i < 3; i++){
+			if (segmentTriangle(t, 0, i, (i + 1) % 3, 9)) return true;
+			if (segmentTriangle(t, 9, i, (i + 1) % 3, 0)) return true;
+			}
+		return false;
+	}
+	
+	/***********************************************
+	 * Tests whether the edge {@code (i, j)} of the triangle at {@code offset_s} meets the triangle at 
+	 * {@code offset_t}.
+	 * 
+	 */
+	static boolean segmentTriangle(double[] t, int offset_s, int i, int j, int offset_t){
+		int n = offset_t == 0 ? 18 : 21;
+		getNormal(t, offset_t, n);
+		int p = offset_s + i * 3, q = offset_s + j * 3;
+		double dp = planeDistance(t, p, offset_t, n), dq = planeDistance(t, q, offset_t, n);
+		if ((dp > 0 && dq > 0) || (dp < 0 && dq < 0)) return false;
+		
+		int axis = getDominantAxis(t, n);
+		if (dp == 0 && dq == 0){
+			// Segment lies in the triangle's plane
+			if (pointInTriangle2D(t[p + u(axis)], t[p + v(axis)], t, offset_t, axis)) return true;
+			if (pointInTriangle2D(t[q + u(axis)], t[q + v(axis)], t, offset_t, axis)) return true;
+			for (int e = 0; e < 3; e++){
+				int r = offset_t + e * 3, s = offset_t + ((e + 1) % 3) * 3;
+				if (segmentsIntersect2D(t[p + u(axis)], t[p + v(axis)], t[q + u(axis)], t[q + v(axis)],
+										t[r + u(axis)], t[r + v(axis)], t[s + u(axis)], t[s + v(axis)]))
+					return true;
+				}
+			return false;
+			}
+		
+		// Intersection point of the segment with the plane
+		double w = dp / (dp - dq);
+		int u = u(axis), v = v(axis);
+		return pointInTriangle2D(t[p + u] + w * (t[q + u] - t[p + u]), t[p + v] + w * (t[q + v] - t[p + v]), 
+								 t, offset_t, axis);
+	}
+	
+	private static boolean coplanarTriangles(double[] t, int axis){
+		int u = u(axis), v = v(axis);
+		for (int i = 0; i < 3; i++){
+			int p = i * 3, q = ((i + 1) % 3) * 3;
+			for (int j = 0; j < 3; j++){
+				int r = 9 + j * 3, s = 9 + ((j + 1) % 3) * 3;
+				if (segmentsIntersect2D(t[p + u], t[p + v], t[q + u], t[q + v], 
+										t[r + u], t[r + v], t[s + u], t[s + v]))
+					return true;
+				}
+			}
+		// One triangle contained in the other
+		return pointInTriangle2D(t[u], t[v], t, 9, axis) || pointInTriangle2D(t[9 + u], t[9 + v], t, 0, axis);
+	}
+	
+	// Normal of the triangle at o, written to t[n..n+3)
+	private static void getNormal(double[] t, int o, int n){
+		double e1x = t[o + 3] - t[o], e1y = t[o + 4] - t[o + 1], e1z = t[o + 5] - t[o + 2];
+		double e2x = t[o + 6] - t[o], e2y = t[o + 7] - t[o + 1], e2z = t[o + 8] - t[o + 2];
+		t[n] = e1y * e2z - e1z * e2y;
+		t[n + 1] = e1z * e2x - e1x * e2z;
+		t[n + 2] = e1x * e2y - e1y * e2x;
+	}
+	
+	// Signed (unnormalised) distance of point p to the plane of the triangle at o, with normal at n
+	private static double planeDistance(double[] t, int p, int o, int n){
+		return (t[p] - t[o]) * t[n] + (t[p + 1] - t[o + 1]) * t[n + 1] + (t[p + 2] - t[o + 2]) * t[n + 2];
+	}
+	
+	private static int getDominantAxis(double[] t, int n){
+		double ax = Math.abs(t[n]), ay = Math.abs(t[n + 1]), az = Math.abs(t[n + 2]);
+		if (ax >= ay && ax >= az) return 0;
+		if (ay >= az) return 1;
+		return 2;
+	}
+	
+	// Projection axes for a given dominant (dropped) axis
+	private static int u(int axis){ return axis == 0 ? 1 : 0; }
+	private static int v(int axis){ return axis == 2 ? 1 : 2; }
+	
+	private static boolean pointInTriangle2D(double px, double py, double[] t, int o, int axis){
+		int u = u(axis), v = v(axis);
+		double ax = t[o + u], ay = t[o + v];
+		double bx = t[o + 3 + u], by = t[o + 3 + v];
+		double cx = t[o + 6 + u], cy = t[o + 6 + v];
+		double d1 = cross2D(ax, ay, bx, by, px, py);
+		double d2 = cross2D(bx, by, cx, cy, px, py);
+		double d3 = cross2D(cx, cy, ax, ay, px, py);
+		boolean has_neg = d1 < 0 || d2 < 0 || d3 < 0;
+		boolean has_pos = d1 > 0 || d2 > 0 || d3 > 0;
+		return !(has_neg && has_pos);
+	}
+	
+	private static double cross2D(double ax, double ay, double bx, double by, double px, double py){
+		return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+	}
+	
+	private static boolean segmentsIntersect2D(double px, double py, double qx, double qy,
+											   double rx, double ry, double sx, double sy){
+		double d1 = cross2D(rx, ry, sx, sy, px, py);
+		double d2 = cross2D(rx, ry, sx, sy, qx, qy);
+		double d3 = cross2D(px, py, qx, qy, rx, ry);
+		double d4 = cross2D(px, py, qx, qy, sx, sy);
+		if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0)))
+			return true;
+		if (d1 == 0 && onSegment2D(rx, ry, sx, sy, px, py)) return true;
+		if (d2 == 0 && onSegment2D(rx, ry, sx, sy, qx, qy)) return true;
+		if (d3 == 0 && onSegment2D(px, py, qx, qy, rx, ry)) return true;
+		if (d4 == 0 && onSegment2D(px, py, qx, qy, sx, sy)) return true;
+		return false;
+	}
+	
+	private static boolean onSegment2D(double ax, double ay, double bx, double by, double px, double py){
+		return Math.min(ax, bx) <= px && px <= Math.max(ax, bx) && 
+			   Math.min(ay, by) <= py && py <= Math.max(ay, by);
+	}
+	
+	/***********************************************
+	 * Growable primitive int list, used for traversal stacks and per-thread results.
+	 *
+	 */
+	static class IntList {
+		int[] data = new int[64];
+		int size = 0;
+		
+		void add(int value){
+			if (size == data.length)
+				data = Arrays.copyOf(data, size * 2);
+			data[size++] = value;
+		}
+	}
+	
+}
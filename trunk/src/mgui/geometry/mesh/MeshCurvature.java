@@ -0,0 +1,243 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.geometry.mesh;
+
+import mgui.geometry.Mesh3D;
+import mgui.interfaces.ProgressUpdater;
+import mgui.interfaces.util.ParallelFunctions;
+
+/*****************************
+ * Computes vertex-wise discrete curvature estimates for a triangular mesh: mean, Gaussian, and the
+ * two principal curvatures. Uses the operators described in:
+ * 
+ * <p>Meyer M, Desbrun M, Schroeder P, Barr AH (2002). Discrete differential-
+ * geometry operators for triangulated 2-manifolds.
+ * http://citeseer.ist.psu.edu/meyer02discrete.html
+ * 
+ * <p>Computation is done in parallel over vertices, directly on {@link Mesh3D#nodes} and 
+ * {@link Mesh3D#faces}, using the cached {@link MeshAdjacency} of the mesh; no per-face or per-vertex 
+ * objects are created. Each vertex gathers the contributions of its incident faces, so no 
+ * synchronisation is required.
+ * 
+ * <p>Mean curvature is signed, and is positive where the surface is convex with respect to its face
+ * normals (as returned by {@link Mesh3D#getNormalAtFace(int)}). Estimates at boundary vertices are not
+ * meaningful.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class MeshCurvature {
+
+	public static enum Type{
+		Mean,
+		Gaussian,
+		Maximum,
+		Minimum;
+	}
+	
+	protected double[] mean;
+	protected double[] gaussian;
+	protected double[] area;
+	
+	protected MeshCurvature(int n){
+		mean = new double[n];
+		gaussian = new double[n];
+		area = new double[n];
+	}
+	
+	/*****************************
+	 * Returns the signed mean curvature at each vertex.
+	 * 
+	 * @return
+	 */
+	public double[] getMeanCurvature(){
+		return mean;
+	}
+	
+	/*****************************
+	 * Returns the Gaussian curvature at each vertex.
+	 * 
+	 * @return
+	 */
+	public double[] getGaussianCurvature(){
+		return gaussian;
+	}
+	
+	/*****************************
+	 * Returns the mixed (Voronoi) area associated with each vertex.
+	 * 
+	 * @return
+	 */
+	public double[] getVertexAreas(){
+		return area;
+	}
+	
+	/*****************************
+	 * Returns the maximum principal curvature at each vertex.
+	 * 
+	 * @return
+	 */
+	public double[] getMaximumCurvature(){
+		return getPrincipalCurvature(true);
+	}
+	
+	/*****************************
+	 * Returns the minimum principal curvature at each vertex.
+	 * 
+	 * @return
+	 */
+	public double[] getMinimumCurvature(){
+		return getPrincipalCurvature(false);
+	}
+	
+	/*****************************
+	 * Returns the curvature of the specified type at each vertex.
+	 * 
+	 * @param type
+	 * @return
+	 */
+	public double[] getCurvature(Type type){
+		switch (type){
+			case Mean: return getMeanCurvature();
+			case Gaussian: return getGaussianCurvature();
+			case Maximum: return getMaximumCurvature();
+			case Minimum: return getMinimumCurvature();
+			}
+		return null;
+	}
+	
+	protected double[] getPrincipalCurvature(boolean max){
+		double[] k = new double[mean.length];
+		for (int i = 0; i < k.length; i++){
+			// k1,2 = H +/- sqrt(H^2 - K); the discriminant can be slightly negative due to discretisation
+			double d = Math.sqrt(Math.max(0, mean[i] * mean[i] - gaussian[i]));
+			k[i] = max ? mean[i] + d : mean[i] - d;
+			}
+		return k;
+	}
+	
+	/*****************************
+	 * Computes curvature estimates for all vertices of {@code mesh}.
+	 * 
+	 * @param mesh
+	 * @param progress		Optional progress updater; can be {@code null}
+	 * @return the curvature estimates, or {@code null} if cancelled
+	 * @throws Exception
+	 */
+	public static MeshCurvature getCurvature(Mesh3D mesh, final ProgressUpdater progress) throws Exception{
+		
+		final MeshAdjacency adjacency = mesh.getAdjacency();
+		final float[] nodes = mesh.nodes;
+		final int[] faces = mesh.faces;
+		final int n = mesh.n;
+		final MeshCurvature curvature = new MeshCurvature(n);
+		
+		final int[][] parts = ParallelFunctions.getPartitions(n, ParallelFunctions.getPartitionCount(n));
+		if (progress != null){
+			progress.setMinimum(0);
+			progress.setMaximum(parts.length);
+			progress.update(0);
+			}
+		
+		final int[] done = new int[1];
+		ParallelFunctions.runPartitioned(parts, new ParallelFunctions.PartitionJob(){
+			public void run(int partition, int start, int end){
+				for (int v = start; v < end; v++){
+					if (progress != null && (v & 0xFFF) == 0 && progress.isCancelled()) return;
+					
+					int vo = v * 3;
+					double px = nodes[vo], py = nodes[vo + 1], pz = nodes[vo + 2];
+					double kx = 0, ky = 0, kz = 0;		// Mean curvature normal (times 2A)
+					double nx = 0, ny = 0, nz = 0;		// Area-weighted normal
+					double a_mixed = 0, angle_sum = 0;
+					
+					for (int j = adjacency.face_offsets[v]; j < adjacency.face_offsets[v + 1]; j++){
+						int fo = adjacency.vertex_faces[j] * 3;
+						// Rotate the face so that v is first, preserving orientation
+						int b, c;
+						if (faces[fo] == v){
+							b = faces[fo + 1]; c = faces[fo + 2];
+						}else if (faces[fo + 1] == v){
+							b = faces[fo + 2]; c = faces[fo];
+						}else{
+							b = faces[fo]; c = faces[fo + 1];
+							}
+						int bo = b * 3, co = c * 3;
+						double abx = nodes[bo] - px, aby = nodes[bo + 1] - py, abz = nodes[bo + 2] - pz;
+						double acx = nodes[co] - px, acy = nodes[co + 1] - py, acz = nodes[co + 2] - pz;
+						double bcx = nodes[co] - nodes[bo], bcy = nodes[co + 1] - nodes[bo + 1], bcz = nodes[co + 2] - nodes[bo + 2];
+						
+						// Twice the face area (cross product magnitude), and the face normal
+						double cx = aby * acz - abz * acy;
+						double cy = abz * acx - abx * acz;
+						double cz = abx * acy - aby * acx;
+						double cross = Math.sqrt(cx * cx + cy * cy + cz * cz);
+						if (cross == 0) continue;
+						nx += cx; ny += cy; nz += cz;
+						
+						// Dot products at each corner
+						double dot_a = abx * acx + aby * acy + abz * acz;
+						double dot_b = -(abx * bcx + aby * bcy + abz * bcz);
+						double dot_c = acx * bcx + acy * bcy + acz * bcz;
+						double cot_b = dot_b / cross;
+						double cot_c = dot_c / cross;
+						angle_sum += Math.atan2(cross, dot_a);
+						
+						// Edge ab is opposite c, edge ac is opposite b
+						kx -= cot_c * abx + cot_b * acx;
+						ky -= cot_c * aby + cot_b * acy;
+						kz -= cot_c * abz + cot_b * acz;
+						
+						double ab2 = abx * abx + aby * aby + abz * abz;
+						double ac2 = acx * acx + acy * acy + acz * acz;
+						double f_area = cross / 2.0;
+						if (dot_a >= 0 && dot_b >= 0 && dot_c >= 0)
+							a_mixed += (ab2 * cot_c + ac2 * cot_b) / 8.0;		// Voronoi area
+						else if (dot_a < 0)
+							a_mixed += f_area / 2.0;						// Obtuse at v
+						else
+							a_mixed += f_area / 4.0;
+						}
+					
+					curvature.area[v] = a_mixed;
+					if (a_mixed <= 0) continue;
+					
+					double h = Math.sqrt(kx * kx + ky * ky + kz * kz) / (4.0 * a_mixed);
+					// The mean curvature normal points along the face normals where the surface is convex
+					if (kx * nx + ky * ny + kz * nz < 0) h = -h;
+					curvature.mean[v] = h;
+					curvature.gaussian[v] = (2.0 * Math.PI - angle_sum) / a_mixed;
+					}
+				
+				if (progress != null){
+					synchronized (done){
+						progress.update(++done[0]);
+						}
+					}
+				}
+			});
+		
+		if (progress != null && progress.isCancelled()) return null;
+		return curvature;
+	}
+	
+}
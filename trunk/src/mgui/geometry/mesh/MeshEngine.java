@@ -201,6 +201,7 @@ public class MeshEngine implements Engine {
 		thisList.add(new Attribute<String>("target_column", "{new}smoothed_values"));
 		thisList.add(new Attribute<MguiDouble>("sigma", new MguiDouble(4)));
 		thisList.add(new Attribute<MguiDouble>("sigma_max", new MguiDouble(2)));
+		thisList.add(new Attribute<MguiInteger>("iterations", new MguiInteger(1)));
 		
 		attributes.put("Smooth vertex values - Isotropic Gaussian", thisList);
 		
@@ -208,6 +209,11 @@ public class MeshEngine implements Engine {
 		AttributeSelection<String> attr = new AttributeSelection<String>("target_column", new ArrayList<String>(), String.class);
 		attr.allowUnlisted(true);
 		thisList.add(attr);
+		list = new ArrayList<String>();
+		list.add("Default");
+		for (MeshCurvature.Type type : MeshCurvature.Type.values())
+			list.add(type.toString());
+		thisList.add(new AttributeSelection<String>("curvature_type", list, String.class, "Default"));
 		
 		attributes.put("Compute Mean Curvature", thisList);
 		
@@ -498,7 +504,9 @@ public class MeshEngine implements Engine {
 	
 	/************************************************
 	 * Computes the vertex-wise mean curvature of this mesh and stores it in the "target_column" specified
-	 * it the "Mean Curvature" attributes. The column will be created if it doesn't exist.
+	 * it the "Mean Curvature" attributes. The column will be created if it doesn't exist. The "curvature_type"
+	 * attribute selects a {@link MeshCurvature.Type}; "Default" gives the unsigned mean curvature computed
+	 * by {@link MeshFunctions#getVertexWiseCurvature(Mesh3D, ProgressUpdater)}.
 	 * 
 	 * @param mesh3d
 	 * @param progress
@@ -509,8 +517,12 @@ public class MeshEngine implements Engine {
 		AttributeList attr = (AttributeList)attributes.get("Compute Mean Curvature");
 		
 		String target_column = (String)attr.getValue("target_column");
+		String type = (String)attr.getValue("curvature_type");
+		
+		if (type == null || type.equals("Default"))
+			return MeshFunctions.computeVertexWiseCurvature(mesh3d, target_column, progress);
 		
-		return MeshFunctions.computeVertexWiseCurvature(mesh3d, target_column, progress);
+		return MeshFunctions.computeVertexWiseCurvature(mesh3d, target_column, MeshCurvature.Type.valueOf(type), progress);
 		
 	}
 	
@@ -907,6 +919,7 @@ public class MeshEngine implements Engine {
 																								  column.getData(),
 																								  ((MguiDouble)list.getValue("sigma")).getValue(),
 																								  ((MguiDouble)list.getValue("sigma_max")).getValue(),
+																								  ((MguiInteger)list.getValue("iterations")).getInt(),
 																								  progress);
 		
 		column = mesh_int.getVertexDataColumn(target_column);
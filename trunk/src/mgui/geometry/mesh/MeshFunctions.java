@@ -46,7 +46,6 @@ import org.jogamp.vecmath.Vector3f;
 
 import Jama.Matrix;
 import foxtrot.Job;
-import foxtrot.Worker;
 import mgui.geometry.Box3D;
 import mgui.geometry.Grid3D;
 import mgui.geometry.Mesh3D;
@@ -67,6 +66,9 @@ import mgui.interfaces.logs.LoggingType;
 import mgui.interfaces.shapes.Mesh3DInt;
 import mgui.interfaces.shapes.Volume3DInt;
 import mgui.interfaces.shapes.mesh.VertexSelection;
+import mgui.interfaces.shapes.volume.GridVertexDataColumn;
+import mgui.interfaces.util.ParallelFunctions;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.domestic.variables.DefaultMatrixFileWriter;
 import mgui.io.domestic.variables.MatrixOutOptions;
 import mgui.numbers.MguiDouble;
@@ -176,12 +178,12 @@ public class MeshFunctions extends Utility {
 	public static Mesh3D getConvexHull(final Mesh3D mesh, final String method, final ProgressUpdater progress){
 		if (progress == null || !(progress instanceof InterfaceProgressBar)) return getConvexHullBlocking(mesh, method, progress);
 		
-		Mesh3D hull = (Mesh3D)Worker.post(new Job(){
+		Mesh3D hull = (Mesh3D)TaskEngine.postConcurrent(new Job(){
 				@Override
 				public Mesh3D run(){
 					return getConvexHullBlocking(mesh, method, progress);
 				}
-			});
+			}, progress);
 		
 		return hull;
 	}
@@ -511,7 +513,7 @@ public class MeshFunctions extends Utility {
 									   	  progress);
 		
 		
-		ArrayList<MguiNumber> list = (ArrayList<MguiNumber>)Worker.post(new Job(){
+		ArrayList<MguiNumber> list = (ArrayList<MguiNumber>)TaskEngine.postConcurrent(new Job(){
 			@Override
 			public ArrayList<MguiNumber> run(){
 				try{
@@ -532,7 +534,7 @@ public class MeshFunctions extends Utility {
 					}
 				}
 				
-			});
+			}, progress);
 		
 		if (list == null)
 			throw new MeshFunctionException("MeshFunctions.subdivideRois: Exception encountered (see log).");
@@ -920,13 +922,21 @@ public class MeshFunctions extends Utility {
 	 * @param roi
 	 * @return
 	 */
-	public static VertexSelection getRoiSelection(Mesh3D mesh, ArrayList<MguiNumber> rois, int roi){
+	public static VertexSelection getRoiSelection(final Mesh3D mesh, final ArrayList<MguiNumber> rois, final int roi){
 		
-		ArrayList<Boolean> selected = new ArrayList<Boolean>();
-		for (int i = 0; i < mesh.n; i++)
-			selected.add(rois.get(i).equals(roi));
+		final Boolean[] selected = new Boolean[mesh.n];
+		try{
+			ParallelFunctions.runPartitioned(mesh.n, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					for (int i = start; i < end; i++)
+						selected[i] = rois.get(i).equals(roi);
+				}
+			});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
 				
-		return new VertexSelection(selected);
+		return new VertexSelection(new ArrayList<Boolean>(Arrays.asList(selected)));
 		
 	}
 	
@@ -939,12 +949,30 @@ public class MeshFunctions extends Utility {
 	 * @param roi
 	 * @return
 	 */
-	public static ArrayList<Integer> getRoiIndices(Mesh3D mesh, ArrayList<MguiNumber> rois, int roi){
+	public static ArrayList<Integer> getRoiIndices(final Mesh3D mesh, final ArrayList<MguiNumber> rois, final int roi){
+		
+		// Each partition collects its own indices; these are concatenated in order
+		int[][] partitions = ParallelFunctions.getPartitions(mesh.n, ParallelFunctions.getPartitionCount(mesh.n));
+		final ArrayList<ArrayList<Integer>> parts = new ArrayList<ArrayList<Integer>>(partitions.length);
+		for (int p = 0; p < partitions.length; p++)
+			parts.add(new ArrayList<Integer>());
+		
+		try{
+			ParallelFunctions.runPartitioned(partitions, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					ArrayList<Integer> part = parts.get(partition);
+					for (int i = start; i < end; i++)
+						if (rois.get(i).equals(roi))
+							part.add(i);
+				}
+			});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
 		
 		ArrayList<Integer> selected = new ArrayList<Integer>();
-		for (int i = 0; i < mesh.n; i++)
-			if (rois.get(i).equals(roi))
-				selected.add(i);
+		for (int p = 0; p < parts.size(); p++)
+			selected.addAll(parts.get(p));
 				
 		return selected;
 		
@@ -1319,14 +1347,14 @@ public class MeshFunctions extends Utility {
 		if (progress == null){
 			floodFillBlocking(n_mesh, mesh, seed_node, selection, null);
 		}else{
-			Worker.post(new Job(){
+			TaskEngine.postConcurrent(new Job(){
 				@Override
 				public Void run() {
 					floodFillBlocking(n_mesh, mesh, seed_node, selection, progress);
 					return null;
 				}
 				
-			});
+			}, progress);
 			}
 		
 	}
@@ -1610,87 +1638,44 @@ public class MeshFunctions extends Utility {
 	}
 	
 	/***************************
-	 * Removes all duplicate vertices from {@code mesh}, and changes {@code mesh} in place.
+	 * Removes all duplicate vertices from {@code mesh}, and changes {@code mesh} in place. Faces are
+	 * remapped, and degenerate or duplicate faces are removed.
 	 * <p>Duplicates are determined as {@code pt1.distance(pt2) < MeshFunctions.tolerance}.
 	 * 
 	 * @param mesh
 	 * @return {@code true} if successful
+	 * @see MeshWelder
 	 */
 	public static boolean removeDuplicateNodes(Mesh3D mesh){
-		
-		SortedMesh s_mesh = new SortedMesh(mesh);
-		
-		int i = 0;
-		int l = 0;
-		HashMap<Integer,Integer> index_map = new HashMap<Integer,Integer>();
-		Mesh3D new_mesh = new Mesh3D();
-		boolean[] is_dup = new boolean[mesh.n];
-		
-		// Identify duplicates
-		while (i < s_mesh.sorted_nodes.size()) {
-			if (!is_dup[i]) {
-				int j = 1;
-				ArrayList<Integer> dups = new ArrayList<Integer>();
-				while (i+j < s_mesh.sorted_nodes.size() &&
-						mesh.getVertex(s_mesh.sorted_nodes.get(i))
-							.distance(mesh.getVertex(s_mesh.sorted_nodes.get(i+j))) < MeshFunctions.tolerance) {
-					dups.add(s_mesh.sorted_nodes.get(i+j));
-					is_dup[i+j] = true;
-					j++;
-					}
-				
-				if (dups.size() > 0) {
-					for (Integer k : dups) {
-						index_map.put(k, l);
-						}
-					}
-				index_map.put(s_mesh.sorted_nodes.get(i), l);
-				new_mesh.addVertex(mesh.getVertex(s_mesh.sorted_nodes.get(i)));
-				l++;
-				}
-			i++;
-			}
-		
-		ArrayList<MeshFace3D> faces = new ArrayList<MeshFace3D>();
-		
-		for (i = 0; i < mesh.f; i++){
-			Mesh3D.MeshFace3D face = mesh.getFace(i);
-			Mesh3D.MeshFace3D new_face = new Mesh3D.MeshFace3D(index_map.get(face.A),
-															   index_map.get(face.B),
-															   index_map.get(face.C));
-			
-			int idx = Collections.binarySearch(faces, new_face);
-			if (idx < 0) {
-				faces.add(-idx-1,new_face);
-				}
-			}
-		
-		new_mesh.addFaces(faces);
-		
-		mesh.setFromMesh(new_mesh);
-			
+		removeDuplicateNodes(mesh, tolerance);
 		return true;
 	}
 	
+	/***************************
+	 * Removes all vertices from {@code mesh} which lie within {@code tolerance} of a preceding vertex, 
+	 * and changes {@code mesh} in place. Faces are remapped, and degenerate or duplicate faces are removed.
+	 * 
+	 * @param mesh
+	 * @param tolerance
+	 * @return a map from original to new vertex indices
+	 * @see MeshWelder
+	 */
+	public static int[] removeDuplicateNodes(Mesh3D mesh, double tolerance){
+		return MeshWelder.weld(mesh, tolerance);
+	}
+	
 	/*************************
-	 * Returns an array of booleans where true indicates a duplicate node
+	 * Returns the indices of all vertices which have a duplicate (i.e., another vertex within
+	 * {@code MeshFunctions.tolerance}), in ascending order.
+	 * 
 	 * @return
 	 */
 	public static List<Integer> getDuplicateNodes(Mesh3D mesh){
-		SortedMesh s_mesh = new SortedMesh(mesh);
-		
-		int i = 0;
-		TreeSet<Integer> dup_nodes = new TreeSet<Integer>();
-		
-		while (i < s_mesh.sorted_nodes.size()) {
-			if (mesh.getVertex(s_mesh.sorted_nodes.get(i))
-					.equals(mesh.getVertex(s_mesh.sorted_nodes.get(i+1)))) {
-				dup_nodes.add(s_mesh.sorted_nodes.get(i));
-				dup_nodes.add(s_mesh.sorted_nodes.get(i+1));
-				}
-			}
-		
-		return new ArrayList<Integer>(dup_nodes);
+		int[] dups = MeshWelder.getDuplicateVertices(mesh, tolerance);
+		ArrayList<Integer> dup_nodes = new ArrayList<Integer>(dups.length);
+		for (int i = 0; i < dups.length; i++)
+			dup_nodes.add(dups[i]);
+		return dup_nodes;
 	}
 	
 	static class NodeComparator implements Comparator<Point3f>{
@@ -1724,7 +1709,7 @@ public class MeshFunctions extends Utility {
 		
 		//foxtrot rocks...
 		Mesh3D mesh =
-			((Mesh3D)Worker.post(new Job(){
+			((Mesh3D)TaskEngine.postConcurrent(new Job(){
 			
 			@Override
 			public Mesh3D run(){
@@ -1734,7 +1719,7 @@ public class MeshFunctions extends Utility {
 				
 				return mesh_new;
 			}
-			}));
+			}, progress_bar));
 		
 		if (progress_bar != null)
 			progress_bar.deregister();
@@ -1905,6 +1890,24 @@ public class MeshFunctions extends Utility {
 	 */
 	public static Mesh3D mergeMeshes(ArrayList<Mesh3D> mesh_list, 
 									 ArrayList<HashMap<Integer,Integer>> index_map) throws MeshFunctionException{
+		return mergeMeshes(mesh_list, index_map, false);
+	}
+	
+	/**********************
+	 * Merges the mesh shapes in {@code list} and returns the resulting single mesh. If
+	 * {@code index_map} is not null, also provides a mapping of the original indices to the
+	 * merged mesh indices. If {@code weld} is {@code true}, coincident vertices (within
+	 * {@code MeshFunctions.tolerance}) are welded.
+	 * 
+	 * @param mesh_list
+	 * @param index_map
+	 * @param weld
+	 * 
+	 * @throws MeshFunctionException If the merge failed
+	 */
+	public static Mesh3D mergeMeshes(ArrayList<Mesh3D> mesh_list, 
+									 ArrayList<HashMap<Integer,Integer>> index_map,
+									 boolean weld) throws MeshFunctionException{
 		
 		if (mesh_list.size() < 2)
 			throw new MeshFunctionException("MeshFunctions.mergeMeshes: At least two meshes are required.");
@@ -1927,7 +1930,6 @@ public class MeshFunctions extends Utility {
 			Mesh3D mesh = mesh_list.get(m);
 			HashMap<Integer,Integer> this_map = null;
 			if (index_map != null){
-				index_map.clear();
 				this_map = new HashMap<Integer,Integer>();
 				index_map.add(this_map);
 				}
@@ -1950,6 +1952,17 @@ public class MeshFunctions extends Utility {
 			n_cum += mesh.n;
 			}
 		
+		if (weld){
+			int[] map = MeshWelder.weld(new_mesh, tolerance);
+			if (index_map != null){
+				for (int m = 0; m < index_map.size(); m++){
+					HashMap<Integer,Integer> this_map = index_map.get(m);
+					for (Integer i : this_map.keySet())
+						this_map.put(i, map[this_map.get(i)]);
+					}
+				}
+			}
+		
 		return new_mesh;
 	}
 	
@@ -2112,11 +2125,11 @@ public class MeshFunctions extends Utility {
 			return MeshInflation.inflateMeshTRP(mesh3D, lambda, beta, max_itr, progress);
 		}else{
 			
-			Mesh3D result = (Mesh3D)Worker.post(new Job(){
+			Mesh3D result = (Mesh3D)TaskEngine.postConcurrent(new Job(){
 				public Mesh3D run(){
 					return MeshInflation.inflateMeshTRP(mesh3D, lambda, beta, max_itr, progress);
 				}
-			});
+			}, progress);
 			
 			return result;
 			
@@ -2704,11 +2717,44 @@ public class MeshFunctions extends Utility {
 		if (progress == null){
 			values = getVertexWiseCurvature(mesh3D.getMesh(), progress);
 		}else{
-			values = (ArrayList<MguiNumber>)Worker.post(new Job(){
+			values = (ArrayList<MguiNumber>)TaskEngine.postConcurrent(new Job(){
 				public ArrayList<MguiNumber> run(){
 					return getVertexWiseCurvature(mesh3D.getMesh(), progress);
 				}
-			});
+			}, progress);
+			}
+		
+		if (values == null) return false;
+		if (mesh3D.hasColumn(target_column)){
+			mesh3D.setVertexData(target_column, values);
+		}else{
+			mesh3D.addVertexData(target_column, values);
+			}
+		return true;
+	}
+	
+	/**************************
+	 * Computes the curvature of type {@code type} of a mesh at each of its nodes, and adds this
+	 * information to <code>mesh3D</code> as a variable named <code>target_column</code>. See
+	 * {@link MeshCurvature}.
+	 * 
+	 * @param mesh3D Mesh for which to compute curvature
+	 * @param target_column Name of resulting variable
+	 * @param type Type of curvature to compute
+	 */
+	@SuppressWarnings("unchecked")
+	public static boolean computeVertexWiseCurvature(final Mesh3DInt mesh3D, String target_column, 
+													 final MeshCurvature.Type type, final ProgressUpdater progress){
+		
+		ArrayList<MguiNumber> values = null;
+		if (progress == null){
+			values = getVertexWiseCurvature(mesh3D.getMesh(), type, progress);
+		}else{
+			values = (ArrayList<MguiNumber>)TaskEngine.postConcurrent(new Job(){
+				public ArrayList<MguiNumber> run(){
+					return getVertexWiseCurvature(mesh3D.getMesh(), type, progress);
+				}
+			}, progress);
 			}
 		
 		if (values == null) return false;
@@ -2798,7 +2844,10 @@ public class MeshFunctions extends Utility {
 	}
 	
 	/*****************************
-	 * Computes the mean curvature at each node in the mesh. See:
+	 * Computes the mean curvature at each node in the mesh, as computed by earlier versions; this remains
+	 * the default for {@link #computeVertexWiseCurvature(Mesh3DInt, String, ProgressUpdater)}. Use
+	 * {@link #getVertexWiseCurvature(Mesh3D, MeshCurvature.Type, ProgressUpdater)} for signed mean,
+	 * Gaussian or principal curvatures. See:
 	 * 
 	 * <p>Tosun D, Rettman ME, Prince JL (2004). Mapping techniques for aligning
 	 * sulci across multiple brains. <i>Medical Image Analysis</i> 8:295-309.
@@ -2945,6 +2994,43 @@ public class MeshFunctions extends Utility {
 		return values;
 	}
 	
+	/*****************************
+	 * Computes the curvature of type {@code type} at each node in the mesh. See {@link MeshCurvature}.
+	 * 
+	 * @param mesh
+	 * @param type
+	 * @param progress
+	 * @return
+	 */
+	public static ArrayList<MguiNumber> getVertexWiseCurvature(Mesh3D mesh, MeshCurvature.Type type, ProgressUpdater progress){
+		
+		if (progress != null)
+			progress.register();
+		
+		MeshCurvature curvature = null;
+		try{
+			curvature = MeshCurvature.getCurvature(mesh, progress);
+		}catch (Exception ex){
+			InterfaceSession.handleException(ex);
+			}
+		
+		if (progress != null)
+			progress.deregister();
+		
+		if (curvature == null){
+			if (progress != null && progress.isCancelled())
+				InterfaceSession.log("Curvature operation cancelled by user.", LoggingType.Warnings);
+			return null;
+			}
+		
+		double[] k = curvature.getCurvature(type);
+		ArrayList<MguiNumber> values = new ArrayList<MguiNumber>(mesh.n);
+		for (int i = 0; i < mesh.n; i++)
+			values.add(new MguiDouble(k[i]));
+		
+		return values;
+	}
+	
 	static float getLength(Point3f p1, Point3f p2){
 		Vector3f v = new Vector3f(p2);
 		v.sub(p1);
@@ -3035,7 +3121,7 @@ public class MeshFunctions extends Utility {
 																sigma_max,
 																null);
 		
-		return (ArrayList<MguiNumber>)Worker.post(new Job(){
+		return (ArrayList<MguiNumber>)TaskEngine.postConcurrent(new Job(){
 			
 			public ArrayList<MguiNumber> run(){
 				return smoothVertexValuesIsotropicGaussianBlocking(mesh, 
@@ -3045,7 +3131,7 @@ public class MeshFunctions extends Utility {
 																	progress);
 			}
 			
-		});
+		}, progress);
 		
 	}
 	
@@ -3064,46 +3150,75 @@ public class MeshFunctions extends Utility {
 																			double sigma,
 																			double sigma_max,
 																			ProgressUpdater progress){
+		return smoothVertexValuesIsotropicGaussianBlocking(mesh, values, sigma, sigma_max, 1, progress);
+	}
+	
+	/***********************************************
+	 * Smooths {@code values} by iteratively applying an isotropic Gaussian kernel, along the surface of 
+	 * {@code mesh}. The kernel weights are computed once and reused for each iteration.
+	 * 
+	 * @param mesh
+	 * @param values
+	 * @param sigma
+	 * @param sigma_max
+	 * @param iterations
+	 * @param progress
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public static ArrayList<MguiNumber> smoothVertexValuesIsotropicGaussian(final Mesh3D mesh, 
+																			final ArrayList<MguiNumber> values,
+																			final double sigma,
+																			final double sigma_max,
+																			final int iterations,
+																			final ProgressUpdater progress){
+		if (progress == null)
+			return smoothVertexValuesIsotropicGaussianBlocking(mesh, values, sigma, sigma_max, iterations, null);
 		
-		NeighbourhoodMesh n_mesh = new NeighbourhoodMesh(mesh);
-		ArrayList<MguiNumber> smoothed = new ArrayList<MguiNumber>(mesh.n);
-		if (progress != null){
-			progress.setMinimum(0);
-			progress.setMaximum(mesh.n);
-			progress.update(0);
-		}
-		
-		for (int i = 0; i < mesh.n; i++){
+		return (ArrayList<MguiNumber>)TaskEngine.postConcurrent(new Job(){
 			
-			HashMap<Integer,Double> nbrs = getNeighbours(i, n_mesh, mesh, sigma, sigma_max);
+			public ArrayList<MguiNumber> run(){
+				return smoothVertexValuesIsotropicGaussianBlocking(mesh, values, sigma, sigma_max, iterations, progress);
+			}
 			
-			// Sample from all the neighbours
-			ArrayList<Integer> nbr_idx = new ArrayList<Integer>(nbrs.keySet());
-			double new_value = 0;
-			double denom = 0;
-			for (int j = 0; j < nbr_idx.size(); j++){
-				int _j = nbr_idx.get(j);
-				double dist = nbrs.get(_j);
-				double w = StatFunctions.getGaussian2(dist, 0, sigma);
-				new_value += values.get(_j).getValue() * w;
-				denom += w;
+		}, progress);
+		
+	}
+	
+	static ArrayList<MguiNumber> smoothVertexValuesIsotropicGaussianBlocking(Mesh3D mesh, 
+																			ArrayList<MguiNumber> values,
+																			double sigma,
+																			double sigma_max,
+																			int iterations,
+																			ProgressUpdater progress){
+		
+		double[] smoothed = null;
+		try{
+			MeshSmoothingKernel kernel = MeshSmoothingKernel.getIsotropicGaussianKernel(mesh, sigma, sigma_max, progress);
+			if (kernel != null){
+				double[] input = new double[mesh.n];
+				for (int i = 0; i < mesh.n; i++)
+					input[i] = values.get(i).getValue();
+				smoothed = kernel.smooth(input, iterations, null);
 				}
-			
-			if (denom > 0)
-				new_value /= denom;
-			else
-				new_value = 0;
-			
+		}catch (Exception ex){
+			InterfaceSession.handleException(ex);
+			return null;
+			}
+		
+		if (smoothed == null){
+			InterfaceSession.log("MeshFunctions.smoothVertexValuesIsotropicGaussian: Cancelled by user.", LoggingType.Warnings);
+			return null;
+			}
+		
+		ArrayList<MguiNumber> result = new ArrayList<MguiNumber>(mesh.n);
+		for (int i = 0; i < mesh.n; i++){
 			MguiNumber num = (MguiNumber)values.get(i).clone();
-			num.setValue(new_value);
-			smoothed.add(num);
-			
-			if (progress != null)
-				progress.update(i + 1);
-			
+			num.setValue(smoothed[i]);
+			result.add(num);
 			}
 		
-		return smoothed;
+		return result;
 	}
 	
 	/*******************************************
@@ -3572,7 +3687,7 @@ public class MeshFunctions extends Utility {
 																 tangent_set_max_sigma,
 																 matrix_file);
 		
-		return (ArrayList<MguiNumber>)Worker.post(new Job(){
+		return (ArrayList<MguiNumber>)TaskEngine.postConcurrent(new Job(){
 				@Override
 				public ArrayList<MguiNumber> run(){
 					return MeshFunctions.mapVolumeToMeshGaussianBlocking(mesh, 
@@ -3590,7 +3705,7 @@ public class MeshFunctions extends Utility {
 																		 tangent_set_max_sigma,
 																		 matrix_file);
 				}
-			});
+			}, progress);
 		
 	}
 	
@@ -3617,6 +3732,27 @@ public class MeshFunctions extends Utility {
 		
 		Grid3D grid = volume.getGrid();
 		
+		if (!output_matrix){
+			// Sample in parallel; the sequential path below is needed to write the transfer matrix
+			MeshVolumeSampler sampler = new MeshVolumeSampler(volume, channel);
+			double[] sigmas_t = null;
+			if (!setSigmaT.toLowerCase().equals("parameter"))
+				sigmas_t = MeshVolumeSampler.getTangentSigmas(mesh, setSigmaT, sigma_tangent);
+			double[] sampled = sampler.sampleGaussian(mesh.nodes, 
+													  MeshVolumeSampler.getNormals(mesh), 
+													  mesh.n, 
+													  sigma_normal, 
+													  sigma_max_normal, 
+													  sigma_tangent, 
+													  sigmas_t, 
+													  sigma_max_tangent, 
+													  normal_set_max_sigma, 
+													  tangent_set_max_sigma, 
+													  0, 
+													  progress);
+			return toNumberList(sampled);
+			}
+		
 		NeighbourhoodMesh n_mesh = null;
 		ArrayList<MguiNumber> values = new ArrayList<MguiNumber>();
 		for (int i = 0; i < mesh.n; i++)
@@ -3862,7 +3998,7 @@ public class MeshFunctions extends Utility {
 																 is_discrete,
 																 progress);
 		
-		return (Volume3DInt)Worker.post(new Job(){
+		return (Volume3DInt)TaskEngine.postConcurrent(new Job(){
 				@Override
 				public Volume3DInt run(){
 					return MeshFunctions.mapMeshToVolumeGaussianBlocking(mesh_int, 
@@ -3877,7 +4013,7 @@ public class MeshFunctions extends Utility {
 																		 is_discrete,
 																		 progress);
 				}
-			});
+			}, progress);
 		
 	}
 	
@@ -3900,6 +4036,7 @@ public class MeshFunctions extends Utility {
 	 * @param progress
 	 * @return					A new <code>Grid3D</code> containing the projected values. The
 	 * 							target channel will be of transfer type <code>DOUBLE</code>.
+	 * @see MeshSplatter
 	 */
 	static Volume3DInt mapMeshToVolumeGaussianBlocking(final Mesh3DInt mesh_int,
 														  final Volume3DInt volume,
@@ -3916,188 +4053,52 @@ public class MeshFunctions extends Utility {
 		Grid3D grid = volume.getGrid();
 		
 		Mesh3D mesh = mesh_int.getMesh();
-		ArrayList<MguiNumber> values = mesh_int.getVertexData(mesh_column);
-		
-		//list of normals
-		ArrayList<Vector3f> normals = mesh.getNormals();
-		
-		int null_count = 0;
-		
-		if (progress != null){
-			progress.setMinimum(0);
-			progress.setMaximum(mesh.n);
+		ArrayList<MguiNumber> column = mesh_int.getVertexData(mesh_column);
+		if (column == null){
+			InterfaceSession.log("MeshFunctions.mapMeshToVolumeGaussian: No column '" + mesh_column + "' in mesh.", 
+								 LoggingType.Errors);
+			return null;
 			}
+		
+		double[] values = new double[mesh.n];
+		for (int i = 0; i < mesh.n; i++)
+			values[i] = column.get(i).getValue();
 	
 		Volume3DInt new_volume = new Volume3DInt(new Grid3D(grid));
 		new_volume.addVertexData(grid_channel, DataBuffer.TYPE_DOUBLE);
-		new_volume.addVertexData("_denom", DataBuffer.TYPE_DOUBLE);
 		new_volume.setCurrentColumn(grid_channel);
 		
-		int prog_int = (int)(0.01 * mesh.n);
-		int last_prog = 0;
-		
-		int vertex_count = 0;
-		
-		//iterate through indices
-		for (int m = 0; m < mesh.n; m++){
-			
-			if (progress != null){
-				if (progress.isCancelled()){
-					return null;
-					}
-				if (m > last_prog){
-					progress.update(m);
-					last_prog += prog_int;
-					}
-				}
-			
-			Point3f node = mesh.getVertex(m);
-			
-			//Next get normal for this node
-			Vector3f normal = normals.get(m);
-			
-			//Next determine search bounds
-			normal.normalize();
-			normal.scale((float)(sigma_normal * sigma_max_normal));
-			Point3f p = new Point3f();
-			p.add(node, normal);
-			float min_x = p.x;
-			float min_y = p.y;
-			float min_z = p.z;
-			float max_x = p.x;
-			float max_y = p.y;
-			float max_z = p.z;
-			p = new Point3f();
-			p.sub(node, normal);
-			min_x = Math.min(min_x, p.x);
-			min_y = Math.min(min_y, p.y);
-			min_z = Math.min(min_z, p.z);
-			max_x = Math.max(max_x, p.x);
-			max_y = Math.max(max_y, p.y);
-			max_z = Math.max(max_z, p.z);
-			
-			//add/subtract max tangent bounds
-			float max_t = (float)(sigma_normal * sigma_max_normal);
-			min_x -= max_t;
-			min_y -= max_t;
-			min_z -= max_t;
-			max_x += max_t;
-			max_y += max_t;
-			max_z += max_t;
-			
-			//Next get subvolume for bounds
-			//(will be null if this bounds is outside grid bounds) 
-			int[] sub_vol = grid.getSubGrid(new Point3f(min_x, min_y, min_z), 
-							 				new Point3f(max_x, max_y, max_z));
-			
-			//Next determine weights for all voxels in subvolume
-			if (sub_vol != null){
-				double min_normal = Double.MAX_VALUE;
-				double min_tangent = Double.MAX_VALUE;
-				Point3f mp = new Point3f();
-				Vector3f v_mp = new Vector3f();
-				Vector3f v_proj = new Vector3f();
-				Point3f ep = new Point3f();
-				
-				HashMap<Integer,Double> nbr_weights = null;
-				if (is_discrete)
-					nbr_weights = new HashMap<Integer,Double>();
-				
-				//For each voxel in bounds, add weighted value
-				for (int i = sub_vol[0]; i < sub_vol[3]; i++)
-					for (int j = sub_vol[1]; j < sub_vol[4]; j++)
-						for (int k = sub_vol[2]; k < sub_vol[5]; k++){
-							
-							int index = grid.getAbsoluteIndex(i, j, k);
-							
-							//normal weight
-							mp.set(grid.getVoxelMidPoint(i, j, k));
-							normal.normalize();
-							v_mp.set(mp);
-							v_mp.sub(node);
-							
-							//normal distance from node to voxel
-							v_proj.set(GeometryFunctions.getProjectedVector(v_mp, normal));
-							min_normal = Math.min(min_normal, v_proj.length());
-							if (v_proj.length() / sigma_normal < sigma_max_normal){
-								double w_normal = StatFunctions.getGaussian(v_proj.length(), 0, sigma_normal);
-								
-								//tangent weight
-								ep.set(node);
-								ep.add(v_proj);
-								
-								//tangent distance from node to voxel
-								v_mp.sub(mp, ep);
-								min_tangent = Math.min(min_tangent, v_mp.length());
-								if (v_mp.length() / sigma_tangent < sigma_max_tangent){
-									
-									if (index == 815044){
-										index += 0;	//breakpoint
-										vertex_count++;
-										}
-									
-									//you've come a long way, baby
-									double w_tangent = StatFunctions.getGaussian(v_mp.length(), 0, sigma_tangent);
-									
-									
-									if (is_discrete){
-										double old_weight = new_volume.getDatumAtVoxel(grid_channel, i, j, k).getValue();
-										double weight = w_normal * w_tangent;
-										
-										// If weight is higher, set to new value
-										if (weight > old_weight){
-											double value = values.get(m).getValue();
-											new_volume.setDatumAtVoxel(grid_channel, i, j, k, value);
-											new_volume.setDatumAtVoxel("_denom", i, j, k, weight);
-											}
-										
-									}else{
-										//add weighted contribution
-										double value = values.get(m).getValue() * w_normal * w_tangent;
-										//values.get(m).add(grid.getValue(channel, i, j, k, 0) * w_normal * w_tangent);
-																			
-										double g_value = new_volume.getDatumAtVoxel(grid_channel, i, j, k).getValue();
-										if (Double.isInfinite(g_value) || Double.isNaN(g_value)) g_value = 0;
-										g_value += value;
-										new_volume.setDatumAtVoxel(grid_channel, i, j, k, g_value);
-										double d_value = new_volume.getDatumAtVoxel("_denom", i, j, k).getValue();
-										if (Double.isInfinite(d_value) || Double.isNaN(d_value)) d_value = 0;
-										d_value += w_normal * w_tangent;
-										new_volume.setDatumAtVoxel("_denom", i, j, k, d_value);
-										}
-									
-									}
-								}
-							}
-				
-				}
-			}
-		
-		
-			//If continuous,
-			//result is weighted average
-		if (!is_discrete){
-			int n = new_volume.getVertexCount();
-			for (int i = 0; i < n; i++){
-				double value = new_volume.getDatumAtVertex(grid_channel, i).getValue();
-				double denom = new_volume.getDatumAtVertex("_denom", i).getValue();
-				if (denom > 0)
-					value /= denom;
-				if (Double.isNaN(value) || Double.isInfinite(value))
-					value = 0;
-				
-				new_volume.setDatumAtVertex(grid_channel, i, value);
-				}
-			
-			}
-		
-		new_volume.removeVertexData("_denom");
+		if (!MeshSplatter.splatGaussian(mesh, 
+										values, 
+										grid, 
+										(GridVertexDataColumn)new_volume.getVertexDataColumn(grid_channel), 
+										sigma_normal, 
+										sigma_tangent, 
+										sigma_max_normal, 
+										sigma_max_tangent, 
+										is_discrete, 
+										progress))
+			return null;
 		
-		InterfaceSession.log("\nAll done. " + null_count + " voxels not mapped");
 		return new_volume;
 		
 	}
 
+	/********************************************
+	 * Wraps {@code values} as a list of {@link MguiDouble}; returns {@code null} if {@code values}
+	 * is {@code null}.
+	 * 
+	 * @param values
+	 * @return
+	 */
+	static ArrayList<MguiNumber> toNumberList(double[] values){
+		if (values == null) return null;
+		ArrayList<MguiNumber> list = new ArrayList<MguiNumber>(values.length);
+		for (int i = 0; i < values.length; i++)
+			list.add(new MguiDouble(values[i]));
+		return list;
+	}
+	
 	/********************************************
 	 * Returns the average edge length keyin a mesh.
 	 * 
@@ -4218,7 +4219,7 @@ public class MeshFunctions extends Utility {
 					stat,
 					progress);
 		
-		return (ArrayList<MguiNumber>)Worker.post(new Job(){
+		return (ArrayList<MguiNumber>)TaskEngine.postConcurrent(new Job(){
 			@Override
 			public ArrayList<MguiNumber> run(){
 				return MeshFunctions.mapVolumeToMeshEVBlocking(mesh,
@@ -4229,7 +4230,7 @@ public class MeshFunctions extends Utility {
 						stat,
 						progress);
 				}
-			});
+			}, progress);
 		
 	}
 	
@@ -4256,6 +4257,11 @@ public class MeshFunctions extends Utility {
 								 LoggingType.Errors);
 			return null;
 			}
+		if (radius <= 0){
+			MeshVolumeSampler sampler = new MeshVolumeSampler(volume, column);
+			return toNumberList(sampler.sampleNearest(mesh.nodes, mesh.n, no_value, progress));
+			}
+		
 		ArrayList<MguiNumber> values = new ArrayList<MguiNumber>(mesh.n);
 		Grid3D grid = volume.getGrid();
 		
@@ -4598,7 +4604,8 @@ public class MeshFunctions extends Utility {
 	}
 	
 	/***************************************************************
-	 * Determines whether a vector defined by {@code p} and {@code v} intersects {@code mesh}.
+	 * Determines whether the line segment from {@code p} to {@code p + v} intersects {@code mesh}.
+	 * Uses the mesh's cached {@linkplain MeshBVH}.
 	 * 
 	 * @param mesh
 	 * @param p
@@ -4606,15 +4613,7 @@ public class MeshFunctions extends Utility {
 	 * @return
 	 */
 	public static boolean intersects(Mesh3D mesh, Point3f p, Vector3f v){
-		Box3D bounds = mesh.getBoundBox();
-		Point3f p2 = new Point3f(p);
-		p2.add(v);
-		if (!bounds.contains(p) && ! bounds.contains(p2)) return false;
-		for (int i = 0; i < mesh.f; i++){
-			Triangle3D tri = mesh.getFaceTriangle(i);
-			if (GeometryFunctions.intersects(p, v, tri)) return true;
-			}
-		return false;
+		return mesh.getBVH().getFirstHit(p, v, 1).isHit();
 	}
 	
 	/****************************************************************
@@ -4623,11 +4622,11 @@ public class MeshFunctions extends Utility {
 	 * 
 	 * @param mesh1
 	 * @param mesh2
-	 * @param search_max Maximum search radius; should be similar to largest face size; larger takes longer
+	 * @param search_max No longer used; intersections are found with a {@linkplain MeshBVH}
 	 * @return
 	 */
 	public static ArrayList<ArrayList<Integer>> getIntersectingFaces(Mesh3D mesh1, Mesh3D mesh2, float search_max){
-		return getIntersectingFaces(mesh1, mesh2, search_max, null);
+		return getIntersectingFaces(mesh1, mesh2, null);
 	}
 	
 	/****************************************************************
@@ -4636,20 +4635,34 @@ public class MeshFunctions extends Utility {
 	 * 
 	 * @param mesh1
 	 * @param mesh2
-	 * @param search_max Maximum search radius; should be similar to largest face size; larger takes longer
+	 * @param search_max No longer used; intersections are found with a {@linkplain MeshBVH}
 	 * @param progress
 	 * @return
 	 */
-	@SuppressWarnings("unchecked")
 	public static ArrayList<ArrayList<Integer>> getIntersectingFaces(final Mesh3D mesh_1, final Mesh3D mesh_2, 
 																	 final float search_max, final ProgressUpdater progress){
+		return getIntersectingFaces(mesh_1, mesh_2, progress);
+	}
+	
+	/****************************************************************
+	 * Returns two lists of face indices indicating which faces intersect between {@code mesh1} and {@code mesh2}.
+	 * If there are no such faces, returns an empty list.
+	 * 
+	 * @param mesh1
+	 * @param mesh2
+	 * @param progress
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public static ArrayList<ArrayList<Integer>> getIntersectingFaces(final Mesh3D mesh_1, final Mesh3D mesh_2, 
+																	 final ProgressUpdater progress){
 		
-		return (ArrayList<ArrayList<Integer>>)Worker.post(new Job(){
+		return (ArrayList<ArrayList<Integer>>)TaskEngine.postConcurrent(new Job(){
 			@Override
 			public ArrayList<ArrayList<Integer>> run(){
-				return getIntersectingFacesBlocking(mesh_1, mesh_2, search_max, progress);
+				return getIntersectingFacesBlocking(mesh_1, mesh_2, progress);
 			}
-		});
+		}, progress);
 		
 	}
 	
@@ -4659,154 +4672,88 @@ public class MeshFunctions extends Utility {
 	 * 
 	 * @param mesh1
 	 * @param mesh2
-	 * @param search_max Maximum search radius; should be similar to largest face size; larger takes longer
+	 * @param search_max No longer used; intersections are found with a {@linkplain MeshBVH}
 	 * @param progress
 	 * @return
 	 */
 	public static ArrayList<ArrayList<Integer>> getIntersectingFacesBlocking(Mesh3D mesh_1, Mesh3D mesh_2, 
 																	 		 float search_max, ProgressUpdater progress){
+		return getIntersectingFacesBlocking(mesh_1, mesh_2, progress);
+	}
+	
+	/****************************************************************
+	 * Returns two lists of face indices indicating which faces intersect between {@code mesh1} and {@code mesh2}.
+	 * If there are no such faces, returns an empty list.
+	 * 
+	 * @param mesh1
+	 * @param mesh2
+	 * @param progress
+	 * @return
+	 */
+	public static ArrayList<ArrayList<Integer>> getIntersectingFacesBlocking(Mesh3D mesh_1, Mesh3D mesh_2, 
+																			 ProgressUpdater progress){
 		
-		ArrayList<Boolean> intersects_1 = new ArrayList<Boolean>();
-		ArrayList<Triangle3D> faces_1 = new ArrayList<Triangle3D>();
-		ArrayList<Boolean> intersects_2 = new ArrayList<Boolean>();
-		ArrayList<Triangle3D> faces_2 = new ArrayList<Triangle3D>();
-		
-		//Sorted mesh allows only finite boundaries to be searched
-		SortedMesh s_mesh_1 = new SortedMesh(mesh_1);
-		ArrayList<Point3f> vertices_1 = new ArrayList<Point3f>();
-		FaceMesh f_mesh_1 = new FaceMesh(mesh_1);
-		
-		for (int i = 0; i < mesh_1.getSize() - 1; i++){
-			vertices_1.add(mesh_1.getVertex(s_mesh_1.sorted_nodes.get(i)));
-			}
-		
-		SortedMesh s_mesh_2 = new SortedMesh(mesh_2);
-		ArrayList<Point3f> vertices_2 = new ArrayList<Point3f>();
-		FaceMesh f_mesh_2 = new FaceMesh(mesh_2);
-		
-		//ArrayList<Integer> test = f_mesh_2.getFaces(25650);
-		//System.out.println(test);
-		
-		for (int i = 0; i < mesh_2.getSize() - 1; i++){
-			//if (s_mesh_2.sorted_nodes.get(i) == 25650)
-			//	System.out.println(i);
-			vertices_2.add(mesh_2.getVertex(s_mesh_2.sorted_nodes.get(i)));
-			}
-		
-		int f_1 = mesh_1.getFaceCount();
-		
-		for (int i = 0; i < f_1; i++){
-			intersects_1.add(false);
-			faces_1.add(mesh_1.getFaceTriangle(i));
-			}
-		
-		int f_2 = mesh_2.getFaceCount();
-		
-		for (int i = 0; i < f_2; i++){
-			intersects_2.add(false);
-			faces_2.add(mesh_2.getFaceTriangle(i));
-			}
-		
-		int start = 0, last_j = 0;
-		if (progress != null){
-			progress.getMinimum();
-			progress.setMaximum(start + (vertices_1.size() + vertices_2.size()) / 2);
-			}
-		
-		// Compare sorted vertices
-		for (int i = 0; i < vertices_1.size(); i++){
-			boolean done = false;
-			int _i = s_mesh_1.sorted_nodes.get(i);
-			// List of faces associated with vertex i
-			ArrayList<Integer> faces_i = f_mesh_1.getFaces(_i);
-			for (int j = last_j; faces_i != null && !done && j < vertices_2.size(); j++){
-				// Find first vertex that is close enough to consider
-				// and iterate through all remaining such vertices 
-				if (vertices_2.get(j).x < vertices_1.get(i).x)
-					last_j = j;
-				if (j == 40870)
-					j += 0;	//breakpoint
-				while (j < vertices_2.size() &&
-					   Math.abs(vertices_2.get(j).x - vertices_1.get(i).x) < search_max){
-					if (Math.abs(vertices_2.get(j).y - vertices_1.get(i).y) < search_max &&
-						Math.abs(vertices_2.get(j).z - vertices_1.get(i).z) < search_max){
-						// This vertex is close enough; get list of associated faces and compare each
-						if (j == 40870)
-							j += 0;	//breakpoint
-						int _j = s_mesh_2.sorted_nodes.get(j);
-						ArrayList<Integer> faces_j = f_mesh_2.getFaces(_j);
-						for (int k = 0; k < faces_i.size(); k++){
-							int f_i = faces_i.get(k);
-							for (int l = 0; faces_j != null && l < faces_j.size(); l++){
-								int f_j = faces_j.get(l);
-								if (!(intersects_1.get(f_i) && intersects_2.get(f_j)) &&
-										GeometryFunctions.intersects(faces_1.get(f_i), faces_2.get(f_j))){
-									intersects_1.set(f_i, true);
-									intersects_2.set(f_j, true);
-									}
-								}
-							}
-						}
-					j++;
-					done = true;
-					}
-				
-				}
-				
-			if (progress != null){
-				progress.update(start + i);
-				}
-			}
-		
-		ArrayList<Integer> indices_1 = new ArrayList<Integer>();
-		for (int i = 0; i < intersects_1.size(); i++){
-			if (intersects_1.get(i)){
-				indices_1.add(i);
-				//MeshFace3D face = mesh_1.getFace(i);
-				//indices_1.add(face.A);
-				//indices_1.add(face.B);
-				//indices_1.add(face.C);
-				}
-			}
-		ArrayList<Integer> indices_2 = new ArrayList<Integer>();
-		for (int i = 0; i < intersects_2.size(); i++){
-			if (intersects_2.get(i)){
-				indices_2.add(i);
-				//MeshFace3D face = mesh_2.getFace(i);
-				//indices_2.add(face.A);
-				//indices_2.add(face.B);
-				//indices_2.add(face.C);
-				}
-			}
+		int[] pairs = getIntersectingFacePairs(mesh_1, mesh_2, progress);
 		
 		ArrayList<ArrayList<Integer>> result = new ArrayList<ArrayList<Integer>>();
-		result.add(indices_1);
-		result.add(indices_2);
-		
+		result.add(toList(MeshBVH.getFaces(pairs, 0, mesh_1.f)));
+		result.add(toList(MeshBVH.getFaces(pairs, 1, mesh_2.f)));
 		return result;
 		
 	}
 	
+	/****************************************************************
+	 * Returns all pairs of intersecting faces between {@code mesh_1} and {@code mesh_2}, as a flat array
+	 * of face indices {i0, j0, i1, j1, ...}, where {@code i} indexes {@code mesh_1} and {@code j} indexes
+	 * {@code mesh_2}. Pairs are found by simultaneous traversal of a {@linkplain MeshBVH} for each mesh, 
+	 * in parallel, with an exact triangle-triangle test.
+	 * 
+	 * @param mesh_1
+	 * @param mesh_2
+	 * @param progress 		Optional progress updater; can be {@code null}
+	 * @return
+	 */
+	public static int[] getIntersectingFacePairs(Mesh3D mesh_1, Mesh3D mesh_2, ProgressUpdater progress){
+		return MeshBVH.getIntersectingPairs(new MeshBVH(mesh_1), new MeshBVH(mesh_2), progress);
+	}
+	
+	/****************************************************************
+	 * Returns all pairs of intersecting faces within {@code mesh}, as a flat array of face indices 
+	 * {i0, j0, i1, j1, ...}, with {@code i < j}. Faces sharing an edge are not considered to intersect; 
+	 * faces sharing a vertex are only reported if they also meet elsewhere. 
+	 * 
+	 * @param mesh
+	 * @param progress 		Optional progress updater; can be {@code null}
+	 * @return
+	 */
+	public static int[] getSelfIntersectingFacePairs(Mesh3D mesh, ProgressUpdater progress){
+		return MeshBVH.getSelfIntersectingPairs(new MeshBVH(mesh), progress);
+	}
+	
 	/****************************************************************
 	 * Returns a list of face indices indicating which faces intersect within {@code mesh}.
 	 * If there are no such faces, returns an empty list.
 	 * 
 	 * @param mesh
-	 * @param search_max Maximum search radius; should be similar to largest face size; larger takes longer
+	 * @param search_max No longer used; intersections are found with a {@linkplain MeshBVH}
 	 * @return
 	 */
 	public static ArrayList<Integer> getSelfIntersections(Mesh3D mesh, float search_max){
-		return getSelfIntersectionsBlocking(mesh, search_max, null);
+		return getSelfIntersectionsBlocking(mesh, null);
 	}
 	
-	@SuppressWarnings("unchecked")
 	public static ArrayList<Integer> getSelfIntersections(final Mesh3D mesh, final float search_max, final ProgressUpdater progress){
-		return (ArrayList<Integer>)Worker.post(new Job(){
+		return getSelfIntersections(mesh, progress);
+	}
+	
+	@SuppressWarnings("unchecked")
+	public static ArrayList<Integer> getSelfIntersections(final Mesh3D mesh, final ProgressUpdater progress){
+		return (ArrayList<Integer>)TaskEngine.postConcurrent(new Job(){
 			@Override
 			public ArrayList<Integer> run(){
-				return getSelfIntersectionsBlocking(mesh, search_max, progress);
+				return getSelfIntersectionsBlocking(mesh, progress);
 			}
-		});
+		}, progress);
 	}
 	
 	/****************************************************************
@@ -4814,88 +4761,19 @@ public class MeshFunctions extends Utility {
 	 * If there are no such faces, returns an empty list.
 	 * 
 	 * @param mesh
-	 * @param search_max Maximum search radius; should be similar to largest face size; larger takes longer
 	 * @param progress
 	 * @return
 	 */
-	protected static ArrayList<Integer> getSelfIntersectionsBlocking(Mesh3D mesh, float search_max, ProgressUpdater progress){
-		
-		ArrayList<Boolean> intersects = new ArrayList<Boolean>();
-		ArrayList<Triangle3D> faces = new ArrayList<Triangle3D>();
-		
-		//Sorted mesh allows only finite boundaries to be searched
-		SortedMesh s_mesh = new SortedMesh(mesh);
-		ArrayList<Point3f> vertices = new ArrayList<Point3f>();
-		FaceMesh f_mesh = new FaceMesh(mesh);
-				
-		for (int i = 0; i < mesh.getSize() - 1; i++){
-			vertices.add(mesh.getVertex(s_mesh.sorted_nodes.get(i)));
-			}
-		
-		int f = mesh.getFaceCount();
-		
-		for (int i = 0; i < f; i++){
-			intersects.add(false);
-			faces.add(mesh.getFaceTriangle(i));
-			}
-		
-		long n = (long)f * (long)f - (long)f;
-		
-		int start = 0;
-		if (progress != null){
-			progress.getMinimum();
-			progress.setMaximum(start + vertices.size());
-			}
-		
-		// Compare sorted vertices
-		for (int i = 0; i < vertices.size(); i++){
-			boolean done = false;
-			int _i = s_mesh.sorted_nodes.get(i);
-			// List of faces associated with vertex i
-			ArrayList<Integer> faces_i = f_mesh.getFaces(_i);
-			for (int j = i + 1; faces_i != null && !done && j < vertices.size(); j++){
-				// Find first vertex that is close enough to consider
-				// and iterate through all remaining such vertices 
-				while (j < vertices.size() &&
-					   Math.abs(vertices.get(j).x - vertices.get(i).x) < search_max){
-					if (Math.abs(vertices.get(j).y - vertices.get(i).y) < search_max &&
-						Math.abs(vertices.get(j).z - vertices.get(i).z) < search_max){
-						
-						// This vertex is close enough; get list of associated faces and compare each
-						int _j = s_mesh.sorted_nodes.get(j);
-						ArrayList<Integer> faces_j = f_mesh.getFaces(_j);
-						for (int k = 0; k < faces_i.size(); k++){
-							int f_i = faces_i.get(k);
-							for (int l = 0; faces_j != null && l < faces_j.size(); l++){
-								int f_j = faces_j.get(l);
-								if (f_i != f_j &&
-										!(intersects.get(f_i) && intersects.get(f_j)) &&
-										!mesh.getFace(f_i).isAdjacent(mesh.getFace(f_j)) &&
-										GeometryFunctions.intersects(faces.get(f_i), faces.get(f_j))){
-									intersects.set(f_i, true);
-									intersects.set(f_j, true);
-									}
-								}
-							}
-						}
-					j++;
-					done = true;
-					}
-				}
-				
-			if (progress != null){
-				progress.update(start + i);
-				}
-			}
-		
-		ArrayList<Integer> indices = new ArrayList<Integer>();
-		
-		for (int i = 0; i < intersects.size(); i++){
-			if (intersects.get(i))
-				indices.add(i);
-			}
-		
-		return indices;
+	protected static ArrayList<Integer> getSelfIntersectionsBlocking(Mesh3D mesh, ProgressUpdater progress){
+		int[] pairs = getSelfIntersectingFacePairs(mesh, progress);
+		return toList(MeshBVH.getFaces(pairs, mesh.f));
+	}
+	
+	private static ArrayList<Integer> toList(int[] values){
+		ArrayList<Integer> list = new ArrayList<Integer>(values.length);
+		for (int i = 0; i < values.length; i++)
+			list.add(values[i]);
+		return list;
 	}
 	
 	/******************************************************
@@ -4943,9 +4821,9 @@ public class MeshFunctions extends Utility {
 	}
 	
 	/********************************************
-	 * Finds the point from the first face in the nodes list which intersects the line
-	 * segment defined by <code>p</code> and </code>v</code>. Returns <code>null</code> if no
-	 * intersection exists.
+	 * Finds the point closest to <code>p</code> at which the line segment from <code>p</code> to 
+	 * <code>p + v</code> intersects a face of <code>mesh</code>. Returns <code>null</code> if no
+	 * intersection exists. Uses the mesh's cached {@linkplain MeshBVH}.
 	 * 
 	 * @status approved
 	 * @param mesh
@@ -4954,16 +4832,9 @@ public class MeshFunctions extends Utility {
 	 * @return
 	 */
 	public static Point3f getIntersectionPoint(Mesh3D mesh, Point3f p, Vector3f v){
-		Box3D bounds = mesh.getBoundBox();
-		Point3f p2 = new Point3f(p);
-		p2.add(v);
-		if (!bounds.contains(p) && ! bounds.contains(p2)) return null;
-		for (int i = 0; i < mesh.f; i++){
-			Triangle3D tri = mesh.getFaceTriangle(i);
-			Point3f int_pt = GeometryFunctions.getIntersectionPoint3D(p, v, tri);
-			if (int_pt != null) return int_pt;
-			}
-		return null;
+		MeshBVH.RayHit hit = mesh.getBVH().getFirstHit(p, v, 1);
+		if (!hit.isHit()) return null;
+		return hit.getPoint(p, v);
 	}
 	
 	/************************************************
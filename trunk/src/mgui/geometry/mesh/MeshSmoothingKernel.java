@@ -0,0 +1,341 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.geometry.mesh;
+
+import java.util.Arrays;
+
+import mgui.geometry.Mesh3D;
+import mgui.interfaces.ProgressUpdater;
+import mgui.interfaces.util.ParallelFunctions;
+
+/***********************************************
+ * A precomputed, normalised weight table for smoothing vertex-wise values along the surface of a mesh.
+ * For each vertex, the table holds the indices of the vertices in its neighbourhood (including itself) and
+ * their weights, in compressed row format. Once built, the kernel can be applied any number of times, 
+ * in parallel and without allocation, which makes iterative smoothing cheap.
+ * 
+ * <p>The kernel only depends on the mesh geometry at construction, so it can be reused for any number of
+ * value columns on the same surface.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class MeshSmoothingKernel {
+
+	protected int n;
+	protected int[] offsets;
+	protected int[] indices;
+	protected float[] weights;
+	
+	protected MeshSmoothingKernel(int n, int[] offsets, int[] indices, float[] weights){
+		this.n = n;
+		this.offsets = offsets;
+		this.indices = indices;
+		this.weights = weights;
+	}
+	
+	/***********************************************
+	 * Returns the number of vertices this kernel applies to.
+	 * 
+	 * @return
+	 */
+	public int getVertexCount(){
+		return n;
+	}
+	
+	/***********************************************
+	 * Returns the total number of (vertex, neighbour) weights in this kernel.
+	 * 
+	 * @return
+	 */
+	public int getWeightCount(){
+		return offsets[n];
+	}
+	
+	/***********************************************
+	 * Returns a kernel which averages each vertex with its immediate neighbours. The vertex itself
+	 * is given weight {@code self_weight}, and its neighbours share the remainder equally.
+	 * 
+	 * @param mesh
+	 * @param self_weight 		Weight of each vertex, between 0 and 1
+	 * @return
+	 */
+	public static MeshSmoothingKernel getNeighbourhoodKernel(Mesh3D mesh, final double self_weight){
+		
+		final MeshAdjacency adjacency = mesh.getAdjacency();
+		final int n = mesh.n;
+		final int[] offsets = new int[n + 1];
+		for (int i = 0; i < n; i++)
+			offsets[i + 1] = offsets[i] + adjacency.getNeighbourCount(i) + 1;
+		final int[] indices = new int[offsets[n]];
+		final float[] weights = new float[offsets[n]];
+		
+		try{
+			ParallelFunctions.runPartitioned(n, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					for (int i = start; i < end; i++){
+						int o = offsets[i];
+						int a = adjacency.nbr_offsets[i];
+						int count = adjacency.nbr_offsets[i + 1] - a;
+						indices[o] = i;
+						if (count == 0){
+							weights[o] = 1;
+							continue;
+							}
+						weights[o] = (float)self_weight;
+						float w = (float)((1.0 - self_weight) / count);
+						for (int j = 0; j < count; j++){
+							indices[o + j + 1] = adjacency.neighbours[a + j];
+							weights[o + j + 1] = w;
+							}
+						}
+					}
+				});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
+		
+		return new MeshSmoothingKernel(n, offsets, indices, weights);
+	}
+	
+	/***********************************************
+	 * Returns an isotropic Gaussian kernel with width {@code sigma}. The neighbourhood of each vertex 
+	 * consists of its immediate neighbours, plus all vertices whose shortest distance along mesh
+	 * edges is less than {@code sigma * sigma_max}.
+	 * 
+	 * @param mesh
+	 * @param sigma			Width of the Gaussian
+	 * @param sigma_max		Extent of the kernel, in units of {@code sigma}
+	 * @param progress		Optional progress updater; can be {@code null}
+	 * @return the kernel, or {@code null} if cancelled
+	 * @throws Exception
+	 */
+	public static MeshSmoothingKernel getIsotropicGaussianKernel(Mesh3D mesh, final double sigma, 
+																 double sigma_max, final ProgressUpdater progress) throws Exception{
+		
+		final MeshAdjacency adjacency = mesh.getAdjacency();
+		final float[] nodes = mesh.nodes;
+		final int n = mesh.n;
+		final double max_dist = sigma * sigma_max;
+		final double denom = 2.0 * sigma * sigma;
+		
+		final int[][] parts = ParallelFunctions.getPartitions(n, ParallelFunctions.getPartitionCount(n));
+		final int[][] part_indices = new int[parts.length][];
+		final float[][] part_weights = new float[parts.length][];
+		final int[] counts = new int[n];
+		
+		if (progress != null){
+			progress.setMinimum(0);
+			progress.setMaximum(n);
+			progress.update(0);
+			}
+		final int[] done = new int[1];
+		
+		ParallelFunctions.runPartitioned(parts, new ParallelFunctions.PartitionJob(){
+			public void run(int partition, int start, int end){
+				
+				// Scratch space, reused for every vertex in this partition
+				double[] dist = new double[n];
+				Arrays.fill(dist, Double.POSITIVE_INFINITY);
+				int[] touched = new int[64];
+				int[] heap_v = new int[64];
+				double[] heap_d = new double[64];
+				int[] out_idx = new int[(end - start) * 8];
+				float[] out_w = new float[out_idx.length];
+				int out = 0;
+				
+				for (int i = start; i < end; i++){
+					
+					if (progress != null && ((i - start) & 0x3FF) == 0x3FF){
+						if (progress.isCancelled()) return;
+						synchronized (done){
+							done[0] += 0x400;
+							progress.update(done[0]);
+							}
+						}
+					
+					// Dijkstra along mesh edges, bounded by max_dist
+					int n_touched = 0, heap_size = 0;
+					dist[i] = 0;
+					touched[n_touched++] = i;
+					heap_v[0] = i; heap_d[0] = 0; heap_size = 1;
+					int first = out;
+					double w_sum = 0;
+					
+					while (heap_size > 0){
+						int v = heap_v[0];
+						double d = heap_d[0];
+						// Pop
+						heap_size--;
+						if (heap_size > 0){
+							int lv = heap_v[heap_size];
+							double ld = heap_d[heap_size];
+							int p = 0;
+							while (true){
+								int c = 2 * p + 1;
+								if (c >= heap_size) break;
+								if (c + 1 < heap_size && heap_d[c + 1] < heap_d[c]) c++;
+								if (heap_d[c] >= ld) break;
+								heap_v[p] = heap_v[c]; heap_d[p] = heap_d[c];
+								p = c;
+								}
+							heap_v[p] = lv; heap_d[p] = ld;
+							}
+						if (d > dist[v]) continue;		// Stale entry
+						
+						// Add v to the kernel
+						if (out == out_idx.length){
+							out_idx = Arrays.copyOf(out_idx, out * 2);
+							out_w = Arrays.copyOf(out_w, out * 2);
+							}
+						double w = Math.exp(-(d * d) / denom);
+						out_idx[out] = v;
+						out_w[out++] = (float)w;
+						w_sum += w;
+						
+						int vo = v * 3;
+						for (int j = adjacency.nbr_offsets[v]; j < adjacency.nbr_offsets[v + 1]; j++){
+							int u = adjacency.neighbours[j];
+							int uo = u * 3;
+							double dx = nodes[uo] - nodes[vo], dy = nodes[uo + 1] - nodes[vo + 1], dz = nodes[uo + 2] - nodes[vo + 2];
+							double du = d + Math.sqrt(dx * dx + dy * dy + dz * dz);
+							// Immediate neighbours are always included
+							if (du >= max_dist && v != i) continue;
+							if (du >= dist[u]) continue;
+							if (dist[u] == Double.POSITIVE_INFINITY){
+								if (n_touched == touched.length) touched = Arrays.copyOf(touched, n_touched * 2);
+								touched[n_touched++] = u;
+								}
+							dist[u] = du;
+							// Push
+							if (heap_size == heap_v.length){
+								heap_v = Arrays.copyOf(heap_v, heap_size * 2);
+								heap_d = Arrays.copyOf(heap_d, heap_size * 2);
+								}
+							int p = heap_size++;
+							while (p > 0){
+								int q = (p - 1) / 2;
+								if (heap_d[q] <= du) break;
+								heap_v[p] = heap_v[q]; heap_d[p] = heap_d[q];
+								p = q;
+								}
+							heap_v[p] = u; heap_d[p] = du;
+							}
+						}
+					
+					for (int j = 0; j < n_touched; j++)
+						dist[touched[j]] = Double.POSITIVE_INFINITY;
+					
+					// Normalise
+					if (w_sum > 0)
+						for (int j = first; j < out; j++)
+							out_w[j] /= w_sum;
+					counts[i] = out - first;
+					}
+				
+				part_indices[partition] = out_idx;
+				part_weights[partition] = out_w;
+				}
+			});
+		
+		if (progress != null){
+			if (progress.isCancelled()) return null;
+			progress.update(n);
+			}
+		
+		// Assemble
+		int[] offsets = new int[n + 1];
+		for (int i = 0; i < n; i++)
+			offsets[i + 1] = offsets[i] + counts[i];
+		int[] indices = new int[offsets[n]];
+		float[] weights = new float[offsets[n]];
+		for (int p = 0; p < parts.length; p++){
+			int o = offsets[parts[p][0]];
+			int length = offsets[parts[p][1]] - o;
+			System.arraycopy(part_indices[p], 0, indices, o, length);
+			System.arraycopy(part_weights[p], 0, weights, o, length);
+			}
+		
+		return new MeshSmoothingKernel(n, offsets, indices, weights);
+	}
+	
+	/***********************************************
+	 * Applies this kernel once to {@code values}, writing the result to {@code result}. The two arrays
+	 * must be distinct.
+	 * 
+	 * @param values
+	 * @param result
+	 * @throws Exception
+	 */
+	public void apply(final double[] values, final double[] result) throws Exception{
+		
+		if (values == result)
+			throw new IllegalArgumentException("MeshSmoothingKernel.apply: input and output arrays must be distinct.");
+		
+		ParallelFunctions.runPartitioned(n, new ParallelFunctions.PartitionJob(){
+			public void run(int partition, int start, int end){
+				for (int i = start; i < end; i++){
+					double sum = 0;
+					for (int j = offsets[i]; j < offsets[i + 1]; j++)
+						sum += weights[j] * values[indices[j]];
+					result[i] = sum;
+					}
+				}
+			});
+		
+	}
+	
+	/***********************************************
+	 * Applies this kernel {@code iterations} times to {@code values}. The input array is not modified.
+	 * 
+	 * @param values
+	 * @param iterations
+	 * @param progress		Optional progress updater; can be {@code null}
+	 * @return the smoothed values, or {@code null} if cancelled
+	 * @throws Exception
+	 */
+	public double[] smooth(double[] values, int iterations, ProgressUpdater progress) throws Exception{
+		
+		double[] current = Arrays.copyOf(values, n);
+		double[] next = new double[n];
+		
+		if (progress != null){
+			progress.setMinimum(0);
+			progress.setMaximum(iterations);
+			progress.update(0);
+			}
+		
+		for (int itr = 0; itr < iterations; itr++){
+			apply(current, next);
+			double[] t = current;
+			current = next;
+			next = t;
+			if (progress != null){
+				if (progress.isCancelled()) return null;
+				progress.update(itr + 1);
+				}
+			}
+		
+		return current;
+	}
+	
+}
@@ -0,0 +1,368 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.geometry.mesh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jogamp.vecmath.Point3f;
+import org.jogamp.vecmath.Vector3f;
+
+import mgui.geometry.Grid3D;
+import mgui.geometry.Mesh3D;
+import mgui.interfaces.ProgressUpdater;
+import mgui.interfaces.shapes.volume.GridVertexDataColumn;
+import mgui.interfaces.util.ParallelFunctions;
+import mgui.numbers.MguiNumber;
+
+/********************************
+ * Projects ("splats") vertex-wise values of a {@link Mesh3D} into the voxels of a {@link Grid3D}, weighting
+ * each voxel by the product of Gaussian functions of its distances normal and tangential to the vertex.
+ * 
+ * <p>Vertices are sorted along the grid's R axis and split into contiguous groups, one per parallel
+ * partition. Each partition accumulates weights and weighted values into its own primitive sub-grid, 
+ * which spans only the voxels its vertices can reach; the sub-grids are then reduced, R-slice by 
+ * R-slice and in parallel, into the target column. The normal and tangent Gaussian factors are
+ * looked up in precomputed tables indexed by squared distance.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class MeshSplatter {
+
+	/** Number of entries in each kernel table. **/
+	public static final int TABLE_SIZE = 4096;
+	
+	/********************************
+	 * Projects {@code values} from the vertices of {@code mesh} into {@code target}, whose parent 
+	 * volume has the grid {@code grid}; see 
+	 * {@link MeshFunctions#mapMeshToVolumeGaussian}.
+	 * Voxels receiving no contribution are set to zero.
+	 * 
+	 * @param mesh				The mesh from which to project
+	 * @param values			Vertex-wise values to project
+	 * @param grid				The target grid
+	 * @param target			The target column, of size {@code grid.getSize()}
+	 * @param sigma_normal		The sigma defining a Gaussian normal to the vertex
+	 * @param sigma_tangent		The sigma defining a Gaussian tangential to the vertex
+	 * @param max_normal		The maximum normal distance, in units of {@code sigma_normal}
+	 * @param max_tangent		The maximum tangential distance, in units of {@code sigma_tangent}
+	 * @param is_discrete 		If {@code true}, each voxel takes the value of the vertex with the highest
+	 *  						weight; otherwise, the weighted mean of all contributing vertices
+	 * @param progress			Optional progress updater; may be {@code null}
+	 * @return {@code false} if cancelled
+	 */
+	public static boolean splatGaussian(Mesh3D mesh, 
+										double[] values,
+										Grid3D grid,
+										GridVertexDataColumn target,
+										double sigma_normal, 
+										double sigma_tangent,
+										double max_normal, 
+										double max_tangent,
+										boolean is_discrete,
+										ProgressUpdater progress){
+		
+		final int n = mesh.n;
+		final int S = grid.getSizeS(), T = grid.getSizeT(), R = grid.getSizeR();
+		
+		// Grid geometry: voxel midpoint (i, j, k) = origin + i*ds + j*dt + k*dr
+		Point3f o = grid.getVoxelMidPoint(0, 0, 0);
+		final float[] origin = new float[]{o.x, o.y, o.z};
+		final float[][] steps = new float[3][];
+		Point3f p = grid.getVoxelMidPoint(1, 0, 0);
+		steps[0] = new float[]{p.x - o.x, p.y - o.y, p.z - o.z};
+		p = grid.getVoxelMidPoint(0, 1, 0);
+		steps[1] = new float[]{p.x - o.x, p.y - o.y, p.z - o.z};
+		p = grid.getVoxelMidPoint(0, 0, 1);
+		steps[2] = new float[]{p.x - o.x, p.y - o.y, p.z - o.z};
+		
+		// Kernel support
+		final double rn2 = (sigma_normal * max_normal) * (sigma_normal * max_normal);
+		final double rt2 = (sigma_tangent * max_tangent) * (sigma_tangent * max_tangent);
+		final double radius = Math.sqrt(rn2 + rt2);
+		final double[] table_n = getKernelTable(sigma_normal, rn2);
+		final double[] table_t = getKernelTable(sigma_tangent, rt2);
+		final double scale_n = (TABLE_SIZE - 1) / rn2;
+		final double scale_t = (TABLE_SIZE - 1) / rt2;
+		
+		// Per-vertex footprints [i0, j0, k0, i1, j1, k1] (inclusive), or null if outside the grid
+		final float[] nodes = mesh.nodes;
+		final int[][] footprints = new int[n][];
+		int[] dims = new int[]{S, T, R};
+		double[] reach = new double[3];
+		double[] len2 = new double[3];
+		for (int a = 0; a < 3; a++){
+			len2[a] = steps[a][0] * steps[a][0] + steps[a][1] * steps[a][1] + steps[a][2] * steps[a][2];
+			reach[a] = radius / Math.sqrt(len2[a]);
+			}
+		
+		int[] k_count = new int[R + 1];
+		int[] k_centre = new int[n];
+		for (int v = 0; v < n; v++){
+			double dx = nodes[v * 3] - origin[0];
+			double dy = nodes[v * 3 + 1] - origin[1];
+			double dz = nodes[v * 3 + 2] - origin[2];
+			int[] fp = new int[6];
+			boolean inside = true;
+			for (int a = 0; a < 3; a++){
+				// Continuous voxel coordinate (assumes orthogonal axes)
+				double c = (dx * steps[a][0] + dy * steps[a][1] + dz * steps[a][2]) / len2[a];
+				fp[a] = (int)Math.max(0, Math.ceil(c - reach[a]));
+				fp[a + 3] = (int)Math.min(dims[a] - 1, Math.floor(c + reach[a]));
+				if (fp[a] > fp[a + 3]) inside = false;
+				if (a == 2) k_centre[v] = (int)Math.max(0, Math.min(R - 1, Math.round(c)));
+				}
+			if (inside){
+				footprints[v] = fp;
+				k_count[k_centre[v] + 1]++;
+				}
+			}
+		
+		// Counting sort of contributing vertices by their R slice
+		for (int k = 0; k < R; k++)
+			k_count[k + 1] += k_count[k];
+		final int m = k_count[R];
+		final int[] order = new int[m];
+		for (int v = 0; v < n; v++)
+			if (footprints[v] != null)
+				order[k_count[k_centre[v]]++] = v;
+		
+		// Normals
+		final float[] normals = new float[n * 3];
+		ArrayList<Vector3f> n_list = mesh.getNormals();
+		for (int v = 0; v < n; v++){
+			Vector3f normal = n_list.get(v);
+			double l = normal.length();
+			if (l > 0){
+				normals[v * 3] = (float)(normal.x / l);
+				normals[v * 3 + 1] = (float)(normal.y / l);
+				normals[v * 3 + 2] = (float)(normal.z / l);
+				}
+			}
+		
+		final int[][] partitions = ParallelFunctions.getPartitions(m, ParallelFunctions.getPartitionCount(m));
+		final SubGrid[] sub_grids = new SubGrid[partitions.length];
+		final AtomicInteger done = new AtomicInteger(0);
+		final boolean[] cancelled = new boolean[1];
+		final ProgressUpdater _progress = progress;
+		final boolean _discrete = is_discrete;
+		final double[] _values = values;
+		
+		if (progress != null){
+			progress.setMinimum(0);
+			progress.setMaximum(m + R);
+			progress.update(0);
+			}
+		
+		// 1. Accumulate into thread-local sub-grids
+		try{
+			ParallelFunctions.runPartitioned(partitions, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					if (start >= end) return;
+					
+					SubGrid sub = new SubGrid(footprints, order, start, end);
+					sub_grids[partition] = sub;
+					
+					for (int o = start; o < end; o++){
+						if (cancelled[0]) return;
+						int v = order[o];
+						int[] fp = footprints[v];
+						float px = nodes[v * 3], py = nodes[v * 3 + 1], pz = nodes[v * 3 + 2];
+						float nx = normals[v * 3], ny = normals[v * 3 + 1], nz = normals[v * 3 + 2];
+						double value = _values[v];
+						
+						for (int k = fp[2]; k <= fp[5]; k++){
+							for (int j = fp[1]; j <= fp[4]; j++){
+								// Offset from vertex to voxel (fp[0], j, k)
+								double dx = origin[0] + fp[0] * steps[0][0] + j * steps[1][0] + k * steps[2][0] - px;
+								double dy = origin[1] + fp[0] * steps[0][1] + j * steps[1][1] + k * steps[2][1] - py;
+								double dz = origin[2] + fp[0] * steps[0][2] + j * steps[1][2] + k * steps[2][2] - pz;
+								int idx = sub.getIndex(fp[0], j, k);
+								
+								for (int i = fp[0]; i <= fp[3]; i++){
+									double dn = dx * nx + dy * ny + dz * nz;
+									double dn2 = dn * dn;
+									if (dn2 < rn2){
+										double dt2 = dx * dx + dy * dy + dz * dz - dn2;
+										if (dt2 < rt2){
+											double w = lookup(table_n, dn2 * scale_n) * lookup(table_t, Math.max(0, dt2) * scale_t);
+											if (_discrete){
+												if (w > sub.weights[idx]){
+													sub.weights[idx] = w;
+													sub.values[idx] = value;
+													}
+											}else{
+												sub.weights[idx] += w;
+												sub.values[idx] += w * value;
+												}
+											}
+										}
+									dx += steps[0][0];
+									dy += steps[0][1];
+									dz += steps[0][2];
+									idx++;
+									}
+								}
+							}
+						
+						if (_progress != null && (done.incrementAndGet() & 1023) == 0){
+							if (_progress.isCancelled()){
+								cancelled[0] = true;
+								return;
+								}
+							_progress.update(done.get());
+							}
+						}
+				}
+			});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
+		
+		if (cancelled[0]) return false;
+		
+		// 2. Reduce into target, one R slice at a time
+		final ArrayList<MguiNumber> data = target.getData();
+		final int plane = S * T;
+		
+		try{
+			ParallelFunctions.runPartitioned(R, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					double[] weights = new double[plane];
+					double[] sums = new double[plane];
+					
+					for (int k = start; k < end; k++){
+						if (cancelled[0]) return;
+						Arrays.fill(weights, 0);
+						Arrays.fill(sums, 0);
+						
+						for (int s = 0; s < sub_grids.length; s++){
+							SubGrid sub = sub_grids[s];
+							if (sub == null || k < sub.min[2] || k > sub.max[2]) continue;
+							for (int j = sub.min[1]; j <= sub.max[1]; j++){
+								int src = sub.getIndex(sub.min[0], j, k);
+								int dst = j * S + sub.min[0];
+								for (int i = sub.min[0]; i <= sub.max[0]; i++){
+									double w = sub.weights[src];
+									if (_discrete){
+										if (w > weights[dst]){
+											weights[dst] = w;
+											sums[dst] = sub.values[src];
+											}
+									}else{
+										weights[dst] += w;
+										sums[dst] += sub.values[src];
+										}
+									src++;
+									dst++;
+									}
+								}
+							}
+						
+						int offset = k * plane;
+						for (int i = 0; i < plane; i++){
+							double value = 0;
+							if (weights[i] > 0)
+								value = _discrete ? sums[i] : sums[i] / weights[i];
+							if (Double.isNaN(value) || Double.isInfinite(value))
+								value = 0;
+							data.get(offset + i).setValue(value);
+							}
+						
+						if (_progress != null){
+							if (_progress.isCancelled()){
+								cancelled[0] = true;
+								return;
+								}
+							_progress.update(done.incrementAndGet());
+							}
+						}
+				}
+			});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
+		
+		target.updateDataLimits();
+		return !cancelled[0];
+		
+	}
+	
+	/********************************
+	 * Returns a table of {@code exp(-d^2 / (2 * sigma^2))} sampled at {@link #TABLE_SIZE} evenly
+	 * spaced values of {@code d^2} in {@code [0, max_d2]}.
+	 * 
+	 * @param sigma
+	 * @param max_d2
+	 * @return
+	 */
+	static double[] getKernelTable(double sigma, double max_d2){
+		// One extra entry so interpolation at the last index is safe
+		double[] table = new double[TABLE_SIZE + 1];
+		double c = -1.0 / (2.0 * sigma * sigma);
+		for (int i = 0; i <= TABLE_SIZE; i++)
+			table[i] = Math.exp(c * max_d2 * i / (TABLE_SIZE - 1));
+		return table;
+	}
+	
+	static double lookup(double[] table, double x){
+		int i = (int)x;
+		if (i >= TABLE_SIZE - 1) return table[TABLE_SIZE - 1];
+		double f = x - i;
+		return table[i] + f * (table[i + 1] - table[i]);
+	}
+	
+	/********************************
+	 * Primitive accumulation buffers spanning the union of a group of vertex footprints.
+	 *
+	 */
+	static class SubGrid {
+		
+		final int[] min = new int[]{Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+		final int[] max = new int[]{Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+		final int size_s, plane;
+		final double[] weights, values;
+		
+		SubGrid(int[][] footprints, int[] order, int start, int end){
+			for (int o = start; o < end; o++){
+				int[] fp = footprints[order[o]];
+				for (int a = 0; a < 3; a++){
+					min[a] = Math.min(min[a], fp[a]);
+					max[a] = Math.max(max[a], fp[a + 3]);
+					}
+				}
+			size_s = max[0] - min[0] + 1;
+			plane = size_s * (max[1] - min[1] + 1);
+			int size = plane * (max[2] - min[2] + 1);
+			weights = new double[size];
+			values = new double[size];
+		}
+		
+		int getIndex(int i, int j, int k){
+			return (k - min[2]) * plane + (j - min[1]) * size_s + (i - min[0]);
+		}
+		
+	}
+	
+}
@@ -0,0 +1,520 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.geometry.mesh;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jogamp.vecmath.Point3f;
+import org.jogamp.vecmath.Vector3f;
+
+import mgui.geometry.Grid3D;
+import mgui.geometry.Mesh3D;
+import mgui.interfaces.ProgressUpdater;
+import mgui.interfaces.shapes.VertexDataColumn;
+import mgui.interfaces.shapes.Volume3DInt;
+import mgui.interfaces.shapes.volume.GridVertexDataColumn;
+import mgui.interfaces.shapes.volume.VoxelBricks;
+import mgui.interfaces.util.ParallelFunctions;
+
+/********************************
+ * Samples the values of a volume at a set of vertex coordinates, in parallel. The voxel values are read
+ * once into a primitive array, and the world-to-voxel transform of the volume's grid is computed once, 
+ * so a single instance can be used to sample the same volume onto several surfaces.
+ * 
+ * <p>Three sampling methods are supported:
+ * 
+ * <ul>
+ * <li>{@link #sampleNearest}: the value of the voxel enclosing each vertex
+ * <li>{@link #sampleTrilinear}: trilinear interpolation between voxel centres
+ * <li>{@link #sampleGaussian}: the mean of voxels near each vertex, weighted by the product of 
+ * Gaussian functions of their distances normal and tangential to the vertex
+ * </ul>
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class MeshVolumeSampler {
+
+	protected final double[] voxels;
+	protected final int size_s, size_t, size_r;
+	
+	// World coordinates of the centre of voxel [0, 0, 0], and voxel step vectors (rows)
+	protected final double[] origin = new double[3];
+	protected final double[][] steps = new double[3][3];
+	// Inverse of the step matrix; maps world offsets to continuous voxel coordinates
+	protected final double[][] inverse = new double[3][3];
+	
+	/********************************
+	 * Creates a sampler for {@code column} of {@code volume}.
+	 * 
+	 * @param volume
+	 * @param column
+	 */
+	public MeshVolumeSampler(Volume3DInt volume, String column){
+		this(volume.getGrid(), volume.getVertexDataColumn(column));
+	}
+	
+	/********************************
+	 * Creates a sampler for the values in {@code column}, whose parent volume has grid {@code grid}.
+	 * 
+	 * @param grid
+	 * @param column
+	 */
+	public MeshVolumeSampler(Grid3D grid, VertexDataColumn column){
+		this(grid, getVoxels(grid, column));
+	}
+	
+	/********************************
+	 * Returns the values of {@code column} as an array ordered as the absolute indices of {@code grid}. 
+	 * Large grid columns are copied from their bricked layout (see {@link GridVertexDataColumn#getBricks()}),
+	 * brick by brick in parallel.
+	 * 
+	 * @param grid
+	 * @param column
+	 * @return
+	 */
+	protected static double[] getVoxels(Grid3D grid, VertexDataColumn column){
+		VoxelBricks bricks = column instanceof GridVertexDataColumn ? ((GridVertexDataColumn)column).getBricks() : null;
+		if (bricks == null) return column.getDataAsDouble();
+		
+		final int size_s = grid.getSizeS(), plane = size_s * grid.getSizeT();
+		final double[] voxels = new double[plane * grid.getSizeR()];
+		bricks.forEachParallel(new VoxelBricks.VoxelVisitor(){
+			public void visit(int i, int j, int k, double value){
+				voxels[k * plane + j * size_s + i] = value;
+				}
+			});
+		return voxels;
+	}
+	
+	/********************************
+	 * Creates a sampler for {@code voxels}, which are ordered as the absolute indices of {@code grid}.
+	 * 
+	 * @param grid
+	 * @param voxels
+	 */
+	public MeshVolumeSampler(Grid3D grid, double[] voxels){
+		this.voxels = voxels;
+		size_s = grid.getSizeS();
+		size_t = grid.getSizeT();
+		size_r = grid.getSizeR();
+		
+		Point3f o = grid.getVoxelMidPoint(0, 0, 0);
+		origin[0] = o.x; origin[1] = o.y; origin[2] = o.z;
+		Point3f[] p = new Point3f[]{grid.getVoxelMidPoint(1, 0, 0),
+									grid.getVoxelMidPoint(0, 1, 0),
+									grid.getVoxelMidPoint(0, 0, 1)};
+		for (int a = 0; a < 3; a++){
+			steps[a][0] = p[a].x - o.x;
+			steps[a][1] = p[a].y - o.y;
+			steps[a][2] = p[a].z - o.z;
+			}
+		
+		// Invert M = [ds dt dr] (steps as columns), so that c = M^-1 (p - origin)
+		double[][] m = new double[3][3];
+		for (int r = 0; r < 3; r++)
+			for (int a = 0; a < 3; a++)
+				m[r][a] = steps[a][r];
+		double det = m[0][0] * (m[1][1] * m[2][2] - m[1][2] * m[2][1])
+				   - m[0][1] * (m[1][0] * m[2][2] - m[1][2] * m[2][0])
+				   + m[0][2] * (m[1][0] * m[2][1] - m[1][1] * m[2][0]);
+		inverse[0][0] = (m[1][1] * m[2][2] - m[1][2] * m[2][1]) / det;
+		inverse[0][1] = (m[0][2] * m[2][1] - m[0][1] * m[2][2]) / det;
+		inverse[0][2] = (m[0][1] * m[1][2] - m[0][2] * m[1][1]) / det;
+		inverse[1][0] = (m[1][2] * m[2][0] - m[1][0] * m[2][2]) / det;
+		inverse[1][1] = (m[0][0] * m[2][2] - m[0][2] * m[2][0]) / det;
+		inverse[1][2] = (m[0][2] * m[1][0] - m[0][0] * m[1][2]) / det;
+		inverse[2][0] = (m[1][0] * m[2][1] - m[1][1] * m[2][0]) / det;
+		inverse[2][1] = (m[0][1] * m[2][0] - m[0][0] * m[2][1]) / det;
+		inverse[2][2] = (m[0][0] * m[1][1] - m[0][1] * m[1][0]) / det;
+	}
+	
+	/********************************
+	 * Computes the continuous voxel coordinates of world point {@code (x, y, z)}, such that voxel
+	 * centres lie at integer coordinates.
+	 * 
+	 */
+	protected final void toVoxel(double x, double y, double z, double[] c){
+		x -= origin[0];
+		y -= origin[1];
+		z -= origin[2];
+		c[0] = inverse[0][0] * x + inverse[0][1] * y + inverse[0][2] * z;
+		c[1] = inverse[1][0] * x + inverse[1][1] * y + inverse[1][2] * z;
+		c[2] = inverse[2][0] * x + inverse[2][1] * y + inverse[2][2] * z;
+	}
+	
+	/********************************
+	 * Returns the index of the voxel enclosing continuous coordinate {@code c} along an axis of
+	 * {@code size} voxels, or -1 if it is outside the grid. As with {@link Grid3D#getEnclosingVoxel(Point3f)},
+	 * points up to one voxel outside the grid are assigned to the boundary voxel.
+	 * 
+	 */
+	static int getEnclosing(double c, int size){
+		int i = (int)Math.floor(c + 0.5);
+		if (i < 0 && ++i < 0) return -1;
+		if (i >= size && --i >= size) return -1;
+		return i;
+	}
+	
+	/********************************
+	 * Samples the voxel enclosing each of the {@code n} vertices in {@code coords}.
+	 * 
+	 * @param coords 		Vertex coordinates (x, y, z per vertex)
+	 * @param n				Number of vertices
+	 * @param no_value		Value for vertices outside the grid
+	 * @param progress		Optional progress updater; may be {@code null}
+	 * @return the sampled values, or {@code null} if cancelled
+	 */
+	public double[] sampleNearest(final float[] coords, int n, final double no_value, ProgressUpdater progress){
+		
+		final double[] values = new double[n];
+		boolean success = run(n, progress, new VertexJob(){
+			public void run(int start, int end){
+				double[] c = new double[3];
+				for (int v = start; v < end; v++){
+					toVoxel(coords[v * 3], coords[v * 3 + 1], coords[v * 3 + 2], c);
+					int i = getEnclosing(c[0], size_s);
+					int j = getEnclosing(c[1], size_t);
+					int k = getEnclosing(c[2], size_r);
+					if (i < 0 || j < 0 || k < 0)
+						values[v] = no_value;
+					else
+						values[v] = voxels[(k * size_t + j) * size_s + i];
+					}
+			}
+		});
+		
+		return success ? values : null;
+	}
+	
+	/********************************
+	 * Samples each of the {@code n} vertices in {@code coords} by trilinear interpolation between
+	 * voxel centres. Vertices outside the voxel centres are clamped to the boundary voxels, with the
+	 * same tolerance as {@link #sampleNearest}.
+	 * 
+	 * @param coords 		Vertex coordinates (x, y, z per vertex)
+	 * @param n				Number of vertices
+	 * @param no_value		Value for vertices outside the grid
+	 * @param progress		Optional progress updater; may be {@code null}
+	 * @return the sampled values, or {@code null} if cancelled
+	 */
+	public double[] sampleTrilinear(final float[] coords, int n, final double no_value, ProgressUpdater progress){
+		
+		final double[] values = new double[n];
+		final int plane = size_s * size_t;
+		boolean success = run(n, progress, new VertexJob(){
+			public void run(int start, int end){
+				double[] c = new double[3];
+				for (int v = start; v < end; v++){
+					toVoxel(coords[v * 3], coords[v * 3 + 1], coords[v * 3 + 2], c);
+					if (getEnclosing(c[0], size_s) < 0 || getEnclosing(c[1], size_t) < 0 || 
+							getEnclosing(c[2], size_r) < 0){
+						values[v] = no_value;
+						continue;
+						}
+					double x = Math.max(0, Math.min(size_s - 1, c[0]));
+					double y = Math.max(0, Math.min(size_t - 1, c[1]));
+					double z = Math.max(0, Math.min(size_r - 1, c[2]));
+					int i0 = Math.min((int)x, Math.max(0, size_s - 2));
+					int j0 = Math.min((int)y, Math.max(0, size_t - 2));
+					int k0 = Math.min((int)z, Math.max(0, size_r - 2));
+					double fx = x - i0, fy = y - j0, fz = z - k0;
+					int di = size_s > 1 ? 1 : 0;
+					int dj = size_t > 1 ? size_s : 0;
+					int dk = size_r > 1 ? plane : 0;
+					int idx = k0 * plane + j0 * size_s + i0;
+					
+					double c00 = voxels[idx] * (1 - fx) + voxels[idx + di] * fx;
+					double c10 = voxels[idx + dj] * (1 - fx) + voxels[idx + dj + di] * fx;
+					double c01 = voxels[idx + dk] * (1 - fx) + voxels[idx + dk + di] * fx;
+					double c11 = voxels[idx + dk + dj] * (1 - fx) + voxels[idx + dk + dj + di] * fx;
+					double c0 = c00 * (1 - fy) + c10 * fy;
+					double c1 = c01 * (1 - fy) + c11 * fy;
+					values[v] = c0 * (1 - fz) + c1 * fz;
+					}
+			}
+		});
+		
+		return success ? values : null;
+	}
+	
+	/********************************
+	 * Samples each of the {@code n} vertices in {@code coords} as the mean of nearby voxels, weighted
+	 * by the product of a Gaussian of their distance along the vertex normal and a Gaussian of their
+	 * distance in the tangent plane. Voxels further than {@code max_normal} (resp. {@code max_tangent})
+	 * standard deviations are excluded.
+	 * 
+	 * <p>If {@code normal_set_max} and {@code tangent_set_max} are greater than zero, the value of a
+	 * vertex is raised to the maximum of the voxels within these distances (in standard deviations).
+	 * 
+	 * @param coords 			Vertex coordinates (x, y, z per vertex)
+	 * @param normals 			Unit vertex normals (x, y, z per vertex)
+	 * @param n					Number of vertices
+	 * @param sigma_normal		Standard deviation of the normal Gaussian
+	 * @param max_normal		Maximum normal distance, in standard deviations
+	 * @param sigma_tangent		Standard deviation of the tangent Gaussian
+	 * @param sigmas_tangent	Optional per-vertex standard deviations of the tangent Gaussian, which 
+	 * 							override {@code sigma_tangent}; may be {@code null}
+	 * @param max_tangent		Maximum tangent distance, in standard deviations
+	 * @param normal_set_max	See above; 0 for none
+	 * @param tangent_set_max	See above; 0 for none
+	 * @param no_value			Value for vertices with no voxels in range
+	 * @param progress			Optional progress updater; may be {@code null}
+	 * @return the sampled values, or {@code null} if cancelled
+	 */
+	public double[] sampleGaussian(final float[] coords, 
+								   final float[] normals,
+								   int n,
+								   final double sigma_normal,
+								   final double max_normal,
+								   final double sigma_tangent,
+								   final double[] sigmas_tangent,
+								   final double max_tangent,
+								   final double normal_set_max,
+								   final double tangent_set_max,
+								   final double no_value,
+								   ProgressUpdater progress){
+		
+		final double[] values = new double[n];
+		
+		// Kernel tables over squared distance in units of sigma^2
+		final double mn2 = max_normal * max_normal;
+		final double mt2 = max_tangent * max_tangent;
+		final double[] table_n = MeshSplatter.getKernelTable(1, mn2);
+		final double[] table_t = MeshSplatter.getKernelTable(1, mt2);
+		final double scale_n = (MeshSplatter.TABLE_SIZE - 1) / mn2;
+		final double scale_t = (MeshSplatter.TABLE_SIZE - 1) / mt2;
+		final double sn2 = normal_set_max * normal_set_max;
+		final double st2 = tangent_set_max * tangent_set_max;
+		
+		final double[] reach = new double[3];
+		for (int a = 0; a < 3; a++)
+			reach[a] = 1.0 / Math.sqrt(steps[a][0] * steps[a][0] + steps[a][1] * steps[a][1] + steps[a][2] * steps[a][2]);
+		final int plane = size_s * size_t;
+		
+		boolean success = run(n, progress, new VertexJob(){
+			public void run(int start, int end){
+				double[] c = new double[3];
+				int[] dims = new int[]{size_s, size_t, size_r};
+				int[] lo = new int[3], hi = new int[3];
+				
+				for (int v = start; v < end; v++){
+					double px = coords[v * 3], py = coords[v * 3 + 1], pz = coords[v * 3 + 2];
+					double nx = normals[v * 3], ny = normals[v * 3 + 1], nz = normals[v * 3 + 2];
+					double s_t = sigmas_tangent == null ? sigma_tangent : sigmas_tangent[v];
+					double rn2 = sigma_normal * sigma_normal * mn2;
+					double rt2 = s_t * s_t * mt2;
+					double radius = Math.sqrt(rn2 + rt2);
+					double inv_n2 = 1.0 / (sigma_normal * sigma_normal);
+					double inv_t2 = 1.0 / (s_t * s_t);
+					
+					toVoxel(px, py, pz, c);
+					boolean inside = true;
+					for (int a = 0; a < 3; a++){
+						lo[a] = (int)Math.max(0, Math.ceil(c[a] - radius * reach[a]));
+						hi[a] = (int)Math.min(dims[a] - 1, Math.floor(c[a] + radius * reach[a]));
+						if (lo[a] > hi[a]) inside = false;
+						}
+					if (!inside){
+						values[v] = no_value;
+						continue;
+						}
+					
+					double sum = 0, denom = 0, set_max = -Double.MAX_VALUE;
+					for (int k = lo[2]; k <= hi[2]; k++){
+						for (int j = lo[1]; j <= hi[1]; j++){
+							double dx = origin[0] + lo[0] * steps[0][0] + j * steps[1][0] + k * steps[2][0] - px;
+							double dy = origin[1] + lo[0] * steps[0][1] + j * steps[1][1] + k * steps[2][1] - py;
+							double dz = origin[2] + lo[0] * steps[0][2] + j * steps[1][2] + k * steps[2][2] - pz;
+							int idx = k * plane + j * size_s + lo[0];
+							
+							for (int i = lo[0]; i <= hi[0]; i++){
+								double dn = dx * nx + dy * ny + dz * nz;
+								double un = dn * dn * inv_n2;
+								if (un < mn2){
+									double ut = Math.max(0, dx * dx + dy * dy + dz * dz - dn * dn) * inv_t2;
+									if (ut < mt2){
+										double w = MeshSplatter.lookup(table_n, un * scale_n) * 
+												   MeshSplatter.lookup(table_t, ut * scale_t);
+										double d = voxels[idx];
+										sum += d * w;
+										denom += w;
+										if (un < sn2 && ut < st2)
+											set_max = Math.max(set_max, d);
+										}
+									}
+								dx += steps[0][0];
+								dy += steps[0][1];
+								dz += steps[0][2];
+								idx++;
+								}
+							}
+						}
+					
+					double value = sum / denom;
+					if (value < set_max)
+						value = set_max;
+					if (Double.isNaN(value) || Double.isInfinite(value))
+						value = no_value;
+					values[v] = value;
+					}
+			}
+		});
+		
+		return success ? values : null;
+	}
+	
+	/********************************
+	 * Returns the unit vertex normals of {@code mesh} as a primitive array (x, y, z per vertex).
+	 * 
+	 * @param mesh
+	 * @return
+	 */
+	public static float[] getNormals(Mesh3D mesh){
+		ArrayList<Vector3f> list = mesh.getNormals();
+		float[] normals = new float[mesh.n * 3];
+		for (int v = 0; v < mesh.n; v++){
+			Vector3f normal = list.get(v);
+			double l = normal.length();
+			if (l > 0){
+				normals[v * 3] = (float)(normal.x / l);
+				normals[v * 3 + 1] = (float)(normal.y / l);
+				normals[v * 3 + 2] = (float)(normal.z / l);
+				}
+			}
+		return normals;
+	}
+	
+	/********************************
+	 * Returns per-vertex tangent standard deviations for {@code mesh}, computed from the faces
+	 * adjacent to each vertex: 
+	 * 
+	 * <ul>
+	 * <li>"From mean area": {@code sqrt(A / pi)}, where {@code A} is the mean area of the adjacent faces
+	 * <li>"From mean length": the mean length of the edges of the adjacent faces which meet at the vertex
+	 * </ul>
+	 * 
+	 * Vertices with no adjacent faces are assigned {@code default_sigma}.
+	 * 
+	 * @param mesh
+	 * @param method
+	 * @param default_sigma
+	 * @return the standard deviations, or {@code null} if {@code method} is not one of the above
+	 */
+	public static double[] getTangentSigmas(Mesh3D mesh, String method, double default_sigma){
+		boolean by_area = method.equals("From mean area");
+		if (!by_area && !method.equals("From mean length")) return null;
+		
+		double[] sums = new double[mesh.n];
+		int[] counts = new int[mesh.n];
+		float[] nodes = mesh.nodes;
+		int[] faces = mesh.faces;
+		double[] e = new double[9];
+		
+		for (int f = 0; f < mesh.f; f++){
+			int a = faces[f * 3], b = faces[f * 3 + 1], c = faces[f * 3 + 2];
+			// Edge vectors ab, bc, ca
+			for (int d = 0; d < 3; d++){
+				e[d] = nodes[b * 3 + d] - nodes[a * 3 + d];
+				e[3 + d] = nodes[c * 3 + d] - nodes[b * 3 + d];
+				e[6 + d] = nodes[a * 3 + d] - nodes[c * 3 + d];
+				}
+			if (by_area){
+				double cx = e[1] * e[5] - e[2] * e[4];
+				double cy = e[2] * e[3] - e[0] * e[5];
+				double cz = e[0] * e[4] - e[1] * e[3];
+				double area = 0.5 * Math.sqrt(cx * cx + cy * cy + cz * cz);
+				sums[a] += area; sums[b] += area; sums[c] += area;
+				counts[a]++; counts[b]++; counts[c]++;
+			}else{
+				double ab = Math.sqrt(e[0] * e[0] + e[1] * e[1] + e[2] * e[2]);
+				double bc = Math.sqrt(e[3] * e[3] + e[4] * e[4] + e[5] * e[5]);
+				double ca = Math.sqrt(e[6] * e[6] + e[7] * e[7] + e[8] * e[8]);
+				sums[a] += ab + ca; sums[b] += ab + bc; sums[c] += bc + ca;
+				counts[a] += 2; counts[b] += 2; counts[c] += 2;
+				}
+			}
+		
+		double[] sigmas = new double[mesh.n];
+		for (int v = 0; v < mesh.n; v++){
+			if (counts[v] == 0)
+				sigmas[v] = default_sigma;
+			else if (by_area)
+				sigmas[v] = Math.sqrt(sums[v] / (counts[v] * Math.PI));
+			else
+				sigmas[v] = sums[v] / counts[v];
+			}
+		return sigmas;
+	}
+	
+	/********************************
+	 * Job processing a range of vertices.
+	 *
+	 */
+	interface VertexJob {
+		public void run(int start, int end);
+	}
+	
+	/********************************
+	 * Runs {@code job} over {@code n} vertices in parallel blocks, updating {@code progress} and 
+	 * checking for cancellation between blocks.
+	 * 
+	 * @return {@code false} if cancelled
+	 */
+	protected static boolean run(final int n, final ProgressUpdater progress, final VertexJob job){
+		
+		final int block = 1024;
+		final int n_blocks = (n + block - 1) / block;
+		final AtomicInteger done = new AtomicInteger(0);
+		final boolean[] cancelled = new boolean[1];
+		
+		if (progress != null){
+			progress.setMinimum(0);
+			progress.setMaximum(n_blocks);
+			progress.update(0);
+			}
+		
+		try{
+			ParallelFunctions.runPartitioned(n_blocks, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					for (int b = start; b < end; b++){
+						if (cancelled[0]) return;
+						job.run(b * block, Math.min(n, (b + 1) * block));
+						if (progress != null){
+							if (progress.isCancelled()){
+								cancelled[0] = true;
+								return;
+								}
+							progress.update(done.incrementAndGet());
+							}
+						}
+				}
+			});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
+		
+		return !cancelled[0];
+	}
+	
+}
@@ -0,0 +1,269 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.geometry.mesh;
+
+import mgui.geometry.Mesh3D;
+
+/********************************
+ * Welds coincident vertices of a {@link Mesh3D} in linear (expected) time, using a spatial hash with 
+ * cells the size of the welding tolerance. Vertices are merged into the first vertex (in index order) 
+ * lying within the tolerance; the surviving vertices keep their relative order.
+ * 
+ * <p>Welding remaps faces in place, and drops faces which become degenerate (i.e., have a repeated vertex) 
+ * or duplicate an existing face (the same vertices in the same cyclic order) in the same pass.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class MeshWelder {
+
+	/********************************
+	 * Welds the vertices of {@code mesh} which are separated by less than {@code tolerance}, and
+	 * removes degenerate and duplicate faces. The mesh is changed in place.
+	 * 
+	 * @param mesh
+	 * @param tolerance		Welding distance; if {@code <= 0}, only identical vertices are welded
+	 * @return a map from each original vertex index to its index in the welded mesh
+	 */
+	public static int[] weld(Mesh3D mesh, double tolerance){
+		
+		int[] count = new int[1];
+		int[] map = getWeldMap(mesh.nodes, mesh.n, tolerance, count);
+		
+		// Compact vertices; each new index is assigned at its first occurrence, so new <= old
+		int next = 0;
+		float[] nodes = mesh.nodes;
+		for (int i = 0; i < mesh.n; i++){
+			if (map[i] == next){
+				if (next != i){
+					nodes[next * 3] = nodes[i * 3];
+					nodes[next * 3 + 1] = nodes[i * 3 + 1];
+					nodes[next * 3 + 2] = nodes[i * 3 + 2];
+					}
+				next++;
+				}
+			}
+		mesh.n = count[0];
+		
+		mesh.f = remapFaces(mesh.faces, mesh.f, map);
+		mesh.topologyChanged();
+		
+		return map;
+	}
+	
+	/********************************
+	 * Remaps the first {@code f} faces of {@code faces} with {@code map}, in place, discarding faces which
+	 * become degenerate or duplicate an earlier face. 
+	 * 
+	 * @param faces 		Face index array (three indices per face)
+	 * @param f				Number of faces
+	 * @param map			Vertex index map
+	 * @return the number of remaining faces
+	 */
+	public static int remapFaces(int[] faces, int f, int[] map){
+		
+		int size = tableSize(f);
+		int[] table = new int[size];		// face index + 1; 0 = empty
+		int mask = size - 1;
+		int w = 0;
+		
+		for (int i = 0; i < f; i++){
+			int a = map[faces[i * 3]];
+			int b = map[faces[i * 3 + 1]];
+			int c = map[faces[i * 3 + 2]];
+			if (a == b || b == c || a == c) continue;
+			
+			faces[w * 3] = a;
+			faces[w * 3 + 1] = b;
+			faces[w * 3 + 2] = c;
+			
+			// Hash on the rotation starting with the smallest index, so cyclic permutations match
+			int slot = hashFace(a, b, c) & mask;
+			boolean is_dup = false;
+			while (table[slot] != 0){
+				if (isSameFace(faces, table[slot] - 1, a, b, c)){
+					is_dup = true;
+					break;
+					}
+				slot = (slot + 1) & mask;
+				}
+			if (is_dup) continue;
+			table[slot] = w + 1;
+			w++;
+			}
+		
+		return w;
+	}
+	
+	/********************************
+	 * Determines a welding map for the first {@code n} vertices in {@code coords}. Each vertex is mapped
+	 * to the index of the first vertex within {@code tolerance} of it, in a compacted index space.
+	 * 
+	 * @param coords		Vertex coordinates (x, y, z per vertex)
+	 * @param n				Number of vertices
+	 * @param tolerance		Welding distance; if {@code <= 0}, only identical vertices are welded
+	 * @param count			If not {@code null}, {@code count[0]} is set to the number of distinct vertices
+	 * @return the map
+	 */
+	public static int[] getWeldMap(float[] coords, int n, double tolerance, int[] count){
+		
+		boolean exact = !(tolerance > 0);
+		double cell = exact ? 1.0 : tolerance;
+		double tol2 = exact ? 0 : tolerance * tolerance;
+		
+		int size = tableSize(n);
+		int mask = size - 1;
+		long[] cell_x = new long[size], cell_y = new long[size], cell_z = new long[size];
+		int[] cell_head = new int[size];			// representative + 1; 0 = empty
+		int[] next = new int[n];					// next representative in the same cell, + 1
+		int[] rep_vertex = new int[n];				// original vertex of each representative
+		int[] map = new int[n];
+		int reps = 0;
+		
+		for (int i = 0; i < n; i++){
+			float x = coords[i * 3], y = coords[i * 3 + 1], z = coords[i * 3 + 2];
+			long cx = (long)Math.floor(x / cell);
+			long cy = (long)Math.floor(y / cell);
+			long cz = (long)Math.floor(z / cell);
+			
+			// Search this vertex's own cell first, since most matches will be found there
+			int found = searchCell(coords, x, y, z, exact, tol2, cell_x, cell_y, cell_z, cell_head, 
+								   next, rep_vertex, mask, cx, cy, cz);
+			if (found < 0 && !exact){
+				search:
+				for (int dx = -1; dx <= 1; dx++)
+					for (int dy = -1; dy <= 1; dy++)
+						for (int dz = -1; dz <= 1; dz++){
+							if (dx == 0 && dy == 0 && dz == 0) continue;
+							found = searchCell(coords, x, y, z, exact, tol2, cell_x, cell_y, cell_z, cell_head, 
+											   next, rep_vertex, mask, cx + dx, cy + dy, cz + dz);
+							if (found >= 0) break search;
+							}
+				}
+			
+			if (found >= 0){
+				map[i] = found;
+				continue;
+				}
+			
+			// New representative; insert into its cell
+			int r = reps++;
+			rep_vertex[r] = i;
+			map[i] = r;
+			int slot = hashCell(cx, cy, cz) & mask;
+			while (cell_head[slot] != 0 && 
+					!(cell_x[slot] == cx && cell_y[slot] == cy && cell_z[slot] == cz))
+				slot = (slot + 1) & mask;
+			if (cell_head[slot] == 0){
+				cell_x[slot] = cx;
+				cell_y[slot] = cy;
+				cell_z[slot] = cz;
+				}
+			next[r] = cell_head[slot];
+			cell_head[slot] = r + 1;
+			}
+		
+		if (count != null) count[0] = reps;
+		return map;
+	}
+	
+	/********************************
+	 * Returns the indices of all vertices of {@code mesh} which have at least one other vertex within 
+	 * {@code tolerance}, in ascending order.
+	 * 
+	 * @param mesh
+	 * @param tolerance
+	 * @return
+	 */
+	public static int[] getDuplicateVertices(Mesh3D mesh, double tolerance){
+		int[] count = new int[1];
+		int[] map = getWeldMap(mesh.nodes, mesh.n, tolerance, count);
+		int[] size = new int[count[0]];
+		for (int i = 0; i < mesh.n; i++)
+			size[map[i]]++;
+		int m = 0;
+		for (int i = 0; i < mesh.n; i++)
+			if (size[map[i]] > 1) m++;
+		int[] dups = new int[m];
+		m = 0;
+		for (int i = 0; i < mesh.n; i++)
+			if (size[map[i]] > 1) dups[m++] = i;
+		return dups;
+	}
+	
+	static int searchCell(float[] coords, float x, float y, float z, boolean exact, double tol2,
+						  long[] cell_x, long[] cell_y, long[] cell_z, int[] cell_head, int[] next, int[] rep_vertex,
+						  int mask, long cx, long cy, long cz){
+		int slot = findCell(cell_x, cell_y, cell_z, cell_head, mask, cx, cy, cz);
+		if (slot < 0) return -1;
+		for (int r = cell_head[slot] - 1; r >= 0; r = next[r] - 1){
+			int v = rep_vertex[r];
+			double ex = coords[v * 3] - x, ey = coords[v * 3 + 1] - y, ez = coords[v * 3 + 2] - z;
+			double d2 = ex * ex + ey * ey + ez * ez;
+			if (exact ? d2 == 0 : d2 < tol2)
+				return r;
+			}
+		return -1;
+	}
+	
+	static int findCell(long[] cell_x, long[] cell_y, long[] cell_z, int[] cell_head, int mask, long cx, long cy, long cz){
+		int slot = hashCell(cx, cy, cz) & mask;
+		while (cell_head[slot] != 0){
+			if (cell_x[slot] == cx && cell_y[slot] == cy && cell_z[slot] == cz)
+				return slot;
+			slot = (slot + 1) & mask;
+			}
+		return -1;
+	}
+	
+	static int hashCell(long x, long y, long z){
+		long h = x * 0x9E3779B97F4A7C15L + y * 0xC2B2AE3D27D4EB4FL + z * 0x165667B19E3779F9L;
+		return (int)(h ^ (h >>> 31));
+	}
+	
+	static int hashFace(int a, int b, int c){
+		// Rotate so the smallest index is first
+		int p = a, q = b, r = c;
+		if (b < a && b < c){
+			p = b; q = c; r = a;
+		}else if (c < a && c < b){
+			p = c; q = a; r = b;
+			}
+		long h = p * 0x9E3779B97F4A7C15L + q * 0xC2B2AE3D27D4EB4FL + r * 0x165667B19E3779F9L;
+		return (int)(h ^ (h >>> 29));
+	}
+	
+	static boolean isSameFace(int[] faces, int j, int a, int b, int c){
+		int p = faces[j * 3], q = faces[j * 3 + 1], r = faces[j * 3 + 2];
+		return (p == a && q == b && r == c) ||
+			   (p == b && q == c && r == a) ||
+			   (p == c && q == a && r == b);
+	}
+	
+	static int tableSize(int n){
+		int size = 16;
+		while (size < n * 2 && size < (1 << 30))
+			size <<= 1;
+		return size;
+	}
+	
+}
@@ -0,0 +1,485 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.geometry.volume;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import mgui.geometry.Grid3D;
+import mgui.interfaces.ProgressUpdater;
+import mgui.interfaces.util.ParallelFunctions;
+
+import org.jogamp.vecmath.Point3f;
+import org.jogamp.vecmath.Vector3f;
+
+/**********************************************************
+ * Labels the connected components of a binary voxel grid, using a two-pass union-find over primitive
+ * buffers. The grid is split into slabs along the R axis, which are labelled concurrently; components
+ * are then merged across slab boundaries and final labels resolved in parallel.
+ * 
+ * <p>Component labels are numbered from 1, in order of the first (lowest absolute index) voxel of each 
+ * component; background voxels have label 0. For each component, its size, bounding box and centroid
+ * (in voxel coordinates) are also computed. Components smaller than a minimum size can be discarded,
+ * in which case the remaining components are renumbered consecutively.
+ * 
+ * <p>Voxel indexing follows {@link mgui.geometry.Grid3D#getAbsoluteIndex(int, int, int)}; i.e., S
+ * changes fastest.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class ConnectedComponents {
+
+	/**********************************************************
+	 * Neighbourhood used to define connectivity between voxels.
+	 *
+	 */
+	public static enum Connectivity{
+		/** Voxels sharing a face (6 neighbours) */
+		Faces(6),
+		/** Voxels sharing a face or edge (18 neighbours) */
+		Edges(18),
+		/** Voxels sharing a face, edge or corner (26 neighbours) */
+		Corners(26);
+		
+		public final int neighbours;
+		
+		Connectivity(int neighbours){
+			this.neighbours = neighbours;
+		}
+		
+		/****************************************
+		 * Returns the connectivity with the given neighbour count (6, 18 or 26).
+		 * 
+		 * @param neighbours
+		 * @return
+		 */
+		public static Connectivity getFromNeighbours(int neighbours){
+			switch (neighbours){
+				case 6: return Faces;
+				case 18: return Edges;
+				case 26: return Corners;
+				}
+			return null;
+		}
+		
+		/****************************************
+		 * Returns the {di, dj, dk} offsets of neighbours preceding a voxel in raster order.
+		 * 
+		 * @return
+		 */
+		int[][] getBackwardOffsets(){
+			ArrayList<int[]> offsets = new ArrayList<int[]>();
+			for (int dk = -1; dk <= 0; dk++)
+				for (int dj = -1; dj <= 1; dj++)
+					for (int di = -1; di <= 1; di++){
+						if (dk == 0 && (dj > 0 || (dj == 0 && di >= 0))) continue;
+						int nonzero = Math.abs(di) + Math.abs(dj) + Math.abs(dk);
+						if (this == Faces && nonzero > 1) continue;
+						if (this == Edges && nonzero > 2) continue;
+						offsets.add(new int[]{di, dj, dk});
+						}
+			return offsets.toArray(new int[0][]);
+		}
+	}
+	
+	protected int s_size, t_size, r_size;
+	protected int[] labels;
+	protected int count;
+	protected int[] sizes;
+	protected int[] bounds;
+	protected double[] centroids;
+	
+	protected ConnectedComponents(){
+		
+	}
+	
+	/**********************************************************
+	 * Returns the component label of each voxel (0 for background or discarded components).
+	 * 
+	 * @return
+	 */
+	public int[] getLabels(){
+		return labels;
+	}
+	
+	/**********************************************************
+	 * Returns the number of components.
+	 * 
+	 * @return
+	 */
+	public int getComponentCount(){
+		return count;
+	}
+	
+	/**********************************************************
+	 * Returns the number of voxels in component {@code label} (numbered from 1).
+	 * 
+	 * @param label
+	 * @return
+	 */
+	public int getSize(int label){
+		return sizes[label - 1];
+	}
+	
+	/**********************************************************
+	 * Returns the bounding box of component {@code label} (numbered from 1), as the voxel coordinates 
+	 * {min_s, min_t, min_r, max_s, max_t, max_r}; maxima are inclusive.
+	 * 
+	 * @param label
+	 * @return
+	 */
+	public int[] getBounds(int label){
+		int o = (label - 1) * 6;
+		return Arrays.copyOfRange(bounds, o, o + 6);
+	}
+	
+	/**********************************************************
+	 * Returns the centroid of component {@code label} (numbered from 1), in voxel coordinates {s, t, r}.
+	 * Use {@link mgui.geometry.Grid3D} to convert to world coordinates.
+	 * 
+	 * @param label
+	 * @return
+	 */
+	public double[] getCentroid(int label){
+		int o = (label - 1) * 3;
+		return Arrays.copyOfRange(centroids, o, o + 3);
+	}
+	
+	/**********************************************************
+	 * Returns the centroid of component {@code label} (numbered from 1), in the world coordinates
+	 * of {@code grid}.
+	 * 
+	 * @param label
+	 * @param grid
+	 * @return
+	 */
+	public Point3f getCentroid(int label, Grid3D grid){
+		double[] c = getCentroid(label);
+		// Voxel midpoints are affine in (i, j, k)
+		Point3f origin = grid.getVoxelMidPoint(0, 0, 0);
+		Vector3f step = new Vector3f(grid.getVoxelMidPoint(1, 0, 0));
+		step.sub(origin);
+		Point3f p = new Point3f(origin);
+		p.scaleAdd((float)c[0], step, p);
+		step.set(grid.getVoxelMidPoint(0, 1, 0));
+		step.sub(origin);
+		p.scaleAdd((float)c[1], step, p);
+		step.set(grid.getVoxelMidPoint(0, 0, 1));
+		step.sub(origin);
+		p.scaleAdd((float)c[2], step, p);
+		return p;
+	}
+	
+	/**********************************************************
+	 * Labels the connected components of voxels with values greater than {@code threshold}.
+	 * 
+	 * @param values		Voxel values, in absolute index order
+	 * @param s_size
+	 * @param t_size
+	 * @param r_size
+	 * @param threshold		Voxels with values {@code <= threshold} are background
+	 * @param connectivity
+	 * @param min_size		Minimum component size; smaller components are relabelled as background
+	 * @param progress		Optional progress updater; can be {@code null}
+	 * @return the labelled components, or {@code null} if cancelled
+	 * @throws Exception
+	 */
+	public static ConnectedComponents getComponents(final double[] values, int s_size, int t_size, int r_size,
+													final double threshold, Connectivity connectivity, int min_size,
+													ProgressUpdater progress) throws Exception{
+		
+		final boolean[] mask = new boolean[values.length];
+		ParallelFunctions.runPartitioned(values.length, new ParallelFunctions.PartitionJob(){
+			public void run(int partition, int start, int end){
+				for (int i = start; i < end; i++)
+					mask[i] = values[i] > threshold;
+				}
+			});
+		
+		return getComponents(mask, s_size, t_size, r_size, connectivity, min_size, progress);
+	}
+	
+	/**********************************************************
+	 * Labels the connected components of the {@code true} voxels of {@code mask}.
+	 * 
+	 * @param mask			Foreground voxels, in absolute index order
+	 * @param s_size
+	 * @param t_size
+	 * @param r_size
+	 * @param connectivity
+	 * @param min_size		Minimum component size; smaller components are relabelled as background
+	 * @param progress		Optional progress updater; can be {@code null}
+	 * @return the labelled components, or {@code null} if cancelled
+	 * @throws Exception
+	 */
+	public static ConnectedComponents getComponents(final boolean[] mask, final int s_size, final int t_size, final int r_size,
+													Connectivity connectivity, int min_size,
+													final ProgressUpdater progress) throws Exception{
+		
+		final int n = s_size * t_size * r_size;
+		if (mask.length < n)
+			throw new IllegalArgumentException("ConnectedComponents: mask has " + mask.length + " voxels; expected " + n + ".");
+		
+		final int st_size = s_size * t_size;
+		final int[][] offsets = connectivity.getBackwardOffsets();
+		final int[] parent = new int[n];
+		
+		if (progress != null){
+			progress.setMinimum(0);
+			progress.setMaximum(4);
+			progress.update(0);
+			}
+		
+		// Pass 1: provisional union-find within slabs of R planes
+		final int[][] slabs = ParallelFunctions.getPartitions(r_size, ParallelFunctions.getPartitionCount(r_size));
+		ParallelFunctions.runPartitioned(slabs, new ParallelFunctions.PartitionJob(){
+			public void run(int partition, int k0, int k1){
+				for (int k = k0; k < k1; k++){
+					if (progress != null && progress.isCancelled()) return;
+					for (int j = 0; j < t_size; j++){
+						int row = k * st_size + j * s_size;
+						for (int i = 0; i < s_size; i++){
+							int idx = row + i;
+							if (!mask[idx]){
+								parent[idx] = -1;
+								continue;
+								}
+							parent[idx] = idx;
+							for (int o = 0; o < offsets.length; o++){
+								int kk = k + offsets[o][2];
+								if (kk < k0) continue;		// Other slab; merged later
+								int jj = j + offsets[o][1];
+								int ii = i + offsets[o][0];
+								if (jj < 0 || jj >= t_size || ii < 0 || ii >= s_size) continue;
+								int nidx = kk * st_size + jj * s_size + ii;
+								if (mask[nidx]) union(parent, idx, nidx);
+								}
+							}
+						}
+					}
+				}
+			});
+		
+		if (progress != null){
+			if (progress.isCancelled()) return null;
+			progress.update(1);
+			}
+		
+		// Pass 2: merge across slab boundaries
+		for (int s = 1; s < slabs.length; s++){
+			int k = slabs[s][0];
+			for (int j = 0; j < t_size; j++){
+				int row = k * st_size + j * s_size;
+				for (int i = 0; i < s_size; i++){
+					int idx = row + i;
+					if (!mask[idx]) continue;
+					for (int o = 0; o < offsets.length; o++){
+						if (offsets[o][2] == 0) continue;
+						int jj = j + offsets[o][1];
+						int ii = i + offsets[o][0];
+						if (jj < 0 || jj >= t_size || ii < 0 || ii >= s_size) continue;
+						int nidx = (k - 1) * st_size + jj * s_size + ii;
+						if (mask[nidx]) union(parent, idx, nidx);
+						}
+					}
+				}
+			}
+		
+		if (progress != null){
+			if (progress.isCancelled()) return null;
+			progress.update(2);
+			}
+		
+		// Pass 3: resolve roots; roots are the lowest index of their component, so numbering
+		// roots in index order numbers components by their first voxel
+		final int[][] parts = ParallelFunctions.getPartitions(n, ParallelFunctions.getPartitionCount(n));
+		final int[] root_counts = new int[parts.length];
+		ParallelFunctions.runPartitioned(parts, new ParallelFunctions.PartitionJob(){
+			public void run(int partition, int start, int end){
+				int c = 0;
+				for (int i = start; i < end; i++)
+					if (parent[i] == i) c++;
+				root_counts[partition] = c;
+				}
+			});
+		
+		final int[] root_offset = new int[parts.length];
+		int total = 0;
+		for (int p = 0; p < parts.length; p++){
+			root_offset[p] = total;
+			total += root_counts[p];
+			}
+		final int n_comp = total;
+		
+		final int[] labels = new int[n];
+		ParallelFunctions.runPartitioned(parts, new ParallelFunctions.PartitionJob(){
+			public void run(int partition, int start, int end){
+				int next = root_offset[partition];
+				for (int i = start; i < end; i++)
+					if (parent[i] == i) labels[i] = ++next;
+				}
+			});
+		
+		// Label all voxels; roots were labelled above and are not rewritten, so this is safe in parallel
+		ParallelFunctions.runPartitioned(parts, new ParallelFunctions.PartitionJob(){
+			public void run(int partition, int start, int end){
+				for (int i = start; i < end; i++){
+					int p = parent[i];
+					if (p >= 0 && p != i)
+						labels[i] = labels[find(parent, i)];
+					}
+				}
+			});
+		
+		// Accumulate component statistics; per-partition accumulators are only worthwhile if 
+		// components are few relative to voxels
+		final int[][] stat_parts = (long)n_comp * parts.length * 4 > n ? new int[][]{{0, n}} : parts;
+		final int[][] part_sizes = new int[stat_parts.length][];
+		final int[][] part_bounds = new int[stat_parts.length][];
+		final double[][] part_sums = new double[stat_parts.length][];
+		ParallelFunctions.runPartitioned(stat_parts, new ParallelFunctions.PartitionJob(){
+			public void run(int partition, int start, int end){
+				int[] sizes = new int[n_comp];
+				int[] bounds = new int[n_comp * 6];
+				double[] sums = new double[n_comp * 3];
+				for (int c = 0; c < n_comp; c++){
+					bounds[c * 6] = bounds[c * 6 + 1] = bounds[c * 6 + 2] = Integer.MAX_VALUE;
+					bounds[c * 6 + 3] = bounds[c * 6 + 4] = bounds[c * 6 + 5] = -1;
+					}
+				for (int idx = start; idx < end; idx++){
+					int c = labels[idx] - 1;
+					if (c < 0) continue;
+					int i = idx % s_size;
+					int j = (idx / s_size) % t_size;
+					int k = idx / st_size;
+					sizes[c]++;
+					int o = c * 6;
+					if (i < bounds[o]) bounds[o] = i;
+					if (j < bounds[o + 1]) bounds[o + 1] = j;
+					if (k < bounds[o + 2]) bounds[o + 2] = k;
+					if (i > bounds[o + 3]) bounds[o + 3] = i;
+					if (j > bounds[o + 4]) bounds[o + 4] = j;
+					if (k > bounds[o + 5]) bounds[o + 5] = k;
+					sums[c * 3] += i;
+					sums[c * 3 + 1] += j;
+					sums[c * 3 + 2] += k;
+					}
+				part_sizes[partition] = sizes;
+				part_bounds[partition] = bounds;
+				part_sums[partition] = sums;
+				}
+			});
+		
+		if (progress != null){
+			if (progress.isCancelled()) return null;
+			progress.update(3);
+			}
+		
+		// Merge partition statistics
+		int[] sizes = part_sizes[0];
+		int[] bounds = part_bounds[0];
+		double[] sums = part_sums[0];
+		for (int p = 1; p < stat_parts.length; p++){
+			for (int c = 0; c < n_comp; c++){
+				sizes[c] += part_sizes[p][c];
+				int o = c * 6;
+				for (int b = 0; b < 3; b++){
+					bounds[o + b] = Math.min(bounds[o + b], part_bounds[p][o + b]);
+					bounds[o + b + 3] = Math.max(bounds[o + b + 3], part_bounds[p][o + b + 3]);
+					}
+				for (int b = 0; b < 3; b++)
+					sums[c * 3 + b] += part_sums[p][c * 3 + b];
+				}
+			}
+		
+		// Discard small components and renumber
+		ConnectedComponents components = new ConnectedComponents();
+		components.s_size = s_size;
+		components.t_size = t_size;
+		components.r_size = r_size;
+		components.labels = labels;
+		
+		final int[] relabel = new int[n_comp + 1];
+		int kept = 0;
+		for (int c = 0; c < n_comp; c++)
+			if (sizes[c] >= min_size) relabel[c + 1] = ++kept;
+		
+		components.count = kept;
+		components.sizes = new int[kept];
+		components.bounds = new int[kept * 6];
+		components.centroids = new double[kept * 3];
+		for (int c = 0; c < n_comp; c++){
+			int l = relabel[c + 1];
+			if (l == 0) continue;
+			l--;
+			components.sizes[l] = sizes[c];
+			System.arraycopy(bounds, c * 6, components.bounds, l * 6, 6);
+			for (int b = 0; b < 3; b++)
+				components.centroids[l * 3 + b] = sums[c * 3 + b] / sizes[c];
+			}
+		
+		if (kept < n_comp){
+			ParallelFunctions.runPartitioned(parts, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					for (int i = start; i < end; i++)
+						labels[i] = relabel[labels[i]];
+					}
+				});
+			}
+		
+		if (progress != null) progress.update(4);
+		
+		return components;
+	}
+	
+	static int find(int[] parent, int i){
+		while (parent[i] != i)
+			i = parent[i];
+		return i;
+	}
+	
+	/**********************************************************
+	 * Unites the components of {@code a} and {@code b}, linking the larger root to the smaller, with 
+	 * path halving.
+	 * 
+	 */
+	static void union(int[] parent, int a, int b){
+		while (true){
+			while (parent[a] != a){
+				parent[a] = parent[parent[a]];
+				a = parent[a];
+				}
+			while (parent[b] != b){
+				parent[b] = parent[parent[b]];
+				b = parent[b];
+				}
+			if (a == b) return;
+			if (a < b)
+				parent[b] = a;
+			else
+				parent[a] = b;
+			return;
+			}
+	}
+	
+}
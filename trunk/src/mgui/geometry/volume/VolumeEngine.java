@@ -19,11 +19,16 @@
 
 package mgui.geometry.volume;
 
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.TreeSet;
 
+import javax.imageio.ImageIO;
+
 import mgui.geometry.Mesh3D;
 import mgui.geometry.mesh.MeshFunctions;
 import mgui.interfaces.InterfaceSession;
@@ -33,11 +38,14 @@ import mgui.interfaces.attributes.AttributeList;
 import mgui.interfaces.attributes.AttributeSelection;
 import mgui.interfaces.gui.InterfaceProgressBar;
 import mgui.interfaces.logs.LoggingType;
+import mgui.interfaces.maps.Camera3D;
 import mgui.interfaces.shapes.Mesh3DInt;
 import mgui.interfaces.shapes.ShapeSet3DInt;
 import mgui.interfaces.shapes.VertexDataColumn;
 import mgui.interfaces.shapes.Volume3DInt;
+import mgui.interfaces.shapes.volume.VolumeRayCaster;
 import mgui.interfaces.util.Engine;
+import mgui.numbers.MguiBoolean;
 import mgui.numbers.MguiDouble;
 import mgui.numbers.MguiInteger;
 
@@ -123,6 +131,13 @@ public class VolumeEngine implements Engine {
 		list.add(new Attribute<MguiInteger>("min_blob", new MguiInteger(1)));
 		attributes.put("Get Blobs from Volume", list);
 		
+		list = new AttributeList();
+		list.add(new Attribute<String>("expression", ""));
+		attr = new AttributeSelection<String>("target_column", new ArrayList<String>(), String.class);
+		attr.allowUnlisted(true);
+		list.add(attr);
+		attributes.put("Evaluate Expression", list);
+		
 		list = new AttributeList();
 		list.add(new Attribute<String>("source_column", ""));
 		list.add(new Attribute<MguiDouble>("isovalue", new MguiDouble(0.5)));
@@ -131,6 +146,19 @@ public class VolumeEngine implements Engine {
 		//list.add(attr);
 		
 		attributes.put("Get Isosurface from Volume", list);
+		
+		String[] render_methods = {"Maximum Intensity", "Minimum Intensity", "Direct Volume"};
+		for (int i = 0; i < render_methods.length; i++){
+			list = new AttributeList();
+			list.add(new Attribute<MguiInteger>("width", new MguiInteger(512)));
+			list.add(new Attribute<MguiInteger>("height", new MguiInteger(512)));
+			list.add(new Attribute<MguiDouble>("step_size", new MguiDouble(0.5)));
+			list.add(new Attribute<MguiBoolean>("parallel_projection", new MguiBoolean(false)));
+			list.add(new Attribute<String>("output_file", ""));
+			attributes.put("Render Volume (" + render_methods[i] + ")", list);
+			}	
+		attributes.put("Undo Edit", new AttributeList());
+		attributes.put("Redo Edit", new AttributeList());
 	}
 	
 	/*************************************************
@@ -216,6 +244,49 @@ public class VolumeEngine implements Engine {
 								 progress);
 			}
 		
+		if (operation.equals("Evaluate Expression")){
+			if (params.size() != 1){
+				InterfaceSession.log("VolumeEngine.callMethod: Operation 'Evaluate Expression' requires one parameter " +
+									 "(volume)", 
+									 LoggingType.Errors);
+				return false;
+				}
+				
+			return evaluateExpression((Volume3DInt)params.get(0),
+									  progress);
+			}
+		
+		if (operation.equals("Undo Edit") || operation.equals("Redo Edit")){
+			if (params.size() != 1){
+				InterfaceSession.log("VolumeEngine.callMethod: Operation '" + operation + "' requires one parameter " +
+									 "(volume)", 
+									 LoggingType.Errors);
+				return false;
+				}
+			
+			Volume3DInt volume = (Volume3DInt)params.get(0);
+			boolean success = operation.equals("Undo Edit") ? volume.undoEdit() : volume.redoEdit();
+			if (!success)
+				InterfaceSession.log("VolumeEngine.callMethod: Nothing to " + 
+									 (operation.equals("Undo Edit") ? "undo" : "redo") + " for volume '" +
+									 volume.getName() + "'.", 
+									 LoggingType.Warnings);
+			return success;
+			}
+		
+		if (operation.equals("Render Volume")){
+			if (params.size() != 2){
+				InterfaceSession.log("VolumeEngine.callMethod: Operation 'Render Volume' requires two parameters " +
+									 "(volume, camera)", 
+									 LoggingType.Errors);
+				return false;
+				}
+				
+			return renderVolume((Volume3DInt)params.get(0),
+								(Camera3D)params.get(1),
+								method) != null;
+			}
+		
 		return false;
 	}
 	
@@ -333,6 +404,104 @@ public class VolumeEngine implements Engine {
 		return false;
 	}
 	
+	/*************************************************************
+	 * Evaluates the "expression" attribute voxel-wise over the columns of {@code volume}, and
+	 * writes the result to "target_column". Variables in the expression refer to columns of
+	 * {@code volume} by name. See {@link VoxelExpression} for the expression syntax.
+	 * 
+	 * @param volume
+	 * @param progress_bar
+	 * @return {@code true} if successful
+	 */
+	public boolean evaluateExpression(Volume3DInt volume, ProgressUpdater progress_bar){
+		
+		AttributeList attr = attributes.get("Evaluate Expression");
+		String expression = (String)attr.getValue("expression");
+		String target_column = (String)attr.getValue("target_column");
+		if (target_column == null || target_column.length() == 0){
+			InterfaceSession.log("VolumeEngine.evaluateExpression: Target column not set.", 
+								 LoggingType.Errors);
+			return false;
+			}
+		
+		if (!VolumeFunctions.evaluateExpression(volume, 
+												target_column, 
+												expression, 
+												null, 
+												progress_bar)){
+			return false;
+			}
+		
+		volume.fireShapeModified();
+		return true;
+	}
+	
+	/*************************************************************
+	 * Renders the current column of {@code volume}, as seen from {@code camera}, with a {@link VolumeRayCaster}.
+	 * This does not require a graphics device. If the "output_file" attribute is set, the image is also
+	 * written to that file, in PNG format.
+	 * 
+	 * <p>Valid methods are:
+	 * 
+	 * <ul>
+	 * <li>'Maximum Intensity' - maximum intensity projection
+	 * <li>'Minimum Intensity' - minimum intensity projection
+	 * <li>'Direct Volume' - direct volume rendering using the column's colour model
+	 * </ul>
+	 * 
+	 * @param volume
+	 * @param camera
+	 * @param method
+	 * @return the rendered image, or {@code null} if it could not be rendered
+	 */
+	public BufferedImage renderVolume(Volume3DInt volume, Camera3D camera, String method){
+		
+		AttributeList attr = attributes.get("Render Volume (" + method + ")");
+		if (attr == null){
+			InterfaceSession.log("VolumeEngine.renderVolume: No such method '" + method + "'", 
+								 LoggingType.Errors);
+			return null;
+			}
+		
+		VolumeRayCaster.Mode mode = VolumeRayCaster.Mode.MaximumIntensity;
+		if (method.equals("Minimum Intensity"))
+			mode = VolumeRayCaster.Mode.MinimumIntensity;
+		else if (method.equals("Direct Volume"))
+			mode = VolumeRayCaster.Mode.DirectVolume;
+		
+		int width = ((MguiInteger)attr.getValue("width")).getInt();
+		int height = ((MguiInteger)attr.getValue("height")).getInt();
+		if (width < 1 || height < 1){
+			InterfaceSession.log("VolumeEngine.renderVolume: Invalid image size " + width + "x" + height + ".", 
+								 LoggingType.Errors);
+			return null;
+			}
+		
+		VolumeRayCaster caster = new VolumeRayCaster(volume, mode);
+		caster.setStepSize(((MguiDouble)attr.getValue("step_size")).getValue());
+		caster.setParallelProjection(((MguiBoolean)attr.getValue("parallel_projection")).getTrue());
+		
+		BufferedImage image = caster.render(camera, width, height);
+		if (image == null){
+			InterfaceSession.log("VolumeEngine.renderVolume: Volume '" + volume.getName() + "' has no current " +
+								 "grid column.", 
+								 LoggingType.Errors);
+			return null;
+			}
+		
+		String output_file = (String)attr.getValue("output_file");
+		if (output_file != null && output_file.length() > 0){
+			try{
+				ImageIO.write(image, "png", new File(output_file));
+			}catch (IOException ex){
+				InterfaceSession.handleException(ex);
+				return null;
+				}
+			}
+		
+		return image;
+	}
+	
 	/*********************************
 	 * Extract blobs from a thresholded volume
 	 * 
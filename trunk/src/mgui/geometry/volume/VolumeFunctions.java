@@ -26,12 +26,11 @@ import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.ComponentColorModel;
 import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
 import java.awt.image.WritableRaster;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 import org.jogamp.java3d.ImageComponent3D;
 import javax.media.jai.JAI;
@@ -66,19 +65,25 @@ import mgui.interfaces.shapes.VertexDataColumn;
 import mgui.interfaces.shapes.Volume2DInt;
 import mgui.interfaces.shapes.Volume3DInt;
 import mgui.interfaces.shapes.util.ShapeFunctions;
+import mgui.interfaces.shapes.volume.CompositeSliceRenderer;
 import mgui.interfaces.shapes.volume.GridVertexDataColumn;
+import mgui.interfaces.shapes.volume.VolumeEditHistory;
 import mgui.interfaces.shapes.volume.VolumeMaskOptions_old;
+import mgui.interfaces.shapes.volume.VolumePyramid;
+import mgui.interfaces.util.ParallelFunctions;
+import mgui.interfaces.util.TaskEngine;
 import mgui.numbers.MguiDouble;
 import mgui.numbers.MguiInteger;
 import mgui.numbers.MguiNumber;
 import mgui.stats.Histogram;
 import mgui.stats.StatFunctions;
+import mgui.stats.StreamingSummary;
+import mgui.stats.ZonalStatistics;
 
 import org.apache.commons.math3.analysis.interpolation.TricubicSplineInterpolatingFunction;
 import org.apache.commons.math3.exception.OutOfRangeException;
 
 import foxtrot.Job;
-import foxtrot.Worker;
 
 
 /*****************************
@@ -95,6 +100,9 @@ public class VolumeFunctions {
 	static final int X = 0, Y = 1, Z = 2;
 	static final int ROT90 = 0, ROT180 = 1, ROT270 = 2;
 	
+	/** Side length of the tiles used by {@link #permuteVoxels(double[], int[], int[], boolean[], double[])}. **/
+	public static final int PERMUTE_TILE = 16;
+	
 	static public enum VolumeAxis{
 		S,
 		T,
@@ -148,6 +156,92 @@ public class VolumeFunctions {
     	return getMaskedImages(volume, volume.getCurrentColumn());
     }
     
+    /***********************************************
+	 * Produces a stack of R-planar images from pyramid level {@code level} of {@code volume} (see 
+	 * {@link VolumePyramid}), based upon the current data column and its associated colour map, or
+	 * the composite of its columns if it is in composite mode. Level 0 is equivalent to 
+	 * {@link #getMaskedImages(Volume3DInt)}. Masks are applied by nearest neighbour. Blocks until 
+	 * the required levels are computed.
+	 * 
+	 * @param volume
+	 * @param level
+	 * @return
+	 */
+    public static BufferedImage[] getMaskedImages(Volume3DInt volume, int level){
+    	
+    	if (level == 0) return getMaskedImages(volume);
+    	
+    	boolean[][][] mask = null;
+    	if (volume.getApplyMasks())
+			mask = volume.getEffectiveMask();
+    	
+    	if (!volume.isComposite()){
+    		GridVertexDataColumn v_column = (GridVertexDataColumn)volume.getCurrentDataColumn();
+    		if (v_column == null) return null;
+    		
+    		VolumePyramid.Level p_level = v_column.getPyramid().getLevel(level);
+    		WindowedColourModel colour_model = v_column.getColourModel();
+    		BufferedImage[] images = new BufferedImage[p_level.getSizeR()];
+    		for (int k = 0; k < images.length; k++){
+    			images[k] = p_level.getSliceImage(2, k, colour_model);
+    			if (mask != null){
+    				WritableRaster raster = images[k].getRaster();
+    				int height = raster.getHeight();
+    				for (int i = 0; i < raster.getWidth(); i++)
+    					for (int j = 0; j < height; j++)
+    						if (mask[i << level][j << level][k << level])
+    							raster.setPixel(i, height - j - 1, new double[]{0});
+    				}
+    			}
+    		return images;
+    		}
+    	
+    	// Composite: blend the levels of all visible columns
+    	ArrayList<String> ordered_columns = volume.getCompositeOrderedColumns();
+    	ArrayList<VolumePyramid.Level> levels = new ArrayList<VolumePyramid.Level>();
+    	ArrayList<WindowedColourModel> models = new ArrayList<WindowedColourModel>();
+    	ArrayList<Float> alphas = new ArrayList<Float>();
+    	
+    	for (int i = 0; i < ordered_columns.size(); i++){
+    		String name = ordered_columns.get(i);
+    		if (!volume.showInComposite(name)) continue;
+    		float alpha = (float)Math.max(0, Math.min(1, volume.getCompositeAlpha(name)));
+    		if (alpha == 0) continue;
+    		GridVertexDataColumn v_column = (GridVertexDataColumn)volume.getVertexDataColumn(name);
+    		levels.add(v_column.getPyramid().getLevel(level));
+    		models.add(v_column.getColourModel());
+    		alphas.add(alpha);
+    		}
+    	
+    	if (ordered_columns.size() == 0) return null;
+    	int[] dims = ((GridVertexDataColumn)volume.getVertexDataColumn(ordered_columns.get(0))).getPyramid().getLevelDimensions(level);
+    	
+    	int n = levels.size();
+    	int[][] layers = new int[n][dims[0] * dims[1]];
+    	float[] f_alphas = new float[n];
+    	for (int l = 0; l < n; l++)
+    		f_alphas[l] = alphas.get(l);
+    	
+    	BufferedImage[] images = new BufferedImage[dims[2]];
+    	for (int k = 0; k < dims[2]; k++){
+    		for (int l = 0; l < n; l++)
+    			levels.get(l).colourise(2, k, models.get(l), layers[l]);
+    		images[k] = new BufferedImage(dims[0], dims[1], BufferedImage.TYPE_INT_ARGB);
+    		int[] pixels = ((DataBufferInt)images[k].getRaster().getDataBuffer()).getData();
+    		CompositeSliceRenderer.blend(layers, f_alphas, pixels);
+    		if (mask != null){
+    			for (int j = 0; j < dims[1]; j++){
+    				int row = (dims[1] - j - 1) * dims[0];
+    				for (int i = 0; i < dims[0]; i++)
+    					if (mask[i << level][j << level][k << level])
+    						pixels[row + i] &= 0x00FFFFFF;
+    				}
+    			}
+    		}
+    	
+    	return images;
+    }
+    
     /***********************************************
 	 * Produces a stack of R-planar images from {@code volume}, based upon the data in {@code column} and
 	 * its associated colour map.
@@ -253,18 +347,19 @@ public class VolumeFunctions {
     public static BufferedImage getMaskedCompositeRSliceImage(Volume3DInt volume, int r, boolean[][][] mask){
     	
     	BufferedImage image = getCompositeRSliceImage(volume, r);
-    	if (mask == null) return image;
+    	if (mask == null || image == null) return image;
     	
     	int width = image.getWidth();
     	int height = image.getHeight();
     	
-    	WritableRaster raster = image.getAlphaRaster();
-    	if (raster == null) return image;
-    	
-    	for (int i = 0; i < width; i++)
-    		for (int j = 0; j < height; j++)
+    	// Composite images are packed ARGB; clear the alpha byte of masked pixels
+    	int[] pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+    	for (int j = 0; j < height; j++){
+    		int row = (height - j - 1) * width;
+    		for (int i = 0; i < width; i++)
     			if (mask[i][j][r])
-    				raster.setPixel(i, height - j - 1, new double[]{0});
+    				pixels[row + i] &= 0x00FFFFFF;
+    		}
     	
     	return image;
     }
@@ -298,43 +393,9 @@ public class VolumeFunctions {
 					    								 ArrayList<Double> alphas,
 					    								 ArrayList<Boolean> include){
     	
-    	ArrayList<BufferedImage> image_stack = new ArrayList<BufferedImage>();
-    	ArrayList<Double> alpha_stack = new ArrayList<Double>();
-    	
     	if (ordered_columns.size() == 0) return null;
+    	return volume.getCompositeRenderer().getSliceImage(2, r, ordered_columns, colour_models, alphas, include);
     	
-    	// Get image stack (bottom renders first)
-    	for (int i = 0; i < ordered_columns.size(); i++){
-    		if (include == null || include.get(i)){
-	    		GridVertexDataColumn v_column = (GridVertexDataColumn)volume.getVertexDataColumn(ordered_columns.get(i));
-	    		image_stack.add(v_column.getRSliceImage(r, colour_models.get(i)));
-	    		alpha_stack.add(alphas.get(i));
-	    		}
-    		}
-    	
-    	// Compile composite image
-    	BufferedImage composite_image = null;
-    	Graphics2D g = null;
-    	int s_size = volume.getGrid().getSizeS();
-    	int t_size = volume.getGrid().getSizeT();
-    	
-    	boolean start = true;
-    	for (int i = image_stack.size() - 1; i > -1; i--){
-    		if (start){
-    			ColorModel colour_model = ComponentColorModel.getRGBdefault();
-    			WritableRaster raster = colour_model.createCompatibleWritableRaster(s_size, t_size);
-    			composite_image = new BufferedImage(colour_model, raster, false, null);
-    			g = composite_image.createGraphics();
-    			start = false;
-    			}
-    		 
-			g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha_stack.get(i).floatValue()));
-			g.drawImage(image_stack.get(i), 0, 0, null);
-    		}
-    	
-    	if (g != null)
-    		g.dispose();
-    	return composite_image;
     }
     
     /*************************************************
@@ -347,20 +408,7 @@ public class VolumeFunctions {
      */
     public static BufferedImage getCompositeSliceImage(Volume3DInt volume, int orientation, int section){
     	
-    	ArrayList<String> ordered_columns = volume.getCompositeOrderedColumns();
-    	ArrayList<WindowedColourModel> colour_models = new ArrayList<WindowedColourModel>();
-    	ArrayList<Double> alphas = new ArrayList<Double>();
-    	ArrayList<Boolean> include = new ArrayList<Boolean>();
-    	
-    	for (int i = 0; i < ordered_columns.size(); i++){
-    		String name = ordered_columns.get(i);
-    		GridVertexDataColumn v_column = (GridVertexDataColumn)volume.getVertexDataColumn(name);
-    		colour_models.add(v_column.getColourModel());
-    		alphas.add(volume.getCompositeAlpha(name));
-    		include.add(volume.showInComposite(name));
-    		}
-    	
-    	return getCompositeSliceImage(volume, orientation, section, ordered_columns, colour_models, alphas, include);
+    	return volume.getCompositeRenderer().getSliceImage(orientation, section);
     	
     }
     
@@ -380,75 +428,9 @@ public class VolumeFunctions {
 					    								 ArrayList<Double> alphas,
 					    								 ArrayList<Boolean> include){
     	
-    	ArrayList<BufferedImage> image_stack = new ArrayList<BufferedImage>();
-    	ArrayList<Double> alpha_stack = new ArrayList<Double>();
-    	
     	if (ordered_columns.size() == 0 || section < 0) return null;
+    	return volume.getCompositeRenderer().getSliceImage(orientation, section, ordered_columns, colour_models, alphas, include);
     	
-    	Grid3D grid = volume.getGrid();
-    	//boolean flip_x = false, flip_y = false;
-    	
-    	switch (orientation){
-	    	case 0:
-	    		if (section >= grid.getSizeS()) return null;
-	    		break;
-	    	case 1:
-	    		if (section >= grid.getSizeT()) return null;
-	    		break;
-	    	case 2:
-	    		if (section >= grid.getSizeR()) return null;
-	    		break;
-	    	}
-    	
-    	int x_size = 0, y_size = 0;
-    	
-    	// Get image stack (bottom renders first)
-    	for (int i = 0; i < ordered_columns.size(); i++){
-    		if (include == null || include.get(i)){
-	    		GridVertexDataColumn v_column = (GridVertexDataColumn)volume.getVertexDataColumn(ordered_columns.get(i));
-	    		switch (orientation){
-		    		case 0:
-			    		image_stack.add(v_column.getSSliceImage(section, colour_models.get(i)));
-			    		x_size = volume.getGrid().getSizeT();
-			        	y_size = volume.getGrid().getSizeR();
-			    		break;
-		    		case 1:
-			    		image_stack.add(v_column.getTSliceImage(section, colour_models.get(i)));
-			    		x_size = volume.getGrid().getSizeS();
-			        	y_size = volume.getGrid().getSizeR();
-			    		break;
-		    		case 2:
-			    		image_stack.add(v_column.getRSliceImage(section, colour_models.get(i)));
-			    		x_size = volume.getGrid().getSizeS();
-			        	y_size = volume.getGrid().getSizeT();
-			    		break;
-		    		}
-	    		alpha_stack.add(alphas.get(i));
-	    		}
-    		}
-    	
-    	// Compile composite image
-    	BufferedImage composite_image = null;
-    	Graphics2D g = null;
-    	
-    	
-    	boolean start = true;
-    	for (int i = image_stack.size() - 1; i > -1; i--){
-    		if (start){
-    			ColorModel colour_model = ComponentColorModel.getRGBdefault();
-    			WritableRaster raster = colour_model.createCompatibleWritableRaster(x_size, y_size);
-    			composite_image = new BufferedImage(colour_model, raster, false, null);
-    			g = composite_image.createGraphics();
-    			start = false;
-    			}
-    		 
-			g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha_stack.get(i).floatValue()));
-			g.drawImage(image_stack.get(i), 0, 0, null);
-    		}
-    	
-    	if (g != null)
-    		g.dispose();
-    	return composite_image;
     }
     
     /*********************************************************
@@ -459,20 +441,8 @@ public class VolumeFunctions {
      */
     public static BufferedImage getCompositeRSliceImage(Volume3DInt volume, int r){
     	
-    	ArrayList<WindowedColourModel> models = new ArrayList<WindowedColourModel>();
-    	ArrayList<Double> alphas = new ArrayList<Double>();
-    	ArrayList<Boolean> include = new ArrayList<Boolean>();
-    	
-    	ArrayList<String> ordered_columns = volume.getCompositeOrderedColumns();
-    	
-    	for (int i = 0; i < ordered_columns.size(); i++){
-    		GridVertexDataColumn v_column = (GridVertexDataColumn)volume.getVertexDataColumn(ordered_columns.get(i));
-    		models.add(v_column.getColourModel());
-    		alphas.add(volume.getCompositeAlpha(ordered_columns.get(i)));
-    		include.add(volume.showInComposite(ordered_columns.get(i)));
-    		}
+    	return volume.getCompositeRenderer().getSliceImage(2, r);
     	
-    	return getCompositeRSliceImage(volume, r, ordered_columns, models, alphas, include);
     }
     
     public static WindowedColourModel getColourModel(){
@@ -626,6 +596,9 @@ public class VolumeFunctions {
 		
 		Volume2DInt volume_2D = new Volume2DInt(bounds, bImage, colourModel.hasAlpha()); 
 		volume_2D.setOutline(poly);
+		// Axis-aligned sections can be drawn from the volume's pyramid when zoomed out
+		if (transform == null && getSectionAxis(grid, plane) >= 0)
+			volume_2D.setPyramidSource(volume, plane, start_pt, sample_res);
 		ArrayList<Point2f> nodes2D = bounds.getVertices();
 		ArrayList<Point3f> nodes3D = GeometryFunctions.getVerticesFromSection(nodes2D, plane);
 		Rect3D rect3D = new Rect3D();
@@ -639,6 +612,27 @@ public class VolumeFunctions {
 		return volume_2D;
 	}
 	
+	/**************************************
+	 * Returns the axis of {@code grid} (0 = S, 1 = T, 2 = R) to which {@code plane} is perpendicular, or -1 if
+	 * it is oblique.
+	 * 
+	 * @param grid
+	 * @param plane
+	 * @return
+	 */
+	public static int getSectionAxis(Grid3D grid, Plane3D plane){
+		Vector3f normal = plane.getNormal();
+		normal.normalize();
+		Vector3f[] axes = new Vector3f[]{grid.getSAxis(), grid.getTAxis(), grid.getRAxis()};
+		for (int i = 0; i < 3; i++){
+			Vector3f axis = new Vector3f(axes[i]);
+			axis.normalize();
+			if (Math.abs(Math.abs(normal.dot(axis)) - 1) < 1e-5)
+				return i;
+			}
+		return -1;
+	}
+	
 	/**************************************
 	 * Returns an {@linkplain Volume2DInt} object representing the intersection of the given 3D composite {@code volume}
 	 * with {@code plane}. Returns {@code null} if the volume does not intersect the plane.
@@ -973,7 +967,7 @@ public class VolumeFunctions {
 												default_value);
 			}
 		
-		return (Boolean)Worker.post(new Job(){
+		return (Boolean)TaskEngine.postConcurrent(new Job(){
 			
 			public Boolean run(){
 				return smoothVolumeGaussianBlocking(volume, 
@@ -984,7 +978,7 @@ public class VolumeFunctions {
 													progress,
 													default_value);
 			}
-		});
+		}, progress);
 		
 	}
 	
@@ -1025,7 +1019,8 @@ public class VolumeFunctions {
 		GridVertexDataColumn s_column = (GridVertexDataColumn)volume.getVertexDataColumn(source_column);
 		int data_type = s_column.getDataTransferType();
 		
-		if (!volume.hasColumn(target_column)){
+		boolean is_new = !volume.hasColumn(target_column);
+		if (is_new){
 			volume.addVertexData(target_column, data_type);
 			}
 		
@@ -1043,69 +1038,78 @@ public class VolumeFunctions {
 			progress.update(0);
 			}
 		
-		double[][][] test = new double[s_dist*2][t_dist*2][r_dist*2];
-		
-		for (int i = 0; i < grid.getSizeS(); i++){
-			int min_s = Math.max(0, i - s_dist);
-			int max_s = Math.min(grid.getSizeS()-1, i + s_dist);
-			for (int j = 0; j < grid.getSizeT(); j++){
-				int min_t = Math.max(0, j - t_dist);
-				int max_t = Math.min(grid.getSizeT()-1, j + t_dist);
-				for (int k = 0; k < grid.getSizeR(); k++){
-					int min_r = Math.max(0, k - r_dist);
-					int max_r = Math.min(grid.getSizeR()-1, k + r_dist);
-					
-					// Get this voxel mid-point
-					Point3f vp = grid.getVoxelMidPoint(i, j, k);
+		VolumeEditHistory history = volume.getEditHistory();
+		history.beginEdit("Smooth Volume");
+		try{
+			// Values are written directly, so save an existing column before overwriting it
+			if (!is_new) history.beforeChange(t_column);
+			
+			double[][][] test = new double[s_dist*2][t_dist*2][r_dist*2];
+		
+			for (int i = 0; i < grid.getSizeS(); i++){
+				int min_s = Math.max(0, i - s_dist);
+				int max_s = Math.min(grid.getSizeS()-1, i + s_dist);
+				for (int j = 0; j < grid.getSizeT(); j++){
+					int min_t = Math.max(0, j - t_dist);
+					int max_t = Math.min(grid.getSizeT()-1, j + t_dist);
+					for (int k = 0; k < grid.getSizeR(); k++){
+						int min_r = Math.max(0, k - r_dist);
+						int max_r = Math.min(grid.getSizeR()-1, k + r_dist);
 					
-					// stats
-					double sum = 0;
-					double denom = 0;
+						// Get this voxel mid-point
+						Point3f vp = grid.getVoxelMidPoint(i, j, k);
 					
-					// Is this neighbourhood non-zero?
-					for (int ii = min_s; ii < max_s; ii++)
-						for (int jj = min_t; jj < max_t; jj++)
-							for (int kk = min_r; kk < max_r; kk++){
-								test[ii-min_s][jj-min_t][kk-min_r]=s_column.getValueAtVoxel(ii, jj, kk).getValue();
-								sum += test[ii-min_s][jj-min_t][kk-min_r];
-								}
+						// stats
+						double sum = 0;
+						double denom = 0;
 					
-					// Search neighbourhood
-					if (sum > 0){
-						sum = 0;
+						// Is this neighbourhood non-zero?
 						for (int ii = min_s; ii < max_s; ii++)
 							for (int jj = min_t; jj < max_t; jj++)
 								for (int kk = min_r; kk < max_r; kk++){
-									double dist = vp.distance(grid.getVoxelMidPoint(ii, jj, kk));
-									if (dist < max_radius){
-										double v = test[ii-min_s][jj-min_t][kk-min_r]; // s_column.getValueAtVoxel(ii, jj, kk).getValue();
-										double g = StatFunctions.getGaussian(dist, 0, sigma);
-										sum +=  v *	g;
-										denom += g;
-										}
+									test[ii-min_s][jj-min_t][kk-min_r]=s_column.getValueAtVoxel(ii, jj, kk).getValue();
+									sum += test[ii-min_s][jj-min_t][kk-min_r];
 									}
+					
+						// Search neighbourhood
+						if (sum > 0){
+							sum = 0;
+							for (int ii = min_s; ii < max_s; ii++)
+								for (int jj = min_t; jj < max_t; jj++)
+									for (int kk = min_r; kk < max_r; kk++){
+										double dist = vp.distance(grid.getVoxelMidPoint(ii, jj, kk));
+										if (dist < max_radius){
+											double v = test[ii-min_s][jj-min_t][kk-min_r]; // s_column.getValueAtVoxel(ii, jj, kk).getValue();
+											double g = StatFunctions.getGaussian(dist, 0, sigma);
+											sum +=  v *	g;
+											denom += g;
+											}
+										}
 						
-						t_column.getValueAtVoxel(i, j, k).setValue(sum / denom);
-					}else{
-						t_column.getValueAtVoxel(i, j, k).setValue(default_value);
-						}
+							t_column.getValueAtVoxel(i, j, k).setValue(sum / denom);
+						}else{
+							t_column.getValueAtVoxel(i, j, k).setValue(default_value);
+							}
 					
-					if (progress != null && progress.isCancelled()){
-						InterfaceSession.log("VolumeFunctions: Smooth Gaussian operation cancelled by user.", 
-								LoggingType.Warnings);
-						volume.removeVertexData(target_column);
-						return false;
+						if (progress != null && progress.isCancelled()){
+							InterfaceSession.log("VolumeFunctions: Smooth Gaussian operation cancelled by user.", 
+									LoggingType.Warnings);
+							volume.removeVertexData(target_column);
+							return false;
+							}
 						}
 					}
-				}
 			
-			if (progress != null){
-				progress.update(i);
+				if (progress != null){
+					progress.update(i);
+					}
 				}
-			}
 		
-		t_column.updateDataLimits();
-		return true;
+			t_column.updateDataLimits();
+			return true;
+		}finally{
+			history.endEdit();
+			}
 	}
 	
 	/**************************************************
@@ -1203,6 +1207,136 @@ public class VolumeFunctions {
 			
 	}
 	
+	/***********************************************************
+	 * Evaluates {@code expression} voxel-wise and writes the result to {@code target_column} of
+	 * {@code volume}; see {@link VoxelExpression} for the expression syntax. Variables are resolved
+	 * first from {@code bindings}, which may map them to columns of other volumes with the same
+	 * grid dimensions, and otherwise to the columns of {@code volume} with the same name.
+	 * 
+	 * <p>If {@code target_column} doesn't exist, it will be created with the data type of the 
+	 * first input column (or {@code float} if there are no inputs). If it exists, it will maintain
+	 * its current data type and its values will be overwritten; it may also be one of the inputs.
+	 * 
+	 * @param volume
+	 * @param target_column
+	 * @param expression
+	 * @param bindings			Maps variable names to columns; can be {@code null}
+	 * @param progress
+	 * @return {@code true} if successful
+	 */
+	public static boolean evaluateExpression(final Volume3DInt volume, 
+											 final String target_column, 
+											 final String expression,
+											 final HashMap<String, GridVertexDataColumn> bindings,
+											 final ProgressUpdater progress){
+		
+		if (progress == null){
+			return evaluateExpressionBlocking(volume, 
+											  target_column, 
+											  expression,
+											  bindings,
+											  null);
+			}
+		
+		return (Boolean)TaskEngine.postConcurrent(new Job(){
+			
+			public Boolean run(){
+				return evaluateExpressionBlocking(volume, 
+												  target_column, 
+												  expression,
+												  bindings,
+												  progress);
+			}
+		}, progress);
+		
+	}
+	
+	/***********************************************************
+	 * Evaluates {@code expression} voxel-wise and writes the result to {@code target_column} of
+	 * {@code volume}; see {@link #evaluateExpression(Volume3DInt, String, String, HashMap, ProgressUpdater)}.
+	 * 
+	 * <p>The expression is compiled once and evaluated in parallel chunks directly into the target
+	 * column, so no intermediate volumes are created. Callers should fire a shape modified event 
+	 * on {@code volume} if it is being displayed.
+	 * 
+	 * @param volume
+	 * @param target_column
+	 * @param expression
+	 * @param bindings			Maps variable names to columns; can be {@code null}
+	 * @param progress
+	 * @return {@code true} if successful
+	 */
+	public static boolean evaluateExpressionBlocking(Volume3DInt volume, 
+													 String target_column, 
+													 String expression,
+													 HashMap<String, GridVertexDataColumn> bindings,
+													 ProgressUpdater progress){
+		
+		VoxelExpression compiled = null;
+		try{
+			compiled = VoxelExpression.compile(expression);
+		}catch (VolumeFunctionException ex){
+			InterfaceSession.log("VolumeFunctions.evaluateExpression: " + ex.getMessage(), 
+								 LoggingType.Errors);
+			return false;
+			}
+		
+		// Resolve variables
+		Grid3D grid = volume.getGrid();
+		ArrayList<GridVertexDataColumn> inputs = new ArrayList<GridVertexDataColumn>();
+		for (String variable : compiled.getVariables()){
+			GridVertexDataColumn column = null;
+			if (bindings != null)
+				column = bindings.get(variable);
+			if (column == null && volume.hasColumn(variable))
+				column = (GridVertexDataColumn)volume.getVertexDataColumn(variable);
+			if (column == null){
+				InterfaceSession.log("VolumeFunctions.evaluateExpression: No column found for variable '" + 
+										variable + "'.", 
+									 LoggingType.Errors);
+				return false;
+				}
+			Volume3DInt parent = column.getParent();
+			if (parent != null && parent != volume){
+				Grid3D grid2 = parent.getGrid();
+				if (grid2.getSizeS() != grid.getSizeS() || grid2.getSizeT() != grid.getSizeT() ||
+						grid2.getSizeR() != grid.getSizeR()){
+					InterfaceSession.log("VolumeFunctions.evaluateExpression: Grid of column '" + column.getName() + 
+											"' (variable '" + variable + "') does not match target volume.", 
+										 LoggingType.Errors);
+					return false;
+					}
+				}
+			inputs.add(column);
+			}
+		
+		// Deal with target column
+		boolean is_new = !volume.hasColumn(target_column);
+		if (is_new){
+			int data_type = DataBuffer.TYPE_FLOAT;
+			if (inputs.size() > 0)
+				data_type = inputs.get(0).getDataTransferType();
+			volume.addVertexData(target_column, data_type);
+			}
+		
+		GridVertexDataColumn t_column = (GridVertexDataColumn)volume.getVertexDataColumn(target_column);
+		
+		// Values are written directly, so save an existing column before overwriting it
+		VolumeEditHistory history = volume.getEditHistory();
+		history.beginEdit("Evaluate Expression");
+		try{
+			if (!is_new) history.beforeChange(t_column);
+			return compiled.evaluate(inputs, t_column, progress);
+		}catch (VolumeFunctionException ex){
+			InterfaceSession.log("VolumeFunctions.evaluateExpression: " + ex.getMessage(), 
+								 LoggingType.Errors);
+			return false;
+		}finally{
+			history.endEdit();
+			}
+		
+	}
+	
 	public static enum Operation{
 		Add,
 		Subtract,
@@ -1211,6 +1345,53 @@ public class VolumeFunctions {
 		Average;
 	}
 	
+	/*******************************************************
+	 * Returns an expression applying {@code op} to variable "a" and {@code b}.
+	 * 
+	 * @param op
+	 * @param b
+	 * @return
+	 */
+	static String getOperationExpression(Operation op, String b){
+		switch (op){
+			case Add:
+				return "a + " + b;
+			case Subtract:
+				return "a - " + b;
+			case Multiply:
+				return "a * " + b;
+			case Divide:
+				return "a / " + b;
+			case Average:
+				return "(a + " + b + ") / 2";
+			}
+		return null;
+	}
+	
+	/*******************************************************
+	 * Evaluates {@code expression} into the current column of a new volume with the same grid 
+	 * as {@code volume}.
+	 * 
+	 * @param volume
+	 * @param expression
+	 * @param bindings
+	 * @param progress
+	 * @return
+	 */
+	static Volume3DInt performOperationBlocking(Volume3DInt volume, String expression, 
+												HashMap<String, GridVertexDataColumn> bindings, 
+												ProgressUpdater progress){
+		
+		Volume3DInt new_volume = new Volume3DInt(new Grid3D(volume.getGrid()));
+		String column = volume.getCurrentColumn();
+		new_volume.addVertexData(column, volume.getCurrentDataColumn().getDataTransferType());
+		new_volume.setCurrentColumn(column);
+		
+		evaluateExpressionBlocking(new_volume, column, expression, bindings, progress);
+		return new_volume;
+		
+	}
+	
 	/*******************************************************
 	 * Performs the specified operation on the two volumes, and returns the result as a new {@link Grid3D}
 	 * instance. Uses the current vertex data columns.
@@ -1224,6 +1405,16 @@ public class VolumeFunctions {
 		
 		Grid3D grid1 = volume1.getGrid();
 		Grid3D grid2 = volume2.getGrid();
+		
+		if (grid1.getSizeS() == grid2.getSizeS() && grid1.getSizeT() == grid2.getSizeT() && 
+				grid1.getSizeR() == grid2.getSizeR()){
+			// Matching grids: evaluate as a compiled expression
+			HashMap<String, GridVertexDataColumn> bindings = new HashMap<String, GridVertexDataColumn>();
+			bindings.put("a", (GridVertexDataColumn)volume1.getCurrentDataColumn());
+			bindings.put("b", (GridVertexDataColumn)volume2.getCurrentDataColumn());
+			return performOperationBlocking(volume1, getOperationExpression(op, "b"), bindings, progress);
+			}
+		
 		int x_size = Math.min(grid1.getSizeS(), grid2.getSizeS());
 		int y_size = Math.min(grid1.getSizeT(), grid2.getSizeT());
 		int z_size = Math.min(grid1.getSizeR(), grid2.getSizeR());
@@ -1270,6 +1461,12 @@ public class VolumeFunctions {
 	 */
 	public static Volume3DInt performOperationBlocking(Volume3DInt volume, Double value, Operation op, ProgressUpdater progress){
 		
+		if (!Double.isNaN(value) && !Double.isInfinite(value)){
+			HashMap<String, GridVertexDataColumn> bindings = new HashMap<String, GridVertexDataColumn>();
+			bindings.put("a", (GridVertexDataColumn)volume.getCurrentDataColumn());
+			return performOperationBlocking(volume, getOperationExpression(op, "(" + value + ")"), bindings, progress);
+			}
+		
 		Grid3D grid = volume.getGrid();
 		Volume3DInt new_volume = new Volume3DInt(new Grid3D(grid));
 		
@@ -1576,12 +1773,12 @@ public class VolumeFunctions {
 									   final Volume3DInt volume, final InterfaceProgressBar progress_bar){
 		
 		
-		Volume3DInt new_grid = (Volume3DInt)Worker.post(new Job(){
+		Volume3DInt new_grid = (Volume3DInt)TaskEngine.postConcurrent(new Job(){
 			
 			public Volume3DInt run(){
 				return applyRotationBlocking(axis, angle, volume, progress_bar);
 			}
-		});
+		}, progress_bar);
 		
 		return new_grid;
 		
@@ -1625,94 +1822,40 @@ public class VolumeFunctions {
 		int[] new_dims = getRotatedDims(dims, axis, angle);
 		Box3D new_box = getRotatedBox(grid.getBoundBox(), axis, angle);
 		
-		Volume3DInt volume_new = new Volume3DInt(new Grid3D(grid));
+		Volume3DInt volume_new = new Volume3DInt(new Grid3D(new_dims[0], new_dims[1], new_dims[2], new_box));
 		volume_new.addVertexData("Default", volume.getDataType());
 		volume_new.setCurrentColumn("Default");
 		
-		int S = grid.getSizeS();
-		int T = grid.getSizeT();
-		int R = grid.getSizeR();
-		
-		//update on every S iteration
 		if (progress_bar != null){
 			progress_bar.setMinimum(0);
-			progress_bar.setMaximum(S);
+			progress_bar.setMaximum(1);
 			progress_bar.reset();
 			}
 		
-		for (int i = 0; i < grid.getSizeS(); i++){
-			for (int j = 0; j < grid.getSizeT(); j++)
-				for (int k = 0; k < grid.getSizeR(); k++){
-					double d = volume.getDatumAtVoxel(i, j, k).getValue();
-					int _i = -1, _j = -1, _k = -1;
-					//get rotated grid coordinates
-					switch(axis){
-						case S:
-							switch (angle){
-								case ROT90:
-									_i = i;
-									_j = k;
-									_k = j;
-									break;
-								case ROT180:
-									_i = i;
-									_j = T - j - 1;
-									_k = R - k - 1;
-									break;
-								case ROT270:
-									_i = i;
-									_j = R - k - 1;
-									_k = T - j - 1;
-									break;
-								}
-							break;
-						
-						case T:
-							switch (angle){
-							case ROT90:
-								_i = k;
-								_j = j;
-								_k = i;
-								break;
-							case ROT180:
-								_i = S - i - 1;
-								_j = j;
-								_k = R - k - 1;
-								break;
-							case ROT270:
-								_i = R - k - 1;
-								_j = j;
-								_k = S - i - 1;
-								break;
-							}
-							break;
-											
-						case R:
-							switch (angle){
-							case ROT90:
-								_i = k;
-								_j = i;
-								_k = k;
-								break;
-							case ROT180:
-								_i = S - i - 1;
-								_j = T - j - 1;
-								_k = k;
-								break;
-							case ROT270:
-								_i = R - k - 1;
-								_j = S - i - 1;
-								_k = k;
-								break;
-							}
-							break;
-						}
-					//write rotated value
-					volume_new.setDatumAtVoxel(_i, _j, _k, d);
-					}
-				if (progress_bar != null)
-					progress_bar.setValue(i);
-				}
+		//rotation as an axis permutation and flip
+		int[] axes = null;
+		boolean[] flip = null;
+		switch(axis){
+			case S:
+				axes = angle == VolumeRotationAngle.ROT180 ? new int[]{0, 1, 2} : new int[]{0, 2, 1};
+				flip = angle == VolumeRotationAngle.ROT90 ? new boolean[]{false, false, false} : new boolean[]{false, true, true};
+				break;
+			case T:
+				axes = angle == VolumeRotationAngle.ROT180 ? new int[]{0, 1, 2} : new int[]{2, 1, 0};
+				flip = angle == VolumeRotationAngle.ROT90 ? new boolean[]{false, false, false} : new boolean[]{true, false, true};
+				break;
+			case R:
+				axes = angle == VolumeRotationAngle.ROT180 ? new int[]{0, 1, 2} : new int[]{1, 0, 2};
+				flip = angle == VolumeRotationAngle.ROT90 ? new boolean[]{false, false, false} : new boolean[]{true, true, false};
+				break;
+			}
+		
+		permuteVoxels(volume.getCurrentDataColumn().getData(), grid, axes, flip, 
+					  volume_new.getVertexDataColumn("Default").getData());
+		volume_new.getVertexDataColumn("Default").updateDataLimits(false);
+		
+		if (progress_bar != null)
+			progress_bar.setValue(1);
 		
 		return volume_new;
 	}
@@ -1783,6 +1926,223 @@ public class VolumeFunctions {
 	}
 	
 	
+	/*****************************************************************
+	 * Reorients {@code volume} by permuting and/or flipping its axes, and returns the result as a 
+	 * new volume; new axis {@code a} corresponds to axis {@code axes[a]} (0=S, 1=T, 2=R) of 
+	 * {@code volume}, reversed if {@code flip[a]} is {@code true}. All vertex data columns are
+	 * reoriented. See {@link Grid3D#getPermutedGrid(int[], boolean[], boolean)} for the meaning of 
+	 * {@code preserve_geometry}.
+	 * 
+	 * @param volume
+	 * @param axes
+	 * @param flip
+	 * @param preserve_geometry
+	 * @param progress
+	 * @return the reoriented volume, or {@code null} if the orientation is invalid
+	 */
+	public static Volume3DInt reorientVolume(final Volume3DInt volume, 
+											 final int[] axes, 
+											 final boolean[] flip, 
+											 final boolean preserve_geometry,
+											 final ProgressUpdater progress){
+		
+		if (progress == null)
+			return reorientVolumeBlocking(volume, axes, flip, preserve_geometry, null);
+		
+		return (Volume3DInt)TaskEngine.postConcurrent(new Job(){
+			
+			public Volume3DInt run(){
+				return reorientVolumeBlocking(volume, axes, flip, preserve_geometry, progress);
+			}
+		}, progress);
+		
+	}
+	
+	/*****************************************************************
+	 * Reorients {@code volume} by permuting and/or flipping its axes, and returns the result as a 
+	 * new volume; see {@link #reorientVolume(Volume3DInt, int[], boolean[], boolean, ProgressUpdater)}.
+	 * 
+	 * @param volume
+	 * @param axes
+	 * @param flip
+	 * @param preserve_geometry
+	 * @param progress
+	 * @return the reoriented volume, or {@code null} if the orientation is invalid
+	 */
+	public static Volume3DInt reorientVolumeBlocking(Volume3DInt volume, 
+													 int[] axes, 
+													 boolean[] flip, 
+													 boolean preserve_geometry,
+													 ProgressUpdater progress){
+		
+		if (!isValidOrientation(axes, flip)){
+			InterfaceSession.log("VolumeFunctions.reorientVolume: Invalid orientation; axes must be a " +
+								 "permutation of {0, 1, 2}.", 
+								 LoggingType.Errors);
+			return null;
+			}
+		
+		Grid3D grid = volume.getGrid();
+		Volume3DInt new_volume = new Volume3DInt(grid.getPermutedGrid(axes, flip, preserve_geometry));
+		ArrayList<String> columns = volume.getVertexDataColumnNames();
+		
+		if (progress != null){
+			progress.setMinimum(0);
+			progress.setMaximum(columns.size());
+			progress.update(0);
+			}
+		
+		for (int c = 0; c < columns.size(); c++){
+			String name = columns.get(c);
+			VertexDataColumn s_column = volume.getVertexDataColumn(name);
+			new_volume.addVertexData(name, s_column.getDataTransferType());
+			VertexDataColumn t_column = new_volume.getVertexDataColumn(name);
+			
+			permuteVoxels(s_column.getData(), grid, axes, flip, t_column.getData());
+			t_column.updateDataLimits(false);
+			
+			if (s_column.getNameMap() != null)
+				t_column.setNameMap(s_column.getNameMap());
+			t_column.setColourMap(s_column.getColourMap());
+			t_column.setColourLimits(s_column.getColourMin(), s_column.getColourMax());
+			
+			if (progress != null){
+				if (progress.isCancelled()) return null;
+				progress.update(c + 1);
+				}
+			}
+		
+		String current = volume.getCurrentColumn();
+		if (current != null)
+			new_volume.setCurrentColumn(current);
+		
+		return new_volume;
+		
+	}
+	
+	/*****************************************************************
+	 * Determines whether {@code axes} is a permutation of {0, 1, 2} and {@code flip} has three
+	 * elements.
+	 * 
+	 * @param axes
+	 * @param flip
+	 * @return
+	 */
+	public static boolean isValidOrientation(int[] axes, boolean[] flip){
+		if (axes == null || flip == null || axes.length != 3 || flip.length != 3) return false;
+		boolean[] used = new boolean[3];
+		for (int a = 0; a < 3; a++){
+			if (axes[a] < 0 || axes[a] > 2 || used[axes[a]]) return false;
+			used[axes[a]] = true;
+			}
+		return true;
+	}
+	
+	/*****************************************************************
+	 * Copies the voxel values in {@code source}, which has the dimensions of {@code grid}, into
+	 * {@code target} with axes permuted and flipped as specified; see 
+	 * {@link #reorientVolume(Volume3DInt, int[], boolean[], boolean, ProgressUpdater)}. Values are 
+	 * read once into a primitive buffer, permuted, and written once in target order; {@code target}
+	 * must already have the same size as {@code source}.
+	 * 
+	 * @param source
+	 * @param grid
+	 * @param axes
+	 * @param flip
+	 * @param target
+	 */
+	public static void permuteVoxels(ArrayList<MguiNumber> source, Grid3D grid, int[] axes, boolean[] flip, 
+									 ArrayList<MguiNumber> target){
+		
+		int n = source.size();
+		double[] values = new double[n];
+		for (int i = 0; i < n; i++)
+			values[i] = source.get(i).getValue();
+		
+		double[] permuted = new double[n];
+		permuteVoxels(values, new int[]{grid.getSizeS(), grid.getSizeT(), grid.getSizeR()}, axes, flip, permuted);
+		
+		for (int i = 0; i < n; i++)
+			target.get(i).setValue(permuted[i]);
+		
+	}
+	
+	/*****************************************************************
+	 * Copies the voxel values in {@code source}, with dimensions {@code dims} in S-T-R order (S 
+	 * varying fastest), into {@code target} with axes permuted and flipped as specified; see 
+	 * {@link #reorientVolume(Volume3DInt, int[], boolean[], boolean, ProgressUpdater)}. 
+	 * 
+	 * <p>The target is traversed in cubic tiles of {@link #PERMUTE_TILE} voxels per side, so that
+	 * the strided reads from {@code source} for each tile remain in cache; tiles are processed in 
+	 * parallel.
+	 * 
+	 * @param source
+	 * @param dims
+	 * @param axes
+	 * @param flip
+	 * @param target
+	 */
+	public static void permuteVoxels(final double[] source, int[] dims, int[] axes, boolean[] flip, 
+									 final double[] target){
+		
+		// Source strides, S fastest
+		int[] stride = new int[]{1, dims[0], dims[0] * dims[1]};
+		final int[] n_dims = new int[]{dims[axes[0]], dims[axes[1]], dims[axes[2]]};
+		
+		// The source index is linear in the target coordinates
+		final int[] step = new int[3];
+		int base = 0;
+		for (int a = 0; a < 3; a++){
+			step[a] = stride[axes[a]];
+			if (flip[a]){
+				base += (n_dims[a] - 1) * step[a];
+				step[a] = -step[a];
+				}
+			}
+		final int source_base = base;
+		
+		if (source_base == 0 && step[0] == 1 && step[1] == n_dims[0]){
+			// Identity
+			System.arraycopy(source, 0, target, 0, source.length);
+			return;
+			}
+		
+		final int B = PERMUTE_TILE;
+		final int tiles_x = (n_dims[0] + B - 1) / B;
+		final int tiles_y = (n_dims[1] + B - 1) / B;
+		final int tiles_z = (n_dims[2] + B - 1) / B;
+		final int plane = n_dims[0] * n_dims[1];
+		
+		try{
+			ParallelFunctions.runPartitioned(tiles_x * tiles_y * tiles_z, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					for (int tile = start; tile < end; tile++){
+						int x0 = (tile % tiles_x) * B;
+						int y0 = ((tile / tiles_x) % tiles_y) * B;
+						int z0 = (tile / (tiles_x * tiles_y)) * B;
+						int x1 = Math.min(x0 + B, n_dims[0]);
+						int y1 = Math.min(y0 + B, n_dims[1]);
+						int z1 = Math.min(z0 + B, n_dims[2]);
+						
+						for (int z = z0; z < z1; z++){
+							for (int y = y0; y < y1; y++){
+								int t = z * plane + y * n_dims[0] + x0;
+								int s = source_base + x0 * step[0] + y * step[1] + z * step[2];
+								for (int x = x0; x < x1; x++){
+									target[t++] = source[s];
+									s += step[0];
+									}
+								}
+							}
+						}
+				}
+			});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
+		
+	}
+	
 	/***************************************************************
 	 * Returns new dimensions for a rotation about a basis axis.
 	 * 
@@ -1945,6 +2305,20 @@ public class VolumeFunctions {
 		if (grid == null || !volume.hasColumn(column))
 			return null;
 		
+		if (grid.getSizeV() <= 1 && t == 0){
+			// For 3D volumes, use the column's maintained summary rather than rescanning all voxels, 
+			// if the requested bins line up with its own. The summary is only built here if it is expected 
+			// to line up (i.e., over the column's data limits); otherwise a single exact scan is cheaper
+			VertexDataColumn v_column = volume.getVertexDataColumn(column);
+			StreamingSummary summary = v_column.getCurrentDataSummary();
+			if (summary == null && StreamingSummary.isAligned(StreamingSummary.default_resolution, 
+										v_column.getDataMin(), v_column.getDataMax(), bins, min, max))
+				summary = v_column.getDataSummary();
+			if (summary != null && summary.isAligned(bins, min, max))
+				return summary.getHistogram(bins, min, max);
+			return getHistogram(v_column.getData(), bins, min, max);
+			}
+		
 		Histogram h = new Histogram();
 //		h.dataMin = min;
 //		h.dataMax = max;
@@ -1958,6 +2332,55 @@ public class VolumeFunctions {
 		return h;
 	}
 	
+	/********************************************************************
+	 * Returns an exact histogram of {@code values}, counted in parallel partitions. Values are assigned to
+	 * bins as by {@link Histogram#addValue(double)}.
+	 * 
+	 * @param values
+	 * @param bins
+	 * @param min
+	 * @param max
+	 * @return
+	 */
+	protected static Histogram getHistogram(final ArrayList<MguiNumber> values, final int bins, final double min, final double max){
+		
+		int[][] partitions = ParallelFunctions.getPartitions(values.size(), ParallelFunctions.getPartitionCount(values.size()));
+		final long[][] counts = new long[partitions.length][bins];
+		
+		try{
+			ParallelFunctions.runPartitioned(partitions, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					long[] count = counts[partition];
+					for (int i = start; i < end; i++){
+						double v = values.get(i).getValue();
+						int b;
+						if (v < min)
+							b = 0;
+						else if (v > max)
+							b = bins - 1;
+						else
+							b = Math.max(0, Math.min(bins - 1, (int)Math.floor((v - min) / (max - min) * bins)));
+						count[b]++;
+						}
+				}
+			});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
+		
+		Histogram h = new Histogram();
+		h.set(bins, min, max);
+		double width = (max - min) / bins;
+		for (int b = 0; b < bins; b++){
+			long total = 0;
+			for (int p = 0; p < counts.length; p++)
+				total += counts[p][b];
+			if (total > 0)
+				h.addValue(min + width * (b + 0.5), total);
+			}
+		return h;
+	}
+	
 	/********************************************************************
 	 * Maps {@code volume_source} to {@code volume_target}, using the enclosing voxel to assign the
 	 * value. If no enclosing voxel exists, assigns a value of 0.
@@ -2022,7 +2445,7 @@ public class VolumeFunctions {
 										   	  null);
 			}
 		
-		return (Boolean)Worker.post(new Job(){
+		return (Boolean)TaskEngine.postConcurrent(new Job(){
 			@Override
 			public Boolean run(){
 				return mapVolumeToVolumeEVBlocking(volume_source, 
@@ -2032,7 +2455,7 @@ public class VolumeFunctions {
 											   	   default_value,
 											   	   progress);
 				}
-			});
+			}, progress);
 		
 	}
 	
@@ -2079,24 +2502,33 @@ public class VolumeFunctions {
 			progress.setMaximum(s_size);
 			}
 		
-		int j = 0,k = 0;
-		for (int i = 0; i < n_target; i++){
-			j++;
-			Point3f cp = grid_target.getVoxelMidPoint(i);
-			int[] ev = grid_source.getEnclosingVoxel(cp);
-			if (ev == null){
-				t_column.getValueAtVertex(i).setValue(default_value);
-			}else{
-				t_column.getValueAtVertex(i).setValue(s_column.getValueAtVoxel(ev[0], ev[1], ev[2]));
-				}
-			if (j == tr_size){
-				if (progress != null)
-					progress.update(k++);
-				j = 0;
+		VolumeEditHistory history = volume_target.getEditHistory();
+		history.beginEdit("Map Volume to Volume");
+		try{
+			// Values are written directly, so save the target column before overwriting it
+			history.beforeChange(t_column);
+			
+			int j = 0,k = 0;
+			for (int i = 0; i < n_target; i++){
+				j++;
+				Point3f cp = grid_target.getVoxelMidPoint(i);
+				int[] ev = grid_source.getEnclosingVoxel(cp);
+				if (ev == null){
+					t_column.getValueAtVertex(i).setValue(default_value);
+				}else{
+					t_column.getValueAtVertex(i).setValue(s_column.getValueAtVoxel(ev[0], ev[1], ev[2]));
+					}
+				if (j == tr_size){
+					if (progress != null)
+						progress.update(k++);
+					j = 0;
+					}
 				}
-			}
 		
-		return true;
+			return true;
+		}finally{
+			history.endEdit();
+			}
 		
 	}
 
@@ -2193,7 +2625,7 @@ public class VolumeFunctions {
 										   	  null);
 			}
 		
-		return (Boolean)Worker.post(new Job(){
+		return (Boolean)TaskEngine.postConcurrent(new Job(){
 			@Override
 			public Boolean run(){
 				return mapVolumeToVolumeInterpBlocking(volume_source, 
@@ -2205,7 +2637,7 @@ public class VolumeFunctions {
 											   	   default_value,
 											   	   progress);
 				}
-			});
+			}, progress);
 		
 	}
 	
@@ -2285,107 +2717,116 @@ public class VolumeFunctions {
 				}
 			}
 		
-		int j = 0,k = 0;
-		for (int i = 0; i < n_target; i++){
-			j++;
-			Point3f cp = grid_target.getVoxelMidPoint(i);
+		VolumeEditHistory history = volume_target.getEditHistory();
+		history.beginEdit("Map Volume to Volume");
+		try{
+			// Values are written directly, so save the target column before overwriting it
+			history.beforeChange(t_column);
 			
-			// This part depends on the method..
+			int j = 0,k = 0;
+			for (int i = 0; i < n_target; i++){
+				j++;
+				Point3f cp = grid_target.getVoxelMidPoint(i);
 			
-			if (method.equals("nearest neighbour")){
-				// Nearest neighbour: value is same as enclosing voxel
-				int[] ev = grid_source.getEnclosingVoxel(cp);
-				if (ev == null){
-					t_column.getValueAtVertex(i).setValue(default_value);
-				}else{
-					t_column.getValueAtVertex(i).setValue(s_column.getValueAtVoxel(ev[0], ev[1], ev[2]));
-					}
-			}else if (method.equals("tri-linear")){
-				// Trilinear: get neighbouring and enclosing voxels defining 8 corners,
-				// 			  and interpolate between these
-				int[] vox = grid_target.getIndexAsVoxel(i);
-				if (vox[0]==123 && vox[1]==140 && vox[2]==138){
-					int a = 0;
-					}
-				int[] nbrs = getTrilinearVoxels(grid_source, cp);
+				// This part depends on the method..
+			
+				if (method.equals("nearest neighbour")){
+					// Nearest neighbour: value is same as enclosing voxel
+					int[] ev = grid_source.getEnclosingVoxel(cp);
+					if (ev == null){
+						t_column.getValueAtVertex(i).setValue(default_value);
+					}else{
+						t_column.getValueAtVertex(i).setValue(s_column.getValueAtVoxel(ev[0], ev[1], ev[2]));
+						}
+				}else if (method.equals("tri-linear")){
+					// Trilinear: get neighbouring and enclosing voxels defining 8 corners,
+					// 			  and interpolate between these
+					int[] vox = grid_target.getIndexAsVoxel(i);
+					if (vox[0]==123 && vox[1]==140 && vox[2]==138){
+						int a = 0;
+						}
+					int[] nbrs = getTrilinearVoxels(grid_source, cp);
 				
-				Vector3f cp_v = new Vector3f(cp);
-				cp_v.sub(grid_source.getOrigin());
-				cp_v = GeometryFunctions.transform(cp_v, grid_source.getGridBasisTransform());
+					Vector3f cp_v = new Vector3f(cp);
+					cp_v.sub(grid_source.getOrigin());
+					cp_v = GeometryFunctions.transform(cp_v, grid_source.getGridBasisTransform());
 				
-				if (nbrs == null){
-					// Target outside source
-					t_column.getValueAtVertex(i).setValue(default_value);
-				}else if (nbrs.length == 3){
-					// Target/source voxel centers coincident
-					t_column.getValueAtVertex(i).setValue(s_column.getDoubleValueAtVoxel(nbrs[0], nbrs[1], nbrs[2]));
-				}else{
-					// Interpolate
-					Point3f c_000 = getVolumeSpaceMidPoint(grid_source, nbrs[0]);
-					Point3f c_111 = getVolumeSpaceMidPoint(grid_source, nbrs[1]);
-					int[] vox_0 = grid_source.getIndexAsVoxel(nbrs[0]);
-					int[] vox_1 = grid_source.getIndexAsVoxel(nbrs[1]);
+					if (nbrs == null){
+						// Target outside source
+						t_column.getValueAtVertex(i).setValue(default_value);
+					}else if (nbrs.length == 3){
+						// Target/source voxel centers coincident
+						t_column.getValueAtVertex(i).setValue(s_column.getDoubleValueAtVoxel(nbrs[0], nbrs[1], nbrs[2]));
+					}else{
+						// Interpolate
+						Point3f c_000 = getVolumeSpaceMidPoint(grid_source, nbrs[0]);
+						Point3f c_111 = getVolumeSpaceMidPoint(grid_source, nbrs[1]);
+						int[] vox_0 = grid_source.getIndexAsVoxel(nbrs[0]);
+						int[] vox_1 = grid_source.getIndexAsVoxel(nbrs[1]);
 			
-					float d_x = 0, d_y = 0, d_z = 0;
+						float d_x = 0, d_y = 0, d_z = 0;
 					
-					// If voxels match, this is a boundary; don't interpolate in this direction
-					if (vox_0[0] != vox_1[0])
-						d_x = (cp_v.getX() - c_000.getX()) / (c_111.getX() - c_000.getX());
-					if (vox_0[1] != vox_1[1])
-						d_y = (cp_v.getY() - c_000.getY()) / (c_111.getY() - c_000.getY());
-					if (vox_0[2] != vox_1[2])
-						d_z = (cp_v.getZ() - c_000.getZ()) / (c_111.getZ() - c_000.getZ());
+						// If voxels match, this is a boundary; don't interpolate in this direction
+						if (vox_0[0] != vox_1[0])
+							d_x = (cp_v.getX() - c_000.getX()) / (c_111.getX() - c_000.getX());
+						if (vox_0[1] != vox_1[1])
+							d_y = (cp_v.getY() - c_000.getY()) / (c_111.getY() - c_000.getY());
+						if (vox_0[2] != vox_1[2])
+							d_z = (cp_v.getZ() - c_000.getZ()) / (c_111.getZ() - c_000.getZ());
 					
-					float[][] c_yz = new float[2][2];
-					try{
-					c_yz[0][0] = (float)(s_column.getDoubleValueAtVoxel(vox_0[0], vox_0[1], vox_0[2]) * (1 - d_x) +
-								   		 s_column.getDoubleValueAtVoxel(vox_1[0], vox_0[1], vox_0[2]) * d_x);
-					c_yz[1][0] = (float)(s_column.getDoubleValueAtVoxel(vox_0[0], vox_1[1], vox_0[2]) * (1 - d_x) +
-					   		 			 s_column.getDoubleValueAtVoxel(vox_1[0], vox_1[1], vox_0[2]) * d_x);
-					c_yz[0][1] = (float)(s_column.getDoubleValueAtVoxel(vox_0[0], vox_0[1], vox_1[2]) * (1 - d_x) +
-					   		 			 s_column.getDoubleValueAtVoxel(vox_1[0], vox_0[1], vox_1[2]) * d_x);
-					c_yz[1][1] = (float)(s_column.getDoubleValueAtVoxel(vox_0[0], vox_1[1], vox_1[2]) * (1 - d_x) +
-					   		 			 s_column.getDoubleValueAtVoxel(vox_1[0], vox_1[1], vox_1[2]) * d_x);
-					}catch (Exception ex){
-						int a = 0;
-					}
+						float[][] c_yz = new float[2][2];
+						try{
+						c_yz[0][0] = (float)(s_column.getDoubleValueAtVoxel(vox_0[0], vox_0[1], vox_0[2]) * (1 - d_x) +
+									   		 s_column.getDoubleValueAtVoxel(vox_1[0], vox_0[1], vox_0[2]) * d_x);
+						c_yz[1][0] = (float)(s_column.getDoubleValueAtVoxel(vox_0[0], vox_1[1], vox_0[2]) * (1 - d_x) +
+						   		 			 s_column.getDoubleValueAtVoxel(vox_1[0], vox_1[1], vox_0[2]) * d_x);
+						c_yz[0][1] = (float)(s_column.getDoubleValueAtVoxel(vox_0[0], vox_0[1], vox_1[2]) * (1 - d_x) +
+						   		 			 s_column.getDoubleValueAtVoxel(vox_1[0], vox_0[1], vox_1[2]) * d_x);
+						c_yz[1][1] = (float)(s_column.getDoubleValueAtVoxel(vox_0[0], vox_1[1], vox_1[2]) * (1 - d_x) +
+						   		 			 s_column.getDoubleValueAtVoxel(vox_1[0], vox_1[1], vox_1[2]) * d_x);
+						}catch (Exception ex){
+							int a = 0;
+						}
 					
-					float c_0 = c_yz[0][0] * (1 - d_y) + c_yz[1][0] * d_y;
-					float c_1 = c_yz[0][1] * (1 - d_y) + c_yz[1][1] * d_y;
+						float c_0 = c_yz[0][0] * (1 - d_y) + c_yz[1][0] * d_y;
+						float c_1 = c_yz[0][1] * (1 - d_y) + c_yz[1][1] * d_y;
 					
-					t_column.getValueAtVertex(i).setValue(c_0 * (1 - d_z) + c_1 * d_z);
+						t_column.getValueAtVertex(i).setValue(c_0 * (1 - d_z) + c_1 * d_z);
 					
-					}
-			}else if (method.equals("tri-cubic")){
-				// Cubic: determine a tricubic function using Apache Math Commons
-				Point3f p = grid_target.getVoxelMidPoint(i);
-				if (grid_source.contains(p)){
-					basis_tfm.transform(p);
-					try{
-						t_column.getValueAtVertex(i).setValue(interp_fcn.value(p.getX(), p.getY(), p.getZ()));
-					}catch (OutOfRangeException ex){
-						// Will occur around edges
+						}
+				}else if (method.equals("tri-cubic")){
+					// Cubic: determine a tricubic function using Apache Math Commons
+					Point3f p = grid_target.getVoxelMidPoint(i);
+					if (grid_source.contains(p)){
+						basis_tfm.transform(p);
+						try{
+							t_column.getValueAtVertex(i).setValue(interp_fcn.value(p.getX(), p.getY(), p.getZ()));
+						}catch (OutOfRangeException ex){
+							// Will occur around edges
+							t_column.getValueAtVertex(i).setValue(default_value);
+							}
+					}else{
 						t_column.getValueAtVertex(i).setValue(default_value);
 						}
+				
 				}else{
-					t_column.getValueAtVertex(i).setValue(default_value);
+					InterfaceSession.log("VolumeFunctions.mapVolumeToVolumeInterp: " +
+										 "Invalid method '" + method + "'.", 
+										 LoggingType.Errors);
+					return false;
 					}
-				
-			}else{
-				InterfaceSession.log("VolumeFunctions.mapVolumeToVolumeInterp: " +
-									 "Invalid method '" + method + "'.", 
-									 LoggingType.Errors);
-				return false;
-				}
 			
-			if (j == tr_size){
-				if (progress != null)
-					progress.update(k++);
-				j = 0;
+				if (j == tr_size){
+					if (progress != null)
+						progress.update(k++);
+					j = 0;
+					}
 				}
-			}
 		
-		return true;
+			return true;
+		}finally{
+			history.endEdit();
+			}
 		
 		
 	}
@@ -2611,12 +3052,12 @@ public class VolumeFunctions {
 		}else{
 			// Do as a job
 			progress.register();
-			blobs = (ArrayList<MguiNumber>)Worker.post(new Job(){
+			blobs = (ArrayList<MguiNumber>)TaskEngine.postConcurrent(new Job(){
 				@Override
 				public ArrayList<MguiNumber> run(){
 					return getBlobsFromVolumeBlocking(volume, source_column, progress, min_blob, threshold);
 					}
-				});
+				}, progress);
 			progress.deregister();
 			}
 		if (blobs == null) return false;
@@ -2624,7 +3065,14 @@ public class VolumeFunctions {
 		if (!volume.hasColumn(target_column)){
 			volume.addVertexData(target_column, blobs);
 		}else{
-			volume.setVertexData(target_column, blobs);
+			// Replacing values saves the tiles which change
+			VolumeEditHistory history = volume.getEditHistory();
+			history.beginEdit("Get Blobs from Volume");
+			try{
+				volume.setVertexData(target_column, blobs);
+			}finally{
+				history.endEdit();
+				}
 			}
 		
 		return true;
@@ -2651,102 +3099,67 @@ public class VolumeFunctions {
 			return null;
 			}
 		
-		ArrayList<MguiNumber> blobs = new ArrayList<MguiNumber>();
-		int n = volume.getVertexCount();
-		for (int i = 0; i < n; i++){
-			blobs.add(new MguiInteger(-1));
+		ConnectedComponents components = null;
+		try{
+			components = ConnectedComponents.getComponents(v_column.getDataAsDouble(), 
+														   grid.getSizeS(), grid.getSizeT(), grid.getSizeR(), 
+														   threshold, ConnectedComponents.Connectivity.Faces, 
+														   min_blob, progress);
+		}catch (Exception ex){
+			InterfaceSession.handleException(ex);
+			return null;
 			}
 		
-		Queue<Integer> queue = new LinkedBlockingQueue<Integer>();
-		int current_label = 1;
-		ArrayList<Integer> blob_size = new ArrayList<Integer>();
-		
-		if (progress != null){
-			progress.setMinimum(0);
-			progress.setMaximum(n);
+		if (components == null){
+			InterfaceSession.log("VolumeFunction.getBlobsFromVolume: Cancelled by user.", LoggingType.Warnings);
+			return null;
 			}
 		
-		int itr = 0;
-		for (int idx = 0; idx < n; idx++){
-			// Only consider if not already processed
-			int current_size = 0;
-			if (blobs.get(idx).getValue() < 0){
-				double value = v_column.getDoubleValueAtVertex(idx);
-				if (progress != null){
-					if (progress.isCancelled()){
-						InterfaceSession.log("VolumeFunction.getBlobsFromVolume: Cancelled by user.", LoggingType.Warnings);
-						return null;
-						}
-					progress.update(itr++);
-					}
-				if (value <= threshold){
-					// Sub-threshold, set blob index to zero
-					blobs.get(idx).setValue(0);
-				}else{
-					// Supra-threshold, set blob index to current_label
-					blobs.get(idx).setValue(current_label);
-					current_size++;
-					queue.add(idx);
-					while (!queue.isEmpty()){
-						// Get neighbours and test each
-						int qidx = queue.poll();
-						int[] nbrs = grid.getNeighbours(qidx);
-						
-						for (int nn = 0; nn < nbrs.length; nn++){
-							int nidx = nbrs[nn];
-							// Skip if already set
-							if (nidx != qidx && ((int)blobs.get(nidx).getValue()) < 0){ 
-								value = v_column.getDoubleValueAtVertex(nidx);
-								if (value <= threshold){
-									// Sub-threshold, set blob index to zero
-									blobs.get(nidx).setValue(0);
-								}else{
-									// Supra-threshold, set blob index to current_label
-									blobs.get(nidx).setValue(current_label);
-									current_size++;
-									queue.add(nidx);
-									}
-								if (progress != null){
-									if (progress.isCancelled()){
-										InterfaceSession.log("VolumeFunction.getBlobsFromVolume: Cancelled by user.", LoggingType.Warnings);
-										return null;
-										}
-									progress.update(itr++);
-									}
-								}
-							}
-						}
-					current_label++;
-					blob_size.add(current_size);
-					}
-				}
-			}
+		int[] labels = components.getLabels();
+		int n = volume.getVertexCount();
+		ArrayList<MguiNumber> blobs = new ArrayList<MguiNumber>(n);
+		for (int i = 0; i < n; i++)
+			blobs.add(new MguiInteger(i < labels.length ? labels[i] : 0));
 		
-		// Remove too-small blobs
-		HashMap<Integer,Integer> relabeler = new HashMap<Integer,Integer>();
-		int offset = 0;
-		for (int i = 0; i < blob_size.size(); i++){
-			if (i == 3427){
-				i+=0;
-				}
-			if (blob_size.get(i) < min_blob){
-				relabeler.put(i+1, 0);
-				offset++;
-			}else{
-				
-				relabeler.put(i+1, i+1-offset);
-				}
-			}
+		return blobs;
+	}
+	
+	/***************************
+	 * Labels the connected components of voxels in {@code column} with values greater than {@code threshold},
+	 * using the specified connectivity. Component sizes, bounding boxes and centroids are available from the
+	 * returned object.
+	 * 
+	 * @param volume		Volume to search
+	 * @param column		Column to search
+	 * @param threshold		Value to threshold the volume
+	 * @param connectivity	Neighbourhood defining connectivity
+	 * @param min_size		Minimum size (in voxels) at which to include a component
+	 * @param progress		Optional progress updater; can be {@code null}
+	 * @return the components, or {@code null} if the column does not exist or the operation was cancelled
+	 */
+	public static ConnectedComponents getConnectedComponents(Volume3DInt volume, String column, double threshold,
+															 ConnectedComponents.Connectivity connectivity, 
+															 int min_size, ProgressUpdater progress){
 		
-		// Update values
-		for (int i = 0; i < blobs.size(); i++){
-			int value = (int)blobs.get(i).getValue();
-			if (value > 0){
-				blobs.get(i).setValue(relabeler.get(value));
-				}
+		GridVertexDataColumn v_column = (GridVertexDataColumn)volume.getVertexDataColumn(column);
+		if (v_column == null){
+			InterfaceSession.log("VolumeFunctions.getConnectedComponents: Column '" + column + "' does not exist", 
+								 LoggingType.Errors);
+			return null;
 			}
 		
-		return blobs;
+		Grid3D grid = volume.getGrid();
+		try{
+			ConnectedComponents components = ConnectedComponents.getComponents(v_column.getDataAsDouble(), 
+																			   grid.getSizeS(), grid.getSizeT(), grid.getSizeR(), 
+																			   threshold, connectivity, min_size, progress);
+			if (components == null)
+				InterfaceSession.log("VolumeFunctions.getConnectedComponents: Cancelled by user.", LoggingType.Warnings);
+			return components;
+		}catch (Exception ex){
+			InterfaceSession.handleException(ex);
+			return null;
+			}
 	}
 	
 	private static int[] getNeighbouringVoxels_old(Grid3D grid, Point3f point){
@@ -2873,28 +3286,49 @@ public class VolumeFunctions {
 		
 		HashMap<Integer,Double> maximum = new HashMap<Integer,Double>();
 		HashMap<Integer,Integer> indices = new HashMap<Integer,Integer>();
-		ArrayList<MguiNumber> values = volume.getVertexData(source_column);
-		ArrayList<MguiNumber> mask = null;
-		if (mask_column != null){
-			mask = volume.getVertexData(mask_column);
-			}
-		int mask_idx = 0;
-		
-		for (int i = 0; i < values.size(); i++){
-			mask_idx = 1;
-			double value = values.get(i).getValue();
-			if (mask != null)
-				mask_idx = (int)mask.get(i).getValue();
-			if (mask_idx > 0){
+		final ArrayList<MguiNumber> values = volume.getVertexData(source_column);
+		final ArrayList<MguiNumber> mask = mask_column == null ? null : volume.getVertexData(mask_column);
+		
+		// Each partition finds its own maxima; these are merged in partition order, so that ties
+		// resolve to the lowest index as before
+		int[][] partitions = ParallelFunctions.getPartitions(values.size(), ParallelFunctions.getPartitionCount(values.size()));
+		final ArrayList<HashMap<Integer,Integer>> part_indices = new ArrayList<HashMap<Integer,Integer>>(partitions.length);
+		for (int p = 0; p < partitions.length; p++)
+			part_indices.add(new HashMap<Integer,Integer>());
+		
+		try{
+			ParallelFunctions.runPartitioned(partitions, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					HashMap<Integer,Integer> max_indices = part_indices.get(partition);
+					HashMap<Integer,Double> max_values = new HashMap<Integer,Double>();
+					for (int i = start; i < end; i++){
+						int mask_idx = 1;
+						if (mask != null)
+							mask_idx = (int)mask.get(i).getValue();
+						if (mask_idx > 0){
+							double value = values.get(i).getValue();
+							Double max = max_values.get(mask_idx);
+							if (max == null || value > max){
+								max_values.put(mask_idx, value);
+								max_indices.put(mask_idx, i);
+								}
+							}
+						}
+				}
+			});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
+		
+		for (int p = 0; p < part_indices.size(); p++){
+			HashMap<Integer,Integer> max_indices = part_indices.get(p);
+			for (Integer mask_idx : max_indices.keySet()){
+				int i = max_indices.get(mask_idx);
+				double value = values.get(i).getValue();
 				Double max = maximum.get(mask_idx);
-				if (max == null){
+				if (max == null || value > max){
 					maximum.put(mask_idx, value);
 					indices.put(mask_idx, i);
-				}else{
-					if (value > max){
-						maximum.put(mask_idx, value);
-						indices.put(mask_idx, i);
-						}
 					}
 				}
 			}
@@ -2969,51 +3403,33 @@ public class VolumeFunctions {
 			return null;
 			}
 		
-		HashMap<Integer,Integer> frequencies = new HashMap<Integer,Integer>();
-		HashMap<Integer,Point3f> centroids = new HashMap<Integer,Point3f>();
 		ArrayList<MguiNumber> values = v_column.getData();
-		Grid3D grid = volume.getGrid();
-		Point3f mp = new Point3f();
+		int[] labels = new int[values.size()];
+		for (int i = 0; i < labels.length; i++)
+			labels[i] = (int)Math.round(values.get(i).getValue());
 		if (min_size < 1) min_size = 1;
 		
-		if (progress != null){
-			progress.setMinimum(0);
-			progress.setMaximum(values.size());
+		// Single pass over all voxels, rather than one per label
+		ZonalStatistics stats = null;
+		try{
+			stats = ZonalStatistics.getZonalStatistics(labels, new double[0][], volume.getGrid(), false, progress);
+		}catch (Exception ex){
+			InterfaceSession.handleException(ex);
+			return null;
 			}
-		
-		for (int i = 0; i < values.size(); i++){
-			int value = (int)Math.round(values.get(i).getValue());
-			if (value >= value_range[0] && value <= value_range[1]){
-				mp.set(grid.getVoxelMidPoint(i));
-				if (!frequencies.containsKey(value)){
-					frequencies.put(value, 1);
-					centroids.put(value, new Point3f(mp));
-				}else{
-					frequencies.put(value, frequencies.get(value) + 1);
-					centroids.get(value).add(mp);
-					}
-				}
-			if (progress != null){
-				if (progress.isCancelled()){
-					InterfaceSession.log("VolumeFunction.getRoiCentroids: Cancelled by user.", LoggingType.Warnings);
-					return null;
-					}
-				progress.update(i);
-				}
+		if (stats == null){
+			InterfaceSession.log("VolumeFunction.getRoiCentroids: Cancelled by user.", LoggingType.Warnings);
+			return null;
 			}
 		
-		ArrayList<Integer> keys = new ArrayList<Integer>(frequencies.keySet());
-		ArrayList<MguiNumber> mapped = new ArrayList<MguiNumber>(keys.size());
-		Collections.sort(keys);
+		int[] keys = stats.getLabels();
+		ArrayList<MguiNumber> mapped = new ArrayList<MguiNumber>(keys.length);
 		PointSet3D pset = new PointSet3D();
 		
-		for (int i = 0; i < keys.size(); i++){
-			int key = keys.get(i);
-			int freq = frequencies.get(key);
-			if (freq >= min_size){
-				Point3f centroid = centroids.get(key);
-				centroid.scale(1f/(float)freq);
-				pset.addVertex(centroid);
+		for (int i = 0; i < keys.length; i++){
+			int key = keys[i];
+			if (key >= value_range[0] && key <= value_range[1] && stats.getCount(i) >= min_size){
+				pset.addVertex(stats.getCentroid(i));
 				mapped.add(new MguiInteger(key));
 				}
 			}
@@ -0,0 +1,774 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.geometry.volume;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mgui.interfaces.ProgressUpdater;
+import mgui.interfaces.shapes.VertexDataColumn;
+import mgui.interfaces.util.ParallelFunctions;
+import mgui.numbers.MguiNumber;
+
+/*********************************************************
+ * A compiled arithmetic expression evaluated element-wise over any number of equally-sized
+ * input arrays or vertex data columns, e.g., {@code "(a - b) / max(c, 1e-6) * mask"}.
+ * 
+ * <p>The expression is parsed once by {@link #compile(String)} into a register program; constant
+ * sub-expressions are folded at compile time. Evaluation processes the data in chunks of
+ * {@link #CHUNK_SIZE} elements, applying each instruction to a whole chunk at a time, with chunks
+ * distributed over the threads of {@link ParallelFunctions}. Results are written directly into
+ * the target, so no intermediate volumes or columns are created.
+ * 
+ * <p>Syntax follows the conventions of {@link mgui.interfaces.math.MathExpression}:
+ * 
+ * <ul>
+ * <li>Operators: {@code + - * / % ^}, comparisons {@code < > <= >= == !=}, and logical
+ * {@code && || !}; comparisons and logical operators return 1 or 0
+ * <li>Functions: {@code sin cos tan asin acos atan atan2 sinh cosh tanh sqrt exp ln log abs
+ * floor ceil round sign isnan pow min max clamp if}; {@code log} is base 10, {@code ln} is natural,
+ * {@code min} and {@code max} accept two or more arguments, and {@code if(c, a, b)} returns
+ * {@code a} where {@code c} is non-zero
+ * <li>Constants: {@code pi} and {@code e}
+ * </ul>
+ * 
+ * <p>Any other identifier is a variable; variables are numbered in order of first appearance
+ * (see {@link #getVariables()}), which is the order in which inputs must be supplied.
+ * 
+ * <p>Instances are immutable and may be evaluated concurrently.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class VoxelExpression {
+
+	/** Number of elements processed per instruction. **/
+	public static final int CHUNK_SIZE = 4096;
+	
+	// Opcodes
+	static final int OP_ADD = 0, OP_SUB = 1, OP_MUL = 2, OP_DIV = 3, OP_MOD = 4, OP_POW = 5,
+					 OP_LT = 6, OP_GT = 7, OP_LE = 8, OP_GE = 9, OP_EQ = 10, OP_NE = 11,
+					 OP_AND = 12, OP_OR = 13, OP_MIN = 14, OP_MAX = 15, OP_ATAN2 = 16,
+					 OP_NEG = 20, OP_NOT = 21, OP_ABS = 22, OP_SQRT = 23, OP_EXP = 24, OP_LN = 25,
+					 OP_LOG = 26, OP_SIN = 27, OP_COS = 28, OP_TAN = 29, OP_ASIN = 30, OP_ACOS = 31,
+					 OP_ATAN = 32, OP_SINH = 33, OP_COSH = 34, OP_TANH = 35, OP_FLOOR = 36,
+					 OP_CEIL = 37, OP_ROUND = 38, OP_SIGN = 39, OP_ISNAN = 40,
+					 OP_IF = 50, OP_CLAMP = 51;
+	
+	static final HashMap<String,int[]> functions = new HashMap<String,int[]>();
+	
+	static{
+		// name -> {opcode, arity}; arity -1 denotes two or more arguments
+		functions.put("sin", new int[]{OP_SIN, 1});
+		functions.put("cos", new int[]{OP_COS, 1});
+		functions.put("tan", new int[]{OP_TAN, 1});
+		functions.put("asin", new int[]{OP_ASIN, 1});
+		functions.put("acos", new int[]{OP_ACOS, 1});
+		functions.put("atan", new int[]{OP_ATAN, 1});
+		functions.put("sinh", new int[]{OP_SINH, 1});
+		functions.put("cosh", new int[]{OP_COSH, 1});
+		functions.put("tanh", new int[]{OP_TANH, 1});
+		functions.put("sqrt", new int[]{OP_SQRT, 1});
+		functions.put("exp", new int[]{OP_EXP, 1});
+		functions.put("ln", new int[]{OP_LN, 1});
+		functions.put("log", new int[]{OP_LOG, 1});
+		functions.put("abs", new int[]{OP_ABS, 1});
+		functions.put("floor", new int[]{OP_FLOOR, 1});
+		functions.put("ceil", new int[]{OP_CEIL, 1});
+		functions.put("round", new int[]{OP_ROUND, 1});
+		functions.put("sign", new int[]{OP_SIGN, 1});
+		functions.put("isnan", new int[]{OP_ISNAN, 1});
+		functions.put("atan2", new int[]{OP_ATAN2, 2});
+		functions.put("pow", new int[]{OP_POW, 2});
+		functions.put("min", new int[]{OP_MIN, -1});
+		functions.put("max", new int[]{OP_MAX, -1});
+		functions.put("if", new int[]{OP_IF, 3});
+		functions.put("clamp", new int[]{OP_CLAMP, 3});
+	}
+	
+	protected String expression;
+	protected ArrayList<String> variables = new ArrayList<String>();
+	protected double[] constants;
+	
+	// Program: 5 ints per instruction {op, dst, a, b, c}; registers are laid out as
+	// [variables][constants][temporaries]
+	protected int[] code;
+	protected int n_registers;
+	protected int result;
+	
+	protected VoxelExpression(){
+		
+	}
+	
+	/*********************************************************
+	 * Parses and compiles {@code expression}.
+	 * 
+	 * @param expression
+	 * @return the compiled expression
+	 * @throws VolumeFunctionException if {@code expression} cannot be parsed
+	 */
+	public static VoxelExpression compile(String expression) throws VolumeFunctionException{
+		VoxelExpression compiled = new VoxelExpression();
+		compiled.expression = expression;
+		new Compiler(compiled, expression).compile();
+		return compiled;
+	}
+	
+	/*********************************************************
+	 * Returns the expression string from which this instance was compiled.
+	 * 
+	 * @return
+	 */
+	public String getExpression(){
+		return expression;
+	}
+	
+	/*********************************************************
+	 * Returns the names of this expression's variables, in the order in which inputs must be
+	 * supplied to the {@code evaluate} methods.
+	 * 
+	 * @return
+	 */
+	public List<String> getVariables(){
+		return new ArrayList<String>(variables);
+	}
+	
+	/*********************************************************
+	 * Returns the number of instructions in the compiled program; an expression which reduces to a
+	 * single variable or constant has none.
+	 * 
+	 * @return
+	 */
+	public int getInstructionCount(){
+		return code.length / 5;
+	}
+	
+	/*********************************************************
+	 * Evaluates this expression over {@code inputs}, which must be ordered as {@link #getVariables()}
+	 * and have equal lengths.
+	 * 
+	 * @param inputs
+	 * @return the result array
+	 * @throws VolumeFunctionException if the inputs do not match this expression's variables
+	 */
+	public double[] evaluate(double[][] inputs) throws VolumeFunctionException{
+		if (inputs.length != variables.size())
+			throw new VolumeFunctionException("VoxelExpression: Expected " + variables.size() + 
+											  " inputs, got " + inputs.length + ".");
+		if (inputs.length == 0)
+			throw new VolumeFunctionException("VoxelExpression: Expression has no variables; " +
+											  "the output size is undefined.");
+		double[] output = new double[inputs[0].length];
+		evaluate(inputs, output, null);
+		return output;
+	}
+	
+	/*********************************************************
+	 * Evaluates this expression over {@code inputs}, which must be ordered as {@link #getVariables()},
+	 * writing the results to {@code output}. All arrays must have the same length.
+	 * 
+	 * @param inputs
+	 * @param output
+	 * @param progress optional progress updater; may be {@code null}
+	 * @return {@code false} if the evaluation was cancelled
+	 * @throws VolumeFunctionException if the inputs do not match this expression's variables
+	 */
+	public boolean evaluate(double[][] inputs, double[] output, ProgressUpdater progress) throws VolumeFunctionException{
+		Channel[] in = new Channel[inputs.length];
+		for (int i = 0; i < inputs.length; i++)
+			in[i] = new ArrayChannel(inputs[i]);
+		return evaluate(in, new ArrayChannel(output), output.length, progress);
+	}
+	
+	/*********************************************************
+	 * Evaluates this expression over the columns {@code inputs}, which must be ordered as 
+	 * {@link #getVariables()}, writing the results directly into the existing values of
+	 * {@code target}; the data limits of {@code target} are updated afterward. All columns must
+	 * have the same size. {@code target} may also be one of the inputs.
+	 * 
+	 * <p>Values are converted to the data type of {@code target}.
+	 * 
+	 * @param inputs
+	 * @param target
+	 * @param progress optional progress updater; may be {@code null}
+	 * @return {@code false} if the evaluation was cancelled
+	 * @throws VolumeFunctionException if the inputs do not match this expression's variables
+	 */
+	public boolean evaluate(List<? extends VertexDataColumn> inputs, VertexDataColumn target, 
+							ProgressUpdater progress) throws VolumeFunctionException{
+		
+		Channel[] in = new Channel[inputs.size()];
+		for (int i = 0; i < in.length; i++)
+			in[i] = new ColumnChannel(inputs.get(i).getData());
+		ColumnChannel out = new ColumnChannel(target.getData());
+		boolean success = evaluate(in, out, out.data.size(), progress);
+		target.updateDataLimits();
+		return success;
+	}
+	
+	protected boolean evaluate(final Channel[] inputs, final Channel output, final int n, 
+							   final ProgressUpdater progress) throws VolumeFunctionException{
+		
+		if (inputs.length != variables.size())
+			throw new VolumeFunctionException("VoxelExpression: Expected " + variables.size() + 
+											  " inputs, got " + inputs.length + ".");
+		for (int i = 0; i < inputs.length; i++)
+			if (inputs[i].size() != n)
+				throw new VolumeFunctionException("VoxelExpression: Input '" + variables.get(i) + 
+												  "' has size " + inputs[i].size() + "; expected " + n + ".");
+		
+		if (n == 0) return true;
+		
+		final int n_chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		final AtomicInteger done = new AtomicInteger(0);
+		if (progress != null){
+			progress.setMinimum(0);
+			progress.setMaximum(n_chunks);
+			progress.update(0);
+			}
+		
+		final boolean[] cancelled = new boolean[1];
+		
+		try{
+			ParallelFunctions.runPartitioned(n_chunks, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					
+					double[][] registers = new double[n_registers][];
+					for (int r = 0; r < n_registers; r++)
+						registers[r] = new double[CHUNK_SIZE];
+					int c0 = variables.size();
+					for (int k = 0; k < constants.length; k++)
+						Arrays.fill(registers[c0 + k], constants[k]);
+					
+					for (int chunk = start; chunk < end; chunk++){
+						if (cancelled[0]) return;
+						int offset = chunk * CHUNK_SIZE;
+						int length = Math.min(CHUNK_SIZE, n - offset);
+						for (int v = 0; v < inputs.length; v++)
+							inputs[v].read(offset, length, registers[v]);
+						execute(registers, length);
+						output.write(offset, length, registers[result]);
+						
+						if (progress != null){
+							int d = done.incrementAndGet();
+							if (progress.isCancelled()){
+								cancelled[0] = true;
+								return;
+								}
+							if (ParallelFunctions.getThreadCount() == 1 || d % 16 == 0)
+								progress.update(d);
+							}
+						}
+				}
+			});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
+		
+		if (progress != null && !cancelled[0])
+			progress.update(n_chunks);
+		return !cancelled[0];
+	}
+	
+	/*********************************************************
+	 * Runs the compiled program over the first {@code length} elements of {@code registers}.
+	 * 
+	 * @param registers
+	 * @param length
+	 */
+	protected void execute(double[][] registers, int length){
+		
+		for (int pc = 0; pc < code.length; pc += 5){
+			int op = code[pc];
+			double[] d = registers[code[pc + 1]];
+			double[] a = registers[code[pc + 2]];
+			double[] b = code[pc + 3] < 0 ? null : registers[code[pc + 3]];
+			double[] c = code[pc + 4] < 0 ? null : registers[code[pc + 4]];
+			
+			switch (op){
+				case OP_ADD:
+					for (int i = 0; i < length; i++) d[i] = a[i] + b[i];
+					break;
+				case OP_SUB:
+					for (int i = 0; i < length; i++) d[i] = a[i] - b[i];
+					break;
+				case OP_MUL:
+					for (int i = 0; i < length; i++) d[i] = a[i] * b[i];
+					break;
+				case OP_DIV:
+					for (int i = 0; i < length; i++) d[i] = a[i] / b[i];
+					break;
+				case OP_MIN:
+					for (int i = 0; i < length; i++) d[i] = Math.min(a[i], b[i]);
+					break;
+				case OP_MAX:
+					for (int i = 0; i < length; i++) d[i] = Math.max(a[i], b[i]);
+					break;
+				case OP_NEG:
+					for (int i = 0; i < length; i++) d[i] = -a[i];
+					break;
+				case OP_IF:
+					for (int i = 0; i < length; i++) d[i] = a[i] != 0 ? b[i] : c[i];
+					break;
+				case OP_CLAMP:
+					for (int i = 0; i < length; i++) d[i] = Math.max(b[i], Math.min(c[i], a[i]));
+					break;
+				default:
+					if (b == null){
+						for (int i = 0; i < length; i++) d[i] = apply(op, a[i], 0);
+					}else{
+						for (int i = 0; i < length; i++) d[i] = apply(op, a[i], b[i]);
+						}
+				}
+			}
+		
+	}
+	
+	/*********************************************************
+	 * Applies a unary or binary operator to scalar operands.
+	 * 
+	 */
+	static double apply(int op, double a, double b){
+		switch (op){
+			case OP_ADD: 	return a + b;
+			case OP_SUB: 	return a - b;
+			case OP_MUL: 	return a * b;
+			case OP_DIV: 	return a / b;
+			case OP_MOD: 	return a % b;
+			case OP_POW: 	return b == 2 ? a * a : Math.pow(a, b);
+			case OP_LT: 	return a < b ? 1 : 0;
+			case OP_GT: 	return a > b ? 1 : 0;
+			case OP_LE: 	return a <= b ? 1 : 0;
+			case OP_GE: 	return a >= b ? 1 : 0;
+			case OP_EQ: 	return a == b ? 1 : 0;
+			case OP_NE: 	return a != b ? 1 : 0;
+			case OP_AND: 	return a != 0 && b != 0 ? 1 : 0;
+			case OP_OR: 	return a != 0 || b != 0 ? 1 : 0;
+			case OP_MIN: 	return Math.min(a, b);
+			case OP_MAX: 	return Math.max(a, b);
+			case OP_ATAN2: 	return Math.atan2(a, b);
+			case OP_NEG: 	return -a;
+			case OP_NOT: 	return a == 0 ? 1 : 0;
+			case OP_ABS: 	return Math.abs(a);
+			case OP_SQRT: 	return Math.sqrt(a);
+			case OP_EXP: 	return Math.exp(a);
+			case OP_LN: 	return Math.log(a);
+			case OP_LOG: 	return Math.log10(a);
+			case OP_SIN: 	return Math.sin(a);
+			case OP_COS: 	return Math.cos(a);
+			case OP_TAN: 	return Math.tan(a);
+			case OP_ASIN: 	return Math.asin(a);
+			case OP_ACOS: 	return Math.acos(a);
+			case OP_ATAN: 	return Math.atan(a);
+			case OP_SINH: 	return Math.sinh(a);
+			case OP_COSH: 	return Math.cosh(a);
+			case OP_TANH: 	return Math.tanh(a);
+			case OP_FLOOR: 	return Math.floor(a);
+			case OP_CEIL: 	return Math.ceil(a);
+			case OP_ROUND: 	return Math.rint(a);
+			case OP_SIGN: 	return Math.signum(a);
+			case OP_ISNAN: 	return Double.isNaN(a) ? 1 : 0;
+			}
+		throw new IllegalArgumentException("VoxelExpression: Unknown opcode " + op);
+	}
+	
+	static double apply(int op, double a, double b, double c){
+		switch (op){
+			case OP_IF:		return a != 0 ? b : c;
+			case OP_CLAMP:	return Math.max(b, Math.min(c, a));
+			}
+		return apply(op, a, b);
+	}
+	
+	@Override
+	public String toString(){
+		return expression;
+	}
+	
+	/*********************************************************
+	 * Source or destination of values, accessed a chunk at a time.
+	 *
+	 */
+	interface Channel {
+		public int size();
+		public void read(int start, int length, double[] buffer);
+		public void write(int start, int length, double[] buffer);
+	}
+	
+	static class ArrayChannel implements Channel {
+		
+		final double[] data;
+		
+		ArrayChannel(double[] data){
+			this.data = data;
+		}
+		
+		public int size(){
+			return data.length;
+		}
+		
+		public void read(int start, int length, double[] buffer){
+			System.arraycopy(data, start, buffer, 0, length);
+		}
+		
+		public void write(int start, int length, double[] buffer){
+			System.arraycopy(buffer, 0, data, start, length);
+		}
+		
+	}
+	
+	static class ColumnChannel implements Channel {
+		
+		final ArrayList<MguiNumber> data;
+		
+		ColumnChannel(ArrayList<MguiNumber> data){
+			this.data = data;
+		}
+		
+		public int size(){
+			return data.size();
+		}
+		
+		public void read(int start, int length, double[] buffer){
+			for (int i = 0; i < length; i++)
+				buffer[i] = data.get(start + i).getValue();
+		}
+		
+		public void write(int start, int length, double[] buffer){
+			// Values are set in place, so no numbers are allocated
+			for (int i = 0; i < length; i++)
+				data.get(start + i).setValue(buffer[i]);
+		}
+		
+	}
+	
+	/*********************************************************
+	 * Recursive-descent parser which emits register code as it parses. Operands are register
+	 * indices; temporaries are allocated as a stack above the variable and constant registers,
+	 * which are only numbered once parsing is complete.
+	 *
+	 */
+	static class Compiler {
+		
+		// Operand encoding during parsing: variables are >= 0, constants are encoded as
+		// -(k + 1), and temporaries as TEMP + t
+		static final int TEMP = 1 << 24;
+		
+		final VoxelExpression target;
+		final String text;
+		int pos = 0;
+		
+		ArrayList<Double> constants = new ArrayList<Double>();
+		ArrayList<int[]> code = new ArrayList<int[]>();
+		int next_temp = 0, max_temp = 0;
+		
+		Compiler(VoxelExpression target, String text){
+			this.target = target;
+			this.text = text;
+		}
+		
+		void compile() throws VolumeFunctionException{
+			if (text == null || text.trim().length() == 0)
+				throw new VolumeFunctionException("VoxelExpression: Empty expression.");
+			
+			int result = parseOr();
+			skipSpace();
+			if (pos < text.length())
+				throw error("Unexpected '" + text.charAt(pos) + "'");
+			
+			int n_vars = target.variables.size();
+			int n_const = constants.size();
+			target.constants = new double[n_const];
+			for (int i = 0; i < n_const; i++)
+				target.constants[i] = constants.get(i);
+			target.n_registers = n_vars + n_const + max_temp;
+			
+			target.code = new int[code.size() * 5];
+			for (int i = 0; i < code.size(); i++){
+				int[] instr = code.get(i);
+				target.code[i * 5] = instr[0];
+				for (int j = 1; j < 5; j++)
+					target.code[i * 5 + j] = instr[j] == Integer.MIN_VALUE ? -1 : resolve(instr[j], n_vars, n_const);
+				}
+			target.result = resolve(result, n_vars, n_const);
+		}
+		
+		int resolve(int operand, int n_vars, int n_const){
+			if (operand >= TEMP) return n_vars + n_const + (operand - TEMP);
+			if (operand < 0) return n_vars + (-operand - 1);
+			return operand;
+		}
+		
+		VolumeFunctionException error(String message){
+			return new VolumeFunctionException("VoxelExpression: " + message + " at position " + pos + 
+											   " in '" + text + "'.");
+		}
+		
+		// Code emission
+		
+		boolean isConstant(int operand){
+			return operand < 0;
+		}
+		
+		double constantValue(int operand){
+			return constants.get(-operand - 1);
+		}
+		
+		int addConstant(double value){
+			for (int i = 0; i < constants.size(); i++)
+				if (Double.doubleToLongBits(constants.get(i)) == Double.doubleToLongBits(value))
+					return -(i + 1);
+			constants.add(value);
+			return -constants.size();
+		}
+		
+		int emit(int op, int a, int b, int c){
+			if (isConstant(a) && (b == Integer.MIN_VALUE || isConstant(b)) && (c == Integer.MIN_VALUE || isConstant(c))){
+				// Fold constant sub-expressions
+				double va = constantValue(a);
+				double vb = b == Integer.MIN_VALUE ? 0 : constantValue(b);
+				double vc = c == Integer.MIN_VALUE ? 0 : constantValue(c);
+				return addConstant(apply(op, va, vb, vc));
+				}
+			
+			// Reuse the lowest temporary among the operands; those above it are freed
+			int dst = Integer.MAX_VALUE;
+			if (a >= TEMP) dst = Math.min(dst, a);
+			if (b != Integer.MIN_VALUE && b >= TEMP) dst = Math.min(dst, b);
+			if (c != Integer.MIN_VALUE && c >= TEMP) dst = Math.min(dst, c);
+			if (dst == Integer.MAX_VALUE){
+				dst = TEMP + next_temp;
+				}
+			next_temp = dst - TEMP + 1;
+			max_temp = Math.max(max_temp, next_temp);
+			code.add(new int[]{op, dst, a, b, c});
+			return dst;
+		}
+		
+		int emit(int op, int a){
+			return emit(op, a, Integer.MIN_VALUE, Integer.MIN_VALUE);
+		}
+		
+		int emit(int op, int a, int b){
+			return emit(op, a, b, Integer.MIN_VALUE);
+		}
+		
+		// Lexing
+		
+		void skipSpace(){
+			while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+				pos++;
+		}
+		
+		boolean accept(String token){
+			skipSpace();
+			if (!text.startsWith(token, pos)) return false;
+			// Don't match a prefix of a longer operator
+			if (token.length() == 1 && pos + 1 < text.length()){
+				char c = token.charAt(0), next = text.charAt(pos + 1);
+				if ((c == '<' || c == '>' || c == '!' || c == '=') && next == '=') return false;
+				}
+			pos += token.length();
+			return true;
+		}
+		
+		void expect(String token) throws VolumeFunctionException{
+			if (!accept(token))
+				throw error("Expected '" + token + "'");
+		}
+		
+		// Grammar, lowest precedence first
+		
+		int parseOr() throws VolumeFunctionException{
+			int a = parseAnd();
+			while (accept("||"))
+				a = emit(OP_OR, a, parseAnd());
+			return a;
+		}
+		
+		int parseAnd() throws VolumeFunctionException{
+			int a = parseEquality();
+			while (accept("&&"))
+				a = emit(OP_AND, a, parseEquality());
+			return a;
+		}
+		
+		int parseEquality() throws VolumeFunctionException{
+			int a = parseRelation();
+			while (true){
+				if (accept("==")) a = emit(OP_EQ, a, parseRelation());
+				else if (accept("!=")) a = emit(OP_NE, a, parseRelation());
+				else return a;
+				}
+		}
+		
+		int parseRelation() throws VolumeFunctionException{
+			int a = parseAdditive();
+			while (true){
+				if (accept("<=")) a = emit(OP_LE, a, parseAdditive());
+				else if (accept(">=")) a = emit(OP_GE, a, parseAdditive());
+				else if (accept("<")) a = emit(OP_LT, a, parseAdditive());
+				else if (accept(">")) a = emit(OP_GT, a, parseAdditive());
+				else return a;
+				}
+		}
+		
+		int parseAdditive() throws VolumeFunctionException{
+			int a = parseMultiplicative();
+			while (true){
+				if (accept("+")) a = emit(OP_ADD, a, parseMultiplicative());
+				else if (accept("-")) a = emit(OP_SUB, a, parseMultiplicative());
+				else return a;
+				}
+		}
+		
+		int parseMultiplicative() throws VolumeFunctionException{
+			int a = parseUnary();
+			while (true){
+				if (accept("*")) a = emit(OP_MUL, a, parseUnary());
+				else if (accept("/")) a = emit(OP_DIV, a, parseUnary());
+				else if (accept("%")) a = emit(OP_MOD, a, parseUnary());
+				else return a;
+				}
+		}
+		
+		int parseUnary() throws VolumeFunctionException{
+			if (accept("-")) return emit(OP_NEG, parseUnary());
+			if (accept("+")) return parseUnary();
+			if (accept("!")) return emit(OP_NOT, parseUnary());
+			return parsePower();
+		}
+		
+		int parsePower() throws VolumeFunctionException{
+			int a = parsePrimary();
+			if (accept("^"))
+				// Right-associative, and binds more tightly than unary minus on its left
+				return emit(OP_POW, a, parseUnary());
+			return a;
+		}
+		
+		int parsePrimary() throws VolumeFunctionException{
+			skipSpace();
+			if (pos >= text.length())
+				throw error("Unexpected end of expression");
+			
+			char ch = text.charAt(pos);
+			
+			if (accept("(")){
+				int a = parseOr();
+				expect(")");
+				return a;
+				}
+			
+			if (Character.isDigit(ch) || ch == '.')
+				return parseNumber();
+			
+			if (Character.isLetter(ch) || ch == '_'){
+				int start = pos;
+				while (pos < text.length() && 
+						(Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_'))
+					pos++;
+				String name = text.substring(start, pos);
+				
+				skipSpace();
+				if (pos < text.length() && text.charAt(pos) == '(')
+					return parseFunction(name, start);
+				
+				if (name.equals("pi")) return addConstant(Math.PI);
+				if (name.equals("e")) return addConstant(Math.E);
+				
+				int index = target.variables.indexOf(name);
+				if (index < 0){
+					target.variables.add(name);
+					index = target.variables.size() - 1;
+					}
+				return index;
+				}
+			
+			throw error("Unexpected '" + ch + "'");
+		}
+		
+		int parseNumber() throws VolumeFunctionException{
+			int start = pos;
+			while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.'))
+				pos++;
+			if (pos < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')){
+				int p = pos + 1;
+				if (p < text.length() && (text.charAt(p) == '+' || text.charAt(p) == '-')) p++;
+				if (p < text.length() && Character.isDigit(text.charAt(p))){
+					pos = p;
+					while (pos < text.length() && Character.isDigit(text.charAt(pos)))
+						pos++;
+					}
+				}
+			try{
+				return addConstant(Double.parseDouble(text.substring(start, pos)));
+			}catch (NumberFormatException ex){
+				pos = start;
+				throw error("Invalid number '" + text.substring(start, Math.min(text.length(), start + 16)) + "'");
+				}
+		}
+		
+		int parseFunction(String name, int start) throws VolumeFunctionException{
+			int[] spec = functions.get(name);
+			if (spec == null){
+				pos = start;
+				throw error("Unknown function '" + name + "'");
+				}
+			
+			expect("(");
+			ArrayList<Integer> args = new ArrayList<Integer>();
+			if (!accept(")")){
+				do{
+					args.add(parseOr());
+				}while (accept(","));
+				expect(")");
+				}
+			
+			int arity = spec[1];
+			if ((arity < 0 && args.size() < 2) || (arity >= 0 && args.size() != arity)){
+				pos = start;
+				throw error("Function '" + name + "' expects " + (arity < 0 ? "at least 2" : "" + arity) + 
+							" argument(s), got " + args.size());
+				}
+			
+			switch (args.size()){
+				case 1:
+					return emit(spec[0], args.get(0));
+				case 3:
+					if (arity == 3)
+						return emit(spec[0], args.get(0), args.get(1), args.get(2));
+				default:
+					// Variadic min/max fold left
+					int a = emit(spec[0], args.get(0), args.get(1));
+					for (int i = 2; i < args.size(); i++)
+						a = emit(spec[0], a, args.get(i));
+					return a;
+				}
+		}
+		
+	}
+	
+}
@@ -95,6 +95,7 @@ public class WindowedColourModel extends ColorModel implements Cloneable,
 	protected boolean low_is_transparent = true; 				// Values < alphaMin are transparent? Otherwise clamped to min colour
 	protected HashMap<Integer,Integer> index_map = null;
 	protected int[] solid_colour = new int[4];
+	protected volatile int version = 0;				// Incremented whenever the colour mapping changes
 	
 	/******************************************************
 	 * Constructor produces a greyscale model of type {@code DataBuffer.TYPE_DOUBLE}.
@@ -171,12 +172,61 @@ public class WindowedColourModel extends ColorModel implements Cloneable,
 		
 	}
 	
+	/******************************************************
+	 * Returns the version of this model's colour mapping. This is incremented by every setter which
+	 * changes how values map to colours, so that callers caching colourised images can determine
+	 * whether they are stale. Direct changes to the public fields {@code is_solid} and {@code is_discrete}
+	 * should be followed by a call to {@link #modelChanged()}.
+	 * 
+	 * @return
+	 */
+	public int getVersion(){
+		return version;
+	}
+	
+	/******************************************************
+	 * Increments this model's version; see {@link #getVersion()}.
+	 * 
+	 */
+	public void modelChanged(){
+		version++;
+	}
+	
+	/******************************************************
+	 * Returns the packed ARGB colour for {@code value}, as it would be rendered from a raster of this 
+	 * model's transfer type; i.e., {@code value} is first narrowed to that type. This is equivalent to,
+	 * but considerably faster than, setting a one-pixel raster and calling {@link #getRGB(Object)}.
+	 * 
+	 * @param value
+	 * @return
+	 */
+	public int getRGBForValue(double value){
+		switch (transferType){
+			case DataBuffer.TYPE_BYTE:
+				value = (byte)(int)value;
+				break;
+			case DataBuffer.TYPE_SHORT:
+			case DataBuffer.TYPE_USHORT:
+				value = (short)(int)value;
+				break;
+			case DataBuffer.TYPE_INT:
+				value = (int)value;
+				break;
+			case DataBuffer.TYPE_FLOAT:
+				value = (float)value;
+				break;
+			}
+		return getRGB((int)Math.round(getMappedValue(value)));
+	}
+	
 	public void setIsSolidColour(boolean b){
 		is_solid = b;
+		version++;
 	}
 	
 	public void setSolidColour(Color clr){
 		solid_colour = new int[]{clr.getRed(), clr.getGreen(), clr.getBlue(), clr.getAlpha()};
+		version++;
 	}
 	
 	public Color getSolidColour(){
@@ -185,6 +235,7 @@ public class WindowedColourModel extends ColorModel implements Cloneable,
 	
 	public void setHasAlpha(boolean b){
 		has_alpha = b;
+		version++;
 	}
 	
 	public boolean getHasAlpha(){
@@ -201,14 +252,17 @@ public class WindowedColourModel extends ColorModel implements Cloneable,
 	
 	public void setScale(double s){
 		scale = s;
+		version++;
 	}
 	
 	public void setIntercept(double i){
 		intercept = i;
+		version++;
 	}
 	
 	public void setWindowMid(double mid){
 		this.window_mid = mid;
+		version++;
 	}
 	
 	public double getWindowMid(){
@@ -217,6 +271,7 @@ public class WindowedColourModel extends ColorModel implements Cloneable,
 	
 	public void setWindowWidth(double width){
 		this.window_width = width;
+		version++;
 	}
 	public double getWindowWidth(){
 		return this.window_width;
@@ -224,6 +279,7 @@ public class WindowedColourModel extends ColorModel implements Cloneable,
 	
 	public void setLowIsTransparent(boolean b){
 		this.low_is_transparent = b;
+		version++;
 	}
 	
 	public boolean getLowIsTransparent(){
@@ -254,6 +310,7 @@ public class WindowedColourModel extends ColorModel implements Cloneable,
 		
 		this.window_width = max - min;
 		this.window_mid = min + window_width / 2.0;
+		version++;
 	}
 	
 	/****************************************
@@ -629,6 +686,7 @@ public class WindowedColourModel extends ColorModel implements Cloneable,
 			index_map = ((DiscreteColourMap)cm).getIndexMap();
 		else
 			index_map = null;
+		version++;
 		return true;
 	}
 	
@@ -671,6 +729,7 @@ public class WindowedColourModel extends ColorModel implements Cloneable,
 
 	public void setAlphaMin(double alphaMin) {
 		this.alphaMin = alphaMin;
+		version++;
 	}
 
 	public double getAlphaMax() {
@@ -679,6 +738,7 @@ public class WindowedColourModel extends ColorModel implements Cloneable,
 
 	public void setAlphaMax(double alphaMax) {
 		this.alphaMax = alphaMax;
+		version++;
 	}
 
 	public double getAlpha() {
@@ -687,6 +747,7 @@ public class WindowedColourModel extends ColorModel implements Cloneable,
 
 	public void setAlpha(double alpha) {
 		this.alpha = alpha;
+		version++;
 	}
 	
 	//********************************* XML STUFF **************************************
@@ -43,6 +43,7 @@ import java.util.StringTokenizer;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 
+import mgui.command.CommandFunctions;
 import mgui.datasources.DataSource;
 import mgui.datasources.DataSourceDriver;
 import mgui.datasources.security.SecureDataSourceFunctions;
@@ -67,6 +68,7 @@ import mgui.interfaces.maps.NameMap;
 import mgui.interfaces.pipelines.libraries.PipelineProcessLibrary;
 import mgui.interfaces.plots.InterfacePlot;
 import mgui.interfaces.shapes.ShapeModel3D;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.FileLoader;
 import mgui.io.InterfaceIO;
 import mgui.io.InterfaceIOOptions;
@@ -347,6 +349,21 @@ public class InterfaceEnvironment implements Environment {
 				if (mode.toLowerCase().equals("screencapture"))
 					snapshot_3d_mode = Snapshot3DMode.ScreenCapture;
 				}
+			if (command.equals("setProcessLogDir")){
+				String s = line.substring(c_index + 1).trim();
+				if (s.equalsIgnoreCase("none"))
+					CommandFunctions.setProcessLogDirectory(null);
+				else if (s.length() > 0)
+					CommandFunctions.setProcessLogDirectory(new File(s.replace("{user}", System.getProperty("user.name"))));
+				}
+			if (command.equals("setTaskThreads")){
+				try{
+					TaskEngine.setThreadCount(Integer.parseInt(line.substring(c_index + 1).trim()));
+				}catch (NumberFormatException ex){
+					InterfaceSession.log("InterfaceEnvironment: Invalid thread count '" + line.substring(c_index + 1) + "'", 
+										 LoggingType.Errors);
+					}
+				}
 			if (command.equals("setApplicationDataDir")){
 				int p = c_index;
 				String s = line.substring(p + 1);
@@ -24,14 +24,18 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 
 import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
 import mgui.interfaces.frames.SessionFrame;
+import mgui.interfaces.logs.AsyncLogWriter;
 import mgui.interfaces.logs.LoggingTarget;
 import mgui.interfaces.logs.LoggingType;
+import mgui.interfaces.util.TaskEngine;
 import mgui.util.IDFactory;
 
 /****************************************************
@@ -65,6 +69,9 @@ public class InterfaceSession {
 	
 	static Clipboard clipboard = new Clipboard();
 	
+	static volatile boolean asynchronous_logging = true;
+	static AsyncLogWriter log_writer;
+	
 	/*******************************************
 	 * Main entry point into modelGUI application, without a frame being created. 
 	 * Initializes <code>InterfaceEnvironment</code>
@@ -264,6 +271,8 @@ public class InterfaceSession {
 			message = message + " at " + InterfaceEnvironment.getNow("dd.MM.yyyy HH:mm:ss z");
 		log(message, LoggingType.Concise);
 		
+		TaskEngine.cancelAll();
+		flushLog();
 		System.exit(0);
 	}
 	
@@ -354,6 +363,9 @@ public class InterfaceSession {
 	 * <li><code>Debug</code>: Will only be logged is environment logging type is <code>Debug</code> 
 	 * </ul>
 	 * 
+	 * <p>Messages logged to file are queued and written by a background thread (see {@link AsyncLogWriter}),
+	 * unless asynchronous logging has been disabled with {@link #setAsynchronousLogging(boolean)}.
+	 * 
 	 * @param message 			- message to log
 	 * @param type				- logging type
 	 * @param timestamp 		- whether to log the timestamp
@@ -361,56 +373,36 @@ public class InterfaceSession {
 	 */
 	public static boolean log(final String _message, final LoggingType type, boolean timestamp){
 		
-				LoggingType log_type = InterfaceEnvironment.getLoggingType();
-				String message = _message;
-				if (timestamp)
-					message = InterfaceEnvironment.getNow("yyyy.MM.dd hh:mm:ss z") + ": " + message;
-				
-				//only log if type is right
-				switch (log_type){
-					case Errors:
-					case Warnings:
-						if (!type.equals(LoggingType.Errors))
-							return false;
-						break;
-					case Concise:
-						if (!(type.equals(LoggingType.Concise) || type.equals(LoggingType.Errors)))
-							return false;
-						break;
-					case Verbose:
-						if (type.equals(LoggingType.Debug))
-							return false;
-						break;
-					case Debug:
-					default:
-					}
-				
-				if (type.equals(LoggingType.Debug)) {
-					message = "DEBUG: " + message;
-					}
+				//only log if type is right; check before doing any formatting
+				if (!isLoggable(type)) return false;
 				
 				LoggingTarget target = InterfaceEnvironment.getLoggingTarget();
+				if (target == null || target == LoggingTarget.None) return false;
+				
+				long time = System.currentTimeMillis();
 				
 				switch (target){
 					case ToConsole:
-						if (type == LoggingType.Errors || type == LoggingType.Warnings)
-							System.err.println(message);
-						else
-							System.out.println(message);
+						printToConsole(_message, type, timestamp, time);
 						return true;
 					case ToFileAndConsole:
-						if (type == LoggingType.Errors || type == LoggingType.Warnings)
-							System.err.println(message);
-						else
-							System.out.println(message);
+						printToConsole(_message, type, timestamp, time);
 					case ToFile:
 						File file = InterfaceEnvironment.getLogFile();
 						if (file == null){
 							System.out.println("InterfaceSession: No log file specified!\nSwitching to console.");
 							InterfaceEnvironment.logging_target = LoggingTarget.ToConsole;
-							System.out.println(message);
+							printToConsole(_message, type, timestamp, time);
 							return false;
 							}
+						String message = _message;
+						if (type == LoggingType.Debug)
+							message = "DEBUG: " + message;
+						if (asynchronous_logging)
+							return getLogWriter().write(file, message, time, timestamp);
+						
+						if (timestamp)
+							message = InterfaceEnvironment.getNow("yyyy.MM.dd hh:mm:ss z") + ": " + message;
 						try{
 							BufferedWriter writer = new BufferedWriter(new FileWriter(file, true));
 							writer.write(message + "\n");
@@ -427,6 +419,77 @@ public class InterfaceSession {
 		return false;
 		
 	}
+	
+	/******************************************
+	 * Determines whether a message of the given type will be logged, given the logging type of
+	 * {@link InterfaceEnvironment}. Callers can use this to avoid constructing expensive log messages
+	 * which will be discarded.
+	 * 
+	 * @param type
+	 * @return
+	 */
+	public static boolean isLoggable(LoggingType type){
+		LoggingType log_type = InterfaceEnvironment.getLoggingType();
+		switch (log_type){
+			case Errors:
+			case Warnings:
+				return type == LoggingType.Errors;
+			case Concise:
+				return type == LoggingType.Concise || type == LoggingType.Errors;
+			case Verbose:
+				return type != LoggingType.Debug;
+			case Debug:
+			default:
+				return true;
+			}
+	}
+	
+	static void printToConsole(String message, LoggingType type, boolean timestamp, long time){
+		if (timestamp)
+			message = new SimpleDateFormat("yyyy.MM.dd hh:mm:ss z").format(new Date(time)) + ": " + message;
+		if (type == LoggingType.Debug)
+			message = "DEBUG: " + message;
+		if (type == LoggingType.Errors || type == LoggingType.Warnings)
+			System.err.println(message);
+		else
+			System.out.println(message);
+	}
+	
+	/******************************************
+	 * Returns the writer used for asynchronous file logging, creating it if necessary.
+	 * 
+	 * @return
+	 */
+	public static synchronized AsyncLogWriter getLogWriter(){
+		if (log_writer == null)
+			log_writer = new AsyncLogWriter();
+		return log_writer;
+	}
+	
+	/******************************************
+	 * Sets whether messages are written to the log file asynchronously (the default). If {@code false},
+	 * each message is written synchronously on the calling thread.
+	 * 
+	 * @param b
+	 */
+	public static void setAsynchronousLogging(boolean b){
+		if (!b) flushLog();
+		asynchronous_logging = b;
+	}
+	
+	public static boolean isAsynchronousLogging(){
+		return asynchronous_logging;
+	}
+	
+	/******************************************
+	 * Blocks until all pending log messages have been written to file.
+	 * 
+	 */
+	public static void flushLog(){
+		AsyncLogWriter writer = log_writer;
+		if (writer != null)
+			writer.flush(5000);
+	}
 
 	public static boolean showErrorsOnConsole(){
 		return show_errors_on_console;
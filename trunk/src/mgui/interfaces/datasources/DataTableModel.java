@@ -32,9 +32,9 @@ import mgui.interfaces.ProgressUpdater;
 import mgui.interfaces.gui.InterfaceProgressBar;
 import mgui.interfaces.logs.LoggingType;
 import mgui.interfaces.tables.InterfaceTableModel;
+import mgui.interfaces.util.TaskEngine;
 import mgui.util.arCollections;
 import foxtrot.Job;
-import foxtrot.Worker;
 
 /***************************
  * Class extending AbstractTableModel to act as a model for JTable, and in particular
@@ -231,7 +231,7 @@ public class DataTableModel extends InterfaceTableModel {
 			progress_updater.setMaximum(row);
 			progress_updater.update(start);
 			
-			Worker.post(new Job(){
+			TaskEngine.post(new Job(){
 				@Override
 				public Object run(){
 					try{
@@ -49,6 +49,7 @@ import javax.swing.text.DefaultCaret;
 
 import mgui.datasources.DataField;
 import mgui.datasources.DataQuery;
+import mgui.datasources.DataQueryTask;
 import mgui.datasources.DataSource;
 import mgui.datasources.DataSourceException;
 import mgui.datasources.DataTable;
@@ -1177,15 +1178,33 @@ public class InterfaceDatasourcePanel extends InterfacePanel implements ActionLi
 			
 			if (e.getActionCommand().endsWith("Execute")){
 				if (current_source == null || current_query == null) return;
+				final DataQuery query = current_query;
 				try{
-					if (current_source.executeUpdate(current_query)){
-						JOptionPane.showMessageDialog(InterfaceSession.getSessionFrame(), 
-								  "Query '" + current_query.getName() + "' executed.", 
-								  "Execute Data Query", 
-								  JOptionPane.INFORMATION_MESSAGE);
-						refreshDataSource();
-						return;
-						}
+					// Execute on a pooled connection so a slow query does not block the interface
+					final DataQueryTask<Integer> task = current_source.submitUpdate(query);
+					task.addCompletionCallback(new Runnable(){
+						public void run(){
+							if (task.isCancelled()) return;
+							try{
+								task.get();
+								JOptionPane.showMessageDialog(InterfaceSession.getSessionFrame(), 
+										  "Query '" + query.getName() + "' executed.", 
+										  "Execute Data Query", 
+										  JOptionPane.INFORMATION_MESSAGE);
+								refreshDataSource();
+								return;
+							}catch (Exception ex){
+								InterfaceSession.log("InterfaceDatasourcePanel: Error executing query '" + query.getName() + "':"
+										 			 + ex.getMessage(), 
+										 			 LoggingType.Errors);
+								}
+							JOptionPane.showMessageDialog(InterfaceSession.getSessionFrame(), 
+									  "Error executing query '" + query.getName() + "'. Check syntax and log.", 
+									  "Execute Data Query", 
+									  JOptionPane.ERROR_MESSAGE);
+							}
+						});
+					return;
 				}catch (DataSourceException ex){
 					InterfaceSession.log("InterfaceDatasourcePanel: Error executing query '" + current_query.getName() + "':"
 										 + ex.getMessage(), 
@@ -19,15 +19,19 @@
 
 package mgui.interfaces.graphics;
 
+import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.io.IOException;
@@ -72,6 +76,7 @@ import mgui.interfaces.shapes.SectionSet3DInt;
 import mgui.interfaces.shapes.Shape2DInt;
 import mgui.interfaces.shapes.Shape3DInt;
 import mgui.interfaces.shapes.ShapeModel3D;
+import mgui.interfaces.shapes.ShapeSet;
 import mgui.interfaces.shapes.ShapeSet2DInt;
 import mgui.interfaces.shapes.ShapeSet3DInt;
 import mgui.interfaces.shapes.selection.ShapeSelectionSet;
@@ -112,7 +117,7 @@ public class InterfaceGraphic2D extends InterfaceGraphic<Tool2D> implements Shap
 	protected DrawingEngine drawEngine;
 	public Tool2D currentTool, defaultTool;
 	protected ArrayList<Shape2DInt> temp_shapes = new ArrayList<Shape2DInt>();
-	private boolean drawMouseOnly;
+	private Rectangle mouse_bounds;
 	private PropertyChangeSupport propertyChange = new PropertyChangeSupport(this);
 	public ShapeSelectionSet currentSelection;
 	public SectionSet3DInt currentSections;
@@ -128,6 +133,14 @@ public class InterfaceGraphic2D extends InterfaceGraphic<Tool2D> implements Shap
 	protected transient boolean needs_regen = false;
 	protected transient boolean section_changed = false;
 	
+	// Cached images for the Images and Shapes layers; the Overlay layer is always drawn directly
+	protected transient LayerCache[] layer_caches = new LayerCache[]{new LayerCache(), new LayerCache()};
+	
+	// Computes and caches 2D intersections of the model with sections
+	protected transient SectionIntersectionService section_service = new SectionIntersectionService();
+	protected transient SectionSet3DInt last_section_set;
+	protected transient int last_section = Integer.MIN_VALUE;
+	
 	//mouse coordinates
 	Point mouseCoords;
 	
@@ -206,6 +219,7 @@ public class InterfaceGraphic2D extends InterfaceGraphic<Tool2D> implements Shap
 		attributes.add(new Attribute<MguiInteger>("BorderWidth", new MguiInteger(2)));
 		attributes.add(new Attribute<MguiFloat>("PickTolerance", new MguiFloat(5)));
 		attributes.add(new Attribute<String>("ZoomLimits", "0.01 1000"));
+		attributes.add(new Attribute<MguiBoolean>("CacheLayers", new MguiBoolean(true)));
 		
 	}
 	
@@ -331,6 +345,8 @@ public class InterfaceGraphic2D extends InterfaceGraphic<Tool2D> implements Shap
 		super.destroy();
 		if (this.currentSections != null)
 			this.currentSections.removeShapeListener(this);
+		releaseShapes3D();
+		section_service.clear();
 		//update window listeners
 		fireGraphicListeners(new GraphicEvent(this, EventType.Destroyed));
 	}
@@ -353,6 +369,14 @@ public class InterfaceGraphic2D extends InterfaceGraphic<Tool2D> implements Shap
 	@Override
 	public void attributeUpdated(AttributeEvent e){
 		
+		// Changes to the window size and map transform are detected when the layers are painted;
+		// of this window's own attributes, only the section and grids are drawn into them
+		if (e.getAttribute().getName().startsWith("Current") ||
+				e.getAttribute().getName().equals("ShowGrids"))
+			invalidateLayer(Layer.Shapes);
+		if (e.getAttribute().getName().equals("CacheLayers"))
+			invalidateLayers();
+		
 		if (e.getAttribute().getName().equals("CurrentSectSet")){
 			fireGraphicListeners(new GraphicEvent(this, EventType.NewSource));
 			return;
@@ -360,7 +384,8 @@ public class InterfaceGraphic2D extends InterfaceGraphic<Tool2D> implements Shap
 		
 		if (e.getAttribute().getName().equals("CurrentSect")){
 			
-			set3DObjects();
+			// Show this section's own shapes now; intersections are updated when ready
+			request3DObjects();
 			needs_update = true;
 			updateDisplay();
 			
@@ -422,24 +447,8 @@ public class InterfaceGraphic2D extends InterfaceGraphic<Tool2D> implements Shap
 		((Map2D)getMap()).setScreenBounds(getSize());
 		Graphics2D g2 = (Graphics2D)g;
 		
-		g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
-		        			RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-		
-		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-    						RenderingHints.VALUE_ANTIALIAS_ON);
+		setRenderingHints(g2);
 		
-		if (drawMouseOnly){
-			for (int i = 0; i < this.status_listeners.size(); i++){
-				if (status_listeners.get(i).isShape()){
-					g2.setClip(drawEngine.getScreenBounds(((Shape2DInt)status_listeners.get(i)).getBounds()));
-					super.paintComponent(g2);
-					((Shape2DInt)status_listeners.get(i)).drawShape2D(g2, drawEngine);
-					}
-				}
-			drawMouseOnly = false;
-			return;
-			}
-
 		Border border = this.getBorder();
 		if (is_snapshot) {
 			// Don't paint border for snapshot
@@ -452,92 +461,249 @@ public class InterfaceGraphic2D extends InterfaceGraphic<Tool2D> implements Shap
 			this.setBorder(border);
 			}
 		
-		if (this.getCurrentSectionSet() == null) return;
+		if (this.getCurrentSectionSet() == null){
+			if (!is_snapshot) drawMouseShapes(g2);
+			return;
+			}
 		
 		SectionSet3DInt sectionSet = getCurrentSectionSet();
 		if (sectionSet.getModel() != null){
-			excludeToSelection = sectionSet.getModel().getExcludeToSelection();
+			boolean exclude = sectionSet.getModel().getExcludeToSelection();
+			if (exclude != excludeToSelection) invalidateLayer(Layer.Shapes);
+			excludeToSelection = exclude;
 			if (excludeToSelection)
 				currentSelection = sectionSet.getModel().getExclusionFilter();
 			}
 		
 		
 		/**@todo set this panel to a specific SectionSet3DInt object **/
-		//3D stuff
-		//first pass for images
 		if (shape3DObjects == null){
 			shape3DObjects = new ShapeSet2DInt();
 			shape3DObjects.addShapeListener(this);
 			}
 		
-		for (int i = shape3DObjects.members.size() - 1; i > -1 ; i--)
-			if (shape3DObjects.members.size() > i &&  				// Concurrency issues
-				shape3DObjects.members.get(i).isImageShape() &&
-				shape3DObjects.members.get(i).isVisible() &&
-				shape3DObjects.members.get(i).show2D()){
-				shape3DObjects.members.get(i).drawShape2D(g2, drawEngine);
-				}
+		if (isLayerCaching() && !is_snapshot){
+			paintLayer(Layer.Images, g2);
+			paintLayer(Layer.Shapes, g2);
+		}else{
+			drawLayer(Layer.Images, g2);
+			drawLayer(Layer.Shapes, g2);
+			}
+		
+		drawLayer(Layer.Overlay, g2);
+		if (!is_snapshot) drawMouseShapes(g2);
 		
-		//2D stuff
-		if (sectionSet.isVisible() && sectionSet.show2D()){
-			ShapeSet2DInt set2d = getShapeSet2D();
-			for (int i = set2d.getSize() - 1; i >-1 ; i--){
-				if (set2d.isVisible(i) && set2d.show2D())
-					if (!excludeToSelection)
-						set2d.drawMember2D(i, g2, drawEngine);
-					else {
-						if (currentSelection != null){
-							if (currentSelection.hasShape(set2d.getMember(i)))
+		//sectionChanged = false;
+		g2.setPaint(Color.BLACK);
+		g2.setStroke(new BasicStroke());
+
+	}
+	
+	protected void setRenderingHints(Graphics2D g2){
+		g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+		        			RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+    						RenderingHints.VALUE_ANTIALIAS_ON);
+	}
+	
+	/***********************************************
+	 * Draws {@code layer} of this window directly to {@code g2}:
+	 * 
+	 * <ul>
+	 * <li>{@code Images}: image shapes (e.g., volume sections) from the 3D model
+	 * <li>{@code Shapes}: 2D shapes of the current section, shapes intersected from the 3D model, labels,
+	 * local shapes, and grids
+	 * <li>{@code Overlay}: temporary shapes, such as tool feedback
+	 * </ul>
+	 * 
+	 * @param layer
+	 * @param g2
+	 */
+	protected void drawLayer(Layer layer, Graphics2D g2){
+		
+		switch (layer){
+		
+			case Images:
+				//first pass for images
+				for (int i = shape3DObjects.members.size() - 1; i > -1 ; i--)
+					if (shape3DObjects.members.size() > i &&  				// Concurrency issues
+						shape3DObjects.members.get(i).isImageShape() &&
+						shape3DObjects.members.get(i).isVisible() &&
+						shape3DObjects.members.get(i).show2D()){
+						shape3DObjects.members.get(i).drawShape2D(g2, drawEngine);
+						}
+				return;
+				
+			case Shapes:
+				SectionSet3DInt sectionSet = getCurrentSectionSet();
+				
+				//2D stuff
+				if (sectionSet.isVisible() && sectionSet.show2D()){
+					ShapeSet2DInt set2d = getShapeSet2D();
+					for (int i = set2d.getSize() - 1; i >-1 ; i--){
+						if (set2d.isVisible(i) && set2d.show2D())
+							if (!excludeToSelection)
 								set2d.drawMember2D(i, g2, drawEngine);
+							else {
+								if (currentSelection != null){
+									if (currentSelection.hasShape(set2d.getMember(i)))
+										set2d.drawMember2D(i, g2, drawEngine);
+								}
+							}
 						}
 					}
-				}
+				
+				//second pass 3D shapes; non-images and non-labels
+				for (int i = shape3DObjects.members.size() - 1; i > -1 ; i--)
+					if (shape3DObjects.members.size() > i && 			// Concurrency issues
+							!shape3DObjects.members.get(i).isImageShape() &&
+							!shape3DObjects.members.get(i).isLabelShape() &&
+							shape3DObjects.members.get(i).isVisible() &&
+							shape3DObjects.members.get(i).show2D()){
+						shape3DObjects.members.get(i).drawShape2D(g2, drawEngine);
+						}
+				
+				//third pass 3D shapes; label shapes
+				for (int i = shape3DObjects.members.size() - 1; i > -1 ; i--)
+					if (shape3DObjects.members.get(i).isLabelShape() &&
+							shape3DObjects.members.get(i).isVisible() &&
+							shape3DObjects.members.get(i).show2D()){
+						shape3DObjects.members.get(i).drawShape2D(g2, drawEngine);
+						}
+				
+				//draw local stuff
+				for (int i = 0; i < shapeList.size(); i++)
+					if (shapeList.get(i).isVisible() && shapeList.get(i).show2D())
+						shapeList.get(i).drawShape2D(g2, drawEngine);
+				
+				//draw grids if necessary
+				if (((MguiBoolean)attributes.getValue("ShowGrids")).getTrue()){
+					for (int i = 0; i < grids.size(); i++)
+						if (grids.get(i).getIsVisible())
+							grids.get(i).draw2D(g2, drawEngine);
+					}
+				return;
+				
+			case Overlay:
+				//temporary shape(s)
+				for (int i = temp_shapes.size() - 1; i > -1; i--){
+					temp_shapes.get(i).drawShape2D(g2, drawEngine);
+					}
+				return;
+				
 			}
 		
-		//second pass 3D shapes; non-images and non-labels
-		for (int i = shape3DObjects.members.size() - 1; i > -1 ; i--)
-			if (shape3DObjects.members.size() > i && 			// Concurrency issues
-					!shape3DObjects.members.get(i).isImageShape() &&
-					!shape3DObjects.members.get(i).isLabelShape() &&
-					shape3DObjects.members.get(i).isVisible() &&
-					shape3DObjects.members.get(i).show2D()){
-				shape3DObjects.members.get(i).drawShape2D(g2, drawEngine);
-				}
-		
-		//third pass 3D shapes; label shapes
-		for (int i = shape3DObjects.members.size() - 1; i > -1 ; i--)
-			if (shape3DObjects.members.get(i).isLabelShape() &&
-					shape3DObjects.members.get(i).isVisible() &&
-					shape3DObjects.members.get(i).show2D()){
-				shape3DObjects.members.get(i).drawShape2D(g2, drawEngine);
-				}
-		
-		//temporary shape(s)
-		if (temp_shapes.size() > 0){
-			for (int i = temp_shapes.size() - 1; i > -1; i--){
-				temp_shapes.get(i).drawShape2D(g2, drawEngine);
-				}
+	}
+	
+	/***********************************************
+	 * Draws the cached image for {@code layer} to {@code g2}, first re-rendering it if it has been 
+	 * invalidated or if the size or transform of this window has changed.
+	 * 
+	 * @param layer
+	 * @param g2
+	 */
+	protected void paintLayer(Layer layer, Graphics2D g2){
+		LayerCache cache = layer_caches[layer.ordinal()];
+		int width = getWidth(), height = getHeight();
+		if (width <= 0 || height <= 0) return;
+		
+		AffineTransform transform = ((Map2D)getMap()).getTransform();
+		if (cache.image == null || cache.image.getWidth() != width || cache.image.getHeight() != height){
+			cache.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			cache.is_valid = false;
 			}
-		
-		//draw local stuff
-		for (int i = 0; i < shapeList.size(); i++)
-			if (shapeList.get(i).isVisible() && shapeList.get(i).show2D())
-				shapeList.get(i).drawShape2D(g2, drawEngine);
-		
-		//draw grids if necessary
-		if (((MguiBoolean)attributes.getValue("ShowGrids")).getTrue()){
-			for (int i = 0; i < grids.size(); i++)
-				if (grids.get(i).getIsVisible())
-					grids.get(i).draw2D(g2, drawEngine);
+		if (cache.transform == null || !cache.transform.equals(transform))
+			cache.is_valid = false;
+		
+		if (!cache.is_valid){
+			// Mark valid before drawing, so that invalidations during drawing are not lost
+			cache.is_valid = true;
+			cache.transform = transform == null ? null : new AffineTransform(transform);
+			Graphics2D g_layer = cache.image.createGraphics();
+			g_layer.setComposite(AlphaComposite.Clear);
+			g_layer.fillRect(0, 0, width, height);
+			g_layer.setComposite(AlphaComposite.SrcOver);
+			setRenderingHints(g_layer);
+			try{
+				drawLayer(layer, g_layer);
+			}finally{
+				g_layer.dispose();
+				}
 			}
 		
-		//draw border last
-		
-		
-		//sectionChanged = false;
-		g2.setPaint(Color.BLACK);
-		g2.setStroke(new BasicStroke());
-
+		g2.drawImage(cache.image, 0, 0, null);
+	}
+	
+	/***********************************************
+	 * Indicates whether the {@code Images} and {@code Shapes} layers of this window are cached as 
+	 * offscreen images (attribute "CacheLayers").
+	 * 
+	 * @return
+	 */
+	public boolean isLayerCaching(){
+		MguiBoolean b = (MguiBoolean)attributes.getValue("CacheLayers");
+		return b == null || b.getTrue();
+	}
+	
+	/***********************************************
+	 * Invalidates the cached images for all layers of this window; they will be re-rendered on the next
+	 * paint.
+	 * 
+	 */
+	public void invalidateLayers(){
+		for (int i = 0; i < layer_caches.length; i++)
+			layer_caches[i].is_valid = false;
+	}
+	
+	/***********************************************
+	 * Returns the layer in which {@code shape}, or its 2D sections, are drawn.
+	 * 
+	 * @param shape
+	 * @return
+	 */
+	protected Layer getLayer(InterfaceShape shape){
+		if (shape != null && shape.isImageShape()) return Layer.Images;
+		return Layer.Shapes;
+	}
+	
+	/***********************************************
+	 * Invalidates the cached image for {@code layer}. 
+	 * 
+	 * @param layer
+	 */
+	public void invalidateLayer(Layer layer){
+		if (layer.ordinal() < layer_caches.length)
+			layer_caches[layer.ordinal()].is_valid = false;
+	}
+	
+	/***********************************************
+	 * Repaints this window without invalidating its cached layers; use this when only the overlay 
+	 * (e.g., temporary shapes) has changed.
+	 * 
+	 */
+	public void repaintOverlay(){
+		repaint();
+	}
+	
+	/***********************************************
+	 * Rendering layers of a 2D window, in drawing order. 
+	 *
+	 */
+	public static enum Layer{
+		Images,
+		Shapes,
+		Overlay;
+	}
+	
+	/***********************************************
+	 * Offscreen image for a cached layer, along with the map transform it was rendered with.
+	 *
+	 */
+	static class LayerCache{
+		BufferedImage image;
+		AffineTransform transform;
+		volatile boolean is_valid = false;
 	}
 	
 	@Override
@@ -600,31 +766,87 @@ public class InterfaceGraphic2D extends InterfaceGraphic<Tool2D> implements Shap
 	 */
 	protected void set3DObjects(){
 		SectionSet3DInt section_set = getCurrentSectionSet();
+		releaseShapes3D();
+		
+		if (section_set == null || section_set.getModel() == null) return;
+		setShapes3D(section_service.getIntersections(section_set, getCurrentSection()));
+		
+	}
+	
+	/******************************
+	 * 
+	 * Sets the 2D section-projected shapes for the current section, computing them in the background
+	 * if they are not cached. Until they are available, the shapes of the previous section remain 
+	 * displayed. Neighbouring sections in the direction of travel are prefetched.
+	 * 
+	 */
+	protected void request3DObjects(){
+		final SectionSet3DInt section_set = getCurrentSectionSet();
+		final int section = getCurrentSection();
+		int direction = 0;
+		if (section_set == last_section_set && last_section != Integer.MIN_VALUE)
+			direction = Integer.signum(section - last_section);
+		last_section_set = section_set;
+		last_section = section;
+		
+		if (section_set == null || section_set.getModel() == null){
+			set3DObjects();
+			return;
+			}
+		
+		section_service.request(section_set, section, direction, new SectionIntersectionService.Callback(){
+			public void intersectionsReady(SectionSet3DInt set, int sect, ShapeSet2DInt shapes){
+				// Ignore if the section has since changed
+				if (set != getCurrentSectionSet() || sect != getCurrentSection()) return;
+				releaseShapes3D();
+				setShapes3D(shapes);
+				needs_update = true;
+				updateDisplay();
+				}
+			});
+	}
+	
+	/******************************
+	 * 
+	 * Returns the service which computes and caches section intersections for this window.
+	 * 
+	 * @return
+	 */
+	public SectionIntersectionService getSectionIntersectionService(){
+		return section_service;
+	}
+	
+	/******************************
+	 * 
+	 * Detaches the current 2D section-projected shapes from this window, and releases them to the 
+	 * intersection cache; this destroys them if they are no longer cached.
+	 * 
+	 */
+	protected void releaseShapes3D(){
 		if (shape3DObjects != null){
 			shape3DObjects.removeShapeListener(this);
-			shape3DObjects.destroy();
+			ArrayList<InterfaceShape> members = new ArrayList<InterfaceShape>(shape3DObjects.getMembers());
+			for (int i = 0; i < members.size(); i++)
+				shape3DObjects.removeShape((Shape2DInt)members.get(i), false, false);
 			}
-		destroyChildSets();
+		releaseChildSets();
 		shape3DObjects = new ShapeSet2DInt();
 		shape3DObjects.addShapeListener(this);
-		
-		if (section_set == null || section_set.getModel() == null) return;
-		ShapeSet2DInt set3D = (ShapeSet2DInt)section_set.getModel().getModelSet().getShape2DInt(getCurrentPlane(), 
-																							    section_set.getClipDistUp(), 
-																							    section_set.getClipDistDown(), 
-																							    false);
-		
+		section_service.releaseInUse();
+		invalidateLayers();
+	}
+	
+	protected void setShapes3D(ShapeSet2DInt set3D){
+		section_service.setInUse(set3D);
 		if (set3D == null) return;
 		addShapes3D(set3D);
-		
+		invalidateLayers();
 	}
 	
-	void destroyChildSets(){
+	void releaseChildSets(){
 		if (childSets == null) return;
-		for (int i = 0; i < this.childSets.size(); i++){
+		for (int i = 0; i < this.childSets.size(); i++)
 			childSets.get(i).removeShapeListener(this);
-			childSets.get(i).destroy();
-			}
 		childSets.clear();
 	}
 	
@@ -663,8 +885,7 @@ public class InterfaceGraphic2D extends InterfaceGraphic<Tool2D> implements Shap
 	
 	public void removeShape3D(Shape2DInt shape){
 		shape3DObjects.removeShape(shape, false, false);
-		if (shape.getParentShape() != null)
-			shape.getParentShape().removeShape2DChild(shape);
+		shape.detachFromParent();
 	}
 	
 	public void addGraphicListener(InterfaceGraphicListener l){
@@ -768,20 +989,59 @@ public class InterfaceGraphic2D extends InterfaceGraphic<Tool2D> implements Shap
 		temp_shapes.remove(shape);
 	}
 	
+	/****************************************
+	 * Redraws the region of this window occupied by {@code thisShape}, re-rendering the layer
+	 * it is drawn in.
+	 * 
+	 * @param thisShape
+	 */
 	public void drawShape2D(Shape2DInt thisShape){
-		Graphics2D g2 = (Graphics2D)this.getGraphics();
-		if (g2 == null || drawEngine == null) return;
-		//drawEngine.setCoordSys(((arInteger)thisShape.getAttribute("CoordSys").getValue()).value);
-		g2.setClip(drawEngine.getScreenBounds(thisShape.getExtBounds()));
-		paintComponent(g2);
-		g2.setClip(null);
-		paintBorder(g2);
+		if (drawEngine == null) return;
+		invalidateLayer(getLayer(thisShape));
+		repaint(drawEngine.getScreenBounds(thisShape.getExtBounds()));
 	}
 	
+	/****************************************
+	 * Redraws the regions of this window occupied by its mouse shapes (e.g., mouse coordinates),
+	 * including the regions they occupied when last drawn. The cached layers are not re-rendered.
+	 * 
+	 */
 	public void drawMouseShapes(){
-		Graphics2D g2 = (Graphics2D)this.getGraphics();
-		drawMouseOnly = true;
-		paintComponent(g2);
+		if (drawEngine == null) return;
+		Rectangle bounds = mouse_bounds;
+		for (int i = 0; i < this.status_listeners.size(); i++){
+			if (status_listeners.get(i).isShape()){
+				Rectangle r = drawEngine.getScreenBounds(((Shape2DInt)status_listeners.get(i)).getBounds());
+				if (r == null) continue;
+				if (bounds == null)
+					bounds = new Rectangle(r);
+				else
+					bounds = bounds.union(r);
+				}
+			}
+		if (bounds != null) repaint(bounds);
+	}
+	
+	/****************************************
+	 * Draws this window's mouse shapes to {@code g2}, and records the region they occupy.
+	 * 
+	 * @param g2
+	 */
+	protected void drawMouseShapes(Graphics2D g2){
+		Rectangle bounds = null;
+		for (int i = 0; i < this.status_listeners.size(); i++){
+			if (status_listeners.get(i).isShape()){
+				Shape2DInt shape = (Shape2DInt)status_listeners.get(i);
+				shape.drawShape2D(g2, drawEngine);
+				Rectangle r = drawEngine.getScreenBounds(shape.getBounds());
+				if (r == null) continue;
+				if (bounds == null)
+					bounds = new Rectangle(r);
+				else
+					bounds = bounds.union(r);
+				}
+			}
+		mouse_bounds = bounds;
 	}
 	
 	public void addShapeInt(Shape2DInt thisShape){
@@ -1176,6 +1436,7 @@ public class InterfaceGraphic2D extends InterfaceGraphic<Tool2D> implements Shap
 	public void regenerateDisplay(){
 		needs_update = false;
 		needs_regen = false;
+		// Releasing and setting the section shapes invalidates the cached layers
 		set3DObjects();
 		
 		if (section_changed){
@@ -1194,6 +1455,13 @@ public class InterfaceGraphic2D extends InterfaceGraphic<Tool2D> implements Shap
 		if (e.alreadyResponded(this)) return;
 		e.responded(this);
 		
+		// Re-render only the layer the modified shape is drawn in; changes to a set may
+		// affect both
+		if (e.getShape() instanceof ShapeSet)
+			invalidateLayers();
+		else
+			invalidateLayer(getLayer(e.getShape()));
+		
 		//is there a current section set?
 		SectionSet3DInt section_set = getCurrentSectionSet();
 		if (section_set == null) return;
@@ -78,7 +78,10 @@ import org.jogamp.vecmath.Vector2f;
 import org.jogamp.vecmath.Vector3f;
 import org.xml.sax.Attributes;
 
+import mgui.geometry.Mesh3D;
 import mgui.geometry.Sphere3D;
+import mgui.geometry.Vector3D;
+import mgui.geometry.mesh.MeshBVH;
 import mgui.interfaces.InterfaceDisplayPanel;
 import mgui.interfaces.InterfaceEnvironment;
 import mgui.interfaces.InterfaceSession;
@@ -95,6 +98,8 @@ import mgui.interfaces.maps.Camera3DListener;
 import mgui.interfaces.maps.Map;
 import mgui.interfaces.maps.Map3D;
 import mgui.interfaces.menus.InterfacePopupMenu;
+import mgui.interfaces.shapes.InterfaceShape;
+import mgui.interfaces.shapes.Mesh3DInt;
 import mgui.interfaces.shapes.Shape3DInt;
 import mgui.interfaces.shapes.ShapeModel3D;
 import mgui.interfaces.shapes.ShapeModel3DListener;
@@ -454,12 +459,123 @@ public class InterfaceGraphic3D extends InterfaceGraphic<Tool3D> implements Shap
 		pickCanvasGeom.setTolerance(getPickTolerance());
 		pickCanvasNode = new PickCanvas(canvas3D.getCanvas(), model.getLocale());
 		pickCanvasNode.setMode(PickInfo.PICK_GEOMETRY); 
-		pickCanvasNode.setFlags(PickInfo.NODE | PickInfo.CLOSEST_INTERSECTION_POINT); 
+		pickCanvasNode.setFlags(PickInfo.NODE | PickInfo.CLOSEST_INTERSECTION_POINT | PickInfo.CLOSEST_DISTANCE); 
 		pickCanvasNode.setTolerance(getPickTolerance());
 		
 		updateTreeNodes();
 	}
 	
+	/*****************************************************
+	 * Returns the pick ray through the pixel at {@code point} on this window's canvas, in virtual world
+	 * coordinates. The ray starts at the eye position; its vector points toward the pixel on the image plate.
+	 * 
+	 * @param point
+	 * @return
+	 */
+	public Vector3D getPickRay(Point point){
+		Canvas3D canvas = canvas3D.getCanvas();
+		Point3d eye = new Point3d(), pixel = new Point3d();
+		canvas.getCenterEyeInImagePlate(eye);
+		canvas.getPixelLocationInImagePlate(point.x, point.y, pixel);
+		if (canvas.getView().getProjectionPolicy() == View.PARALLEL_PROJECTION){
+			eye.x = pixel.x;
+			eye.y = pixel.y;
+			}
+		Transform3D t3d = new Transform3D();
+		canvas.getImagePlateToVworld(t3d);
+		t3d.transform(eye);
+		t3d.transform(pixel);
+		Vector3f v = new Vector3f((float)(pixel.x - eye.x), (float)(pixel.y - eye.y), (float)(pixel.z - eye.z));
+		return new Vector3D(new Point3f(eye), v);
+	}
+	
+	/*****************************************************
+	 * Returns the shape picked by a mouse click at {@code click_point}, and optionally sets {@code node} to 
+	 * the index of the picked vertex (or -1). Only shapes which are visible in 3D, and all of whose parent 
+	 * sets are visible in 3D, can be picked.
+	 * 
+	 * <p>Visible meshes are picked by casting the pick ray against each mesh's cached {@linkplain MeshBVH},
+	 * which is much faster than Java3D geometry picking for dense meshes; the vertex of the hit face closest 
+	 * to the hit point is returned. If the model contains other visible shapes, these are picked with
+	 * {@link ShapeFunctions#getPickedShape(PickCanvas, PickCanvas, Point, MguiInteger, MguiDouble)}, and 
+	 * the closer of the two hits is returned.
+	 * 
+	 * @param click_point
+	 * @param node 			Set to the picked vertex index; can be {@code null}
+	 * @return the picked shape, or {@code null} if none was picked
+	 */
+	public Shape3DInt getPickedShape(Point click_point, MguiInteger node){
+		if (click_point == null || model == null || model.getModelSet() == null) return null;
+		if (node != null) node.setValue(-1);
+		
+		Vector3D ray = getPickRay(click_point);
+		Mesh3DInt picked = null;
+		MeshBVH picked_bvh = null;
+		MeshBVH.RayHit picked_hit = null;
+		boolean has_other = false;
+		
+		ArrayList<Shape3DInt> shapes = new ArrayList<Shape3DInt>();
+		getPickableShapes(model.getModelSet(), shapes);
+		for (int i = 0; i < shapes.size(); i++){
+			Shape3DInt shape = shapes.get(i);
+			if (!(shape instanceof Mesh3DInt)){
+				has_other = true;
+				continue;
+				}
+			Mesh3D mesh = ((Mesh3DInt)shape).getMesh();
+			if (mesh == null || mesh.f == 0) continue;
+			MeshBVH bvh = mesh.getBVH();
+			double max_t = picked_hit == null ? Double.POSITIVE_INFINITY : picked_hit.t;
+			MeshBVH.RayHit hit = bvh.getFirstHit(ray.getStart(), ray.getVector(), max_t);
+			if (hit.isHit() && (picked_hit == null || hit.t < picked_hit.t)){
+				picked = (Mesh3DInt)shape;
+				picked_bvh = bvh;
+				picked_hit = hit;
+				}
+			}
+		
+		if (has_other){
+			// Pick the other shapes with Java3D; use this if it is closer than the mesh hit
+			MguiInteger other_node = new MguiInteger(-1);
+			MguiDouble other_distance = new MguiDouble(Double.POSITIVE_INFINITY);
+			Shape3DInt other = ShapeFunctions.getPickedShape(getPickCanvasNode(), getPickCanvasGeom(), 
+															 click_point, other_node, other_distance);
+			// Shapes which are not model members (e.g., vertex objects) are picked as is
+			if (other != null && !(other instanceof Mesh3DInt) && 
+					(shapes.contains(other) || !model.getModelSet().getMembers(true).contains(other))){
+				double mesh_distance = picked_hit == null ? Double.POSITIVE_INFINITY : 
+														 picked_hit.t * ray.getVector().length();
+				if (other_distance.getValue() < mesh_distance){
+					if (node != null) node.setValue(other_node.getInt());
+					return other;
+					}
+				}
+			}
+		
+		if (picked == null) return null;
+		if (node != null) node.setValue(picked_hit.getClosestVertex(picked_bvh));
+		return picked;
+	}
+	
+	/*****************************************************
+	 * Adds the members of {@code set} which are visible in 3D to {@code shapes}, recursing into member
+	 * sets which are visible in 3D.
+	 * 
+	 * @param set
+	 * @param shapes
+	 */
+	protected void getPickableShapes(ShapeSet3DInt set, ArrayList<Shape3DInt> shapes){
+		if (!set.isVisible() || !set.show3D()) return;
+		for (int i = 0; i < set.members.size(); i++){
+			Shape3DInt shape = set.members.get(i);
+			if (shape instanceof ShapeSet3DInt){
+				getPickableShapes((ShapeSet3DInt)shape, shapes);
+			}else if (shape.isVisible() && shape.show3D()){
+				shapes.add(shape);
+				}
+			}
+	}
+	
 	protected float getPickTolerance(){
 		return (float)((MguiFloat)attributes.getValue("PickTolerance")).getValue();
 	}
@@ -861,10 +977,7 @@ public class InterfaceGraphic3D extends InterfaceGraphic<Tool3D> implements Shap
 		MguiInteger node = new MguiInteger(-1);
 		
 		// Query for shape and add its menu to this menu
-		Shape3DInt shape = ShapeFunctions.getPickedShape(getPickCanvasNode(), 
-													   	 getPickCanvasGeom(), 
-													   	 last_click_point,
-													   	 node);
+		Shape3DInt shape = getPickedShape(last_click_point, node);
 		
 		if (shape == null) return menu;
 		
@@ -961,10 +1074,7 @@ public class InterfaceGraphic3D extends InterfaceGraphic<Tool3D> implements Shap
 		if (item.getText().startsWith("Center on vertex")){
 			if (last_click_point == null) return;
 			MguiInteger node = new MguiInteger(-1);
-			Shape3DInt picked_shape = ShapeFunctions.getPickedShape(getPickCanvasNode(), 
-																   	getPickCanvasGeom(), 
-																   	last_click_point,
-																   	node);
+			Shape3DInt picked_shape = getPickedShape(last_click_point, node);
 			if (picked_shape == null || node.getInt() < 0) return;
 			Point3f new_center = picked_shape.getShape().getVertex(node.getInt());
 			if (new_center != null) centerOnPoint(new_center);
@@ -991,10 +1101,7 @@ public class InterfaceGraphic3D extends InterfaceGraphic<Tool3D> implements Shap
 		
 		if (item.getActionCommand().equals("Edit Shape Attributes")){
 			if (last_click_point == null) return;
-			Shape3DInt picked_shape = ShapeFunctions.getPickedShape(getPickCanvasNode(), 
-																   	getPickCanvasGeom(), 
-																   	last_click_point,
-																   	null);
+			Shape3DInt picked_shape = getPickedShape(last_click_point, null);
 			if (picked_shape == null)
 				return;
 			InterfaceSession.getWorkspace().showAttributeDialog(picked_shape);
@@ -1003,10 +1110,7 @@ public class InterfaceGraphic3D extends InterfaceGraphic<Tool3D> implements Shap
 		
 		if (item.getText().equals("Center on shape")){
 			if (last_click_point == null) return;
-			Shape3DInt picked_shape = ShapeFunctions.getPickedShape(getPickCanvasNode(), 
-																   	getPickCanvasGeom(), 
-																   	last_click_point,
-																   	null);
+			Shape3DInt picked_shape = getPickedShape(last_click_point, null);
 			if (picked_shape == null)
 				return;
 			
@@ -1023,10 +1127,7 @@ public class InterfaceGraphic3D extends InterfaceGraphic<Tool3D> implements Shap
 		
 		if (item.getText().startsWith("Move sections to vertex")){
 			MguiInteger node = new MguiInteger(-1);
-			Shape3DInt picked_shape = ShapeFunctions.getPickedShape(getPickCanvasNode(), 
-																   	getPickCanvasGeom(), 
-																   	last_click_point,
-																   	node);
+			Shape3DInt picked_shape = getPickedShape(last_click_point, node);
 			if (picked_shape == null || node.getInt() < 0) return;
 			Point3f point = picked_shape.getShape().getVertex(node.getInt());
 			
@@ -1041,10 +1142,7 @@ public class InterfaceGraphic3D extends InterfaceGraphic<Tool3D> implements Shap
 			return;
 			}
 		
-		Shape3DInt picked_shape = ShapeFunctions.getPickedShape(getPickCanvasNode(), 
-			   	getPickCanvasGeom(), 
-			   	last_click_point,
-			   	null);
+		Shape3DInt picked_shape = getPickedShape(last_click_point, null);
 		
 		if (picked_shape != null) picked_shape.handlePopupEvent(e);
 		
@@ -0,0 +1,503 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.interfaces.graphics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.SwingUtilities;
+
+import mgui.geometry.Plane3D;
+import mgui.interfaces.InterfaceSession;
+import mgui.interfaces.logs.LoggingType;
+import mgui.interfaces.shapes.SectionSet3DInt;
+import mgui.interfaces.shapes.Shape2DInt;
+import mgui.interfaces.shapes.Shape3DInt;
+import mgui.interfaces.shapes.ShapeModel3D;
+import mgui.interfaces.shapes.ShapeSet2DInt;
+import mgui.interfaces.shapes.ShapeSet3DInt;
+
+/*************************************************************
+ * Computes and caches the 2D intersections of a 3D shape model with the sections of a section set,
+ * for a single {@link InterfaceGraphic2D} window.
+ * 
+ * <p>Intersections are computed on background threads and cached per (section set, section), along with
+ * the modification counts of the model and section set at the time they were computed; entries are 
+ * considered stale if either has since changed. The cache holds at most {@link #getCapacity()} sections,
+ * evicting the least recently used.
+ * 
+ * <p>When a section is requested with {@link #request(SectionSet3DInt, int, int, Callback)}, the neighbouring
+ * sections in the direction of travel are computed speculatively, at a lower priority than explicit
+ * requests, so that scrolling through sections can be served from the cache.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class SectionIntersectionService {
+
+	/*************************************************************
+	 * Receives computed intersections; called on the event dispatch thread.
+	 *
+	 */
+	public interface Callback {
+		public void intersectionsReady(SectionSet3DInt section_set, int section, ShapeSet2DInt shapes);
+	}
+	
+	static final int PRIORITY_REQUEST = 0;
+	static final int PRIORITY_PREFETCH = 1;
+	
+	static ThreadPoolExecutor executor;
+	static final AtomicLong sequence = new AtomicLong();
+	
+	protected int capacity = 16;
+	protected int prefetch_count = 2;
+	
+	protected final LinkedHashMap<Key, Entry> cache = new LinkedHashMap<Key, Entry>(32, 0.75f, true);
+	protected final HashMap<Key, PrioritizedTask> pending = new HashMap<Key, PrioritizedTask>();
+	
+	// The entry currently displayed; this is not destroyed on eviction, but when released
+	protected ShapeSet2DInt in_use;
+	
+	public SectionIntersectionService(){
+		
+	}
+	
+	public SectionIntersectionService(int capacity, int prefetch_count){
+		this.capacity = Math.max(1, capacity);
+		this.prefetch_count = Math.max(0, prefetch_count);
+	}
+	
+	/*************************************************************
+	 * Returns the maximum number of sections held in the cache.
+	 * 
+	 * @return
+	 */
+	public int getCapacity(){
+		return capacity;
+	}
+	
+	public synchronized void setCapacity(int capacity){
+		this.capacity = Math.max(1, capacity);
+		trim();
+	}
+	
+	/*************************************************************
+	 * Returns the number of sections, in the direction of travel, which are prefetched when a section
+	 * is requested.
+	 * 
+	 * @return
+	 */
+	public int getPrefetchCount(){
+		return prefetch_count;
+	}
+	
+	public void setPrefetchCount(int count){
+		prefetch_count = Math.max(0, count);
+	}
+	
+	/*************************************************************
+	 * Sets the intersections currently displayed; these will not be destroyed if evicted from the cache,
+	 * until they are released with {@link #release(ShapeSet2DInt)}. Since intersections are computed 
+	 * without being attached to their parent shapes, this attaches them; it must be called on the event 
+	 * dispatch thread.
+	 * 
+	 * @param shapes
+	 */
+	public synchronized void setInUse(ShapeSet2DInt shapes){
+		in_use = shapes;
+		if (shapes != null)
+			shapes.attachToParent();
+	}
+	
+	/*************************************************************
+	 * Releases the intersections currently displayed; see {@link #release(ShapeSet2DInt)}.
+	 * 
+	 */
+	public synchronized void releaseInUse(){
+		release(in_use);
+	}
+	
+	/*************************************************************
+	 * Releases {@code shapes}, which are no longer displayed; must be called on the event dispatch thread.
+	 * They are detached from their parent shapes. If they have since been evicted from the cache, or 
+	 * replaced by a more current version, they are also destroyed; otherwise they are destroyed when 
+	 * evicted.
+	 * 
+	 * @param shapes
+	 */
+	public synchronized void release(ShapeSet2DInt shapes){
+		if (shapes == null) return;
+		if (in_use == shapes)
+			in_use = null;
+		shapes.detachFromParent();
+		
+		for (Entry entry : cache.values())
+			if (entry.shapes == shapes) return;
+		shapes.destroy();
+	}
+	
+	/*************************************************************
+	 * Returns the cached intersections for {@code section}, if they are present and current; otherwise
+	 * returns {@code null}.
+	 * 
+	 * @param section_set
+	 * @param section
+	 * @return
+	 */
+	public synchronized ShapeSet2DInt getCached(SectionSet3DInt section_set, int section){
+		Key key = new Key(section_set, section);
+		Entry entry = cache.get(key);
+		if (entry == null) return null;
+		if (entry.version != getVersion(section_set)){
+			remove(key);
+			return null;
+			}
+		return entry.shapes;
+	}
+	
+	/*************************************************************
+	 * Indicates whether current intersections for {@code section} are cached.
+	 * 
+	 * @param section_set
+	 * @param section
+	 * @return
+	 */
+	public boolean isCached(SectionSet3DInt section_set, int section){
+		return getCached(section_set, section) != null;
+	}
+	
+	/*************************************************************
+	 * Returns the intersections for {@code section}, computing them on the calling thread if they are not 
+	 * cached, or waiting for them if they are currently being computed.
+	 * 
+	 * @param section_set
+	 * @param section
+	 * @return the intersections, or {@code null} if there are none
+	 */
+	public ShapeSet2DInt getIntersections(SectionSet3DInt section_set, int section){
+		ShapeSet2DInt shapes = getCached(section_set, section);
+		if (shapes != null) return shapes;
+		
+		PrioritizedTask task = null;
+		synchronized(this){
+			task = pending.get(new Key(section_set, section));
+			}
+		if (task != null && getExecutor().remove(task)){
+			// Not yet started; run it here instead
+			task.run();
+			}
+		if (task != null){
+			try{
+				return task.get();
+			}catch (InterruptedException ex){
+				Thread.currentThread().interrupt();
+				return null;
+			}catch (ExecutionException ex){
+				InterfaceSession.log("SectionIntersectionService: Error computing section " + section + ": " + 
+									 ex.getCause().getMessage(), LoggingType.Errors);
+				return null;
+				}
+			}
+		
+		long version = getVersion(section_set);
+		shapes = compute(section_set, section);
+		store(new Key(section_set, section), version, shapes);
+		return shapes;
+	}
+	
+	/*************************************************************
+	 * Requests the intersections for {@code section} in the background, and prefetches neighbouring sections
+	 * in {@code direction}. If the intersections are already cached, {@code callback} is called immediately.
+	 * 
+	 * @param section_set
+	 * @param section
+	 * @param direction 		Direction of travel; positive or negative, or zero for no prefetch
+	 * @param callback			Called on the event dispatch thread when the intersections are ready; can be 
+	 * 							{@code null}
+	 */
+	public void request(final SectionSet3DInt section_set, final int section, int direction, final Callback callback){
+		
+		ShapeSet2DInt shapes = getCached(section_set, section);
+		if (shapes != null){
+			if (callback != null)
+				callback.intersectionsReady(section_set, section, shapes);
+		}else{
+			PrioritizedTask task = schedule(section_set, section, PRIORITY_REQUEST);
+			if (callback != null)
+				task.addCallback(callback);
+			}
+		
+		if (direction == 0) return;
+		int step = direction > 0 ? 1 : -1;
+		for (int i = 1; i <= prefetch_count; i++){
+			int next = section + i * step;
+			if (!isCached(section_set, next))
+				schedule(section_set, next, PRIORITY_PREFETCH);
+			}
+	}
+	
+	/*************************************************************
+	 * Removes all entries from the cache and cancels pending prefetches.
+	 * 
+	 */
+	public synchronized void clear(){
+		for (PrioritizedTask task : pending.values()){
+			if (task.priority == PRIORITY_PREFETCH && getExecutor().remove(task))
+				task.cancel(false);
+			}
+		Iterator<Key> itr = new HashMap<Key, Entry>(cache).keySet().iterator();
+		while (itr.hasNext())
+			remove(itr.next());
+	}
+	
+	protected synchronized PrioritizedTask schedule(final SectionSet3DInt section_set, final int section, int priority){
+		final Key key = new Key(section_set, section);
+		PrioritizedTask task = pending.get(key);
+		if (task != null){
+			// Promote a pending prefetch to a request
+			if (priority < task.priority && getExecutor().remove(task)){
+				task.priority = priority;
+				getExecutor().execute(task);
+				}
+			return task;
+			}
+		
+		final long version = getVersion(section_set);
+		task = new PrioritizedTask(new Callable<ShapeSet2DInt>(){
+			public ShapeSet2DInt call() throws Exception{
+				ShapeSet2DInt shapes = compute(section_set, section);
+				store(key, version, shapes);
+				return shapes;
+				}
+			}, key, priority);
+		pending.put(key, task);
+		getExecutor().execute(task);
+		return task;
+	}
+	
+	protected synchronized void store(Key key, long version, ShapeSet2DInt shapes){
+		pending.remove(key);
+		if (shapes == null) return;
+		Entry existing = cache.get(key);
+		if (existing != null && existing.shapes != shapes && existing.shapes != in_use)
+			existing.shapes.destroy();
+		cache.put(key, new Entry(shapes, version));
+		trim();
+	}
+	
+	protected synchronized void trim(){
+		while (cache.size() > capacity){
+			Key eldest = cache.keySet().iterator().next();
+			remove(eldest);
+			}
+	}
+	
+	protected synchronized void remove(Key key){
+		Entry entry = cache.remove(key);
+		if (entry != null && entry.shapes != in_use)
+			entry.shapes.destroy();
+	}
+	
+	/*************************************************************
+	 * Computes the intersections of the model of {@code section_set} with {@code section}.
+	 * 
+	 * @param section_set
+	 * @param section
+	 * @return
+	 */
+	protected ShapeSet2DInt compute(SectionSet3DInt section_set, int section){
+		ShapeModel3D model = section_set.getModel();
+		if (model == null || model.getModelSet() == null) return null;
+		Plane3D plane = section_set.getPlaneAt(section);
+		if (plane == null) return null;
+		
+		// Don't register the new shapes as children of their 3D parents here; that list is
+		// used on the event dispatch thread, so they are attached there when displayed
+		Shape2DInt shape = null;
+		Shape2DInt.setDeferAttach(true);
+		try{
+			shape = model.getModelSet().getShape2DInt(plane, 
+													  section_set.getClipDistUp(), 
+													  section_set.getClipDistDown(), 
+													  false);
+		}finally{
+			Shape2DInt.setDeferAttach(false);
+			}
+		if (!(shape instanceof ShapeSet2DInt)) return null;
+		return (ShapeSet2DInt)shape;
+	}
+	
+	/*************************************************************
+	 * Returns a version for the model and section set, which changes whenever any of their shapes
+	 * are modified.
+	 * 
+	 * @param section_set
+	 * @return
+	 */
+	protected long getVersion(SectionSet3DInt section_set){
+		long version = section_set.getModificationCount();
+		ShapeModel3D model = section_set.getModel();
+		if (model == null || model.getModelSet() == null) return version;
+		return version * 31 + getVersion(model.getModelSet());
+	}
+	
+	protected long getVersion(Shape3DInt shape){
+		long version = shape.getModificationCount();
+		if (shape instanceof ShapeSet3DInt){
+			ShapeSet3DInt set = (ShapeSet3DInt)shape;
+			version = version * 31 + set.members.size();
+			for (int i = 0; i < set.members.size(); i++)
+				version = version * 31 + getVersion(set.members.get(i));
+			}
+		return version;
+	}
+	
+	static synchronized ThreadPoolExecutor getExecutor(){
+		if (executor == null){
+			int threads = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+			final AtomicInteger count = new AtomicInteger();
+			executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, 
+											  new PriorityBlockingQueue<Runnable>(),
+											  new ThreadFactory(){
+												public Thread newThread(Runnable r){
+													Thread thread = new Thread(r, "mgui-sections-" + count.incrementAndGet());
+													thread.setDaemon(true);
+													thread.setPriority(Thread.NORM_PRIORITY - 1);
+													return thread;
+													}
+												});
+			executor.allowCoreThreadTimeOut(true);
+			}
+		return executor;
+	}
+	
+	static class Key {
+		final SectionSet3DInt section_set;
+		final int section;
+		
+		Key(SectionSet3DInt section_set, int section){
+			this.section_set = section_set;
+			this.section = section;
+		}
+		
+		@Override
+		public int hashCode(){
+			return System.identityHashCode(section_set) * 31 + section;
+		}
+		
+		@Override
+		public boolean equals(Object o){
+			if (!(o instanceof Key)) return false;
+			Key other = (Key)o;
+			return other.section_set == section_set && other.section == section;
+		}
+	}
+	
+	static class Entry {
+		final ShapeSet2DInt shapes;
+		final long version;
+		
+		Entry(ShapeSet2DInt shapes, long version){
+			this.shapes = shapes;
+			this.version = version;
+		}
+	}
+	
+	/*************************************************************
+	 * Task ordered by priority (requests before prefetches), then most recent first, so that the
+	 * section being scrolled to is computed before older requests.
+	 *
+	 */
+	class PrioritizedTask extends FutureTask<ShapeSet2DInt> implements Comparable<PrioritizedTask> {
+		
+		final Key key;
+		volatile int priority;
+		final long order = sequence.incrementAndGet();
+		final ArrayList<Callback> callbacks = new ArrayList<Callback>();
+		
+		PrioritizedTask(Callable<ShapeSet2DInt> callable, Key key, int priority){
+			super(callable);
+			this.key = key;
+			this.priority = priority;
+		}
+		
+		synchronized void addCallback(Callback callback){
+			if (isDone()){
+				deliver(callback);
+				return;
+				}
+			callbacks.add(callback);
+		}
+		
+		@Override
+		protected void done(){
+			synchronized(SectionIntersectionService.this){
+				if (pending.get(key) == this)
+					pending.remove(key);
+				}
+			ArrayList<Callback> to_call;
+			synchronized(this){
+				to_call = new ArrayList<Callback>(callbacks);
+				callbacks.clear();
+				}
+			for (int i = 0; i < to_call.size(); i++)
+				deliver(to_call.get(i));
+		}
+		
+		void deliver(final Callback callback){
+			if (isCancelled()) return;
+			final ShapeSet2DInt shapes;
+			try{
+				shapes = get();
+			}catch (Exception ex){
+				InterfaceSession.log("SectionIntersectionService: Error computing section " + key.section + ": " + 
+									 ex.getMessage(), LoggingType.Errors);
+				return;
+				}
+			SwingUtilities.invokeLater(new Runnable(){
+				public void run(){
+					callback.intersectionsReady(key.section_set, key.section, shapes);
+					}
+				});
+		}
+		
+		public int compareTo(PrioritizedTask other){
+			if (priority != other.priority)
+				return priority < other.priority ? -1 : 1;
+			if (order == other.order) return 0;
+			return order > other.order ? -1 : 1;
+		}
+		
+	}
+	
+}
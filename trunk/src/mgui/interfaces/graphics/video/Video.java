@@ -31,6 +31,7 @@ import mgui.interfaces.ProgressUpdater;
 import mgui.interfaces.attributes.Attribute;
 import mgui.interfaces.attributes.AttributeList;
 import mgui.interfaces.graphics.InterfaceGraphic;
+import mgui.interfaces.util.TaskEngine;
 import mgui.interfaces.xml.XMLFunctions;
 import mgui.interfaces.xml.XMLObject;
 import mgui.io.standard.xml.XMLOutputOptions;
@@ -38,7 +39,6 @@ import mgui.io.standard.xml.XMLOutputOptions;
 import org.xml.sax.Attributes;
 
 import foxtrot.Job;
-import foxtrot.Worker;
 
 /*********************************************************
  * Represents a video schedule, using a list of <code>VideoTask</code> objects which are activated at
@@ -232,7 +232,7 @@ public abstract class Video extends AbstractInterfaceObject implements XMLObject
 		
 		final VideoEvent ev = new VideoEvent(this);
 		
-		Worker.post(new Job(){
+		TaskEngine.post(new Job(){
 			@Override
 			public Boolean run(){
 				
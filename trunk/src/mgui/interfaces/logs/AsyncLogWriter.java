@@ -0,0 +1,299 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.interfaces.logs;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*******************************
+ * Writes log messages to file asynchronously. Messages are added to a lock-free queue by 
+ * {@link #write(File, String, long, boolean)}, which returns immediately; a single writer thread
+ * drains the queue in batches, formats timestamps, and writes to a persistent buffered file handle,
+ * which is flushed after each batch.
+ * 
+ * <p>When the current log file exceeds {@link #getMaxFileSize()} bytes, it is rotated: existing backups
+ * are renamed {@code <file>.1 ... <file>.n} (up to {@link #getMaxBackups()}), and a new file is started.
+ * 
+ * <p>A shutdown hook flushes pending messages when the JVM exits; {@link #flush(long)} can be used to
+ * wait explicitly.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class AsyncLogWriter {
+
+	protected static final String TIMESTAMP_FORMAT = "yyyy.MM.dd hh:mm:ss z";
+	
+	protected final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<Entry>();
+	protected final AtomicLong submitted = new AtomicLong();
+	protected volatile long written = 0;
+	protected volatile boolean is_parked = false;
+	protected volatile boolean is_shutdown = false;
+	
+	protected Thread writer_thread;
+	
+	protected long max_file_size = 10L * 1024L * 1024L;
+	protected int max_backups = 5;
+	
+	// Only accessed by the writer thread
+	protected File current_file;
+	protected Writer writer;
+	protected long current_size;
+	protected final SimpleDateFormat timestamp_format = new SimpleDateFormat(TIMESTAMP_FORMAT);
+	
+	public AsyncLogWriter(){
+		
+		writer_thread = new Thread(new Runnable(){
+			public void run(){
+				writeLoop();
+				}
+			}, "mgui-log-writer");
+		writer_thread.setDaemon(true);
+		writer_thread.setPriority(Thread.NORM_PRIORITY - 1);
+		writer_thread.start();
+		
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable(){
+			public void run(){
+				shutdown(2000);
+				}
+			}, "mgui-log-flush"));
+		
+	}
+	
+	/*******************************
+	 * Returns the size, in bytes, at which the log file is rotated.
+	 * 
+	 * @return
+	 */
+	public long getMaxFileSize(){
+		return max_file_size;
+	}
+	
+	/*******************************
+	 * Sets the size, in bytes, at which the log file is rotated; a value {@code <= 0} disables rotation.
+	 * 
+	 * @param size
+	 */
+	public void setMaxFileSize(long size){
+		max_file_size = size;
+	}
+	
+	/*******************************
+	 * Returns the number of rotated log files retained.
+	 * 
+	 * @return
+	 */
+	public int getMaxBackups(){
+		return max_backups;
+	}
+	
+	public void setMaxBackups(int n){
+		max_backups = Math.max(0, n);
+	}
+	
+	/*******************************
+	 * Queues {@code message} to be written to {@code file}. 
+	 * 
+	 * @param file			File to write to
+	 * @param message		Message to write
+	 * @param time			Time of the message, in milliseconds since the epoch
+	 * @param timestamp		Whether to prefix the message with a timestamp
+	 * @return {@code false} if this writer has been shut down
+	 */
+	public boolean write(File file, String message, long time, boolean timestamp){
+		if (is_shutdown) return false;
+		queue.offer(new Entry(file, message, time, timestamp));
+		submitted.incrementAndGet();
+		if (is_parked)
+			LockSupport.unpark(writer_thread);
+		return true;
+	}
+	
+	/*******************************
+	 * Blocks until all messages queued before this call have been written and flushed, or until
+	 * {@code timeout} milliseconds have elapsed.
+	 * 
+	 * @param timeout
+	 * @return {@code true} if all messages were written
+	 */
+	public boolean flush(long timeout){
+		long target = submitted.get();
+		long end = System.currentTimeMillis() + timeout;
+		while (written < target){
+			if (!writer_thread.isAlive() || System.currentTimeMillis() >= end) 
+				return false;
+			LockSupport.unpark(writer_thread);
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(2));
+			}
+		return true;
+	}
+	
+	/*******************************
+	 * Flushes pending messages and stops the writer thread. Further messages are rejected.
+	 * 
+	 * @param timeout 		Maximum time to wait, in milliseconds
+	 */
+	public void shutdown(long timeout){
+		if (is_shutdown) return;
+		flush(timeout);
+		is_shutdown = true;
+		LockSupport.unpark(writer_thread);
+		try{
+			writer_thread.join(timeout);
+		}catch (InterruptedException ex){
+			Thread.currentThread().interrupt();
+			}
+	}
+	
+	public boolean isShutdown(){
+		return is_shutdown;
+	}
+	
+	protected void writeLoop(){
+		
+		StringBuilder line = new StringBuilder(256);
+		
+		while (true){
+			Entry entry = queue.poll();
+			if (entry == null){
+				flushWriter();
+				if (is_shutdown){
+					closeWriter();
+					return;
+					}
+				is_parked = true;
+				// Re-check after advertising that we are parked, so a racing offer is not missed
+				if (queue.isEmpty())
+					LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(500));
+				is_parked = false;
+				continue;
+				}
+			
+			// Drain a batch
+			long count = 0;
+			while (entry != null){
+				line.setLength(0);
+				if (entry.timestamp)
+					line.append(timestamp_format.format(new Date(entry.time))).append(": ");
+				line.append(entry.message).append('\n');
+				writeLine(entry.file, line);
+				count++;
+				entry = queue.poll();
+				}
+			flushWriter();
+			written += count;
+			}
+		
+	}
+	
+	protected void writeLine(File file, CharSequence line){
+		try{
+			if (writer == null || !file.equals(current_file))
+				openWriter(file);
+			if (max_file_size > 0 && current_size + line.length() > max_file_size && current_size > 0){
+				closeWriter();
+				rotate(file);
+				openWriter(file);
+				}
+			writer.append(line);
+			current_size += line.length();
+		}catch (IOException ex){
+			System.err.println("AsyncLogWriter: Error writing to log file: " + file.getAbsolutePath());
+			closeWriter();
+			}
+	}
+	
+	protected void openWriter(File file) throws IOException{
+		closeWriter();
+		File dir = file.getParentFile();
+		if (dir != null && !dir.exists()) dir.mkdirs();
+		current_file = file;
+		current_size = file.exists() ? file.length() : 0;
+		writer = new BufferedWriter(new FileWriter(file, true), 1 << 16);
+	}
+	
+	protected void flushWriter(){
+		if (writer == null) return;
+		try{
+			writer.flush();
+		}catch (IOException ex){
+			System.err.println("AsyncLogWriter: Error flushing log file: " + current_file.getAbsolutePath());
+			closeWriter();
+			}
+	}
+	
+	protected void closeWriter(){
+		if (writer == null) return;
+		try{
+			writer.close();
+		}catch (IOException ex){
+			System.err.println("AsyncLogWriter: Error closing log file: " + current_file.getAbsolutePath());
+			}
+		writer = null;
+		current_file = null;
+		current_size = 0;
+	}
+	
+	/*******************************
+	 * Shifts {@code file} and its backups along by one, discarding the oldest.
+	 * 
+	 * @param file
+	 */
+	protected void rotate(File file){
+		if (max_backups == 0){
+			file.delete();
+			return;
+			}
+		File oldest = new File(file.getAbsolutePath() + "." + max_backups);
+		if (oldest.exists()) oldest.delete();
+		for (int i = max_backups - 1; i > 0; i--){
+			File backup = new File(file.getAbsolutePath() + "." + i);
+			if (backup.exists())
+				backup.renameTo(new File(file.getAbsolutePath() + "." + (i + 1)));
+			}
+		file.renameTo(new File(file.getAbsolutePath() + ".1"));
+	}
+	
+	static class Entry {
+		final File file;
+		final String message;
+		final long time;
+		final boolean timestamp;
+		
+		Entry(File file, String message, long time, boolean timestamp){
+			this.file = file;
+			this.message = message;
+			this.time = time;
+			this.timestamp = timestamp;
+		}
+	}
+	
+}
@@ -43,9 +43,9 @@ import mgui.interfaces.gui.InterfaceProgressBar;
 import mgui.interfaces.layouts.LineLayout;
 import mgui.interfaces.layouts.LineLayoutConstraints;
 import mgui.interfaces.logs.LoggingType;
+import mgui.interfaces.util.TaskEngine;
 import mgui.util.StringFunctions;
 import foxtrot.Task;
-import foxtrot.Worker;
 
 /*********************************************************
  * Defines parameters for a consolidation of directories into one directory. See
@@ -174,7 +174,7 @@ public class ConsolidateDirectoriesDialogBox extends InterfaceOptionsDialogBox {
 		
 		try{
 
-			boolean success = (Boolean)Worker.post(new Task(){
+			boolean success = (Boolean)TaskEngine.post(new Task(){
 				
 				public Boolean run(){
 					return ProjectFunctions.consolidateDirectories(parameters, progress);
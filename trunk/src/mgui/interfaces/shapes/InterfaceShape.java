@@ -33,7 +33,9 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 import javax.swing.Icon;
@@ -166,6 +168,8 @@ public abstract class InterfaceShape extends AbstractInterfaceObject
 	
 	protected boolean is_registered = false;
 	
+	protected transient volatile long modification_count = 0;
+	
 /*********** ABSTRACT METHODS **********************/
 	
 	public abstract void drawShape2D(Graphics2D g, DrawingEngine d);
@@ -2419,17 +2423,18 @@ public abstract class InterfaceShape extends AbstractInterfaceObject
 	}
 	
 	protected void fireShapeListeners(ShapeEvent e){
-		ArrayList<ShapeListener> currentListeners = new ArrayList<ShapeListener>(shapeListeners);
-		int j = 0;
-		for (int i = 0; i < currentListeners.size(); i++)
-			if (currentListeners.get(i).isDestroyed())
-				shapeListeners.remove(j);
-			else
-				j++;
+		if (deferShapeEvent(e)) return;
+		modification_count++;
 		
-		currentListeners = new ArrayList<ShapeListener>(shapeListeners);
+		// Remove destroyed listeners and notify the remainder, iterating over a copy since 
+		// listeners may modify the list
+		ArrayList<ShapeListener> currentListeners = new ArrayList<ShapeListener>(shapeListeners);
 		for (int i = 0; i < currentListeners.size(); i++){
-			currentListeners.get(i).shapeUpdated(e);
+			ShapeListener listener = currentListeners.get(i);
+			if (listener.isDestroyed())
+				shapeListeners.remove(listener);
+			else
+				listener.shapeUpdated(e);
 			}
 		
 		//fire tree node listeners; remove any which are destroyed
@@ -2446,6 +2451,248 @@ public abstract class InterfaceShape extends AbstractInterfaceObject
 		last_column_changed = null;
 	}
 	
+	/***********************************************
+	 * Returns a count which is incremented every time this shape fires an event; it can be used
+	 * to determine whether objects derived from this shape (e.g., cached 2D sections) are stale.
+	 * 
+	 * @return
+	 */
+	public long getModificationCount(){
+		return modification_count;
+	}
+	
+	/***********************************************
+	 * Starts a batch of shape events on the current thread. Until the matching call to {@link #endBatch()},
+	 * events which only signal that a shape has changed (see {@link #isCoalescable(ShapeEvent)}) are not
+	 * delivered; instead, they are collected and delivered once per shape and event type when the
+	 * outermost batch ends. Vertex column events are also collected, along with the columns they refer to.
+	 * Other structural events (e.g., shapes added or removed) are still delivered immediately, since their 
+	 * listeners depend on the state of the shape at the time they are fired.
+	 * 
+	 * <p>Batches can be started on any thread, including the event dispatch thread. Work posted to another
+	 * thread (e.g., through {@code TaskEngine}) should open its own batch there. While a thread pumps events
+	 * as it waits for posted work, its batch is suspended (see {@link #suspendBatch()}), so that unrelated 
+	 * events are not deferred into it.
+	 * 
+	 * <p>Batches can be nested; each call must be matched by a call to {@link #endBatch()}, normally in a 
+	 * {@code finally} block.
+	 * 
+	 */
+	public static void beginBatch(){
+		ShapeEventBatch batch = event_batch.get();
+		if (batch == null){
+			batch = new ShapeEventBatch();
+			event_batch.set(batch);
+			}
+		batch.depth++;
+	}
+	
+	/***********************************************
+	 * Ends a batch of shape events started with {@link #beginBatch()}. If this ends the outermost batch,
+	 * the coalesced events are delivered, in the order they were first fired.
+	 * 
+	 */
+	public static void endBatch(){
+		ShapeEventBatch batch = event_batch.get();
+		if (batch == null || batch.depth == 0) return;
+		batch.depth--;
+		if (batch.depth > 0) return;
+		event_batch.remove();
+		
+		for (ShapeEvent e : batch.events.values()){
+			try{
+				InterfaceShape shape = e.getShape();
+				ArrayList<VertexDataColumn> columns = batch.columns.get(e);
+				if (columns != null){
+					// Listeners which only need one column read the last one
+					e.setColumns(columns);
+					shape.setLastColumn(e.eventType, columns.get(columns.size() - 1));
+					}
+				shape.fireShapeListeners(e);
+			}catch (Exception ex){
+				InterfaceSession.handleException(ex);
+				}
+			}
+	}
+	
+	/***********************************************
+	 * Suspends the batch of shape events on the current thread, if there is one; until the matching call 
+	 * to {@link #resumeBatch()}, events fired on this thread are delivered immediately. Used while a thread
+	 * pumps events (e.g., the event dispatch thread waiting for posted work), since these are unrelated
+	 * to the batch. Suspensions can be nested.
+	 * 
+	 */
+	public static void suspendBatch(){
+		ShapeEventBatch batch = event_batch.get();
+		if (batch == null || batch.depth == 0) return;
+		batch.suspended++;
+	}
+	
+	/***********************************************
+	 * Resumes the batch of shape events on the current thread, suspended by {@link #suspendBatch()}.
+	 * 
+	 */
+	public static void resumeBatch(){
+		ShapeEventBatch batch = event_batch.get();
+		if (batch == null || batch.suspended == 0) return;
+		batch.suspended--;
+	}
+	
+	/***********************************************
+	 * Indicates whether a batch of shape events is active (and not suspended) on the current thread.
+	 * 
+	 * @return
+	 */
+	public static boolean isBatching(){
+		ShapeEventBatch batch = event_batch.get();
+		return batch != null && batch.depth > 0 && batch.suspended == 0;
+	}
+	
+	/***********************************************
+	 * Indicates whether {@code e} can be coalesced with other events of the same type for the same
+	 * shape, in a batch. These are events which signal only that the shape has changed, and whose
+	 * listeners respond by refreshing from its current state, and vertex column events, whose
+	 * columns are collected into the coalesced event.
+	 * 
+	 * @param e
+	 * @return
+	 */
+	protected static boolean isCoalescable(ShapeEvent e){
+		switch (e.eventType){
+			case General:
+			case ShapeModified:
+			case ShapeSetModified:
+			case AttributeModified:
+			case TextureModified:
+			case ClipModified:
+			case VertexColumnAdded:
+			case VertexColumnRemoved:
+			case VertexColumnChanged:
+				return true;
+			default:
+				return false;
+			}
+	}
+	
+	/***********************************************
+	 * If a batch is active on the current thread and {@code e} can be coalesced, adds it to the batch
+	 * (if no equivalent event is already there) and returns {@code true}; otherwise returns {@code false},
+	 * indicating that the event should be delivered now. Subclasses which override 
+	 * {@link #fireShapeListeners(ShapeEvent)} should call this first.
+	 * 
+	 * @param e
+	 * @return
+	 */
+	protected final boolean deferShapeEvent(ShapeEvent e){
+		ShapeEventBatch batch = event_batch.get();
+		if (batch == null || batch.depth == 0 || batch.suspended > 0 || !isCoalescable(e)) return false;
+		InterfaceShape shape = e.getShape();
+		ShapeEventBatch.Key key = new ShapeEventBatch.Key(shape, e.eventType);
+		ShapeEvent existing = batch.events.get(key);
+		if (existing == null){
+			batch.events.put(key, e);
+			existing = e;
+		}else if (e.modifiesShapeSet()){
+			existing.setModifiesShapeSet(true);
+			}
+		
+		// Column events refer to the shape's last added/removed/changed column, which is 
+		// reset after each event; keep these for delivery
+		VertexDataColumn column = shape.getLastColumn(e.eventType);
+		if (column != null){
+			ArrayList<VertexDataColumn> columns = batch.columns.get(existing);
+			if (columns == null){
+				columns = new ArrayList<VertexDataColumn>();
+				batch.columns.put(existing, columns);
+				}
+			if (!columns.contains(column))
+				columns.add(column);
+			shape.setLastColumn(e.eventType, null);
+			}
+		return true;
+	}
+	
+	/***********************************************
+	 * Returns the last column added, removed, or changed, for the given event type; or {@code null} if
+	 * {@code type} is not a vertex column event.
+	 * 
+	 * @param type
+	 * @return
+	 */
+	protected VertexDataColumn getLastColumn(ShapeEvent.EventType type){
+		switch (type){
+			case VertexColumnAdded:
+				return last_column_added;
+			case VertexColumnRemoved:
+				return last_column_removed;
+			case VertexColumnChanged:
+				return last_column_changed;
+			default:
+				return null;
+			}
+	}
+	
+	/***********************************************
+	 * Sets the last column added, removed, or changed, for the given event type.
+	 * 
+	 * @param type
+	 * @param column
+	 */
+	protected void setLastColumn(ShapeEvent.EventType type, VertexDataColumn column){
+		switch (type){
+			case VertexColumnAdded:
+				last_column_added = column;
+				return;
+			case VertexColumnRemoved:
+				last_column_removed = column;
+				return;
+			case VertexColumnChanged:
+				last_column_changed = column;
+				return;
+			default:
+				return;
+			}
+	}
+	
+	static final ThreadLocal<ShapeEventBatch> event_batch = new ThreadLocal<ShapeEventBatch>();
+	
+	/***********************************************
+	 * Shape events collected during a batch, keyed by shape (identity) and event type, along with
+	 * the columns referred to by coalesced vertex column events.
+	 *
+	 */
+	static class ShapeEventBatch {
+		
+		int depth = 0;
+		int suspended = 0;
+		final LinkedHashMap<Key, ShapeEvent> events = new LinkedHashMap<Key, ShapeEvent>();
+		final IdentityHashMap<ShapeEvent, ArrayList<VertexDataColumn>> columns = 
+											new IdentityHashMap<ShapeEvent, ArrayList<VertexDataColumn>>();
+		
+		static class Key {
+			final InterfaceShape shape;
+			final ShapeEvent.EventType type;
+			
+			Key(InterfaceShape shape, ShapeEvent.EventType type){
+				this.shape = shape;
+				this.type = type;
+			}
+			
+			@Override
+			public int hashCode(){
+				return System.identityHashCode(shape) * 31 + type.ordinal();
+			}
+			
+			@Override
+			public boolean equals(Object o){
+				if (!(o instanceof Key)) return false;
+				Key other = (Key)o;
+				return other.shape == shape && other.type == type;
+			}
+		}
+		
+	}
+	
 	public void addShapeListener(ShapeListener thisListener){
 		for (int i = 0; i < shapeListeners.size(); i++)
 			if (shapeListeners.get(i).equals(thisListener)) return;
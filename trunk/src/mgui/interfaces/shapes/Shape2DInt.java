@@ -95,6 +95,7 @@ public abstract class Shape2DInt extends InterfaceShape
 	public Point2f centerPt;
 	public ShapeSceneNode sceneNode;
 	public Shape3DInt parentShape;
+	protected volatile boolean attached_to_parent = false;
 	public Shape3DInt child3D;
 	Attribute<?> modified_attribute;
 	protected HashMap<Integer,Integer> map_idx_to_parent;
@@ -247,8 +248,7 @@ public abstract class Shape2DInt extends InterfaceShape
 	public void destroy(ShapeEvent event){
 		isDestroyed = true;
 		//remove pointer in parent shape if one exists
-		if (parentShape != null)
-			parentShape.removeShape2DChild(this);
+		detachFromParent();
 		if (event != null)
 			fireShapeListeners(event);
 	}
@@ -299,14 +299,60 @@ public abstract class Shape2DInt extends InterfaceShape
 	}
 	
 	public void setParentShape(Shape3DInt shape){
-		if (parentShape != null) 
+		if (parentShape != null && attached_to_parent) 
 			parentShape.removeShape2DChild(this);
 		parentShape = shape;
-		parentShape.addShape2DChild(this);
+		attached_to_parent = false;
+		if (!defer_attach.get().booleanValue()){
+			parentShape.addShape2DChild(this);
+			attached_to_parent = true;
+			}
 		ShapeFunctions.setAttributesFrom3DParent(this, shape, false); // inheritAttributesFromParent());
 		
 	}
 	
+	/****************************************
+	 * Registers this shape as a 2D child of its parent shape, if it has one and is not already
+	 * registered. This must be called on the event dispatch thread for shapes created while
+	 * {@link #setDeferAttach(boolean)} was set.
+	 * 
+	 */
+	public void attachToParent(){
+		if (parentShape == null || attached_to_parent) return;
+		parentShape.addShape2DChild(this);
+		attached_to_parent = true;
+	}
+	
+	/****************************************
+	 * Removes this shape from its parent's 2D children, if it is registered; it keeps its reference
+	 * to the parent, and can be re-attached with {@link #attachToParent()}.
+	 * 
+	 */
+	public void detachFromParent(){
+		if (parentShape == null || !attached_to_parent) return;
+		parentShape.removeShape2DChild(this);
+		attached_to_parent = false;
+	}
+	
+	/****************************************
+	 * Sets whether 2D shapes created on the current thread are registered with their parent shapes
+	 * when it is set. Deferring this allows 2D shapes to be created off the event dispatch thread,
+	 * without modifying the parent's list of children, which is used there; they are then attached
+	 * with {@link #attachToParent()} when displayed.
+	 * 
+	 * @param defer
+	 */
+	public static void setDeferAttach(boolean defer){
+		defer_attach.set(Boolean.valueOf(defer));
+	}
+	
+	static final ThreadLocal<Boolean> defer_attach = new ThreadLocal<Boolean>(){
+		@Override
+		protected Boolean initialValue(){
+			return Boolean.FALSE;
+			}
+	};
+	
 	public Point2f getCenterPoint(){
 		return centerPt;
 	}
@@ -358,12 +404,16 @@ public abstract class Shape2DInt extends InterfaceShape
 	@Override
 	public void fireShapeListeners(ShapeEvent e){
 		if (!notifyListeners) return;
-		for (int i = 0; i < shapeListeners.size(); i++)
-			if (shapeListeners.get(i).isDestroyed())
-				shapeListeners.remove(i);
+		if (deferShapeEvent(e)) return;
+		modification_count++;
 		ArrayList<ShapeListener> currentListeners = new ArrayList<ShapeListener>(shapeListeners);
-		for (int i = 0; i < currentListeners.size(); i++)
-			currentListeners.get(i).shapeUpdated(e);
+		for (int i = 0; i < currentListeners.size(); i++){
+			ShapeListener listener = currentListeners.get(i);
+			if (listener.isDestroyed())
+				shapeListeners.remove(listener);
+			else
+				listener.shapeUpdated(e);
+			}
 		
 		ArrayList<InterfaceTreeNode> temp = new ArrayList<InterfaceTreeNode>(tree_nodes);
 		for (int i = 0; i < temp.size(); i++)
@@ -1192,6 +1192,7 @@ public abstract class Shape3DInt extends InterfaceShape
 	
 	@Override
 	protected void fireShapeListeners(ShapeEvent e){
+		if (deferShapeEvent(e)) return;
 		super.fireShapeListeners(e);
 		fireChildren2D(e);
 	}
@@ -282,41 +282,48 @@ public class ShapeModel3D extends AbstractInterfaceObject implements ShapeListen
 	}
 	
 	public void setModelSet(ShapeSet3DInt set){
-		if (modelSet != null){
-			// Remove 2D windows from current set
-			modelSet.clearWindows();
+		// Coalesce the shape events fired while the set is attached; the model is refreshed once below
+		InterfaceShape.beginBatch();
+		try{
+			if (modelSet != null){
+				// Remove 2D windows from current set
+				modelSet.clearWindows();
 			
-			// Remove camera listeners for all InterfaceGraphic3D windows
-			for (int i = 0; i < shape_listeners.size(); i++)
-				if (shape_listeners.get(i) instanceof InterfaceGraphic3D)
-					modelSet.deregisterCamera(((InterfaceGraphic3D)shape_listeners.get(i)).getCamera());
-			// Unset the model for the previous Shape Set
-			modelSet.setModel(null);
-			}
+				// Remove camera listeners for all InterfaceGraphic3D windows
+				for (int i = 0; i < shape_listeners.size(); i++)
+					if (shape_listeners.get(i) instanceof InterfaceGraphic3D)
+						modelSet.deregisterCamera(((InterfaceGraphic3D)shape_listeners.get(i)).getCamera());
+				// Unset the model for the previous Shape Set
+				modelSet.setModel(null);
+				}
 		
-		// Set this as the Shape Set's Shape Model
-		set.setModel(this);
+			// Set this as the Shape Set's Shape Model
+			set.setModel(this);
 		
-		// Set the Shape Set for this Shape Model
-		modelSet = set;
+			// Set the Shape Set for this Shape Model
+			modelSet = set;
 		
-		// Register the set with the current Session; if it is not already
-		set.register();
+			// Register the set with the current Session; if it is not already
+			set.register();
 		
-		// Set camera listeners for all InterfaceGraphic3D windows
-		for (int i = 0; i < shape_listeners.size(); i++)
-			if (shape_listeners.get(i) instanceof InterfaceGraphic3D)
-				modelSet.registerCamera(((InterfaceGraphic3D)shape_listeners.get(i)).getCamera());
-		
-		// Add 2D windows
-		if (getDisplayPanel() != null){
-			ArrayList<InterfaceGraphicWindow> windows = getDisplayPanel().getWindows();
-			for (int i = 0; i < windows.size(); i++){
-				if (windows.get(i).getPanel() instanceof InterfaceGraphic2D){
-					InterfaceGraphic2D window = (InterfaceGraphic2D)windows.get(i).getPanel();
-					modelSet.addWindow(window);
+			// Set camera listeners for all InterfaceGraphic3D windows
+			for (int i = 0; i < shape_listeners.size(); i++)
+				if (shape_listeners.get(i) instanceof InterfaceGraphic3D)
+					modelSet.registerCamera(((InterfaceGraphic3D)shape_listeners.get(i)).getCamera());
+		
+			// Add 2D windows
+			if (getDisplayPanel() != null){
+				ArrayList<InterfaceGraphicWindow> windows = getDisplayPanel().getWindows();
+				for (int i = 0; i < windows.size(); i++){
+					if (windows.get(i).getPanel() instanceof InterfaceGraphic2D){
+						InterfaceGraphic2D window = (InterfaceGraphic2D)windows.get(i).getPanel();
+						modelSet.addWindow(window);
+						}
 					}
 				}
+		
+		}finally{
+			InterfaceShape.endBatch();
 			}
 		
 		refreshModel();
@@ -277,12 +277,25 @@ public class ShapeSet2DInt extends Shape2DInt
 	public void destroy(){
 		isDestroyed = true;
 		//remove pointer in parent shape if one exists
-		if (parentShape != null)
-			parentShape.removeShape2DChild(this);
+		detachFromParent();
 		for (int i = 0; i < members.size(); i++)
 			members.get(i).destroy();
 	}
 	
+	@Override
+	public void attachToParent(){
+		super.attachToParent();
+		for (int i = 0; i < members.size(); i++)
+			members.get(i).attachToParent();
+	}
+	
+	@Override
+	public void detachFromParent(){
+		super.detachFromParent();
+		for (int i = 0; i < members.size(); i++)
+			members.get(i).detachFromParent();
+	}
+	
 	public boolean hasShape(InterfaceShape s){
 		return hasShape(s, true);
 	}
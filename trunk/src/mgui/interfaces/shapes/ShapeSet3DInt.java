@@ -1151,6 +1151,7 @@ public class ShapeSet3DInt extends Shape3DInt implements ShapeSet,
 	@Override
 	protected void fireShapeListeners(ShapeEvent e){
 	
+		if (deferShapeEvent(e)) return;
 		super.fireShapeListeners(e);
 		
 		if (e.getShape() instanceof SectionSet3DInt &&
@@ -34,6 +34,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.StringTokenizer;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
@@ -76,6 +78,7 @@ import mgui.numbers.MguiNumber;
 import mgui.numbers.MguiShort;
 import mgui.numbers.NumberFunctions;
 import mgui.resources.icons.IconObject;
+import mgui.stats.StreamingSummary;
 
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -102,6 +105,10 @@ public class VertexDataColumn extends AbstractInterfaceObject implements Compara
 	protected HashMap<String, LinkedDataStream<?>> linked_data = new HashMap<String, LinkedDataStream<?>>();
 	protected HashMap<String, Boolean> link_name_mapped = new HashMap<String, Boolean>();
 	protected TreeSet<VertexDataColumnListener> listeners = new TreeSet<VertexDataColumnListener>();
+	protected volatile StreamingSummary data_summary;
+	protected volatile int summary_version = -1;
+	protected final ReentrantLock summary_lock = new ReentrantLock();
+	protected final AtomicInteger data_version = new AtomicInteger();
 	
 	public VertexDataColumn(String name){
 		init();
@@ -193,6 +200,7 @@ public class VertexDataColumn extends AbstractInterfaceObject implements Compara
 	 */
 	public void updateDataLimits(boolean update){
 		if (data == null) return;
+		invalidateDataSummary();
 		double min = Double.MAX_VALUE;
 		double max = -Double.MAX_VALUE;
 		double v;
@@ -594,6 +602,7 @@ public class VertexDataColumn extends AbstractInterfaceObject implements Compara
 		if (data == null) data = new ArrayList<MguiNumber>();
 		data.clear();
 		data.addAll(values);
+		invalidateDataSummary();
 		
 		resetDataLimits(update);
 		
@@ -619,7 +628,11 @@ public class VertexDataColumn extends AbstractInterfaceObject implements Compara
 	 * @param value
 	 */
 	public void setDoubleValueAtVertex(int index, double value){
-		data.get(index).setValue(value);
+		MguiNumber number = data.get(index);
+		double old_value = number.getValue();
+		int version = data_version.incrementAndGet();
+		number.setValue(value);
+		valueSet(index, version - 1, updateDataSummary(version, old_value, value));
 	}
 	
 	/******************************************************
@@ -629,7 +642,134 @@ public class VertexDataColumn extends AbstractInterfaceObject implements Compara
 	 * @param value
 	 */
 	public void setValueAtVertex(int index, MguiNumber value){
+		double old_value = data.get(index).getValue();
+		int version = data_version.incrementAndGet();
 		data.set(index, value);
+		valueSet(index, version - 1, updateDataSummary(version, old_value, value.getValue()));
+	}
+	
+	/******************************************************
+	 * Called after a single value has been set through {@link #setValueAtVertex(int, MguiNumber)} or
+	 * {@link #setDoubleValueAtVertex(int, double)}. Subclasses can override this to keep derived data current;
+	 * data derived at {@code from_version} is current at {@code to_version} once it reflects the new value
+	 * at {@code index}. If {@code to_version} is {@code -1}, other changes intervened and derived data
+	 * cannot be updated this way. The default does nothing.
+	 * 
+	 * @param index			the index of the value which was set
+	 * @param from_version	the data version immediately before this change
+	 * @param to_version	the data version immediately after this change, or {@code -1}
+	 */
+	protected void valueSet(int index, int from_version, int to_version){
+		
+	}
+	
+	/******************************************************
+	 * Returns a summary (moments, histogram and quantile sketch) of this column's values. The summary
+	 * is computed in parallel on first request, and thereafter maintained incrementally by
+	 * {@link #setValueAtVertex(int, MguiNumber)} and {@link #setDoubleValueAtVertex(int, double)}, as
+	 * long as values are not being set concurrently. 
+	 * It is recomputed after {@link #setValues(ArrayList)} or {@link #updateDataLimits()}; callers 
+	 * which modify the array returned by {@link #getData()} directly should call one of these, or 
+	 * {@link #invalidateDataSummary()}.
+	 * 
+	 * @return
+	 */
+	public StreamingSummary getDataSummary(){
+		summary_lock.lock();
+		try{
+			StreamingSummary summary = data_summary;
+			if (summary != null && summary_version == data_version.get()) return summary;
+			if (data == null) return null;
+			int version = data_version.get();
+			summary = StreamingSummary.getSummary(getDataAsDouble());
+			data_summary = summary;
+			// If values were set while building, the summary is stale and will be rebuilt when next requested 
+			summary_version = data_version.get() == version ? version : -1;
+			return summary;
+		}finally{
+			summary_lock.unlock();
+			}
+	}
+	
+	/******************************************************
+	 * Returns this column's data summary if it is current, without building it; otherwise returns
+	 * {@code null}. See {@link #getDataSummary()}.
+	 * 
+	 * @return
+	 */
+	public StreamingSummary getCurrentDataSummary(){
+		StreamingSummary summary = data_summary;
+		if (summary != null && summary_version == data_version.get()) return summary;
+		return null;
+	}
+	
+	/******************************************************
+	 * Discards this column's data summary; it will be recomputed on the next call to
+	 * {@link #getDataSummary()}.
+	 * 
+	 */
+	public void invalidateDataSummary(){
+		data_version.incrementAndGet();
+		data_summary = null;
+	}
+	
+	/******************************************************
+	 * Returns the version of this column's data. This is incremented whenever values are set through
+	 * this column's methods, or its data summary is invalidated, and can be used by callers to determine
+	 * whether data derived from this column (e.g., cached images) is stale.
+	 * 
+	 * @return
+	 */
+	public int getDataVersion(){
+		return data_version.get();
+	}
+	
+	/******************************************************
+	 * Called after a single value has been set. The data version is incremented once before a value is set
+	 * (giving {@code version}) and once after; the change is applied to the data summary only if the summary
+	 * was current before this change and no other change has intervened. Writers never wait for each other:
+	 * if values are set concurrently (e.g., parallel writes to a whole volume), or a rebuild is in progress,
+	 * the summary is simply left stale and rebuilt when next requested.
+	 * 
+	 * @param version 	the data version obtained before the value was set
+	 * @param old_value
+	 * @param new_value
+	 * @return			the data version after this change, or {@code -1} if other changes intervened
+	 */
+	protected int updateDataSummary(int version, double old_value, double new_value){
+		if (data_summary == null || summary_version != version - 1 || !summary_lock.tryLock())
+			return endChange(version);
+		try{
+			StreamingSummary summary = data_summary;
+			if (summary == null || summary_version != version - 1 || data_version.get() != version)
+				return endChange(version);
+			if (!summary.inRange(new_value)){
+				data_summary = null;		// Outside the histogram range; rebuild when next needed
+				return endChange(version);
+				}
+			summary.replace(old_value, new_value);
+			if (data_version.compareAndSet(version, version + 1)){
+				summary_version = version + 1;
+				return version + 1;
+				}
+			summary_version = -1;
+			data_version.incrementAndGet();
+			return -1;
+		}finally{
+			summary_lock.unlock();
+			}
+	}
+	
+	/******************************************************
+	 * Increments the data version after a value has been set, where {@code version} was obtained before it
+	 * was set. 
+	 * 
+	 * @param version
+	 * @return			the data version after this change, or {@code -1} if other changes intervened
+	 */
+	private int endChange(int version){
+		int after = data_version.incrementAndGet();
+		return after == version + 1 ? after : -1;
 	}
 	
 	/******************************************************
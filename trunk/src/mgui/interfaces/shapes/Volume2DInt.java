@@ -22,19 +22,26 @@ package mgui.interfaces.shapes;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.HashMap;
 
 import org.jogamp.java3d.BranchGroup;
 import org.jogamp.vecmath.Point2f;
 import org.jogamp.vecmath.Vector2f;
 
+import mgui.geometry.Grid3D;
 import mgui.geometry.Plane3D;
 import mgui.geometry.Polygon2D;
 import mgui.geometry.Polygon3D;
 import mgui.geometry.Rect2D;
 import mgui.geometry.Rect3D;
+import mgui.geometry.util.GeometryFunctions;
+import mgui.image.util.WindowedColourModel;
 import mgui.interfaces.attributes.Attribute;
 import mgui.interfaces.graphics.util.DrawingEngine;
 import mgui.interfaces.shapes.attributes.ShapeAttribute;
+import mgui.interfaces.shapes.volume.GridVertexDataColumn;
+import mgui.interfaces.shapes.volume.VolumePyramid;
 import mgui.numbers.MguiBoolean;
 
 
@@ -42,6 +49,13 @@ import mgui.numbers.MguiBoolean;
  * 2D sectional representation of a Volume3DInt. Extends Image2DInt to draw the 
  * polygon which intersects the plane on which this image is drawn.
  * 
+ * <p>The section image is sampled at full voxel resolution. For sections of a single volume which are
+ * parallel to one of its axes, when the window is zoomed out so that a voxel spans less than half a 
+ * screen pixel, the section is instead sampled from a level of the volume's pyramid (see 
+ * {@link GridVertexDataColumn#getPyramid()}), chosen with {@link VolumePyramid#getLevelForScale(double)}. 
+ * Pyramid levels are computed in the background; the full resolution image is drawn until the level is 
+ * ready, at which point this shape is redrawn.
+ * 
  * @author Andrew Reid
  * @version 1.0
  * @since 1.0
@@ -54,6 +68,17 @@ public class Volume2DInt extends Image2DInt {
 	public Polygon3DInt planePoly;
 	public BranchGroup scanNodes;
 	
+	// Source of pyramid levels, for axis-aligned sections of a single volume
+	protected Volume3DInt pyramid_volume;
+	protected Plane3D pyramid_plane;
+	protected Point2f pyramid_start;
+	protected float pyramid_res;
+	
+	// Images sampled from pyramid levels, with the levels and mask versions they were sampled from
+	protected HashMap<Integer, BufferedImage> image_levels = new HashMap<Integer, BufferedImage>();
+	protected HashMap<Integer, VolumePyramid.Level> image_levels_source = new HashMap<Integer, VolumePyramid.Level>();
+	protected int image_levels_mask_version = -1;
+	
 	public Volume2DInt(){
 		super();
 		init();
@@ -85,7 +110,12 @@ public class Volume2DInt extends Image2DInt {
 	
 	@Override
 	public void draw(Graphics2D g, DrawingEngine d){
-		d.drawImage2D(g, (Rect2D)thisShape, image);
+		BufferedImage level_image = image;
+		if (image != null && image.getWidth() > 0){
+			double pixels_per_voxel = (double)d.getScreenDist(((Rect2D)thisShape).getWidth()) / image.getWidth();
+			level_image = getImageLevel(VolumePyramid.getLevelForScale(pixels_per_voxel));
+			}
+		d.drawImage2D(g, (Rect2D)thisShape, level_image);
 		
 		//draw polygon outline if required
 		if (outline != null && ((MguiBoolean)attributes.getValue("2D.ShowPolygon")).getTrue()){
@@ -94,6 +124,109 @@ public class Volume2DInt extends Image2DInt {
 			}
 	}
 	
+	/****************************************
+	 * Sets the volume from whose pyramid the levels of this section are sampled. {@code volume} must not be
+	 * composite, and {@code plane} must be parallel to one of its axes. Pixel [i, j] (from the bottom left)
+	 * of this section's image was sampled at {@code start + (i, j) * sample_res}, in plane coordinates.
+	 * 
+	 * @param volume
+	 * @param plane
+	 * @param start
+	 * @param sample_res
+	 */
+	public synchronized void setPyramidSource(Volume3DInt volume, Plane3D plane, Point2f start, float sample_res){
+		this.pyramid_volume = volume;
+		this.pyramid_plane = plane;
+		this.pyramid_start = new Point2f(start);
+		this.pyramid_res = sample_res;
+		image_levels.clear();
+		image_levels_source.clear();
+	}
+	
+	/****************************************
+	 * Returns an image of this section sampled from level {@code level} of its volume's pyramid (or the
+	 * coarsest level if there are fewer levels). Level 0, or a level for a section with no pyramid source 
+	 * (see {@link #setPyramidSource(Volume3DInt, Plane3D, Point2f, float)}), returns the full resolution 
+	 * image. If the level is not yet available, it is requested in the background, this shape is redrawn 
+	 * when it is ready, and the full resolution image is returned in the meantime.
+	 * 
+	 * @param level
+	 * @return
+	 */
+	public synchronized BufferedImage getImageLevel(final int level){
+		if (image == null || level <= 0 || pyramid_volume == null) return image;
+		if (!(image.getColorModel() instanceof WindowedColourModel) ||
+				!(pyramid_volume.getCurrentDataColumn() instanceof GridVertexDataColumn)) return image;
+		
+		VolumePyramid pyramid = ((GridVertexDataColumn)pyramid_volume.getCurrentDataColumn()).getPyramid();
+		int l = Math.min(level, pyramid.getMaximumLevel());
+		if (l <= 0) return image;
+		
+		VolumePyramid.Level p_level = pyramid.getAvailableLevel(l);
+		if (p_level == null){
+			pyramid.requestLevel(l, new Runnable(){
+				public void run(){
+					fireShapeModified();
+					}
+				});
+			return image;
+			}
+		
+		int mask_version = pyramid_volume.getMaskVersion();
+		if (mask_version != image_levels_mask_version){
+			image_levels.clear();
+			image_levels_source.clear();
+			image_levels_mask_version = mask_version;
+			}
+		
+		BufferedImage level_image = image_levels.get(l);
+		if (level_image == null || image_levels_source.get(l) != p_level){
+			level_image = getLevelImage(p_level);
+			image_levels.put(l, level_image);
+			image_levels_source.put(l, p_level);
+			}
+		return level_image;
+	}
+	
+	/****************************************
+	 * Samples this section from {@code p_level}, taking the pyramid voxel containing the centre of each 
+	 * block of 2<sup>L</sup> x 2<sup>L</sup> full resolution pixels. Pyramid voxels are averages of 
+	 * continuous data, or the most frequent value of discrete data, so labels are not blended.
+	 * 
+	 * @param p_level
+	 * @return
+	 */
+	protected BufferedImage getLevelImage(VolumePyramid.Level p_level){
+		
+		int scale = p_level.getScale();
+		int shift = p_level.getLevel();
+		int width = (image.getWidth() + scale - 1) / scale;
+		int height = (image.getHeight() + scale - 1) / scale;
+		
+		Grid3D grid = pyramid_volume.getGrid();
+		WindowedColourModel colour_model = (WindowedColourModel)image.getColorModel();
+		WritableRaster raster = colour_model.createCompatibleWritableRaster(width, height);
+		BufferedImage level_image = new BufferedImage(colour_model, raster, false, null);
+		double[] pixel = new double[1];
+		Point2f pt = new Point2f();
+		
+		for (int y = 0; y < height; y++){
+			int j = Math.min(y * scale + scale / 2, image.getHeight() - 1);
+			for (int x = 0; x < width; x++){
+				int i = Math.min(x * scale + scale / 2, image.getWidth() - 1);
+				pt.set(pyramid_start.x + i * pyramid_res, pyramid_start.y + j * pyramid_res);
+				int[] voxel = grid.getEnclosingVoxel(GeometryFunctions.getPointFromPlane(pt, pyramid_plane));
+				if (voxel == null || pyramid_volume.isMaskedAtVoxel(voxel))
+					pixel[0] = -Double.MAX_VALUE;
+				else
+					pixel[0] = p_level.getValue(voxel[0] >> shift, voxel[1] >> shift, voxel[2] >> shift);
+				raster.setPixel(x, height - y - 1, pixel);
+				}
+			}
+		
+		return level_image;
+	}
+	
 	@Override
 	public int getClosestVertex(Point2f point){
 		
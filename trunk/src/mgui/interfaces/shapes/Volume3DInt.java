@@ -20,6 +20,7 @@
 package mgui.interfaces.shapes;
 
 import java.awt.Color;
+import java.awt.event.ActionEvent;
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
@@ -27,9 +28,14 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.ImageIcon;
+import javax.swing.JMenuItem;
+import javax.swing.JSeparator;
 
 import org.jogamp.java3d.BranchGroup;
 import org.jogamp.java3d.ImageComponent3D;
@@ -58,15 +64,21 @@ import mgui.interfaces.maps.Camera3DListener;
 import mgui.interfaces.maps.ColourMap;
 import mgui.interfaces.maps.ColourMapListener;
 import mgui.interfaces.maps.NameMap;
+import mgui.interfaces.menus.InterfacePopupMenu;
 import mgui.interfaces.shapes.attributes.ShapeAttribute;
 import mgui.interfaces.shapes.util.ShapeEvent;
 import mgui.interfaces.shapes.util.ShapeFunctions;
 import mgui.interfaces.shapes.util.ShapeListener;
+import mgui.interfaces.shapes.volume.CompositeSliceRenderer;
 import mgui.interfaces.shapes.volume.GridVertexDataColumn;
 import mgui.interfaces.shapes.volume.Volume3DRenderer;
 import mgui.interfaces.shapes.volume.Volume3DTexture;
 import mgui.interfaces.shapes.volume.Volume3DTexture.UpdateTextureType;
 import mgui.interfaces.shapes.volume.Volume3DUpdater;
+import mgui.interfaces.shapes.volume.VolumeEditHistory;
+import mgui.interfaces.shapes.volume.VolumePyramid;
+import mgui.interfaces.util.BackgroundTask;
+import mgui.interfaces.util.TaskEngine;
 import mgui.interfaces.xml.XMLFunctions;
 import mgui.io.domestic.shapes.ShapeModel3DOutputOptions;
 import mgui.io.domestic.shapes.VolumeFileLoader;
@@ -102,11 +114,15 @@ public class Volume3DInt extends Shape3DInt implements ColourMapListener,
 	protected HashMap<String,WindowedColourModel> colour_models = new HashMap<String,WindowedColourModel>();
 	protected HashMap<String, boolean[][][]> masks = new HashMap<String, boolean[][][]>(); 
 	protected HashMap<String, Boolean> apply_mask = new HashMap<String, Boolean>();
+	protected AtomicInteger mask_version = new AtomicInteger();
+	protected final VolumeEditHistory edit_history = new VolumeEditHistory(this);
 	protected HashMap<String, Double> composite_alphas = new HashMap<String, Double>();
 	protected HashMap<String, Boolean> show_in_composite = new HashMap<String, Boolean>();
 	
 	
 	protected ArrayList<String> composite_column_order = new ArrayList<String>();
+	protected CompositeSliceRenderer composite_renderer;
+	protected volatile int pending_texture_level = -1;
 	
 	//debug flag
 	boolean debug = false;
@@ -237,6 +253,18 @@ public class Volume3DInt extends Shape3DInt implements ColourMapListener,
 		return composite_column_order;
 	}
 	
+	/*************************************************
+	 * Returns the renderer used to blend this volume's composite slice images; this caches 
+	 * colourised column slices between calls.
+	 * 
+	 * @return
+	 */
+	public synchronized CompositeSliceRenderer getCompositeRenderer(){
+		if (composite_renderer == null)
+			composite_renderer = new CompositeSliceRenderer(this);
+		return composite_renderer;
+	}
+	
 	@Override
 	public Shape getGeometryInstance(){
 		return new Grid3D();
@@ -409,9 +437,15 @@ public class Volume3DInt extends Shape3DInt implements ColourMapListener,
 	
 	@Override
 	public void removeVertexData(String column){
+		// Undo must not restore values into a detached column
+		VertexDataColumn v_column = getVertexDataColumn(column);
+		if (v_column != null && edit_history.isRecorded(v_column))
+			edit_history.clear();
 		super.removeVertexData(column);
 		composite_alphas.remove(column);
 		show_in_composite.remove(column);
+		if (composite_renderer != null)
+			composite_renderer.clear();
 	}
 	
 	private boolean composite_changed = false;
@@ -546,10 +580,98 @@ public class Volume3DInt extends Shape3DInt implements ColourMapListener,
 		//HashMap<String, boolean[][][]> masks = getMasks();
 		masks.put(name, mask);
 		apply_mask.put(name, apply);
+		fireMasksChanged();
+	}
+	
+	/*****************************************************
+	 * Notifies this volume that its masks have changed. This must be called after a mask array is 
+	 * modified directly, e.g., when painting a mask. Updates the volume's display if masks are applied.
+	 * 
+	 */
+	public void fireMasksChanged(){
+		mask_version.incrementAndGet();
 		if (getApplyMasks())
 			attributeUpdated(new AttributeEvent(attributes.getAttribute("ApplyMasks")));
 	}
 	
+	/*****************************************************
+	 * Returns a counter which is incremented whenever this volume's masks, or whether they are applied,
+	 * change. Can be used to determine whether a cached copy of the effective mask is current.
+	 * 
+	 * @return
+	 */
+	public int getMaskVersion(){
+		return mask_version.get();
+	}
+	
+	/*****************************************************
+	 * Returns the undo/redo history for edits to the data columns and masks of this volume; see 
+	 * {@link VolumeEditHistory}.
+	 * 
+	 * @return
+	 */
+	public VolumeEditHistory getEditHistory(){
+		return edit_history;
+	}
+	
+	/*****************************************************
+	 * Reverts the most recent edit to this volume's data columns or masks.
+	 * 
+	 * @return {@code true} if an edit was reverted
+	 */
+	public boolean undoEdit(){
+		return edit_history.undo();
+	}
+	
+	/*****************************************************
+	 * Reapplies the most recently reverted edit to this volume's data columns or masks.
+	 * 
+	 * @return {@code true} if an edit was reapplied
+	 */
+	public boolean redoEdit(){
+		return edit_history.redo();
+	}
+	
+	@Override
+	public InterfacePopupMenu getPopupMenu(List<Object> selected) {
+		InterfacePopupMenu menu = super.getPopupMenu(selected);
+		
+		menu.add(new JSeparator());
+		
+		String name = edit_history.getUndoName();
+		JMenuItem item = new JMenuItem(name == null ? "Undo" : "Undo " + name);
+		item.setEnabled(name != null);
+		menu.addMenuItem(item);
+		name = edit_history.getRedoName();
+		item = new JMenuItem(name == null ? "Redo" : "Redo " + name);
+		item.setEnabled(name != null);
+		menu.addMenuItem(item);
+		
+		return menu;
+	}
+	
+	@Override
+	public void handlePopupEvent(ActionEvent e) {
+		
+		if (e.getSource() instanceof JMenuItem){
+			JMenuItem item = (JMenuItem)e.getSource();
+			
+			if (item.getText().startsWith("Undo")){
+				if (!undoEdit())
+					InterfaceSession.log("Volume3DInt: Nothing to undo for '" + getName() + "'.", LoggingType.Warnings);
+				return;
+				}
+			
+			if (item.getText().startsWith("Redo")){
+				if (!redoEdit())
+					InterfaceSession.log("Volume3DInt: Nothing to redo for '" + getName() + "'.", LoggingType.Warnings);
+				return;
+				}
+			}
+		
+		super.handlePopupEvent(e);
+	}
+	
 	public void clearMask(String name){
 		if (!getMasks().containsKey(name)) return;
 		
@@ -559,13 +681,18 @@ public class Volume3DInt extends Shape3DInt implements ColourMapListener,
 		int y_size = grid.getSizeT();
 		int z_size = grid.getSizeR();
 		
-		for (int i = 0; i < x_size; i++)
-			for (int j = 0; j < y_size; j++)
-				for (int k = 0; k < z_size; k++)
-					mask[i][j][k] = false;
+		edit_history.beginEdit("Clear Mask");
+		try{
+			edit_history.beforeMaskChange(mask);
+			for (int i = 0; i < x_size; i++)
+				for (int j = 0; j < y_size; j++)
+					for (int k = 0; k < z_size; k++)
+						mask[i][j][k] = false;
+		}finally{
+			edit_history.endEdit();
+			}
 		
-		if (getApplyMasks())
-			attributeUpdated(new AttributeEvent(attributes.getAttribute("ApplyMasks")));
+		fireMasksChanged();
 	}
 	
 	public void invertMask(String name){
@@ -577,13 +704,18 @@ public class Volume3DInt extends Shape3DInt implements ColourMapListener,
 		int y_size = grid.getSizeT();
 		int z_size = grid.getSizeR();
 		
-		for (int i = 0; i < x_size; i++)
-			for (int j = 0; j < y_size; j++)
-				for (int k = 0; k < z_size; k++)
-					mask[i][j][k] = !mask[i][j][k];
+		edit_history.beginEdit("Invert Mask");
+		try{
+			edit_history.beforeMaskChange(mask);
+			for (int i = 0; i < x_size; i++)
+				for (int j = 0; j < y_size; j++)
+					for (int k = 0; k < z_size; k++)
+						mask[i][j][k] = !mask[i][j][k];
+		}finally{
+			edit_history.endEdit();
+			}
 		
-		if (getApplyMasks())
-			attributeUpdated(new AttributeEvent(attributes.getAttribute("ApplyMasks")));
+		fireMasksChanged();
 		
 	}
 	
@@ -689,16 +821,18 @@ public class Volume3DInt extends Shape3DInt implements ColourMapListener,
 	public void setMaskApplied(String name, boolean b){
 		if (!masks.containsKey(name)) return;
 		apply_mask.put(name, b);
-		if (getApplyMasks())
-			attributeUpdated(new AttributeEvent(attributes.getAttribute("ApplyMasks")));
+		fireMasksChanged();
 	}
 	
 	public void removeMask(String name){
 		//HashMap<String, boolean[][][]> masks = getMasks();
 		if (!masks.containsKey(name)) return;
+		if (edit_history.isRecorded(masks.get(name)))
+			edit_history.clear();
 		masks.remove(name);
 		//HashMap<String,MguiBoolean> apply_masks = (HashMap<String,MguiBoolean>)attributes.getValue("MaskSet");
 		apply_mask.remove(name);
+		mask_version.incrementAndGet();
 		attributeUpdated(new AttributeEvent(attributes.getAttribute("Masks")));
 	}
 	
@@ -712,14 +846,12 @@ public class Volume3DInt extends Shape3DInt implements ColourMapListener,
 		HashMap<String,MguiBoolean> apply_masks = (HashMap<String,MguiBoolean>)attributes.getValue("MaskSet");
 		if (apply_masks.get(name) != null)
 			apply_masks.get(name).setTrue(show);
-		if (getApplyMasks())
-			attributeUpdated(new AttributeEvent(attributes.getAttribute("ApplyMasks")));
+		fireMasksChanged();
 	}
 	
 	public void setMask(String name, boolean[][][] mask){
 		getMasks().put(name, mask);
-		if (getApplyMasks())
-			attributeUpdated(new AttributeEvent(attributes.getAttribute("ApplyMasks")));
+		fireMasksChanged();
 	}
 	
 	/*****************************************************
@@ -764,18 +896,23 @@ public class Volume3DInt extends Shape3DInt implements ColourMapListener,
 		
 		long in_count = 0;
 		
-		for (int i = 0; i < x_size; i++)
-			for (int j = 0; j < y_size; j++)
-				for (int k = 0; k < z_size; k++){
-					mask[i][j][k] |= GeometryFunctions.compareDouble(v_column.getDoubleValueAtVoxel(i,j,k), 0.0) == 0;
-					if (mask[i][j][k]) in_count++;
-					}
+		edit_history.beginEdit("Merge Mask with Volume");
+		try{
+			edit_history.beforeMaskChange(mask);
+			for (int i = 0; i < x_size; i++)
+				for (int j = 0; j < y_size; j++)
+					for (int k = 0; k < z_size; k++){
+						mask[i][j][k] |= GeometryFunctions.compareDouble(v_column.getDoubleValueAtVoxel(i,j,k), 0.0) == 0;
+						if (mask[i][j][k]) in_count++;
+						}
+		}finally{
+			edit_history.endEdit();
+			}
 		
 		long out_count = x_size * y_size * z_size - in_count;
 		InterfaceSession.log("Mask merged with volume: " + in_count + " masked; " + out_count + " unmasked.");
 		
-		if (getApplyMasks())
-			attributeUpdated(new AttributeEvent(attributes.getAttribute("ApplyMasks")));
+		fireMasksChanged();
 		return true;
 		
 	}
@@ -789,13 +926,18 @@ public class Volume3DInt extends Shape3DInt implements ColourMapListener,
 			mask[0][0].length != to_merge[0][0].length)
 			return false;
 		
-		for (int i = 0; i < mask.length; i++)
-			for (int j = 0; j < mask[0].length; j++)
-				for (int k = 0; k < mask[0][0].length; k++)
-					mask[i][j][k] &= to_merge[i][j][k];
+		edit_history.beginEdit("Merge Mask");
+		try{
+			edit_history.beforeMaskChange(mask);
+			for (int i = 0; i < mask.length; i++)
+				for (int j = 0; j < mask[0].length; j++)
+					for (int k = 0; k < mask[0][0].length; k++)
+						mask[i][j][k] &= to_merge[i][j][k];
+		}finally{
+			edit_history.endEdit();
+			}
 		
-		if (getApplyMasks())
-			attributeUpdated(new AttributeEvent(attributes.getAttribute("ApplyMasks")));
+		fireMasksChanged();
 		
 		return true;
 		
@@ -809,8 +951,7 @@ public class Volume3DInt extends Shape3DInt implements ColourMapListener,
 		while (itr.hasNext())
 			itr.next().setValue(show);
 		
-		if (getApplyMasks())
-			attributeUpdated(new AttributeEvent(attributes.getAttribute("ApplyMasks")));
+		fireMasksChanged();
 
 	}
 	
@@ -850,6 +991,11 @@ public class Volume3DInt extends Shape3DInt implements ColourMapListener,
 		////deactivateClips();
 		Volume3DTexture texture = renderer.getTexture();
 		if (!isByRef() || texture == null) return;
+		if (texture.getLevel() > 0){
+			// Slice-wise updates apply to full resolution textures only; rebuild the level instead
+			texture.updateFromVolume(this);
+			return;
+			}
 		if (getApplyMasks())
 			texture.setCurrentMask(getEffectiveMask());
 		else
@@ -1235,17 +1381,23 @@ public class Volume3DInt extends Shape3DInt implements ColourMapListener,
 			addVertexData(target_column, sample_volume.getDataType(source_column));
 			}
 		
-		for (int i = 0; i < s_size; i++)
-			for (int j = 0; j < t_size; j++)
-				for (int k = 0; k < r_size; k++){
-					Point3f mid_pt = grid.getVoxelMidPoint(i, j, k);
-					double sample = sample_volume.getInterpolatedValueAtPoint(mid_pt);
-					if (Double.isNaN(sample)){
-						setDatumAtVoxel(target_column, i, j, k, nan_value);
-					}else{
-						setDatumAtVoxel(target_column, i, j, k, sample);
+		// Voxels are set individually, so the edit records only the tiles they change
+		edit_history.beginEdit("Sample from Volume");
+		try{
+			for (int i = 0; i < s_size; i++)
+				for (int j = 0; j < t_size; j++)
+					for (int k = 0; k < r_size; k++){
+						Point3f mid_pt = grid.getVoxelMidPoint(i, j, k);
+						double sample = sample_volume.getInterpolatedValueAtPoint(mid_pt);
+						if (Double.isNaN(sample)){
+							setDatumAtVoxel(target_column, i, j, k, nan_value);
+						}else{
+							setDatumAtVoxel(target_column, i, j, k, sample);
+							}
 						}
-					}
+		}finally{
+			edit_history.endEdit();
+			}
 		return true;
 		
 	}
@@ -1333,6 +1485,9 @@ public class Volume3DInt extends Shape3DInt implements ColourMapListener,
 	public void setGrid(Grid3D grid, boolean fire){
 		if (grid == null) return;
 		shape3d = grid;
+		// Saved tiles are indexed by the old grid dimensions
+		if (edit_history != null)
+			edit_history.clear();
 		if (renderer == null)
 			renderer = new Volume3DRenderer(this);
 		
@@ -1363,6 +1518,85 @@ public class Volume3DInt extends Shape3DInt implements ColourMapListener,
 		return renderer;
 	}
 	
+	/*******************************************
+	 * Returns the pyramid level of this volume's 3D texture; 0 is full resolution. See 
+	 * {@link VolumePyramid}.
+	 * 
+	 * @return
+	 */
+	public int getTextureLevel(){
+		if (renderer == null) return 0;
+		return renderer.getTextureLevel();
+	}
+	
+	/*******************************************
+	 * Sets the pyramid level of this volume's 3D texture, and regenerates its scene node. Blocks until the 
+	 * level is computed; use {@link #requestTextureLevel(int)} to compute it in the background.
+	 * 
+	 * @param level
+	 */
+	public void setTextureLevel(int level){
+		if (renderer == null || level == renderer.getTextureLevel()) return;
+		pending_texture_level = -1;
+		renderer.setTextureLevel(level);
+		textureSet = false;
+		setScene3DObject();
+	}
+	
+	/*******************************************
+	 * Requests that this volume's 3D texture be set to pyramid level {@code level}. The level is computed 
+	 * for the current column (or all visible composite columns) in the background, while the current 
+	 * texture continues to be displayed; the texture is swapped when it is ready, unless a different level 
+	 * has since been requested.
+	 * 
+	 * @param level
+	 */
+	public void requestTextureLevel(final int level){
+		if (renderer == null || level == pending_texture_level) return;
+		
+		final ArrayList<VolumePyramid> pyramids = new ArrayList<VolumePyramid>();
+		if (isComposite()){
+			ArrayList<String> columns = getCompositeOrderedColumns();
+			for (int i = 0; i < columns.size(); i++)
+				if (showInComposite(columns.get(i)))
+					pyramids.add(((GridVertexDataColumn)getVertexDataColumn(columns.get(i))).getPyramid());
+		}else if (getCurrentDataColumn() != null){
+			pyramids.add(((GridVertexDataColumn)getCurrentDataColumn()).getPyramid());
+			}
+		
+		boolean available = true;
+		for (int i = 0; i < pyramids.size(); i++)
+			available &= pyramids.get(i).isAvailable(level);
+		if (available){
+			setTextureLevel(level);
+			return;
+			}
+		
+		pending_texture_level = level;
+		final BackgroundTask<Boolean> task = TaskEngine.submit("Volume texture level " + level + " [" + getName() + "]", 
+															   new Callable<Boolean>(){
+																	public Boolean call(){
+																		for (int i = 0; i < pyramids.size(); i++)
+																			pyramids.get(i).getLevel(level);
+																		return true;
+																		}
+																	}, null);
+		task.addCompletionCallback(new Runnable(){
+			public void run(){
+				if (pending_texture_level != level) return;
+				try{
+					task.get();
+				}catch (Exception ex){
+					pending_texture_level = -1;
+					InterfaceSession.log("Volume3DInt: Error computing texture level " + level + ": " + ex.getMessage(), 
+										 LoggingType.Errors);
+					return;
+					}
+				setTextureLevel(level);
+				}
+			});
+	}
+	
 	/*******************************************
 	 * Resets the texture for this volume's renderer.
 	 * 
@@ -1560,6 +1794,7 @@ public class Volume3DInt extends Shape3DInt implements ColourMapListener,
 		
 		if (e.getAttribute().getName().equals("ApplyMasks")){
 			//textureSet = false;
+			mask_version.incrementAndGet();
 			updateTextureValues();
 			//setScene3DObject();
 			fireShapeModified();
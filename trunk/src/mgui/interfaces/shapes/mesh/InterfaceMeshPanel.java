@@ -1437,8 +1437,7 @@ public class InterfaceMeshPanel extends InterfacePanel implements ActionListener
 					InterfaceProgressBar progress = new InterfaceProgressBar("Checking mesh:");
 					progress.setMinimum(0);
 					progress.register();
-					float search_max = MeshFunctions.getMaximumEdgeLength(mesh);
-					ArrayList<Integer> faces = MeshFunctions.getSelfIntersections(mesh, search_max, progress);
+					ArrayList<Integer> faces = MeshFunctions.getSelfIntersections(mesh, progress);
 					progress.deregister();
 					if (faces.size() == 0){
 						JOptionPane.showMessageDialog(InterfaceSession.getSessionFrame(), 
@@ -1471,9 +1470,7 @@ public class InterfaceMeshPanel extends InterfacePanel implements ActionListener
 					InterfaceProgressBar progress = new InterfaceProgressBar("Comparing meshes:");
 					progress.setMinimum(0);
 					progress.register();
-					float search_max = Math.max(MeshFunctions.getMaximumEdgeLength(mesh),
-												MeshFunctions.getMaximumEdgeLength(mesh2));
-					ArrayList<ArrayList<Integer>> all_faces = MeshFunctions.getIntersectingFaces(mesh, mesh2, search_max, progress);
+					ArrayList<ArrayList<Integer>> all_faces = MeshFunctions.getIntersectingFaces(mesh, mesh2, progress);
 					progress.deregister();
 					
 					ArrayList<Integer> faces_1 = all_faces.get(0);
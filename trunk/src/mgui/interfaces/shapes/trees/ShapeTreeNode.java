@@ -96,23 +96,42 @@ public abstract class ShapeTreeNode extends InterfaceTreeNode implements ShapeLi
 				return;
 				
 			case VertexColumnAdded:
-				column = e.getShape().getLastColumnAdded();
-				if (column == null) return;
 				v_node = getVertexDataNode();
 				if (v_node == null) return;
+				// Coalesced events refer to several columns
+				if (e.getColumns() != null){
+					for (VertexDataColumn c : e.getColumns())
+						v_node.addChild(c.issueTreeNode());
+					return;
+					}
+				column = e.getShape().getLastColumnAdded();
+				if (column == null) return;
 				v_node.addChild(column.issueTreeNode());
 				return;
 				
 			case VertexColumnRemoved:
-				column = e.getShape().getLastColumnRemoved();
-				if (column == null) return;
 				v_node = getVertexDataNode();
 				if (v_node == null) return;
+				if (e.getColumns() != null){
+					for (VertexDataColumn c : e.getColumns())
+						c.destroy();
+					return;
+					}
+				column = e.getShape().getLastColumnRemoved();
+				if (column == null) return;
 				column.destroy(); 				// Will detach from parent
 				return;
 				
 			case VertexColumnChanged:
 			case VertexColumnRenamed:
+				if (e.getColumns() != null){
+					for (VertexDataColumn c : e.getColumns()){
+						v_node = getVertexDataColumnNode(c);
+						if (v_node != null)
+							v_node.objectChanged();
+						}
+					return;
+					}
 				column = e.getShape().getLastColumnChanged();
 				if (column == null) return;
 				v_node = getVertexDataColumnNode(column);
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.EventObject;
 
 import mgui.interfaces.shapes.InterfaceShape;
+import mgui.interfaces.shapes.VertexDataColumn;
 
 /**********************************************************
  * Event on an {@linkplain InterfaceShape} object.
@@ -68,6 +69,8 @@ public class ShapeEvent extends EventObject {
 	
 	public ArrayList<ShapeListener> already_responded = new ArrayList<ShapeListener>();
 	
+	ArrayList<VertexDataColumn> columns;
+	
 	public static enum EventType{
 		General,
 		ShapeAdded,
@@ -117,6 +120,27 @@ public class ShapeEvent extends EventObject {
 		return modifies_shape_set;
 	}
 	
+	/*****************************************
+	 * Sets the vertex columns this event refers to, if it is a vertex column event which
+	 * has been coalesced from several events.
+	 * 
+	 * @param columns
+	 */
+	public void setColumns(ArrayList<VertexDataColumn> columns){
+		this.columns = columns;
+	}
+	
+	/*****************************************
+	 * Returns the vertex columns this event refers to, if it is a vertex column event which
+	 * has been coalesced from several events; otherwise returns {@code null}, and the column
+	 * is obtained from the shape.
+	 * 
+	 * @return
+	 */
+	public ArrayList<VertexDataColumn> getColumns(){
+		return columns;
+	}
+	
 	public void responded(ShapeListener listener){
 		already_responded.add(listener);
 	}
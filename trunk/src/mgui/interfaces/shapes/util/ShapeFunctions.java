@@ -58,7 +58,6 @@ import org.jogamp.vecmath.Vector3f;
 import org.jogamp.vecmath.Vector4d;
 
 import foxtrot.Job;
-import foxtrot.Worker;
 import mgui.geometry.Box3D;
 import mgui.geometry.Graph2D;
 import mgui.geometry.Grid3D;
@@ -108,6 +107,8 @@ import mgui.interfaces.shapes.graphs.util.Graph2DLayout;
 import mgui.interfaces.shapes.mesh.MeshDataMaskOptions;
 import mgui.interfaces.shapes.mesh.VertexSelection;
 import mgui.interfaces.shapes.selection.ShapeSelectionSet;
+import mgui.interfaces.shapes.volume.VolumeEditHistory;
+import mgui.interfaces.util.TaskEngine;
 import mgui.numbers.MguiDouble;
 import mgui.numbers.MguiFloat;
 import mgui.numbers.MguiInteger;
@@ -199,12 +200,12 @@ public class ShapeFunctions extends Utility {
 			return transformWithMatrixBlocking(shape_in, matrix, progress);
 		
 		mgui.geometry.Shape3D shape_out =
-			((mgui.geometry.Shape3D)Worker.post(new Job(){
+			((mgui.geometry.Shape3D)TaskEngine.postConcurrent(new Job(){
 			@Override
 			public mgui.geometry.Shape3D run(){
 				return transformWithMatrixBlocking(shape_in, matrix, progress);
 			}
-		}));
+		}, progress));
 		
 		return shape_out;
 		
@@ -273,12 +274,12 @@ public class ShapeFunctions extends Utility {
 		if (progress == null || !(progress instanceof InterfaceProgressBar)) 
 			return getConvexHullBlocking(shape, method, progress);
 		
-		Mesh3D hull = (Mesh3D)Worker.post(new Job(){
+		Mesh3D hull = (Mesh3D)TaskEngine.postConcurrent(new Job(){
 				@Override
 				public Mesh3D run(){
 					return getConvexHullBlocking(shape, method, progress);
 				}
-			});
+			}, progress);
 		
 		return hull;
 	}
@@ -311,6 +312,23 @@ public class ShapeFunctions extends Utility {
 	 * @return
 	 */
 	public static Shape3DInt getPickedShape(PickCanvas pickNode, PickCanvas pickGeom, Point click_point, MguiInteger node){
+		return getPickedShape(pickNode, pickGeom, click_point, node, null);
+	}
+	
+	/**********************************************
+	 * Returns the shape picked at {@code click_point}, and sets {@code distance} to the distance from
+	 * the start of the pick shape (i.e., the eye) to the closest intersection, if {@code pickNode} 
+	 * has the {@code PickInfo.CLOSEST_DISTANCE} flag set.
+	 * 
+	 * @param pickNode
+	 * @param pickGeom
+	 * @param click_point
+	 * @param node			Set to the picked vertex index; can be {@code null}
+	 * @param distance		Set to the distance of the closest intersection; can be {@code null}
+	 * @return
+	 */
+	public static Shape3DInt getPickedShape(PickCanvas pickNode, PickCanvas pickGeom, Point click_point, 
+											MguiInteger node, MguiDouble distance){
 		if (pickGeom == null || pickNode == null || click_point == null) return null;
 		
 		pickNode.setShapeLocation(click_point.x, click_point.y);
@@ -318,6 +336,8 @@ public class ShapeFunctions extends Utility {
 		if (infoNode == null) return null;
 		Node n = infoNode.getNode();			
 		if (n == null) return null;
+		if (distance != null && (pickNode.getFlags() & PickInfo.CLOSEST_DISTANCE) != 0)
+			distance.setValue(infoNode.getClosestDistance());
 		
 		Shape3DInt shape = null;
 		if (n instanceof Shape3D){
@@ -2608,7 +2628,8 @@ public class ShapeFunctions extends Utility {
 	}
 	
 	/****************************************
-	 * Returns a mask for <code>volume</code> which is above or below <code>plane</code>.
+	 * Sets <code>mask</code>, a mask of <code>volume</code>, to its union with the voxels which are above 
+	 * or below <code>plane</code>, and notifies <code>volume</code> that its masks have changed.
 	 * 
 	 * @param volume
 	 * @param plane
@@ -2626,16 +2647,24 @@ public class ShapeFunctions extends Utility {
 		int y_size = grid.getSizeT();
 		int z_size = grid.getSizeR();
 		
-		for (int i = 0; i < x_size; i++)
-			for (int j = 0; j < y_size; j++)
-				for (int k = 0; k < z_size; k++){
-					if (!mask[i][j][k])
-						mask[i][j][k] = (GeometryFunctions.isAbovePlane(volume.getCenterOfVoxel(i, j, k), plane) == is_above);
-					if (mask[i][j][k]) count++;
-					}
+		VolumeEditHistory history = volume.getEditHistory();
+		history.beginEdit("Merge Mask with Plane");
+		try{
+			history.beforeMaskChange(mask);
+			for (int i = 0; i < x_size; i++)
+				for (int j = 0; j < y_size; j++)
+					for (int k = 0; k < z_size; k++){
+						if (!mask[i][j][k])
+							mask[i][j][k] = (GeometryFunctions.isAbovePlane(volume.getCenterOfVoxel(i, j, k), plane) == is_above);
+						if (mask[i][j][k]) count++;
+						}
+		}finally{
+			history.endEdit();
+			}
 		
 		int n = x_size * y_size * z_size - count;
 		InterfaceSession.log("Union mask: " + count + " masked, " + n + " unmasked..");
+		volume.fireMasksChanged();
 	}
 	
 	/*********************************************************************
@@ -0,0 +1,457 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package mgui.interfaces.shapes.volume;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import mgui.geometry.Grid3D;
+import mgui.image.util.WindowedColourModel;
+import mgui.interfaces.shapes.Volume3DInt;
+import mgui.numbers.MguiNumber;
+
+/*******************************************************
+ * Renders composite slice images of a {@link Volume3DInt}, by blending all visible data columns
+ * in a single pass per pixel into a packed ARGB buffer. Blending is equivalent to drawing each
+ * column's slice image with {@code AlphaComposite.SRC_OVER} and its composite alpha, from the bottom
+ * of the composite order (last column) to the top (first column).
+ * 
+ * <p>Colourised column slices are cached, keyed on the column, colour model and section, and are
+ * reused as long as the versions of the column data ({@link GridVertexDataColumn#getDataVersion()})
+ * and colour model ({@link WindowedColourModel#getVersion()}) are unchanged. Blended composites are 
+ * also cached, so that a composite is only re-blended when an alpha, visibility, ordering, or one of its 
+ * column slices changes. The cache is bounded by a total number of pixels, and evicts least recently 
+ * used slices first.
+ * 
+ * <p>Orientations are as for {@link mgui.geometry.volume.VolumeFunctions#getCompositeSliceImage}: 
+ * 0 = S, 1 = T, 2 = R.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class CompositeSliceRenderer {
+
+	/** Default maximum number of cached pixels (64 MB of packed ARGB). */
+	public static final long DEFAULT_CACHE_SIZE = 1 << 24;
+	
+	protected Volume3DInt volume;
+	protected long max_cached_pixels = DEFAULT_CACHE_SIZE;
+	protected long cached_pixels = 0;
+	
+	protected LinkedHashMap<SliceKey, ColumnSlice> column_slices = new LinkedHashMap<SliceKey, ColumnSlice>(16, 0.75f, true);
+	protected LinkedHashMap<Long, CompositeSlice> composites = new LinkedHashMap<Long, CompositeSlice>(16, 0.75f, true);
+	
+	public CompositeSliceRenderer(Volume3DInt volume){
+		this.volume = volume;
+	}
+	
+	/*******************************************************
+	 * Sets the maximum number of pixels this renderer will cache, over all column slices and composites.
+	 * 
+	 * @param pixels
+	 */
+	public synchronized void setMaximumCacheSize(long pixels){
+		max_cached_pixels = Math.max(0, pixels);
+		evict();
+	}
+	
+	public long getMaximumCacheSize(){
+		return max_cached_pixels;
+	}
+	
+	/*******************************************************
+	 * Discards all cached slices.
+	 * 
+	 */
+	public synchronized void clear(){
+		column_slices.clear();
+		composites.clear();
+		cached_pixels = 0;
+	}
+	
+	/*******************************************************
+	 * Returns a composite image for the given orientation and section, using the volume's composite
+	 * column order, the colour models of its columns, and its composite alphas and visibility.
+	 * 
+	 * @param orientation 	0 = S, 1 = T, 2 = R
+	 * @param section 		the section to render
+	 * @return the composite image, or {@code null} if {@code section} is out of range or no columns
+	 * 		   are visible
+	 */
+	public BufferedImage getSliceImage(int orientation, int section){
+		
+		ArrayList<String> ordered_columns = volume.getCompositeOrderedColumns();
+		ArrayList<WindowedColourModel> colour_models = new ArrayList<WindowedColourModel>();
+		ArrayList<Double> alphas = new ArrayList<Double>();
+		ArrayList<Boolean> include = new ArrayList<Boolean>();
+		
+		for (int i = 0; i < ordered_columns.size(); i++){
+			String name = ordered_columns.get(i);
+			GridVertexDataColumn v_column = (GridVertexDataColumn)volume.getVertexDataColumn(name);
+			colour_models.add(v_column.getColourModel());
+			alphas.add(volume.getCompositeAlpha(name));
+			include.add(volume.showInComposite(name));
+			}
+		
+		return getSliceImage(orientation, section, ordered_columns, colour_models, alphas, include);
+	}
+	
+	/*******************************************************
+	 * Returns a composite image for the given orientation and section. Columns render from bottom 
+	 * (last) to top (first). The returned image is of type {@code BufferedImage.TYPE_INT_ARGB} and 
+	 * is not shared with the cache, so callers may modify it.
+	 * 
+	 * @param orientation 		0 = S, 1 = T, 2 = R
+	 * @param section 			the section to render
+	 * @param ordered_columns 	the columns to render, from top to bottom
+	 * @param colour_models 	the colour model for each column
+	 * @param alphas 			the composite alpha for each column
+	 * @param include 			whether to include each column; if {@code null}, all are included
+	 * @return the composite image, or {@code null} if {@code section} is out of range or no columns
+	 * 		   are included
+	 */
+	public synchronized BufferedImage getSliceImage(int orientation, int section,
+													ArrayList<String> ordered_columns,
+													ArrayList<WindowedColourModel> colour_models,
+													ArrayList<Double> alphas,
+													ArrayList<Boolean> include){
+		
+		Grid3D grid = volume.getGrid();
+		int[] dims = getSliceDimensions(grid, orientation);
+		if (dims == null || section < 0 || section >= getSectionCount(grid, orientation)) return null;
+		
+		int width = dims[0], height = dims[1];
+		
+		// Determine layers and the composite signature
+		ArrayList<GridVertexDataColumn> columns = new ArrayList<GridVertexDataColumn>();
+		ArrayList<WindowedColourModel> models = new ArrayList<WindowedColourModel>();
+		ArrayList<Float> layer_alphas = new ArrayList<Float>();
+		boolean has_layer = false;
+		
+		for (int i = 0; i < ordered_columns.size(); i++){
+			if (include != null && !include.get(i)) continue;
+			has_layer = true;
+			float alpha = (float)Math.max(0, Math.min(1, alphas.get(i)));
+			if (alpha == 0) continue;
+			GridVertexDataColumn column = (GridVertexDataColumn)volume.getVertexDataColumn(ordered_columns.get(i));
+			if (column == null || column.getData() == null) continue;
+			columns.add(column);
+			models.add(colour_models.get(i));
+			layer_alphas.add(alpha);
+			}
+		
+		if (!has_layer) return null;
+		
+		int n = columns.size();
+		Object[] signature = new Object[n * 5];
+		for (int l = 0; l < n; l++){
+			signature[l * 5] = columns.get(l);
+			signature[l * 5 + 1] = models.get(l);
+			signature[l * 5 + 2] = columns.get(l).getDataVersion();
+			signature[l * 5 + 3] = models.get(l).getVersion();
+			signature[l * 5 + 4] = layer_alphas.get(l);
+			}
+		
+		Long composite_key = getCompositeKey(orientation, section);
+		CompositeSlice composite = composites.get(composite_key);
+		
+		if (composite == null || composite.pixels.length != width * height || 
+				!isSameSignature(composite.signature, signature)){
+			
+			// Colourise any stale column slices, then re-blend
+			int[][] layers = new int[n][];
+			float[] f_alphas = new float[n];
+			for (int l = 0; l < n; l++){
+				layers[l] = getColumnSlice(columns.get(l), models.get(l), orientation, section, width, height);
+				f_alphas[l] = layer_alphas.get(l);
+				}
+			
+			int[] pixels = composite != null && composite.pixels.length == width * height ? 
+								composite.pixels : new int[width * height];
+			blend(layers, f_alphas, pixels);
+			
+			if (composite != null)
+				cached_pixels -= composite.pixels.length;
+			composite = new CompositeSlice(pixels, signature);
+			composites.put(composite_key, composite);
+			cached_pixels += pixels.length;
+			evict();
+			}
+		
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		int[] image_pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+		System.arraycopy(composite.pixels, 0, image_pixels, 0, image_pixels.length);
+		return image;
+		
+	}
+	
+	/*******************************************************
+	 * Blends {@code layers} into {@code pixels} (packed, non-premultiplied ARGB), from the last layer 
+	 * (bottom) to the first (top), each with the extra alpha given by {@code alphas}. The result is that 
+	 * of successive {@code SRC_OVER} composites onto a transparent image.
+	 * 
+	 * @param layers
+	 * @param alphas
+	 * @param pixels
+	 */
+	public static void blend(int[][] layers, float[] alphas, int[] pixels){
+		
+		int n = layers.length;
+		final float inv = 1f / 255f;
+		
+		for (int p = 0; p < pixels.length; p++){
+			float a = 0, r = 0, g = 0, b = 0;
+			for (int l = n - 1; l > -1; l--){
+				int c = layers[l][p];
+				float sa = (c >>> 24) * inv * alphas[l];
+				if (sa <= 0) continue;
+				float f = 1f - sa;
+				a = sa + a * f;
+				r = ((c >> 16) & 0xFF) * sa + r * f;
+				g = ((c >> 8) & 0xFF) * sa + g * f;
+				b = (c & 0xFF) * sa + b * f;
+				}
+			if (a <= 0){
+				pixels[p] = 0;
+			}else{
+				pixels[p] = (toByte(a * 255f) << 24) | 
+							(toByte(r / a) << 16) | 
+							(toByte(g / a) << 8) | 
+							toByte(b / a);
+				}
+			}
+		
+	}
+	
+	private static int toByte(float value){
+		int v = (int)(value + 0.5f);
+		if (v < 0) return 0;
+		if (v > 255) return 255;
+		return v;
+	}
+	
+	/*******************************************************
+	 * Returns the colourised slice for {@code column}, from the cache if it is current, or otherwise
+	 * by colourising it with {@code model}. Rows are ordered as for the slice images of
+	 * {@link GridVertexDataColumn}, i.e., with the vertical axis flipped.
+	 * 
+	 */
+	protected int[] getColumnSlice(GridVertexDataColumn column, WindowedColourModel model, 
+								   int orientation, int section, int width, int height){
+		
+		SliceKey key = new SliceKey(column, model, orientation, section);
+		ColumnSlice slice = column_slices.get(key);
+		int data_version = column.getDataVersion();
+		int model_version = model.getVersion();
+		
+		if (slice != null && slice.data_version == data_version && slice.model_version == model_version &&
+				slice.pixels.length == width * height)
+			return slice.pixels;
+		
+		int[] pixels = slice != null && slice.pixels.length == width * height ? 
+							slice.pixels : new int[width * height];
+		colourise(column.getData(), volume.getGrid(), model, orientation, section, pixels);
+		
+		if (slice != null)
+			cached_pixels -= slice.pixels.length;
+		column_slices.put(key, new ColumnSlice(pixels, data_version, model_version));
+		cached_pixels += pixels.length;
+		return pixels;
+	}
+	
+	/*******************************************************
+	 * Colourises one section of {@code data} into {@code pixels}, using {@code model}.
+	 * 
+	 */
+	protected static void colourise(ArrayList<MguiNumber> data, Grid3D grid, WindowedColourModel model,
+									int orientation, int section, int[] pixels){
+		
+		int s_size = grid.getSizeS();
+		int t_size = grid.getSizeT();
+		int r_size = grid.getSizeR();
+		int st_size = s_size * t_size;
+		
+		switch (orientation){
+			case 0:
+				// x = T, y = R (flipped)
+				for (int k = 0; k < r_size; k++){
+					int row = (r_size - k - 1) * t_size;
+					int idx = k * st_size + section;
+					for (int j = 0; j < t_size; j++){
+						pixels[row + j] = model.getRGBForValue(data.get(idx).getValue());
+						idx += s_size;
+						}
+					}
+				return;
+			case 1:
+				// x = S, y = R (flipped)
+				for (int k = 0; k < r_size; k++){
+					int row = (r_size - k - 1) * s_size;
+					int idx = k * st_size + section * s_size;
+					for (int i = 0; i < s_size; i++)
+						pixels[row + i] = model.getRGBForValue(data.get(idx + i).getValue());
+					}
+				return;
+			case 2:
+				// x = S, y = T (flipped)
+				for (int j = 0; j < t_size; j++){
+					int row = (t_size - j - 1) * s_size;
+					int idx = section * st_size + j * s_size;
+					for (int i = 0; i < s_size; i++)
+						pixels[row + i] = model.getRGBForValue(data.get(idx + i).getValue());
+					}
+				return;
+			}
+		
+	}
+	
+	/*******************************************************
+	 * Returns the {width, height} of a slice image for {@code orientation}, or {@code null} if 
+	 * {@code orientation} is invalid.
+	 * 
+	 * @param grid
+	 * @param orientation
+	 * @return
+	 */
+	public static int[] getSliceDimensions(Grid3D grid, int orientation){
+		switch (orientation){
+			case 0:
+				return new int[]{grid.getSizeT(), grid.getSizeR()};
+			case 1:
+				return new int[]{grid.getSizeS(), grid.getSizeR()};
+			case 2:
+				return new int[]{grid.getSizeS(), grid.getSizeT()};
+			}
+		return null;
+	}
+	
+	protected static int getSectionCount(Grid3D grid, int orientation){
+		switch (orientation){
+			case 0:
+				return grid.getSizeS();
+			case 1:
+				return grid.getSizeT();
+			case 2:
+				return grid.getSizeR();
+			}
+		return 0;
+	}
+	
+	protected static Long getCompositeKey(int orientation, int section){
+		return ((long)orientation << 32) | (section & 0xFFFFFFFFL);
+	}
+	
+	protected static boolean isSameSignature(Object[] a, Object[] b){
+		if (a.length != b.length) return false;
+		for (int i = 0; i < a.length; i += 5){
+			// Columns and models compare by identity; versions and alphas by value
+			if (a[i] != b[i] || a[i + 1] != b[i + 1]) return false;
+			for (int j = 2; j < 5; j++)
+				if (!a[i + j].equals(b[i + j])) return false;
+			}
+		return true;
+	}
+	
+	/*******************************************************
+	 * Evicts least recently used column slices, and then composites, until the cache is within
+	 * its maximum size.
+	 * 
+	 */
+	protected void evict(){
+		Iterator<Map.Entry<SliceKey, ColumnSlice>> itr = column_slices.entrySet().iterator();
+		while (cached_pixels > max_cached_pixels && itr.hasNext()){
+			cached_pixels -= itr.next().getValue().pixels.length;
+			itr.remove();
+			}
+		Iterator<Map.Entry<Long, CompositeSlice>> itr2 = composites.entrySet().iterator();
+		while (cached_pixels > max_cached_pixels && itr2.hasNext()){
+			cached_pixels -= itr2.next().getValue().pixels.length;
+			itr2.remove();
+			}
+	}
+	
+	/*******************************************************
+	 * Identifies a colourised column slice; columns and colour models are compared by identity.
+	 * 
+	 */
+	protected static class SliceKey {
+		
+		final GridVertexDataColumn column;
+		final WindowedColourModel model;
+		final int orientation, section;
+		
+		SliceKey(GridVertexDataColumn column, WindowedColourModel model, int orientation, int section){
+			this.column = column;
+			this.model = model;
+			this.orientation = orientation;
+			this.section = section;
+		}
+		
+		@Override
+		public boolean equals(Object obj){
+			if (!(obj instanceof SliceKey)) return false;
+			SliceKey key = (SliceKey)obj;
+			return key.column == column && key.model == model && 
+				   key.orientation == orientation && key.section == section;
+		}
+		
+		@Override
+		public int hashCode(){
+			int hash = System.identityHashCode(column);
+			hash = 31 * hash + System.identityHashCode(model);
+			hash = 31 * hash + orientation;
+			return 31 * hash + section;
+		}
+		
+	}
+	
+	protected static class ColumnSlice {
+		
+		final int[] pixels;
+		final int data_version, model_version;
+		
+		ColumnSlice(int[] pixels, int data_version, int model_version){
+			this.pixels = pixels;
+			this.data_version = data_version;
+			this.model_version = model_version;
+		}
+		
+	}
+	
+	protected static class CompositeSlice {
+		
+		final int[] pixels;
+		final Object[] signature;
+		
+		CompositeSlice(int[] pixels, Object[] signature){
+			this.pixels = pixels;
+			this.signature = signature;
+		}
+		
+	}
+	
+}
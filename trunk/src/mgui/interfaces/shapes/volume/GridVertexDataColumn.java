@@ -26,6 +26,7 @@ import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
+import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -84,6 +85,12 @@ public class GridVertexDataColumn extends VertexDataColumn {
 
 	protected Volume3DInt volume;
 	private WindowedColourModel colour_model;
+	protected VolumePyramid pyramid;
+	protected volatile SoftReference<VoxelBricks> bricks;
+	private final Object bricks_lock = new Object();
+	
+	/** Volumes with at least this many voxels use a bricked layout for slice extraction; see {@link #getBricks()}. */
+	protected static long bricking_threshold = 1L << 24;
 	
 	public GridVertexDataColumn(String name, Volume3DInt volume){
 		super(name);
@@ -117,6 +124,7 @@ public class GridVertexDataColumn extends VertexDataColumn {
 		for (int i = 0; i < size; i++){
 			data.add(NumberFunctions.getInstance(type, value));
 			}
+		invalidateDataSummary();
 	}
 	
 	/**********************************
@@ -228,6 +236,170 @@ public class GridVertexDataColumn extends VertexDataColumn {
 	public void setParent(Volume3DInt parent){
 		this.volume = parent;
 	}
+
+	/*************************************
+	 * Returns the parent volume for this vertex data
+	 *
+	 * @return
+	 */
+	public Volume3DInt getParent(){
+		return volume;
+	}
+	
+	/*************************************
+	 * Returns the multi-resolution pyramid for this column, creating it if necessary. Levels are computed
+	 * on demand; see {@link VolumePyramid}.
+	 *
+	 * @return
+	 */
+	public synchronized VolumePyramid getPyramid(){
+		if (pyramid == null)
+			pyramid = new VolumePyramid(this);
+		return pyramid;
+	}
+	
+	/*************************************
+	 * Returns the bricked layout of this column's values (see {@link VoxelBricks}), if the volume has at least
+	 * {@link #getBrickingThreshold()} voxels; otherwise returns {@code null}. The layout is built on first 
+	 * request, updated as single voxels are set through this column, and rebuilt if the data has otherwise 
+	 * changed.
+	 * 
+	 * <p>The layout is a second copy of the data, so it is only softly referenced, and is discarded under
+	 * memory pressure. It is built without holding this column's lock, so writers are not blocked while it
+	 * is built; values set during a build leave it out of date, and it is rebuilt on the next request.
+	 *
+	 * @return
+	 */
+	public VoxelBricks getBricks(){
+		if (!isBricked()){
+			bricks = null;
+			return null;
+			}
+		VoxelBricks current = getCurrentBricks();
+		if (current != null) return current;
+		
+		synchronized (bricks_lock){
+			// Another thread may have built it while this one waited
+			current = getCurrentBricks();
+			if (current != null) return current;
+			current = VoxelBricks.getBricks(this, VoxelBricks.DEFAULT_BRICK_SIZE);
+			bricks = new SoftReference<VoxelBricks>(current);
+			return current;
+			}
+	}
+	
+	/*************************************
+	 * Returns the bricked layout if it exists and is current for this column's data and grid size; otherwise
+	 * returns {@code null}.
+	 *
+	 * @return
+	 */
+	protected VoxelBricks getCurrentBricks(){
+		SoftReference<VoxelBricks> ref = bricks;
+		VoxelBricks current = ref == null ? null : ref.get();
+		if (current == null) return null;
+		Grid3D grid = volume.getGrid();
+		if (current.getDataVersion() != getDataVersion() || current.getSizeS() != grid.getSizeS() ||
+				current.getSizeT() != grid.getSizeT() || current.getSizeR() != grid.getSizeR())
+			return null;
+		return current;
+	}
+	
+	/*************************************
+	 * Indicates whether this column uses a bricked layout for slice extraction; i.e., whether its volume
+	 * has at least {@link #getBrickingThreshold()} voxels.
+	 *
+	 * @return
+	 */
+	public boolean isBricked(){
+		if (volume == null || data == null) return false;
+		Grid3D grid = volume.getGrid();
+		return (long)grid.getSizeS() * grid.getSizeT() * grid.getSizeR() >= bricking_threshold;
+	}
+	
+	/*************************************
+	 * Returns the number of voxels above which grid columns use a bricked layout; see {@link #getBricks()}.
+	 *
+	 * @return
+	 */
+	public static long getBrickingThreshold(){
+		return bricking_threshold;
+	}
+	
+	/*************************************
+	 * Sets the number of voxels above which grid columns use a bricked layout; see {@link #getBricks()}.
+	 * Use {@link Long#MAX_VALUE} to disable bricking.
+	 *
+	 * @param voxels
+	 */
+	public static void setBrickingThreshold(long voxels){
+		bricking_threshold = voxels;
+	}
+	
+	/*************************************
+	 * Returns the undo/redo history of this column's volume (see {@link VolumeEditHistory}), or {@code null}
+	 * if it has no volume.
+	 *
+	 * @return
+	 */
+	public VolumeEditHistory getEditHistory(){
+		if (volume == null) return null;
+		return volume.getEditHistory();
+	}
+	
+	@Override
+	public void setDoubleValueAtVertex(int index, double value){
+		VolumeEditHistory history = getEditHistory();
+		if (history != null) history.beforeChange(this, index);
+		super.setDoubleValueAtVertex(index, value);
+	}
+	
+	@Override
+	public void setValueAtVertex(int index, MguiNumber value){
+		VolumeEditHistory history = getEditHistory();
+		if (history != null) history.beforeChange(this, index);
+		super.setValueAtVertex(index, value);
+	}
+	
+	@Override
+	public boolean setValues(ArrayList<MguiNumber> values, boolean update, boolean check_size){
+		VolumeEditHistory history = getEditHistory();
+		if (history != null){
+			// Saved tiles cannot be restored into a column of a different size
+			if (data != null && values.size() != data.size())
+				history.clear();
+			else
+				history.beforeSetValues(this, values);
+			}
+		return super.setValues(values, update, check_size);
+	}
+	
+	/*************************************
+	 * Called by {@link VolumeEditHistory} after it has restored voxel values directly; invalidates derived
+	 * data and notifies listeners that this column has changed.
+	 *
+	 */
+	protected void dataRestored(){
+		invalidateDataSummary();
+		fireDataColumnChanged(new VertexDataColumnEvent(this, EventType.ColumnChanged));
+	}
+	
+	/*************************************
+	 * Writes the value at {@code index} through to the bricked layout, if it was current before the value
+	 * was set (i.e., at {@code from_version}) and no other change has intervened.
+	 *
+	 */
+	@Override
+	protected void valueSet(int index, int from_version, int to_version){
+		if (to_version < 0) return;
+		SoftReference<VoxelBricks> ref = bricks;
+		VoxelBricks current = ref == null ? null : ref.get();
+		if (current == null) return;
+		synchronized (current){
+			if (current.getDataVersion() != from_version || getDataVersion() != to_version) return;
+			current.setValue(index, data.get(index).getValue(), to_version);
+			}
+	}
 	
 	@Override
 	public void setColourMap(ColourMap map, double min, double max, boolean update){
@@ -438,21 +610,7 @@ public class GridVertexDataColumn extends VertexDataColumn {
 	 * @return
 	 */
 	public BufferedImage getRSliceImage(int r, WindowedColourModel colour_model){
-		
-		Grid3D grid = volume.getGrid();
-		if (r < 0 || r > grid.getSizeR()) return null;
-		int s_size = grid.getSizeS();
-		int t_size = grid.getSizeT();
-		
-		WritableRaster raster = colour_model.createCompatibleWritableRaster(s_size, t_size);
-		BufferedImage image = new BufferedImage(colour_model, raster, false, null);
-		raster = image.getRaster();
-		for (int i = 0; i < s_size; i++)
-			for (int j = 0; j < t_size; j++){
-				raster.setPixel(i, t_size - j - 1, new double[]{getDoubleValueAtVoxel(i, j, r)});
-				}
-		
-		return image;
+		return getSliceImage(2, r, colour_model);
 	}
 	
 	/***************************************************
@@ -472,21 +630,7 @@ public class GridVertexDataColumn extends VertexDataColumn {
 	 * @return
 	 */
 	public BufferedImage getSSliceImage(int s, WindowedColourModel colour_model){
-		
-		Grid3D grid = volume.getGrid();
-		if (s < 0 || s > grid.getSizeS()) return null;
-		int r_size = grid.getSizeR();
-		int t_size = grid.getSizeT();
-		
-		WritableRaster raster = colour_model.createCompatibleWritableRaster(t_size, r_size);
-		BufferedImage image = new BufferedImage(colour_model, raster, false, null);
-		raster = image.getRaster();
-		for (int j = 0; j < t_size; j++)
-			for (int k = 0; k < r_size; k++){
-				raster.setPixel(j, r_size - k - 1, new double[]{getDoubleValueAtVoxel(s, j, k)});
-				}
-		
-		return image;
+		return getSliceImage(0, s, colour_model);
 	}
 	
 	/***************************************************
@@ -506,23 +650,94 @@ public class GridVertexDataColumn extends VertexDataColumn {
 	 * @return
 	 */
 	public BufferedImage getTSliceImage(int t, WindowedColourModel colour_model){
+		return getSliceImage(1, t, colour_model);
+	}
+	
+	/***************************************************
+	 * Returns a slice image for the plane {@code section} of the given {@code orientation} (0 = S, 1 = T, 
+	 * 2 = R). S slices have horizontal axis T and vertical axis R; T slices, S and R; and R slices, S and T. 
+	 * The vertical axis is flipped. Values are read from the bricked layout if this column has one (see 
+	 * {@link #getBricks()}).
+	 * 
+	 * @param orientation
+	 * @param section
+	 * @param colour_model
+	 * @return the image, or {@code null} if {@code section} is out of bounds
+	 */
+	protected BufferedImage getSliceImage(int orientation, int section, WindowedColourModel colour_model){
 		
 		Grid3D grid = volume.getGrid();
-		if (t < 0 || t > grid.getSizeT()) return null;
-		int r_size = grid.getSizeR();
 		int s_size = grid.getSizeS();
+		int t_size = grid.getSizeT();
+		int r_size = grid.getSizeR();
+		int size = orientation == 0 ? s_size : (orientation == 1 ? t_size : r_size);
+		if (section < 0 || section >= size) return null;
 		
-		WritableRaster raster = colour_model.createCompatibleWritableRaster(s_size, r_size);
-		BufferedImage image = new BufferedImage(colour_model, raster, false, null);
-		raster = image.getRaster();
-		for (int i = 0; i < s_size; i++)
-			for (int k = 0; k < r_size; k++){
-				raster.setPixel(i, r_size - k - 1, new double[]{getDoubleValueAtVoxel(i, t, k)});
+		int width = orientation == 0 ? t_size : s_size;
+		int height = orientation == 2 ? t_size : r_size;
+		double[] pixels = new double[width * height];
+		
+		VoxelBricks bricks = getBricks();
+		if (bricks != null){
+			bricks.getSlice(orientation, section, pixels);
+		}else{
+			int st_size = s_size * t_size;
+			for (int v = 0; v < height; v++){
+				int row = (height - v - 1) * width;
+				int idx, step;
+				switch (orientation){
+					case 0:
+						idx = v * st_size + section;
+						step = s_size;
+						break;
+					case 1:
+						idx = v * st_size + section * s_size;
+						step = 1;
+						break;
+					default:
+						idx = section * st_size + v * s_size;
+						step = 1;
+						break;
+					}
+				for (int u = 0; u < width; u++){
+					pixels[row + u] = data.get(idx).getValue();
+					idx += step;
+					}
 				}
+			}
 		
+		WritableRaster raster = colour_model.createCompatibleWritableRaster(width, height);
+		BufferedImage image = new BufferedImage(colour_model, raster, false, null);
+		image.getRaster().setPixels(0, 0, width, height, pixels);
 		return image;
 	}
 	
+	/***************************************************
+	 * Returns a slice image from pyramid level {@code level} (see {@link #getPyramid()}), for the plane
+	 * {@code section} (in full resolution voxel units) of the given {@code orientation} (0 = S, 1 = T, 
+	 * 2 = R). Level 0 returns the full resolution slice image. Blocks until the level is computed.
+	 * 
+	 * @param orientation
+	 * @param section
+	 * @param level
+	 * @return
+	 */
+	public BufferedImage getSliceImage(int orientation, int section, int level){
+		
+		if (level == 0){
+			switch (orientation){
+				case 0:
+					return getSSliceImage(section);
+				case 1:
+					return getTSliceImage(section);
+				default:
+					return getRSliceImage(section);
+				}
+			}
+		
+		return getPyramid().getLevel(level).getSliceImage(orientation, section >> level, getColourModel());
+	}
+	
 	// ****************************  XML STUFF *****************************************
 	
 	double 					xml_data_min, xml_data_max;
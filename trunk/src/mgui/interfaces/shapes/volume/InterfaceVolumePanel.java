@@ -80,7 +80,6 @@ import org.jogamp.vecmath.Point3f;
 import org.jogamp.vecmath.Vector3f;
 
 import foxtrot.Job;
-import foxtrot.Worker;
 import mgui.datasources.DataTypes;
 import mgui.geometry.Box3D;
 import mgui.geometry.Grid3D;
@@ -125,6 +124,7 @@ import mgui.interfaces.shapes.util.ShapeFunctions;
 import mgui.interfaces.stats.HistogramPlot;
 import mgui.interfaces.tools.graphics.Tool2D;
 import mgui.interfaces.tools.graphics.ToolDefine3DGrid2D;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.FileLoader;
 import mgui.io.InterfaceIOPanel;
 import mgui.io.domestic.shapes.ShapeIOException;
@@ -1946,7 +1946,7 @@ public class InterfaceVolumePanel extends InterfacePanel implements InterfaceIOP
 			//run this as worker thread so as not to freeze UI
 			
 			pnlHistPanel.setBusy(true);
-			histogram = (Histogram)Worker.post(new Job(){
+			histogram = (Histogram)TaskEngine.post(new Job(){
 			
 				public Histogram run(){
 					return getHistogramBlocking(currentVolume, t, bins, min, max);
@@ -2376,7 +2376,6 @@ public class InterfaceVolumePanel extends InterfacePanel implements InterfaceIOP
 			Plane3D plane = section_set.getPlaneAt(Integer.valueOf(txtMaskShapeText1.getText()));
 			
 			ShapeFunctions.unionMaskVolumeWithPlane(current_mask, currentVolume, plane, is_above);
-			currentVolume.setApplyMasks(currentVolume.getApplyMasks());
 			
 			return;
 			}
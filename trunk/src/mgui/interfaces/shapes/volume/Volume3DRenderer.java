@@ -24,6 +24,7 @@ import java.util.HashMap;
 
 import org.jogamp.java3d.Appearance;
 import org.jogamp.java3d.BranchGroup;
+import org.jogamp.java3d.Canvas3D;
 import org.jogamp.java3d.GeometryArray;
 import org.jogamp.java3d.Group;
 import org.jogamp.java3d.ImageComponent3D;
@@ -61,6 +62,8 @@ import mgui.interfaces.events.CameraEvent;
 import mgui.interfaces.graphics.GraphicEvent;
 import mgui.interfaces.graphics.InterfaceGraphic;
 import mgui.interfaces.graphics.InterfaceGraphic2D;
+import mgui.interfaces.graphics.InterfaceGraphic3D;
+import mgui.interfaces.graphics.InterfaceGraphicWindow;
 import mgui.interfaces.graphics.InterfaceGraphicListener;
 import mgui.interfaces.logs.LoggingType;
 import mgui.interfaces.maps.Camera3D;
@@ -97,6 +100,10 @@ public class Volume3DRenderer implements Camera3DListener,
 	public float alpha;
 	protected HashMap<InterfaceGraphic2D, Shape3D> window_nodes = new HashMap<InterfaceGraphic2D, Shape3D>();
 	protected Camera3D ref_camera = null;
+	protected int texture_level = 0;				// Pyramid level of the texture; see VolumePyramid
+	
+	/** Default horizontal field of view of a Java3D view; used where there is no canvas to query. */
+	public static final double FIELD_OF_VIEW = Math.PI / 4.0;
 	
 	BranchGroup sections_group;
 	HashMap<InterfaceGraphic2D, BranchGroup> section_nodes = new HashMap<InterfaceGraphic2D, BranchGroup>();
@@ -218,7 +225,79 @@ public class Volume3DRenderer implements Camera3DListener,
 	 */
 	public void setTexture(){
 		if (volume3D == null) return;
-		texture3D = new Volume3DTexture(volume3D);
+		texture3D = new Volume3DTexture(volume3D, texture_level);
+	}
+	
+	/*********************************************
+	 * Sets the pyramid level used for this renderer's texture; takes effect when the texture is
+	 * next set. See {@link VolumePyramid}.
+	 * 
+	 * @param level
+	 */
+	public void setTextureLevel(int level){
+		texture_level = Math.max(0, level);
+	}
+	
+	/*********************************************
+	 * Returns the pyramid level used for this renderer's texture.
+	 * 
+	 * @return
+	 */
+	public int getTextureLevel(){
+		return texture_level;
+	}
+	
+	/*********************************************
+	 * Estimates the number of screen pixels spanned by one voxel of this renderer's volume, when
+	 * viewed with {@code camera} on a canvas {@code canvas_width} pixels wide, with a horizontal 
+	 * field of view of {@code field_of_view} radians.
+	 * 
+	 * @param camera
+	 * @param canvas_width
+	 * @param field_of_view
+	 * @return
+	 */
+	public double getPixelsPerVoxel(Camera3D camera, int canvas_width, double field_of_view){
+		Grid3D grid = volume3D.getGrid();
+		double voxel_size = grid.getGeomS() / grid.getSizeS();
+		voxel_size = Math.min(voxel_size, grid.getGeomT() / grid.getSizeT());
+		voxel_size = Math.min(voxel_size, grid.getGeomR() / grid.getSizeR());
+		
+		double view_width = 2.0 * camera.getDistance() * Math.tan(field_of_view / 2.0);
+		if (!(view_width > 0) || canvas_width <= 0) return Double.POSITIVE_INFINITY;
+		
+		return canvas_width / view_width * voxel_size;
+	}
+	
+	/*********************************************
+	 * Selects the texture pyramid level for the current zoom of {@code camera}, and if it differs from the
+	 * current level, requests it from the volume; the texture is swapped once the level has been
+	 * computed in the background. The scale is taken from the 3D windows which view through 
+	 * {@code camera}; where there are several, the finest level required by any of them is used.
+	 * 
+	 * @param camera
+	 */
+	public void updateTextureLevel(Camera3D camera){
+		if (volume3D == null || render_mode != Mode.AsVolume || volume3D.getCurrentDataColumn() == null) 
+			return;
+		if (InterfaceSession.getDisplayPanel() == null) return;
+		
+		double pixels_per_voxel = -1;
+		ArrayList<InterfaceGraphicWindow> windows = InterfaceSession.getDisplayPanel().getWindows();
+		for (int i = 0; i < windows.size(); i++){
+			if (!(windows.get(i).getPanel() instanceof InterfaceGraphic3D)) continue;
+			InterfaceGraphic3D window = (InterfaceGraphic3D)windows.get(i).getPanel();
+			if (window.getCamera() != camera) continue;
+			Canvas3D canvas = window.getInterfaceCanvas3D().getCanvas();
+			double ppv = getPixelsPerVoxel(camera, canvas.getWidth(), canvas.getView().getFieldOfView());
+			pixels_per_voxel = Math.max(pixels_per_voxel, ppv);
+			}
+		if (pixels_per_voxel < 0) return;
+		
+		int level = VolumePyramid.getLevelForScale(pixels_per_voxel);
+		level = Math.min(level, ((GridVertexDataColumn)volume3D.getCurrentDataColumn()).getPyramid().getMaximumLevel());
+		if (level == texture_level) return;
+		volume3D.requestTextureLevel(level);
 	}
 	
 	/******************************
@@ -292,23 +371,26 @@ public class Volume3DRenderer implements Camera3DListener,
 		int z_size = grid3D.getSizeR();
 		
 		//yTrans.sub(box.tAxis);
+		// Textures from coarser pyramid levels may extend past the volume by less than one voxel of that level
 		Vector3f thisAxis = box.getSAxis();
-		thisAxis.scale((float)getTexture().sDim / (float)x_size);
+		thisAxis.scale((float)getTexture().getCoverageS() / (float)x_size);
 		box.setSAxis(thisAxis);
 		thisAxis = box.getTAxis();
-		thisAxis.scale((float)getTexture().tDim / (float)y_size);
+		thisAxis.scale((float)getTexture().getCoverageT() / (float)y_size);
 		box.setTAxis(thisAxis);
 		thisAxis = box.getRAxis();
-		thisAxis.scale((float)getTexture().rDim / (float)z_size);
+		thisAxis.scale((float)getTexture().getCoverageR() / (float)z_size);
 		box.setRAxis(thisAxis);
 		
 		//offset y...
-		Vector3f yTrans = new Vector3f();
-		yTrans.set(box.getTAxis());
-		yTrans.scale(((float)getTexture().tDim - (float)y_size) / getTexture().tDim);
-		Point3f bp = box.getBasePt();
-		bp.sub(yTrans);
-		box.setBasePt(bp);
+		if (getTexture().getLevel() == 0){
+			Vector3f yTrans = new Vector3f();
+			yTrans.set(box.getTAxis());
+			yTrans.scale(((float)getTexture().tDim - (float)y_size) / getTexture().tDim);
+			Point3f bp = box.getBasePt();
+			bp.sub(yTrans);
+			box.setBasePt(bp);
+			}
 		
 		//points
 		ArrayList<Point3f> points = box.getVertices();
@@ -538,7 +620,7 @@ public class Volume3DRenderer implements Camera3DListener,
 		planeS.w = 0;
 		planeS.normalize();
 		planeS.w = (float)d;
-		planeS.scale((float)(factor_s / texture3D.sDim));
+		planeS.scale((float)(factor_s / texture3D.getCoverageS()));
 		
 		//Y image coordinates and power-of-two ...
 		Vector4f planeT = GeometryFunctions.getPlaneEquation(box.getBasePt(), box.getTAxis());
@@ -547,7 +629,7 @@ public class Volume3DRenderer implements Camera3DListener,
 		planeT.w = 0;
 		planeT.normalize();
 		planeT.w = (float)d;
-		planeT.scale((float)(factor_t / texture3D.tDim));
+		planeT.scale((float)(factor_t / texture3D.getCoverageT()));
 		//planeT.w += (double)(texture3D.tDim - box.getSizeT()) / (double)texture3D.tDim;	//p-o-2 offset in object coords
 		
 		Vector4f planeR = GeometryFunctions.getPlaneEquation(box.getBasePt(), box.getRAxis());
@@ -556,7 +638,7 @@ public class Volume3DRenderer implements Camera3DListener,
 		planeR.w = 0;
 		planeR.normalize();
 		planeR.w = (float)d;
-		planeR.scale((float)(factor_r / texture3D.rDim));
+		planeR.scale((float)(factor_r / texture3D.getCoverageR()));
 		
 		TexCoordGeneration tex_gen = new TexCoordGeneration(TexCoordGeneration.OBJECT_LINEAR,
 															TexCoordGeneration.TEXTURE_COORDINATE_3,
@@ -811,6 +893,9 @@ public class Volume3DRenderer implements Camera3DListener,
 	
     public void cameraChanged(CameraEvent e){
     	switch (e.getType()){
+	    	case ZoomChanged:
+	    		updateTextureLevel(e.getCamera());
+	    		break;
 	    	case SceneChanged:
 	    		//force axis update
 	    		switch (render_mode){
@@ -67,6 +67,7 @@ public class Volume3DTexture implements Updater {
 	protected ColourMap colourMap;
 	protected boolean byRef = true;
 	protected BufferedImage[] images;
+	protected int level = 0;						// Pyramid level of this texture
 	
 	
 	public Volume3DTexture(Volume3DInt volume){
@@ -74,6 +75,17 @@ public class Volume3DTexture implements Updater {
 		setFromVolume(volume);
 	}
 	
+	/*************************************
+	 * Creates a texture from pyramid level {@code level} of {@code volume}; see {@link VolumePyramid}.
+	 * 
+	 * @param volume
+	 * @param level
+	 */
+	public Volume3DTexture(Volume3DInt volume, int level){
+		this.level = level;
+		setFromVolume(volume);
+	}
+	
 	public Volume3DTexture(Volume3DInt volume, ColourMap cmap){
 		colourMap = cmap;
 		setFromVolume(volume);
@@ -89,6 +101,43 @@ public class Volume3DTexture implements Updater {
 		return images;
 	}
 	
+	/*************************************
+	 * Returns the pyramid level of this texture; 0 is full resolution.
+	 * 
+	 * @return
+	 */
+	public int getLevel(){
+		return level;
+	}
+	
+	/*************************************
+	 * Returns the extent of this texture along S, in full resolution voxels. This is the S dimension
+	 * scaled by 2<sup>level</sup>, and may exceed the volume's S dimension for levels above 0.
+	 * 
+	 * @return
+	 */
+	public int getCoverageS(){
+		return sDim << level;
+	}
+	
+	/*************************************
+	 * Returns the extent of this texture along T, in full resolution voxels; see {@link #getCoverageS()}.
+	 * 
+	 * @return
+	 */
+	public int getCoverageT(){
+		return tDim << level;
+	}
+	
+	/*************************************
+	 * Returns the extent of this texture along R, in full resolution voxels; see {@link #getCoverageS()}.
+	 * 
+	 * @return
+	 */
+	public int getCoverageR(){
+		return rDim << level;
+	}
+	
 	/*************************************
 	 * Set this volume from the specified grid.
 	 *
@@ -114,13 +163,19 @@ public class Volume3DTexture implements Updater {
 		tDim = grid.getSizeT();
 		rDim = grid.getSizeR();
 		
-		BufferedImage[] _images = VolumeFunctions.getMaskedImages(volume);
+		BufferedImage[] _images = VolumeFunctions.getMaskedImages(volume, level);
 		
 		if (_images == null){
 			InterfaceSession.log("Volume3DTexture: No current data column", LoggingType.Errors);
 			//volume.reactivateClips();
 			return false;
 			}
+		if (level > 0){
+			// Dimensions of the downsampled level
+			sDim = _images[0].getWidth();
+			tDim = _images[0].getHeight();
+			rDim = _images.length;
+			}
 		iComp = new ImageComponent3D(getFormat(), _images, byRef, false);
 		iComp.setCapability(ImageComponent.ALLOW_IMAGE_READ);
 		iComp.setCapability(ImageComponent.ALLOW_IMAGE_WRITE);
@@ -160,7 +215,7 @@ public class Volume3DTexture implements Updater {
 		
 		if (iComp == null) return setFromVolume(volume, update);
 		
-		BufferedImage[] _images = VolumeFunctions.getMaskedImages(volume);
+		BufferedImage[] _images = VolumeFunctions.getMaskedImages(volume, level);
 		
 		if (byRef && update){
 			// This should be a call from an updateData method
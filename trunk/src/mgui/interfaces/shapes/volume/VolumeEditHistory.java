@@ -0,0 +1,561 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.interfaces.shapes.volume;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import mgui.geometry.Grid3D;
+import mgui.interfaces.shapes.Volume3DInt;
+import mgui.numbers.MguiNumber;
+
+/*******************************************************
+ * Copy-on-write undo/redo history for edits to the data columns and masks of a {@link Volume3DInt}. The 
+ * volume is divided into tiles of {@link #TILE_SIZE}<sup>3</sup> voxels; while an edit is open (see 
+ * {@link #beginEdit(String)}), the first change to any voxel of a tile of a column or mask saves a copy of 
+ * that tile's values, so that an edit costs memory in proportion to the region it touches rather than to 
+ * the volume. A single edit may span several columns and masks.
+ * 
+ * <p>Changes made through {@link GridVertexDataColumn#setValueAtVertex(int, MguiNumber)}, 
+ * {@link GridVertexDataColumn#setDoubleValueAtVertex(int, double)} (and hence 
+ * {@link Volume3DInt#setDatumAtVoxel(int, int, int, double)}, etc.) and 
+ * {@link GridVertexDataColumn#setValues(ArrayList, boolean, boolean)} are recorded automatically, as are
+ * the mask operations of {@link Volume3DInt}. Callers which modify the array returned by 
+ * {@link GridVertexDataColumn#getData()}, or a mask array, directly should call one of the 
+ * {@code beforeChange} or {@code beforeMaskChange} methods for the affected region first. Adding or 
+ * removing columns and masks is not recorded; the history is cleared if a recorded column or mask is 
+ * removed, or if the volume's grid or a column's size changes, since saved tiles would no longer map to
+ * the current voxels.
+ * 
+ * <p>Undo and redo swap the saved tiles with the current values. Completed edits are retained until their
+ * total size exceeds {@link #getMemoryBudget()}, after which the oldest are discarded; the most recent 
+ * edit is always retained.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class VolumeEditHistory {
+
+	/** Edge length of a tile, in voxels. */
+	public static final int TILE_SIZE = 16;
+	/** Default memory budget for completed edits, in bytes. */
+	public static final long DEFAULT_MEMORY_BUDGET = 256L << 20;
+	
+	static final int TILE_SHIFT = 4;
+	
+	protected Volume3DInt volume;
+	protected long memory_budget = DEFAULT_MEMORY_BUDGET;
+	protected long memory_used = 0;
+	protected LinkedList<Edit> undo_stack = new LinkedList<Edit>();
+	protected LinkedList<Edit> redo_stack = new LinkedList<Edit>();
+	protected volatile Edit current;
+	protected int edit_depth = 0;
+	
+	public VolumeEditHistory(Volume3DInt volume){
+		this.volume = volume;
+	}
+	
+	public Volume3DInt getVolume(){
+		return volume;
+	}
+	
+	/*******************************************************
+	 * Returns the maximum total size, in bytes, of the saved tiles of completed edits.
+	 * 
+	 * @return
+	 */
+	public synchronized long getMemoryBudget(){
+		return memory_budget;
+	}
+	
+	/*******************************************************
+	 * Sets the maximum total size, in bytes, of the saved tiles of completed edits; older edits are discarded
+	 * to stay within this budget.
+	 * 
+	 * @param bytes
+	 */
+	public synchronized void setMemoryBudget(long bytes){
+		this.memory_budget = Math.max(0, bytes);
+		trim();
+	}
+	
+	/*******************************************************
+	 * Returns the total size, in bytes, of the saved tiles of all edits in this history, including an open
+	 * edit.
+	 * 
+	 * @return
+	 */
+	public synchronized long getMemoryUsage(){
+		return memory_used + (current == null ? 0 : current.bytes);
+	}
+	
+	/*******************************************************
+	 * Opens an edit named {@code name}. Calls may be nested, in which case all changes up to the matching 
+	 * outermost {@link #endEdit()} form a single edit, with the outermost name. Every call must be matched
+	 * by a call to {@link #endEdit()}, typically in a {@code finally} block.
+	 * 
+	 * @param name
+	 */
+	public synchronized void beginEdit(String name){
+		if (edit_depth++ == 0)
+			current = new Edit(name);
+	}
+	
+	/*******************************************************
+	 * Closes the current edit. If this is the outermost edit and it changed any voxels, it is added to the
+	 * undo history and the redo history is cleared.
+	 * 
+	 */
+	public synchronized void endEdit(){
+		if (edit_depth == 0)
+			throw new IllegalStateException("VolumeEditHistory: No edit is open.");
+		if (--edit_depth > 0) return;
+		Edit edit = current;
+		current = null;
+		if (edit.isEmpty()) return;
+		
+		clearRedo();
+		undo_stack.addLast(edit);
+		memory_used += edit.bytes;
+		trim();
+	}
+	
+	/*******************************************************
+	 * Closes the current edit (including any enclosing edits), restoring all voxels it changed.
+	 * 
+	 */
+	public synchronized void cancelEdit(){
+		if (edit_depth == 0) return;
+		Edit edit = current;
+		current = null;
+		edit_depth = 0;
+		if (edit.isEmpty()) return;
+		swap(edit);
+	}
+	
+	/*******************************************************
+	 * Indicates whether an edit is currently open.
+	 * 
+	 * @return
+	 */
+	public boolean isEditing(){
+		return current != null;
+	}
+	
+	/*******************************************************
+	 * Saves the tile of {@code column} containing the voxel at absolute index {@code index}, if an edit is 
+	 * open and the tile has not yet been saved for this edit. Must be called before the voxel is changed.
+	 * 
+	 * @param column
+	 * @param index
+	 */
+	public void beforeChange(GridVertexDataColumn column, int index){
+		if (current == null) return;
+		Grid3D grid = getGrid();
+		int s_size = grid.getSizeS(), t_size = grid.getSizeT();
+		int i = index % s_size;
+		int j = (index / s_size) % t_size;
+		int k = index / (s_size * t_size);
+		synchronized(this){
+			if (current == null) return;
+			saveTile(grid, column, getTileIndex(grid, i, j, k));
+			}
+	}
+	
+	/*******************************************************
+	 * Saves all tiles of {@code column}, if an edit is open. Must be called before the column's values are
+	 * overwritten directly.
+	 * 
+	 * @param column
+	 */
+	public void beforeChange(GridVertexDataColumn column){
+		Grid3D grid = getGrid();
+		beforeChange(column, 0, 0, 0, grid.getSizeS(), grid.getSizeT(), grid.getSizeR());
+	}
+	
+	/*******************************************************
+	 * Saves all tiles of {@code column} intersecting the region [{@code i0}, {@code i1}) x 
+	 * [{@code j0}, {@code j1}) x [{@code k0}, {@code k1}), if an edit is open. Must be called before the 
+	 * region is changed.
+	 * 
+	 */
+	public synchronized void beforeChange(GridVertexDataColumn column, int i0, int j0, int k0, int i1, int j1, int k1){
+		beforeRegionChange(column, i0, j0, k0, i1, j1, k1);
+	}
+	
+	/*******************************************************
+	 * Saves all tiles of {@code mask}, if an edit is open. Must be called before the mask is changed 
+	 * directly.
+	 * 
+	 * @param mask
+	 */
+	public void beforeMaskChange(boolean[][][] mask){
+		Grid3D grid = getGrid();
+		beforeMaskChange(mask, 0, 0, 0, grid.getSizeS(), grid.getSizeT(), grid.getSizeR());
+	}
+	
+	/*******************************************************
+	 * Saves all tiles of {@code mask} intersecting the region [{@code i0}, {@code i1}) x 
+	 * [{@code j0}, {@code j1}) x [{@code k0}, {@code k1}), if an edit is open. Must be called before the 
+	 * region is changed.
+	 * 
+	 */
+	public synchronized void beforeMaskChange(boolean[][][] mask, int i0, int j0, int k0, int i1, int j1, int k1){
+		beforeRegionChange(mask, i0, j0, k0, i1, j1, k1);
+	}
+	
+	protected void beforeRegionChange(Object target, int i0, int j0, int k0, int i1, int j1, int k1){
+		if (current == null) return;
+		Grid3D grid = getGrid();
+		i0 = Math.max(0, i0); j0 = Math.max(0, j0); k0 = Math.max(0, k0);
+		i1 = Math.min(grid.getSizeS(), i1); j1 = Math.min(grid.getSizeT(), j1); k1 = Math.min(grid.getSizeR(), k1);
+		if (i0 >= i1 || j0 >= j1 || k0 >= k1) return;
+		for (int tk = k0 >> TILE_SHIFT; tk <= (k1 - 1) >> TILE_SHIFT; tk++)
+			for (int tj = j0 >> TILE_SHIFT; tj <= (j1 - 1) >> TILE_SHIFT; tj++)
+				for (int ti = i0 >> TILE_SHIFT; ti <= (i1 - 1) >> TILE_SHIFT; ti++)
+					saveTile(grid, target, getTileIndex(grid, ti << TILE_SHIFT, tj << TILE_SHIFT, tk << TILE_SHIFT));
+	}
+	
+	/*******************************************************
+	 * Saves each tile of {@code column} containing a voxel whose value differs between the column's current 
+	 * data and {@code values}, if an edit is open. Called before the column's values are replaced.
+	 * 
+	 * @param column
+	 * @param values
+	 */
+	protected synchronized void beforeSetValues(GridVertexDataColumn column, ArrayList<MguiNumber> values){
+		if (current == null) return;
+		ArrayList<MguiNumber> data = column.getData();
+		if (data == null || values == data || values.size() != data.size()) return;
+		Grid3D grid = getGrid();
+		int s_size = grid.getSizeS(), t_size = grid.getSizeT(), r_size = grid.getSizeR();
+		for (int k = 0; k < r_size; k++)
+			for (int j = 0; j < t_size; j++){
+				int idx = (k * t_size + j) * s_size;
+				for (int i = 0; i < s_size; i++){
+					if (data.get(idx + i).getValue() != values.get(idx + i).getValue()){
+						saveTile(grid, column, getTileIndex(grid, i, j, k));
+						// Remaining voxels in this row of the tile are covered
+						i |= TILE_SIZE - 1;
+						}
+					}
+				}
+	}
+	
+	/*******************************************************
+	 * Indicates whether there is an edit to undo.
+	 * 
+	 * @return
+	 */
+	public synchronized boolean canUndo(){
+		return !undo_stack.isEmpty();
+	}
+	
+	/*******************************************************
+	 * Indicates whether there is an edit to redo.
+	 * 
+	 * @return
+	 */
+	public synchronized boolean canRedo(){
+		return !redo_stack.isEmpty();
+	}
+	
+	/*******************************************************
+	 * Returns the name of the edit which {@link #undo()} would revert, or {@code null} if there is none.
+	 * 
+	 * @return
+	 */
+	public synchronized String getUndoName(){
+		return undo_stack.isEmpty() ? null : undo_stack.getLast().name;
+	}
+	
+	/*******************************************************
+	 * Returns the name of the edit which {@link #redo()} would reapply, or {@code null} if there is none.
+	 * 
+	 * @return
+	 */
+	public synchronized String getRedoName(){
+		return redo_stack.isEmpty() ? null : redo_stack.getLast().name;
+	}
+	
+	/*******************************************************
+	 * Reverts the most recent edit. Has no effect while an edit is open.
+	 * 
+	 * @return {@code true} if an edit was reverted
+	 */
+	public synchronized boolean undo(){
+		if (current != null || undo_stack.isEmpty()) return false;
+		Edit edit = undo_stack.removeLast();
+		memory_used -= edit.bytes;
+		swap(edit);
+		redo_stack.addLast(edit);
+		memory_used += edit.bytes;
+		return true;
+	}
+	
+	/*******************************************************
+	 * Reapplies the most recently undone edit. Has no effect while an edit is open.
+	 * 
+	 * @return {@code true} if an edit was reapplied
+	 */
+	public synchronized boolean redo(){
+		if (current != null || redo_stack.isEmpty()) return false;
+		Edit edit = redo_stack.removeLast();
+		memory_used -= edit.bytes;
+		swap(edit);
+		undo_stack.addLast(edit);
+		memory_used += edit.bytes;
+		return true;
+	}
+	
+	/*******************************************************
+	 * Discards all undo and redo history. An open edit is retained.
+	 * 
+	 */
+	public synchronized void clear(){
+		undo_stack.clear();
+		redo_stack.clear();
+		memory_used = 0;
+	}
+	
+	/*******************************************************
+	 * Indicates whether any edit in this history, including an open edit, has saved values for 
+	 * {@code target}, which is a {@link GridVertexDataColumn} or a mask.
+	 * 
+	 * @param target
+	 * @return
+	 */
+	public synchronized boolean isRecorded(Object target){
+		if (current != null && current.targets.containsKey(target)) return true;
+		for (Edit edit : undo_stack)
+			if (edit.targets.containsKey(target)) return true;
+		for (Edit edit : redo_stack)
+			if (edit.targets.containsKey(target)) return true;
+		return false;
+	}
+	
+	protected void clearRedo(){
+		for (Edit edit : redo_stack)
+			memory_used -= edit.bytes;
+		redo_stack.clear();
+	}
+	
+	/*******************************************************
+	 * Discards the oldest edits (redo history first) until the budget is met, retaining the most recent edit.
+	 * 
+	 */
+	protected void trim(){
+		while (memory_used > memory_budget && !redo_stack.isEmpty())
+			memory_used -= redo_stack.removeFirst().bytes;
+		while (memory_used > memory_budget && undo_stack.size() > 1)
+			memory_used -= undo_stack.removeFirst().bytes;
+	}
+	
+	protected Grid3D getGrid(){
+		return volume.getGrid();
+	}
+	
+	protected static int getTileIndex(Grid3D grid, int i, int j, int k){
+		int tiles_s = (grid.getSizeS() + TILE_SIZE - 1) >> TILE_SHIFT;
+		int tiles_t = (grid.getSizeT() + TILE_SIZE - 1) >> TILE_SHIFT;
+		return ((k >> TILE_SHIFT) * tiles_t + (j >> TILE_SHIFT)) * tiles_s + (i >> TILE_SHIFT);
+	}
+	
+	/*******************************************************
+	 * Returns the voxel bounds {i0, j0, k0, i1, j1, k1} (exclusive upper) of tile {@code tile}.
+	 * 
+	 */
+	protected static int[] getTileBounds(Grid3D grid, int tile){
+		int tiles_s = (grid.getSizeS() + TILE_SIZE - 1) >> TILE_SHIFT;
+		int tiles_t = (grid.getSizeT() + TILE_SIZE - 1) >> TILE_SHIFT;
+		int i0 = (tile % tiles_s) << TILE_SHIFT;
+		int j0 = ((tile / tiles_s) % tiles_t) << TILE_SHIFT;
+		int k0 = (tile / (tiles_s * tiles_t)) << TILE_SHIFT;
+		return new int[]{i0, j0, k0, 
+						 Math.min(i0 + TILE_SIZE, grid.getSizeS()),
+						 Math.min(j0 + TILE_SIZE, grid.getSizeT()),
+						 Math.min(k0 + TILE_SIZE, grid.getSizeR())};
+	}
+	
+	/*******************************************************
+	 * Saves tile {@code tile} of {@code target}, which is either a {@link GridVertexDataColumn} or a mask,
+	 * if it has not yet been saved for the current edit.
+	 * 
+	 */
+	protected void saveTile(Grid3D grid, Object target, int tile){
+		HashMap<Integer, Tile> tiles = current.targets.get(target);
+		if (tiles == null){
+			tiles = new HashMap<Integer, Tile>();
+			current.targets.put(target, tiles);
+			}
+		if (tiles.containsKey(tile)) return;
+		int[] b = getTileBounds(grid, tile);
+		int n = (b[3] - b[0]) * (b[4] - b[1]) * (b[5] - b[2]);
+		Tile saved;
+		int p = 0;
+		
+		if (target instanceof GridVertexDataColumn){
+			GridVertexDataColumn column = (GridVertexDataColumn)target;
+			saved = new Tile(n, VoxelBricks.isFloatExact(column.getDataTransferType()));
+			ArrayList<MguiNumber> data = column.getData();
+			int s_size = grid.getSizeS(), t_size = grid.getSizeT();
+			for (int k = b[2]; k < b[5]; k++)
+				for (int j = b[1]; j < b[4]; j++){
+					int idx = (k * t_size + j) * s_size;
+					for (int i = b[0]; i < b[3]; i++)
+						saved.set(p++, data.get(idx + i).getValue());
+					}
+		}else{
+			boolean[][][] mask = (boolean[][][])target;
+			saved = new Tile(n);
+			for (int k = b[2]; k < b[5]; k++)
+				for (int j = b[1]; j < b[4]; j++)
+					for (int i = b[0]; i < b[3]; i++)
+						saved.mask_values[p++] = mask[i][j][k];
+			}
+		
+		tiles.put(tile, saved);
+		current.bytes += saved.getBytes();
+	}
+	
+	/*******************************************************
+	 * Exchanges the saved values of {@code edit} with the current values, and notifies the affected columns
+	 * and volume. Restored voxels receive new number instances, since the current instances may be shared.
+	 * 
+	 */
+	protected void swap(Edit edit){
+		Grid3D grid = getGrid();
+		int s_size = grid.getSizeS(), t_size = grid.getSizeT();
+		boolean masks_changed = false;
+		
+		Iterator<Object> targets = edit.targets.keySet().iterator();
+		while (targets.hasNext()){
+			Object target = targets.next();
+			HashMap<Integer, Tile> tiles = edit.targets.get(target);
+			GridVertexDataColumn column = null;
+			ArrayList<MguiNumber> data = null;
+			boolean[][][] mask = null;
+			if (target instanceof GridVertexDataColumn){
+				column = (GridVertexDataColumn)target;
+				data = column.getData();
+			}else{
+				mask = (boolean[][][])target;
+				masks_changed = true;
+				}
+			
+			Iterator<Integer> itr = tiles.keySet().iterator();
+			while (itr.hasNext()){
+				int tile = itr.next();
+				Tile saved = tiles.get(tile);
+				int[] b = getTileBounds(grid, tile);
+				int p = 0;
+				for (int k = b[2]; k < b[5]; k++)
+					for (int j = b[1]; j < b[4]; j++){
+						int idx = (k * t_size + j) * s_size;
+						for (int i = b[0]; i < b[3]; i++){
+							if (mask != null){
+								boolean masked = saved.mask_values[p];
+								saved.mask_values[p++] = mask[i][j][k];
+								mask[i][j][k] = masked;
+								continue;
+								}
+							MguiNumber number = data.get(idx + i);
+							double value = saved.get(p);
+							saved.set(p++, number.getValue());
+							if (number.getValue() != value){
+								number = (MguiNumber)number.clone();
+								number.setValue(value);
+								data.set(idx + i, number);
+								}
+							}
+						}
+				}
+			
+			if (column != null)
+				column.dataRestored();
+			}
+		
+		if (masks_changed)
+			volume.fireMasksChanged();
+	}
+	
+	/*******************************************************
+	 * A single edit: the saved values of each tile it changed, for each column or mask.
+	 * 
+	 */
+	protected static class Edit {
+		final String name;
+		final IdentityHashMap<Object, HashMap<Integer, Tile>> targets = new IdentityHashMap<Object, HashMap<Integer, Tile>>();
+		long bytes = 0;
+		
+		Edit(String name){
+			this.name = name;
+		}
+		
+		boolean isEmpty(){
+			return targets.isEmpty();
+		}
+	}
+	
+	/*******************************************************
+	 * The saved values of a tile, in S-fastest order; stored as {@code float} where this is exact for the 
+	 * column's transfer type, or as {@code boolean} for a mask.
+	 * 
+	 */
+	protected static class Tile {
+		final float[] float_values;
+		final double[] double_values;
+		final boolean[] mask_values;
+		
+		Tile(int n, boolean as_float){
+			float_values = as_float ? new float[n] : null;
+			double_values = as_float ? null : new double[n];
+			mask_values = null;
+		}
+		
+		Tile(int n){
+			float_values = null;
+			double_values = null;
+			mask_values = new boolean[n];
+		}
+		
+		double get(int p){
+			return float_values != null ? float_values[p] : double_values[p];
+		}
+		
+		void set(int p, double value){
+			if (float_values != null)
+				float_values[p] = (float)value;
+			else
+				double_values[p] = value;
+		}
+		
+		long getBytes(){
+			if (mask_values != null) return mask_values.length + 16L;
+			return float_values != null ? 4L * float_values.length + 16 : 8L * double_values.length + 16;
+		}
+	}
+	
+}
@@ -0,0 +1,441 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package mgui.interfaces.shapes.volume;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+
+import mgui.geometry.Grid3D;
+import mgui.image.util.WindowedColourModel;
+import mgui.interfaces.util.BackgroundTask;
+import mgui.interfaces.util.ParallelFunctions;
+import mgui.interfaces.util.TaskEngine;
+import mgui.numbers.MguiNumber;
+
+/*******************************************************
+ * A multi-resolution pyramid for a {@link GridVertexDataColumn}. Level 0 is the column itself; level
+ * {@code L} is downsampled by a factor of 2<sup>L</sup> along each axis, such that voxel [i,j,k] of 
+ * level {@code L} summarizes voxels [i*2<sup>L</sup>, (i+1)*2<sup>L</sup>), etc., of level 0. Levels have
+ * dimensions {@code ceil(size / 2^L)}, so the last voxel along an axis may summarize fewer voxels.
+ * 
+ * <p>Levels are computed on demand, each from the next finer level, in parallel, and cached until the 
+ * column's data changes (see {@link GridVertexDataColumn#getDataVersion()}). Continuous data is averaged; 
+ * discrete data (columns with a name map or discrete colour map) takes the most frequent value. Masked 
+ * voxels (having the "zero" value of the column's transfer type; see 
+ * {@link WindowedColourModel#getZeroValue(int)}) and NaNs are ignored; a level voxel is masked only if all 
+ * the voxels it summarizes are masked.
+ * 
+ * <p>Renderers can use {@link #getLevelForScale(double)} to choose a level from the number of screen 
+ * pixels per voxel, and {@link #requestLevel(int, Runnable)} to compute it in the background while a 
+ * coarser or finer level is displayed.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class VolumePyramid {
+
+	/** Levels are not generated once the largest dimension would fall below this size. */
+	public static final int MIN_LEVEL_SIZE = 8;
+	
+	protected GridVertexDataColumn column;
+	protected HashMap<Integer, Level> levels = new HashMap<Integer, Level>();
+	protected HashMap<Integer, BackgroundTask<Level>> pending = new HashMap<Integer, BackgroundTask<Level>>();
+	
+	public VolumePyramid(GridVertexDataColumn column){
+		this.column = column;
+	}
+	
+	public GridVertexDataColumn getColumn(){
+		return column;
+	}
+	
+	/*******************************************************
+	 * Returns the pyramid level appropriate for displaying a volume at {@code pixels_per_voxel} screen
+	 * pixels per (full resolution) voxel; i.e., the finest level whose voxels span at most one pixel,
+	 * so that no detail is drawn which cannot be displayed. Returns 0 if {@code pixels_per_voxel >= 0.5}.
+	 * 
+	 * @param pixels_per_voxel
+	 * @return
+	 */
+	public static int getLevelForScale(double pixels_per_voxel){
+		if (!(pixels_per_voxel > 0) || pixels_per_voxel >= 0.5) return 0;
+		return (int)Math.floor(Math.log(1.0 / pixels_per_voxel) / Math.log(2.0));
+	}
+	
+	/*******************************************************
+	 * Returns the number of levels in this pyramid, including level 0.
+	 * 
+	 * @return
+	 */
+	public int getLevelCount(){
+		Grid3D grid = getGrid();
+		if (grid == null) return 1;
+		int max = Math.max(grid.getSizeS(), Math.max(grid.getSizeT(), grid.getSizeR()));
+		int count = 1;
+		while (getLevelSize(max, count) >= MIN_LEVEL_SIZE)
+			count++;
+		return count;
+	}
+	
+	/*******************************************************
+	 * Returns the coarsest level of this pyramid.
+	 * 
+	 * @return
+	 */
+	public int getMaximumLevel(){
+		return getLevelCount() - 1;
+	}
+	
+	/*******************************************************
+	 * Returns the dimensions {S, T, R} of {@code level}.
+	 * 
+	 * @param level
+	 * @return
+	 */
+	public int[] getLevelDimensions(int level){
+		Grid3D grid = getGrid();
+		return new int[]{getLevelSize(grid.getSizeS(), level),
+						 getLevelSize(grid.getSizeT(), level),
+						 getLevelSize(grid.getSizeR(), level)};
+	}
+	
+	protected static int getLevelSize(int size, int level){
+		return (size + (1 << level) - 1) >> level;
+	}
+	
+	protected Grid3D getGrid(){
+		if (column.getParent() == null) return null;
+		return column.getParent().getGrid();
+	}
+	
+	/*******************************************************
+	 * Indicates whether {@code level} is available without computation; level 0 is always available.
+	 * 
+	 * @param level
+	 * @return
+	 */
+	public synchronized boolean isAvailable(int level){
+		return level == 0 || getAvailableLevel(level) != null;
+	}
+	
+	/*******************************************************
+	 * Returns {@code level} if it has been computed and is current, otherwise {@code null}.
+	 * 
+	 * @param level A level {@code >= 1}
+	 * @return
+	 */
+	public synchronized Level getAvailableLevel(int level){
+		Level l = levels.get(level);
+		if (l == null || !isCurrent(l)) return null;
+		return l;
+	}
+	
+	/*******************************************************
+	 * Returns {@code level}, computing it (and any finer levels it depends on) if necessary. Blocks until
+	 * the level is available.
+	 * 
+	 * @param level A level between 1 and {@link #getMaximumLevel()}
+	 * @return
+	 */
+	public synchronized Level getLevel(int level){
+		if (level < 1 || level > getMaximumLevel())
+			throw new IllegalArgumentException("VolumePyramid: Invalid level " + level + 
+											   " (max " + getMaximumLevel() + ").");
+		Level l = getAvailableLevel(level);
+		if (l != null) return l;
+		
+		// Start from the finest current level below this one
+		int start = level - 1;
+		while (start > 0 && getAvailableLevel(start) == null)
+			start--;
+		
+		Level source = start > 0 ? levels.get(start) : null;
+		for (int i = start + 1; i <= level; i++){
+			source = computeLevel(source, i);
+			levels.put(i, source);
+			}
+		return source;
+	}
+	
+	/*******************************************************
+	 * Requests that {@code level} be computed in the background. If it is already available, returns
+	 * {@code null} and does not call {@code on_ready}. Otherwise returns the running task, and
+	 * {@code on_ready} (if not {@code null}) is called on the event dispatch thread when it completes.
+	 * Concurrent requests for the same level share one task.
+	 * 
+	 * @param level
+	 * @param on_ready
+	 * @return
+	 */
+	public BackgroundTask<Level> requestLevel(final int level, Runnable on_ready){
+		if (isAvailable(level)) return null;
+		BackgroundTask<Level> task = null;
+		synchronized(pending){
+			task = pending.get(level);
+			if (task == null || task.isDone()){
+				task = TaskEngine.submit("Volume pyramid level " + level + " [" + column.getName() + "]", 
+										 new Callable<Level>(){
+											public Level call(){
+												return getLevel(level);
+												}
+										 	}, null);
+				pending.put(level, task);
+				}
+			}
+		if (on_ready != null)
+			task.addCompletionCallback(on_ready);
+		return task;
+	}
+	
+	/*******************************************************
+	 * Discards all cached levels.
+	 * 
+	 */
+	public synchronized void clear(){
+		levels.clear();
+	}
+	
+	protected boolean isCurrent(Level level){
+		Grid3D grid = getGrid();
+		if (grid == null || level.data_version != column.getDataVersion()) return false;
+		int[] dims = getLevelDimensions(level.level);
+		return dims[0] == level.s_size && dims[1] == level.t_size && dims[2] == level.r_size;
+	}
+	
+	protected boolean isDiscrete(){
+		if (column.hasNameMap()) return true;
+		WindowedColourModel model = column.getColourModel();
+		return model != null && model.is_discrete;
+	}
+	
+	/*******************************************************
+	 * Computes {@code level} from {@code source}, which is the level above it, or {@code null} if
+	 * {@code level} is 1 (in which case the column data is the source).
+	 * 
+	 */
+	protected Level computeLevel(final Level source, int level){
+		
+		int data_version = column.getDataVersion();
+		final int[] src_dims = source == null ? getLevelDimensions(0) : 
+											 new int[]{source.s_size, source.t_size, source.r_size};
+		final int[] dims = getLevelDimensions(level);
+		final Level target = new Level(level, dims[0], dims[1], dims[2], data_version);
+		
+		final ArrayList<MguiNumber> data = column.getData();
+		final double zero = WindowedColourModel.getZeroValue(column.getDataTransferType());
+		final boolean discrete = isDiscrete();
+		
+		try{
+			ParallelFunctions.runPartitioned(dims[2], new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					double[] block = new double[8];
+					int ss = src_dims[0], st = src_dims[1], sr = src_dims[2];
+					int sst = ss * st;
+					for (int k = start; k < end; k++){
+						int k0 = k << 1, k1 = Math.min(k0 + 2, sr);
+						for (int j = 0; j < dims[1]; j++){
+							int j0 = j << 1, j1 = Math.min(j0 + 2, st);
+							int out = k * dims[0] * dims[1] + j * dims[0];
+							for (int i = 0; i < dims[0]; i++){
+								int i0 = i << 1, i1 = Math.min(i0 + 2, ss);
+								int n = 0;
+								for (int c = k0; c < k1; c++)
+									for (int b = j0; b < j1; b++){
+										int idx = c * sst + b * ss;
+										for (int a = i0; a < i1; a++){
+											double v = source == null ? data.get(idx + a).getValue() : 
+																		source.values[idx + a];
+											if (v == zero || Double.isNaN(v)) continue;
+											block[n++] = v;
+											}
+										}
+								target.values[out + i] = summarize(block, n, zero, discrete);
+								}
+							}
+						}
+					}
+				});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
+		
+		return target;
+	}
+	
+	/*******************************************************
+	 * Summarizes the first {@code n} values of {@code block}: the mean if continuous, or the most 
+	 * frequent value if {@code discrete}. Returns {@code zero} if {@code n == 0}.
+	 * 
+	 */
+	static double summarize(double[] block, int n, double zero, boolean discrete){
+		if (n == 0) return zero;
+		if (!discrete){
+			double sum = 0;
+			for (int i = 0; i < n; i++)
+				sum += block[i];
+			return sum / n;
+			}
+		double mode = block[0];
+		int max_count = 0;
+		for (int i = 0; i < n; i++){
+			int count = 0;
+			for (int j = i; j < n; j++)
+				if (block[j] == block[i]) count++;
+			if (count > max_count){
+				max_count = count;
+				mode = block[i];
+				}
+			}
+		return mode;
+	}
+	
+	/*******************************************************
+	 * A single downsampled level of a {@link VolumePyramid}. Values are stored in the same order as
+	 * a {@link Grid3D}, i.e., {@code index = k * S * T + j * S + i}.
+	 * 
+	 */
+	public static class Level {
+		
+		final int level;
+		final int s_size, t_size, r_size;
+		final double[] values;
+		final int data_version;
+		
+		Level(int level, int s_size, int t_size, int r_size, int data_version){
+			this.level = level;
+			this.s_size = s_size;
+			this.t_size = t_size;
+			this.r_size = r_size;
+			this.data_version = data_version;
+			this.values = new double[s_size * t_size * r_size];
+		}
+		
+		public int getLevel(){
+			return level;
+		}
+		
+		/*******************************************************
+		 * Returns the downsampling factor of this level, 2<sup>level</sup>.
+		 * 
+		 * @return
+		 */
+		public int getScale(){
+			return 1 << level;
+		}
+		
+		public int getSizeS(){
+			return s_size;
+		}
+		
+		public int getSizeT(){
+			return t_size;
+		}
+		
+		public int getSizeR(){
+			return r_size;
+		}
+		
+		public double getValue(int i, int j, int k){
+			return values[k * s_size * t_size + j * s_size + i];
+		}
+		
+		/*******************************************************
+		 * Returns the dimensions {width, height} of a slice image of this level for {@code orientation}
+		 * (0 = S, 1 = T, 2 = R).
+		 * 
+		 * @param orientation
+		 * @return
+		 */
+		public int[] getSliceDimensions(int orientation){
+			switch (orientation){
+				case 0:
+					return new int[]{t_size, r_size};
+				case 1:
+					return new int[]{s_size, r_size};
+				default:
+					return new int[]{s_size, t_size};
+				}
+		}
+		
+		/*******************************************************
+		 * Returns a slice image of this level at {@code section} (in this level's voxel units), for 
+		 * {@code orientation} (0 = S, 1 = T, 2 = R), rendered with {@code colour_model}. Images are laid out 
+		 * as for the slice images of {@link GridVertexDataColumn}.
+		 * 
+		 * @param orientation
+		 * @param section
+		 * @param colour_model
+		 * @return
+		 */
+		public BufferedImage getSliceImage(int orientation, int section, WindowedColourModel colour_model){
+			
+			int[] dims = getSliceDimensions(orientation);
+			WritableRaster raster = colour_model.createCompatibleWritableRaster(dims[0], dims[1]);
+			BufferedImage image = new BufferedImage(colour_model, raster, false, null);
+			raster = image.getRaster();
+			double[] pixel = new double[1];
+			
+			for (int y = 0; y < dims[1]; y++)
+				for (int x = 0; x < dims[0]; x++){
+					pixel[0] = getSliceValue(orientation, section, x, y);
+					raster.setPixel(x, dims[1] - y - 1, pixel);
+					}
+			
+			return image;
+		}
+		
+		/*******************************************************
+		 * Colourises a slice of this level into packed ARGB {@code pixels}, laid out as for
+		 * {@link #getSliceImage(int, int, WindowedColourModel)}.
+		 * 
+		 * @param orientation
+		 * @param section
+		 * @param colour_model
+		 * @param pixels
+		 */
+		public void colourise(int orientation, int section, WindowedColourModel colour_model, int[] pixels){
+			int[] dims = getSliceDimensions(orientation);
+			for (int y = 0; y < dims[1]; y++){
+				int row = (dims[1] - y - 1) * dims[0];
+				for (int x = 0; x < dims[0]; x++)
+					pixels[row + x] = colour_model.getRGBForValue(getSliceValue(orientation, section, x, y));
+				}
+		}
+		
+		protected double getSliceValue(int orientation, int section, int x, int y){
+			switch (orientation){
+				case 0:
+					return getValue(section, x, y);
+				case 1:
+					return getValue(x, section, y);
+				default:
+					return getValue(x, y, section);
+				}
+		}
+		
+	}
+	
+}
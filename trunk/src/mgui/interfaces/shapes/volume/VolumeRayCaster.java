@@ -0,0 +1,745 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.interfaces.shapes.volume;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jogamp.vecmath.Point3d;
+import org.jogamp.vecmath.Point3f;
+import org.jogamp.vecmath.Vector2d;
+import org.jogamp.vecmath.Vector3d;
+
+import mgui.geometry.Grid3D;
+import mgui.image.util.WindowedColourModel;
+import mgui.interfaces.maps.Camera3D;
+import mgui.interfaces.shapes.Volume3DInt;
+import mgui.interfaces.util.ParallelFunctions;
+import mgui.numbers.MguiNumber;
+
+/*******************************************************
+ * Software (CPU) ray caster for a {@link Volume3DInt}, which renders its current data column as seen
+ * from a {@link Camera3D}, without requiring a graphics device. Supports maximum and minimum intensity
+ * projections, and direct volume rendering, in which samples are coloured by the column's colour model 
+ * and alpha-composited front to back.
+ * 
+ * <p>Rays are marched in continuous voxel coordinates, and samples are trilinearly interpolated. A coarse
+ * occupancy grid, storing the range of values in each {@link #getBlockSize()}<sup>3</sup> block of voxels, 
+ * is used to skip blocks which cannot change a ray's result (e.g., blocks which are empty, fully 
+ * transparent, or below the current maximum). Images are rendered in parallel, one tile at a time. 
+ * 
+ * <p>Masked voxels, voxels having the column's "zero" value (see {@link WindowedColourModel#getZeroValue(int)}),
+ * and NaNs are treated as empty. The camera follows the conventions of {@link Camera3D#getCameraTransform()},
+ * with a horizontal field of view of {@link Volume3DRenderer#FIELD_OF_VIEW}.
+ * 
+ * <p>A ray caster caches the voxel values and occupancy grid of its volume, which are rebuilt if the 
+ * column, its data, or the volume's masks change; it is therefore efficient to render several views with 
+ * the same instance. 
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class VolumeRayCaster {
+
+	public static enum Mode{
+		MaximumIntensity,		//maximum intensity projection (MIP)
+		MinimumIntensity,		//minimum intensity projection (MinIP)
+		DirectVolume;			//alpha-composited direct volume rendering (DVR)
+	}
+	
+	/** Number of entries in the colour lookup table. */
+	static final int LUT_SIZE = 4096;
+	
+	protected Volume3DInt volume;
+	protected Mode mode = Mode.MaximumIntensity;
+	protected double step_size = 0.5;
+	protected int tile_size = 32;
+	protected int block_size = 8;
+	protected double field_of_view = Volume3DRenderer.FIELD_OF_VIEW;
+	protected boolean parallel_projection = false;
+	protected Color background = Color.black;
+	protected double opacity_threshold = 0.99;
+	
+	// Cached volume data
+	protected GridVertexDataColumn column;
+	protected int data_version = -1;
+	protected int mask_version = -1;
+	protected float[] voxels;
+	protected int size_s, size_t, size_r;
+	protected float data_min, data_max;
+	protected final double[] origin = new double[3];
+	protected final double[][] inverse = new double[3][3];
+	
+	// Occupancy grid
+	protected int blocks_s, blocks_t, blocks_r;
+	protected float[] block_min, block_max;
+	
+	public VolumeRayCaster(Volume3DInt volume){
+		this.volume = volume;
+	}
+	
+	public VolumeRayCaster(Volume3DInt volume, Mode mode){
+		this.volume = volume;
+		this.mode = mode;
+	}
+	
+	public Volume3DInt getVolume(){
+		return volume;
+	}
+	
+	public void setMode(Mode mode){
+		this.mode = mode;
+	}
+	
+	public Mode getMode(){
+		return mode;
+	}
+	
+	/*******************************************************
+	 * Sets the distance between samples along a ray, in voxels. Defaults to 0.5.
+	 * 
+	 * @param step
+	 */
+	public void setStepSize(double step){
+		if (step > 0) this.step_size = step;
+	}
+	
+	public double getStepSize(){
+		return step_size;
+	}
+	
+	/*******************************************************
+	 * Sets the width and height, in pixels, of the tiles which are rendered in parallel. Defaults to 32.
+	 * 
+	 * @param size
+	 */
+	public void setTileSize(int size){
+		this.tile_size = Math.max(1, size);
+	}
+	
+	public int getTileSize(){
+		return tile_size;
+	}
+	
+	/*******************************************************
+	 * Sets the size, in voxels, of an occupancy grid block. Defaults to 8. The occupancy grid is rebuilt
+	 * on the next render.
+	 * 
+	 * @param size
+	 */
+	public synchronized void setBlockSize(int size){
+		size = Math.max(2, size);
+		if (size == block_size) return;
+		this.block_size = size;
+		this.data_version = -1;
+	}
+	
+	public int getBlockSize(){
+		return block_size;
+	}
+	
+	/*******************************************************
+	 * Sets the horizontal field of view, in radians. For a parallel projection, this determines the
+	 * width of the view at the camera's distance.
+	 * 
+	 * @param fov
+	 */
+	public void setFieldOfView(double fov){
+		if (fov > 0 && fov < Math.PI) this.field_of_view = fov;
+	}
+	
+	public double getFieldOfView(){
+		return field_of_view;
+	}
+	
+	/*******************************************************
+	 * Sets whether to render with a parallel (orthographic) rather than perspective projection.
+	 * 
+	 * @param b
+	 */
+	public void setParallelProjection(boolean b){
+		this.parallel_projection = b;
+	}
+	
+	public boolean isParallelProjection(){
+		return parallel_projection;
+	}
+	
+	/*******************************************************
+	 * Sets the colour of pixels whose rays do not hit the volume; for direct volume rendering, samples are
+	 * composited over this colour. Its alpha is retained in the rendered image.
+	 * 
+	 * @param colour
+	 */
+	public void setBackground(Color colour){
+		this.background = colour;
+	}
+	
+	public Color getBackground(){
+		return background;
+	}
+	
+	/*******************************************************
+	 * Sets the accumulated opacity at which direct volume rendering terminates a ray. Defaults to 0.99.
+	 * 
+	 * @param threshold
+	 */
+	public void setOpacityThreshold(double threshold){
+		this.opacity_threshold = Math.max(0, Math.min(1, threshold));
+	}
+	
+	public double getOpacityThreshold(){
+		return opacity_threshold;
+	}
+	
+	/*******************************************************
+	 * Discards the cached voxel values and occupancy grid.
+	 * 
+	 */
+	public synchronized void clear(){
+		voxels = null;
+		block_min = null;
+		block_max = null;
+		column = null;
+		data_version = -1;
+		mask_version = -1;
+	}
+	
+	/*******************************************************
+	 * Renders the current data column of this caster's volume, as seen from {@code camera}, to a new 
+	 * {@code TYPE_INT_ARGB} image of {@code width} x {@code height} pixels.
+	 * 
+	 * @param camera
+	 * @param width
+	 * @param height
+	 * @return the rendered image, or {@code null} if the volume has no current grid column 
+	 */
+	public BufferedImage render(Camera3D camera, int width, int height){
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		if (!render(camera, image)) return null;
+		return image;
+	}
+	
+	/*******************************************************
+	 * Renders the current data column of this caster's volume, as seen from {@code camera}, into 
+	 * {@code image}, which must be of type {@code TYPE_INT_ARGB}. Each render is itself parallel, so
+	 * renders with the same instance are serialized.
+	 * 
+	 * @param camera
+	 * @param image
+	 * @return {@code false} if the volume has no current grid column
+	 */
+	public synchronized boolean render(Camera3D camera, BufferedImage image){
+		if (image.getType() != BufferedImage.TYPE_INT_ARGB)
+			throw new IllegalArgumentException("VolumeRayCaster: Image must be of type TYPE_INT_ARGB.");
+		
+		final Mode mode = this.mode;
+		final double step = step_size;
+		final double threshold = opacity_threshold;
+		final int bg = background.getRGB();
+		
+		if (!updateVolume()) return false;
+		final float[] voxels = this.voxels;
+		final float[] block_min = this.block_min, block_max = this.block_max;
+		final float data_max = this.data_max;
+		final float lut_min = this.data_min;
+		final float lut_scale = this.data_max > this.data_min ? (LUT_SIZE - 1) / (this.data_max - this.data_min) : 0;
+		final int[] lut = getLookupTable(column.getColourModel(), mode == Mode.DirectVolume ? step : 0);
+		
+		// Cumulative count of visible entries, to test whether a value range is fully transparent
+		final int[] lut_visible = new int[LUT_SIZE + 1];
+		for (int i = 0; i < LUT_SIZE; i++)
+			lut_visible[i + 1] = lut_visible[i] + ((lut[i] >>> 24) > 0 ? 1 : 0);
+		
+		final int width = image.getWidth(), height = image.getHeight();
+		final int[] pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+		final double[][] view = getViewRays(camera, width, height);
+		final boolean parallel = parallel_projection;
+		
+		final int tiles_x = (width + tile_size - 1) / tile_size;
+		final int tiles_y = (height + tile_size - 1) / tile_size;
+		final int n_tiles = tiles_x * tiles_y;
+		final AtomicInteger next_tile = new AtomicInteger();
+		int n_workers = ParallelFunctions.getPartitionCount(n_tiles);
+		
+		try{
+			// Tiles are handed out dynamically, since their costs vary widely
+			ParallelFunctions.runPartitioned(ParallelFunctions.getPartitions(n_workers, n_workers), 
+											 new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					RayState ray = new RayState(size_s, size_t, size_r);
+					int tile;
+					while ((tile = next_tile.getAndIncrement()) < n_tiles){
+						int x0 = (tile % tiles_x) * tile_size, y0 = (tile / tiles_x) * tile_size;
+						int x1 = Math.min(x0 + tile_size, width), y1 = Math.min(y0 + tile_size, height);
+						for (int y = y0; y < y1; y++)
+							for (int x = x0; x < x1; x++){
+								setRay(view, x, y, width, height, parallel, ray);
+								pixels[y * width + x] = castRay(ray, mode, step, threshold, bg, voxels, 
+																block_min, block_max, data_max, 
+																lut, lut_visible, lut_min, lut_scale);
+								}
+						}
+					}
+				});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
+		
+		return true;
+	}
+	
+	/*******************************************************
+	 * Ensures the cached voxel values and occupancy grid are current for the volume's current column.
+	 * 
+	 * @return {@code false} if there is no current grid column 
+	 */
+	protected boolean updateVolume(){
+		if (!(volume.getCurrentDataColumn() instanceof GridVertexDataColumn)) return false;
+		GridVertexDataColumn current = (GridVertexDataColumn)volume.getCurrentDataColumn();
+		Grid3D grid = volume.getGrid();
+		if (current == column && voxels != null && data_version == current.getDataVersion() &&
+				mask_version == volume.getMaskVersion() && size_s == grid.getSizeS() && size_t == grid.getSizeT() && size_r == grid.getSizeR())
+			return true;
+		
+		column = current;
+		data_version = current.getDataVersion();
+		mask_version = volume.getMaskVersion();
+		size_s = grid.getSizeS();
+		size_t = grid.getSizeT();
+		size_r = grid.getSizeR();
+		setVoxelTransform(grid);
+		
+		// Copy values, marking empty voxels as NaN
+		final ArrayList<MguiNumber> data = current.getData();
+		final float zero = (float)WindowedColourModel.getZeroValue(current.getDataTransferType());
+		final boolean[][][] mask = !volume.getApplyMasks() || volume.getMaskNames().isEmpty() ? 
+											null : volume.getEffectiveMask();
+		final float[] values = new float[size_s * size_t * size_r];
+		
+		// Large volumes are read from their bricked copy, which avoids unboxing each voxel
+		VoxelBricks bricks = current.getBricks();
+		if (bricks != null){
+			final int plane = size_s * size_t;
+			bricks.forEachParallel(new VoxelBricks.VoxelVisitor(){
+				public void visit(int i, int j, int k, double value){
+					float v = (float)value;
+					if (v == zero || (mask != null && mask[i][j][k])) v = Float.NaN;
+					values[k * plane + j * size_s + i] = v;
+					}
+				});
+		}else{
+			try{
+				ParallelFunctions.runPartitioned(size_r, new ParallelFunctions.PartitionJob(){
+					public void run(int partition, int start, int end){
+						for (int k = start; k < end; k++)
+							for (int j = 0; j < size_t; j++){
+								int idx = (k * size_t + j) * size_s;
+								for (int i = 0; i < size_s; i++){
+									float v = (float)data.get(idx + i).getValue();
+									if (v == zero || (mask != null && mask[i][j][k])) v = Float.NaN;
+									values[idx + i] = v;
+									}
+								}
+						}
+					});
+			}catch (Exception ex){
+				throw new RuntimeException(ex);
+				}
+			}
+		voxels = values;
+		
+		updateOccupancy();
+		return true;
+	}
+	
+	/*******************************************************
+	 * Computes the minimum and maximum (non-empty) value of each occupancy block. Since trilinear samples
+	 * in a block also read the first voxel of the next block, blocks overlap by one voxel. Empty blocks
+	 * have a range of NaN.
+	 * 
+	 */
+	protected void updateOccupancy(){
+		final int b = block_size;
+		blocks_s = (size_s + b - 1) / b;
+		blocks_t = (size_t + b - 1) / b;
+		blocks_r = (size_r + b - 1) / b;
+		final float[] b_min = new float[blocks_s * blocks_t * blocks_r];
+		final float[] b_max = new float[b_min.length];
+		final float[] p_min = new float[ParallelFunctions.getPartitionCount(blocks_r)];
+		final float[] p_max = new float[p_min.length];
+		try{
+			ParallelFunctions.runPartitioned(blocks_r, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					float all_min = Float.NaN, all_max = Float.NaN;
+					for (int bk = start; bk < end; bk++)
+						for (int bj = 0; bj < blocks_t; bj++)
+							for (int bi = 0; bi < blocks_s; bi++){
+								float min = Float.NaN, max = Float.NaN;
+								int k1 = Math.min((bk + 1) * b, size_r - 1);
+								int j1 = Math.min((bj + 1) * b, size_t - 1);
+								int i1 = Math.min((bi + 1) * b, size_s - 1);
+								for (int k = bk * b; k <= k1; k++)
+									for (int j = bj * b; j <= j1; j++){
+										int idx = (k * size_t + j) * size_s;
+										for (int i = bi * b; i <= i1; i++){
+											float v = voxels[idx + i];
+											if (v != v) continue;
+											if (!(v >= min)) min = v;
+											if (!(v <= max)) max = v;
+											}
+										}
+								int block = (bk * blocks_t + bj) * blocks_s + bi;
+								b_min[block] = min;
+								b_max[block] = max;
+								if (min != min) continue;
+								if (!(min >= all_min)) all_min = min;
+								if (!(max <= all_max)) all_max = max;
+								}
+					p_min[partition] = all_min;
+					p_max[partition] = all_max;
+					}
+				});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
+		
+		data_min = Float.NaN;
+		data_max = Float.NaN;
+		for (int p = 0; p < p_min.length; p++){
+			if (p_min[p] == p_min[p] && !(p_min[p] >= data_min)) data_min = p_min[p];
+			if (p_max[p] == p_max[p] && !(p_max[p] <= data_max)) data_max = p_max[p];
+			}
+		block_min = b_min;
+		block_max = b_max;
+	}
+	
+	/*******************************************************
+	 * Computes the transform from world coordinates to continuous voxel coordinates, in which voxel 
+	 * centres lie at integer coordinates.
+	 * 
+	 * @param grid
+	 */
+	protected void setVoxelTransform(Grid3D grid){
+		Point3f o = grid.getVoxelMidPoint(0, 0, 0);
+		origin[0] = o.x; origin[1] = o.y; origin[2] = o.z;
+		Point3f[] p = new Point3f[]{grid.getVoxelMidPoint(1, 0, 0),
+									grid.getVoxelMidPoint(0, 1, 0),
+									grid.getVoxelMidPoint(0, 0, 1)};
+		
+		// Invert M = [ds dt dr] (voxel steps as columns)
+		double[][] m = new double[3][3];
+		for (int a = 0; a < 3; a++){
+			m[0][a] = p[a].x - o.x;
+			m[1][a] = p[a].y - o.y;
+			m[2][a] = p[a].z - o.z;
+			}
+		double det = m[0][0] * (m[1][1] * m[2][2] - m[1][2] * m[2][1])
+				   - m[0][1] * (m[1][0] * m[2][2] - m[1][2] * m[2][0])
+				   + m[0][2] * (m[1][0] * m[2][1] - m[1][1] * m[2][0]);
+		inverse[0][0] = (m[1][1] * m[2][2] - m[1][2] * m[2][1]) / det;
+		inverse[0][1] = (m[0][2] * m[2][1] - m[0][1] * m[2][2]) / det;
+		inverse[0][2] = (m[0][1] * m[1][2] - m[0][2] * m[1][1]) / det;
+		inverse[1][0] = (m[1][2] * m[2][0] - m[1][0] * m[2][2]) / det;
+		inverse[1][1] = (m[0][0] * m[2][2] - m[0][2] * m[2][0]) / det;
+		inverse[1][2] = (m[0][2] * m[1][0] - m[0][0] * m[1][2]) / det;
+		inverse[2][0] = (m[1][0] * m[2][1] - m[1][1] * m[2][0]) / det;
+		inverse[2][1] = (m[0][1] * m[2][0] - m[0][0] * m[2][1]) / det;
+		inverse[2][2] = (m[0][0] * m[1][1] - m[0][1] * m[1][0]) / det;
+	}
+	
+	/*******************************************************
+	 * Builds a lookup table of ARGB colours from {@code model}, spanning the data range. If {@code step}
+	 * is positive, alphas are corrected for the sample spacing, such that opacities are specified per voxel 
+	 * length.
+	 * 
+	 */
+	protected int[] getLookupTable(WindowedColourModel model, double step){
+		int[] lut = new int[LUT_SIZE];
+		double range = data_max > data_min ? data_max - data_min : 0;
+		for (int i = 0; i < LUT_SIZE; i++){
+			int argb = model.getRGBForValue(data_min + range * i / (LUT_SIZE - 1));
+			if (step > 0){
+				double alpha = (argb >>> 24) / 255.0;
+				alpha = 1.0 - Math.pow(1.0 - alpha, step);
+				argb = (argb & 0x00FFFFFF) | ((int)Math.round(alpha * 255.0) << 24);
+				}
+			lut[i] = argb;
+			}
+		return lut;
+	}
+	
+	/*******************************************************
+	 * Computes, in voxel coordinates, the eye position (or the view origin for a parallel projection), 
+	 * the forward direction, and the horizontal and vertical increments of a ray across the image plane.
+	 * 
+	 */
+	protected double[][] getViewRays(Camera3D camera, int width, int height){
+		Vector3d los = camera.getLineOfSight();
+		Point3d center = camera.getCenterOfRotation();
+		Vector2d translate = camera.getTranslateXY();
+		double distance = camera.getDistance();
+		
+		// Camera basis, as for Transform3D.lookAt(eye, center, up)
+		Vector3d forward = new Vector3d(los);
+		forward.normalize();
+		forward.negate();
+		Vector3d side = new Vector3d();
+		side.cross(forward, camera.getUpVector());
+		side.normalize();
+		Vector3d up = new Vector3d();
+		up.cross(side, forward);
+		
+		Point3d eye = new Point3d(center);
+		eye.scaleAdd(-distance, forward, eye);
+		eye.scaleAdd(-translate.x, side, eye);
+		eye.scaleAdd(translate.y, up, eye);
+		
+		double half_width = Math.tan(field_of_view / 2.0);
+		if (parallel_projection) half_width *= distance;
+		double half_height = half_width * height / width;
+		side.scale(half_width);
+		up.scale(half_height);
+		
+		// Transform to voxel space
+		double[][] view = new double[4][3];
+		double[] v = new double[]{eye.x - origin[0], eye.y - origin[1], eye.z - origin[2]};
+		transform(v, view[0]);
+		transform(new double[]{forward.x, forward.y, forward.z}, view[1]);
+		transform(new double[]{side.x, side.y, side.z}, view[2]);
+		transform(new double[]{up.x, up.y, up.z}, view[3]);
+		return view;
+	}
+	
+	private void transform(double[] v, double[] c){
+		for (int r = 0; r < 3; r++)
+			c[r] = inverse[r][0] * v[0] + inverse[r][1] * v[1] + inverse[r][2] * v[2];
+	}
+	
+	/*******************************************************
+	 * Sets {@code ray} to the (voxel space) ray for pixel [{@code x}, {@code y}].
+	 * 
+	 */
+	protected static void setRay(double[][] view, int x, int y, int width, int height, boolean parallel, RayState ray){
+		double u = 2.0 * (x + 0.5) / width - 1.0;
+		double w = 1.0 - 2.0 * (y + 0.5) / height;
+		double length = 0;
+		for (int a = 0; a < 3; a++){
+			if (parallel){
+				ray.origin[a] = view[0][a] + u * view[2][a] + w * view[3][a];
+				ray.dir[a] = view[1][a];
+			}else{
+				ray.origin[a] = view[0][a];
+				ray.dir[a] = view[1][a] + u * view[2][a] + w * view[3][a];
+				}
+			length += ray.dir[a] * ray.dir[a];
+			}
+		length = Math.sqrt(length);
+		for (int a = 0; a < 3; a++)
+			ray.dir[a] /= length;
+	}
+	
+	/*******************************************************
+	 * Casts {@code ray} through the volume, returning the ARGB colour of its pixel.
+	 * 
+	 */
+	protected int castRay(RayState ray, Mode mode, double step, double threshold, int bg, float[] voxels, 
+						  float[] block_min, float[] block_max, float data_max,
+						  int[] lut, int[] lut_visible, float lut_min, float lut_scale){
+		
+		// Clip to the volume, which extends half a voxel beyond the voxel centres
+		double t0 = 0, t1 = Double.POSITIVE_INFINITY;
+		int[] sizes = ray.sizes;
+		for (int a = 0; a < 3; a++){
+			double o = ray.origin[a], d = ray.dir[a];
+			double lo = -0.5, hi = sizes[a] - 0.5;
+			if (d == 0){
+				if (o < lo || o > hi) return bg;
+				continue;
+				}
+			double ta = (lo - o) / d, tb = (hi - o) / d;
+			if (ta > tb){ double tmp = ta; ta = tb; tb = tmp; }
+			if (ta > t0) t0 = ta;
+			if (tb < t1) t1 = tb;
+			}
+		if (t0 >= t1) return bg;
+		
+		double[] c = ray.position;
+		double[] o = ray.origin, d = ray.dir;
+		int b = block_size;
+		
+		float extreme = Float.NaN;
+		double acc_r = 0, acc_g = 0, acc_b = 0, acc_a = 0;
+		
+		// Align samples to a fixed lattice along the ray, to avoid banding when blocks are skipped
+		double t = Math.ceil(t0 / step) * step;
+		while (t < t1){
+			c[0] = o[0] + t * d[0];
+			c[1] = o[1] + t * d[1];
+			c[2] = o[2] + t * d[2];
+			int bi = clamp((int)Math.floor(c[0]), size_s) / b;
+			int bj = clamp((int)Math.floor(c[1]), size_t) / b;
+			int bk = clamp((int)Math.floor(c[2]), size_r) / b;
+			int block = (bk * blocks_t + bj) * blocks_s + bi;
+			float min = block_min[block], max = block_max[block];
+			
+			boolean skip = min != min;
+			if (!skip){
+				switch (mode){
+					case MaximumIntensity:
+						skip = max <= extreme;
+						break;
+					case MinimumIntensity:
+						skip = min >= extreme;
+						break;
+					case DirectVolume:
+						int l0 = getLutIndex(min, lut_min, lut_scale);
+						int l1 = getLutIndex(max, lut_min, lut_scale);
+						skip = lut_visible[l1 + 1] == lut_visible[l0];
+						break;
+					}
+				}
+			
+			if (skip){
+				// Advance to the first lattice sample beyond this block
+				double t_exit = t1;
+				int[] bc = ray.block;
+				bc[0] = bi; bc[1] = bj; bc[2] = bk;
+				for (int a = 0; a < 3; a++){
+					if (d[a] > 0)
+						t_exit = Math.min(t_exit, ((bc[a] + 1) * b - o[a]) / d[a]);
+					else if (d[a] < 0)
+						t_exit = Math.min(t_exit, (bc[a] * b - o[a]) / d[a]);
+					}
+				double t_next = Math.ceil(t_exit / step) * step;
+				if (t_next <= t) t_next = t + step;
+				t = t_next;
+				continue;
+				}
+			
+			float v = sample(voxels, c);
+			if (v == v){
+				switch (mode){
+					case MaximumIntensity:
+						if (!(v <= extreme)){
+							extreme = v;
+							if (extreme >= data_max) t = t1;
+							}
+						break;
+					case MinimumIntensity:
+						if (!(v >= extreme)){
+							extreme = v;
+							if (extreme <= lut_min) t = t1;
+							}
+						break;
+					case DirectVolume:
+						int argb = lut[getLutIndex(v, lut_min, lut_scale)];
+						double alpha = (argb >>> 24) / 255.0;
+						if (alpha > 0){
+							double w = (1.0 - acc_a) * alpha;
+							acc_r += w * ((argb >> 16) & 0xFF);
+							acc_g += w * ((argb >> 8) & 0xFF);
+							acc_b += w * (argb & 0xFF);
+							acc_a += w;
+							if (acc_a >= threshold) t = t1;
+							}
+						break;
+					}
+				}
+			t += step;
+			}
+		
+		if (mode != Mode.DirectVolume){
+			if (extreme != extreme) return bg;
+			return 0xFF000000 | lut[getLutIndex(extreme, lut_min, lut_scale)];
+			}
+		
+		// Composite over the background
+		double bg_a = (bg >>> 24) / 255.0;
+		double rem = (1.0 - acc_a) * bg_a;
+		double out_a = acc_a + rem;
+		if (out_a <= 0) return bg & 0x00FFFFFF;
+		int r = (int)Math.round((acc_r + rem * ((bg >> 16) & 0xFF)) / out_a);
+		int g = (int)Math.round((acc_g + rem * ((bg >> 8) & 0xFF)) / out_a);
+		int bl = (int)Math.round((acc_b + rem * (bg & 0xFF)) / out_a);
+		int a = (int)Math.round(out_a * 255.0);
+		return (Math.min(a, 255) << 24) | (Math.min(r, 255) << 16) | (Math.min(g, 255) << 8) | Math.min(bl, 255);
+	}
+	
+	static int clamp(int i, int size){
+		return i < 0 ? 0 : (i >= size ? size - 1 : i);
+	}
+	
+	static int getLutIndex(float v, float lut_min, float lut_scale){
+		int idx = (int)((v - lut_min) * lut_scale + 0.5f);
+		return idx < 0 ? 0 : (idx >= LUT_SIZE ? LUT_SIZE - 1 : idx);
+	}
+	
+	/*******************************************************
+	 * Trilinearly interpolates {@code voxels} at continuous voxel coordinate {@code c}; empty neighbours
+	 * are excluded and the weights of the remainder renormalized. Returns NaN if all neighbours are empty.
+	 * 
+	 */
+	protected float sample(float[] voxels, double[] c){
+		double x = Math.max(0, Math.min(c[0], size_s - 1));
+		double y = Math.max(0, Math.min(c[1], size_t - 1));
+		double z = Math.max(0, Math.min(c[2], size_r - 1));
+		int i0 = (int)x, j0 = (int)y, k0 = (int)z;
+		double fx = x - i0, fy = y - j0, fz = z - k0;
+		int di = i0 < size_s - 1 ? 1 : 0;
+		int dj = j0 < size_t - 1 ? size_s : 0;
+		int dk = k0 < size_r - 1 ? size_s * size_t : 0;
+		int idx = (k0 * size_t + j0) * size_s + i0;
+		
+		double sum = 0, weight = 0;
+		for (int n = 0; n < 8; n++){
+			double w = ((n & 1) != 0 ? fx : 1 - fx) * ((n & 2) != 0 ? fy : 1 - fy) * ((n & 4) != 0 ? fz : 1 - fz);
+			if (w == 0) continue;
+			float v = voxels[idx + ((n & 1) != 0 ? di : 0) + ((n & 2) != 0 ? dj : 0) + ((n & 4) != 0 ? dk : 0)];
+			if (v != v) continue;
+			sum += w * v;
+			weight += w;
+			}
+		if (weight == 0) return Float.NaN;
+		return (float)(sum / weight);
+	}
+	
+	/*******************************************************
+	 * Per-thread state for a single ray, in voxel coordinates.
+	 * 
+	 */
+	protected static class RayState {
+		final double[] origin = new double[3];
+		final double[] dir = new double[3];
+		final double[] position = new double[3];
+		final int[] block = new int[3];
+		final int[] sizes;
+		
+		RayState(int size_s, int size_t, int size_r){
+			sizes = new int[]{size_s, size_t, size_r};
+		}
+	}
+	
+}
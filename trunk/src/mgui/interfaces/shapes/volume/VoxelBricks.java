@@ -0,0 +1,344 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.interfaces.shapes.volume;
+
+import java.awt.image.DataBuffer;
+import java.util.ArrayList;
+
+import mgui.geometry.Grid3D;
+import mgui.interfaces.util.ParallelFunctions;
+import mgui.numbers.MguiNumber;
+
+/*******************************************************
+ * A bricked copy of the values of a {@link GridVertexDataColumn}. Voxels are stored in cubic bricks of 
+ * {@link #getBrickSize()}<sup>3</sup> voxels, each contiguous in memory, rather than in the flat S-fastest 
+ * order of the column. Slices of any orientation, and sub-regions, thus touch a similar number of memory 
+ * pages, whereas S and T slices of the flat layout stride across the entire volume. Slices are extracted
+ * with {@link #getSlice(int, int, double[])}, and regions are sampled in brick order with 
+ * {@link #forEach(int, int, int, int, int, int, VoxelVisitor)}.
+ * 
+ * <p>Values are stored as {@code float} if this is exact for the column's transfer type, and otherwise
+ * as {@code double}. A bricked copy records the data version of its column at the time it was built (see
+ * {@link GridVertexDataColumn#getDataVersion()}); see {@link GridVertexDataColumn#getBricks()} for how it
+ * is kept current.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class VoxelBricks {
+
+	/** Default edge length of a brick, in voxels. */
+	public static final int DEFAULT_BRICK_SIZE = 16;
+	
+	protected final int shift, mask, brick_size;
+	protected final int size_s, size_t, size_r;
+	protected final int bricks_s, bricks_t, bricks_r;
+	protected final float[] float_values;
+	protected final double[] double_values;
+	protected int data_version;
+	
+	/*******************************************************
+	 * Creates an empty bricked layout.
+	 * 
+	 * @param size_s
+	 * @param size_t
+	 * @param size_r
+	 * @param brick_size	Edge length of a brick; rounded up to a power of two
+	 * @param as_float		Whether to store values as {@code float}
+	 */
+	public VoxelBricks(int size_s, int size_t, int size_r, int brick_size, boolean as_float){
+		int s = 0;
+		while ((1 << s) < brick_size) s++;
+		this.shift = s;
+		this.brick_size = 1 << s;
+		this.mask = this.brick_size - 1;
+		this.size_s = size_s;
+		this.size_t = size_t;
+		this.size_r = size_r;
+		this.bricks_s = (size_s + mask) >> shift;
+		this.bricks_t = (size_t + mask) >> shift;
+		this.bricks_r = (size_r + mask) >> shift;
+		long n = (long)bricks_s * bricks_t * bricks_r << (3 * shift);
+		if (n > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("VoxelBricks: Volume too large for a bricked layout.");
+		float_values = as_float ? new float[(int)n] : null;
+		double_values = as_float ? null : new double[(int)n];
+	}
+	
+	/*******************************************************
+	 * Creates a bricked copy of the values of {@code column}, in parallel.
+	 * 
+	 * @param column
+	 * @param brick_size
+	 * @return
+	 */
+	public static VoxelBricks getBricks(GridVertexDataColumn column, int brick_size){
+		Grid3D grid = column.getParent().getGrid();
+		final int data_version = column.getDataVersion();
+		final VoxelBricks bricks = new VoxelBricks(grid.getSizeS(), grid.getSizeT(), grid.getSizeR(), 
+												   brick_size, isFloatExact(column.getDataTransferType()));
+		final ArrayList<MguiNumber> data = column.getData();
+		
+		try{
+			ParallelFunctions.runPartitioned(bricks.size_r, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					for (int k = start; k < end; k++)
+						for (int j = 0; j < bricks.size_t; j++){
+							int idx = (k * bricks.size_t + j) * bricks.size_s;
+							for (int i = 0; i < bricks.size_s; i++)
+								bricks.set(bricks.getIndex(i, j, k), data.get(idx + i).getValue());
+							}
+					}
+				});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
+		
+		bricks.data_version = data_version;
+		return bricks;
+	}
+	
+	/*******************************************************
+	 * Indicates whether all values of {@code transfer_type} (as defined by {@link DataBuffer}) can be 
+	 * represented exactly as {@code float}.
+	 * 
+	 * @param transfer_type
+	 * @return
+	 */
+	public static boolean isFloatExact(int transfer_type){
+		switch (transfer_type){
+			case DataBuffer.TYPE_BYTE:
+			case DataBuffer.TYPE_SHORT:
+			case DataBuffer.TYPE_USHORT:
+			case DataBuffer.TYPE_FLOAT:
+				return true;
+			default:
+				return false;
+			}
+	}
+	
+	public int getBrickSize(){
+		return brick_size;
+	}
+	
+	public int getSizeS(){
+		return size_s;
+	}
+	
+	public int getSizeT(){
+		return size_t;
+	}
+	
+	public int getSizeR(){
+		return size_r;
+	}
+	
+	/*******************************************************
+	 * Returns the data version of the column at the time these values were copied.
+	 * 
+	 * @return
+	 */
+	public int getDataVersion(){
+		return data_version;
+	}
+	
+	/*******************************************************
+	 * Returns the storage index of voxel [i, j, k].
+	 * 
+	 * @return
+	 */
+	protected final int getIndex(int i, int j, int k){
+		int brick = ((k >> shift) * bricks_t + (j >> shift)) * bricks_s + (i >> shift);
+		return (brick << (3 * shift)) | ((((k & mask) << shift) | (j & mask)) << shift) | (i & mask);
+	}
+	
+	protected final double get(int index){
+		return float_values != null ? float_values[index] : double_values[index];
+	}
+	
+	protected final void set(int index, double value){
+		if (float_values != null)
+			float_values[index] = (float)value;
+		else
+			double_values[index] = value;
+	}
+	
+	/*******************************************************
+	 * Returns the value at voxel [i, j, k].
+	 * 
+	 * @return
+	 */
+	public double getValue(int i, int j, int k){
+		return get(getIndex(i, j, k));
+	}
+	
+	/*******************************************************
+	 * Sets the value at the voxel with absolute (flat) index {@code index}, and sets the data version of 
+	 * this copy to {@code data_version}. Used to keep this copy current as single voxels are changed.
+	 * 
+	 * @param index
+	 * @param value
+	 * @param data_version
+	 */
+	public synchronized void setValue(int index, double value, int data_version){
+		int i = index % size_s;
+		int j = (index / size_s) % size_t;
+		int k = index / (size_s * size_t);
+		set(getIndex(i, j, k), value);
+		this.data_version = data_version;
+	}
+	
+	/*******************************************************
+	 * Returns the dimensions {width, height} of a slice image with the given orientation (0 = S, 1 = T, 2 = R);
+	 * see {@link #getSlice(int, int, double[])}.
+	 * 
+	 * @param orientation
+	 * @return
+	 */
+	public int[] getSliceDimensions(int orientation){
+		switch (orientation){
+			case 0:
+				return new int[]{size_t, size_r};
+			case 1:
+				return new int[]{size_s, size_r};
+			default:
+				return new int[]{size_s, size_t};
+			}
+	}
+	
+	/*******************************************************
+	 * Copies the values of slice {@code section} with the given orientation (0 = S, 1 = T, 2 = R) into 
+	 * {@code pixels}, in the row order of a slice image (i.e., with the vertical axis flipped). As for 
+	 * {@link GridVertexDataColumn#getSSliceImage(int)} etc., S slices have horizontal axis T and vertical 
+	 * axis R; T slices, S and R; and R slices, S and T. Values are read one brick at a time.
+	 * 
+	 * @param orientation
+	 * @param section
+	 * @param pixels		Array of at least width x height elements; see {@link #getSliceDimensions(int)}
+	 */
+	public void getSlice(int orientation, int section, double[] pixels){
+		
+		// Slice axes (u horizontal, v vertical) and their sizes
+		int[] dims = getSliceDimensions(orientation);
+		final int width = dims[0], height = dims[1];
+		int bricks_u = orientation == 0 ? bricks_t : bricks_s;
+		int bricks_v = orientation == 2 ? bricks_t : bricks_r;
+		int b = brick_size;
+		
+		for (int bv = 0; bv < bricks_v; bv++)
+			for (int bu = 0; bu < bricks_u; bu++){
+				int u0 = bu << shift, v0 = bv << shift;
+				int u1 = Math.min(u0 + b, width), v1 = Math.min(v0 + b, height);
+				for (int v = v0; v < v1; v++){
+					int row = (height - v - 1) * width;
+					int idx;
+					switch (orientation){
+						case 0:
+							for (int u = u0; u < u1; u++){
+								idx = getIndex(section, u, v);
+								pixels[row + u] = float_values != null ? float_values[idx] : double_values[idx];
+								}
+							break;
+						case 1:
+							idx = getIndex(u0, section, v);
+							if (float_values != null)
+								for (int u = u0; u < u1; u++)
+									pixels[row + u] = float_values[idx++];
+							else
+								System.arraycopy(double_values, idx, pixels, row + u0, u1 - u0);
+							break;
+						default:
+							idx = getIndex(u0, v, section);
+							if (float_values != null)
+								for (int u = u0; u < u1; u++)
+									pixels[row + u] = float_values[idx++];
+							else
+								System.arraycopy(double_values, idx, pixels, row + u0, u1 - u0);
+							break;
+						}
+					}
+				}
+	}
+	
+	/*******************************************************
+	 * Visits each voxel of this layout, in storage (brick) order.
+	 * 
+	 * @param visitor
+	 */
+	public void forEach(VoxelVisitor visitor){
+		forEach(0, 0, 0, size_s, size_t, size_r, visitor);
+	}
+	
+	/*******************************************************
+	 * Visits each voxel in the region [{@code i0}, {@code i1}) x [{@code j0}, {@code j1}) x 
+	 * [{@code k0}, {@code k1}), one brick at a time. Within a brick, voxels are visited in S-fastest order,
+	 * so runs of up to {@link #getBrickSize()} voxels are contiguous in both this layout and the column's.
+	 * 
+	 * @param visitor
+	 */
+	public void forEach(int i0, int j0, int k0, int i1, int j1, int k1, VoxelVisitor visitor){
+		i0 = Math.max(0, i0); j0 = Math.max(0, j0); k0 = Math.max(0, k0);
+		i1 = Math.min(size_s, i1); j1 = Math.min(size_t, j1); k1 = Math.min(size_r, k1);
+		if (i0 >= i1 || j0 >= j1 || k0 >= k1) return;
+		for (int bk = k0 >> shift; bk <= (k1 - 1) >> shift; bk++)
+			for (int bj = j0 >> shift; bj <= (j1 - 1) >> shift; bj++)
+				for (int bi = i0 >> shift; bi <= (i1 - 1) >> shift; bi++){
+					int ka = Math.max(k0, bk << shift), kb = Math.min(k1, (bk + 1) << shift);
+					int ja = Math.max(j0, bj << shift), jb = Math.min(j1, (bj + 1) << shift);
+					int ia = Math.max(i0, bi << shift), ib = Math.min(i1, (bi + 1) << shift);
+					for (int k = ka; k < kb; k++)
+						for (int j = ja; j < jb; j++){
+							int idx = getIndex(ia, j, k);
+							for (int i = ia; i < ib; i++)
+								visitor.visit(i, j, k, get(idx++));
+							}
+					}
+	}
+	
+	/*******************************************************
+	 * Visits each voxel of this layout in brick order, as for {@link #forEach(VoxelVisitor)}, with slabs
+	 * of bricks along R visited in parallel. {@code visitor} must therefore be safe to call concurrently
+	 * for different voxels.
+	 * 
+	 * @param visitor
+	 */
+	public void forEachParallel(final VoxelVisitor visitor){
+		try{
+			ParallelFunctions.runPartitioned(bricks_r, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					forEach(0, 0, start << shift, size_s, size_t, end << shift, visitor);
+					}
+				});
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
+	}
+	
+	/*******************************************************
+	 * Receives voxel values from {@link VoxelBricks#forEach(VoxelVisitor)}.
+	 * 
+	 */
+	public interface VoxelVisitor {
+		public void visit(int i, int j, int k, double value);
+	}
+	
+}
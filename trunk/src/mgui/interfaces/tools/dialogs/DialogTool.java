@@ -37,8 +37,8 @@ import mgui.interfaces.shapes.ShapeSet3DInt;
 import mgui.interfaces.tools.Tool;
 import mgui.interfaces.tools.ToolInputEvent;
 import mgui.interfaces.tools.ToolListener;
+import mgui.interfaces.util.TaskEngine;
 import foxtrot.Job;
-import foxtrot.Worker;
 
 /**************************************************
  * Abstract class to be inherited by all tools which operate using a modal dialog box.
@@ -124,7 +124,7 @@ public abstract class DialogTool implements Tool {
 		final InterfaceProgressBar progress_bar = new InterfaceProgressBar(getName() + ": ");
 		progress_bar.register();
 		
-		boolean success = (Boolean)Worker.post(new Job(){
+		boolean success = (Boolean)TaskEngine.post(new Job(){
 			@Override
 			public Boolean run(){
 				return doTaskBlocking(options, progress_bar);
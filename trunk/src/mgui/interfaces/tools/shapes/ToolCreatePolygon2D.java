@@ -113,7 +113,8 @@ public class ToolCreatePolygon2D extends Tool2D {
 				
 				//tempShape = thisPoly;
 				//targetPanel.drawShape2D(thisPoly);
-				targetPanel.regenerateDisplay();
+				// Only the temporary shape has changed
+				targetPanel.repaintOverlay();
 				break;
 			}
 				
@@ -25,7 +25,6 @@ import mgui.geometry.mesh.MeshFunctions;
 import mgui.interfaces.InterfaceSession;
 import mgui.interfaces.shapes.Mesh3DInt;
 import mgui.interfaces.shapes.Shape3DInt;
-import mgui.interfaces.shapes.util.ShapeFunctions;
 import mgui.interfaces.tools.ToolConstants;
 import mgui.interfaces.tools.ToolInputEvent;
 import mgui.interfaces.tools.ToolListener;
@@ -34,7 +33,6 @@ import mgui.numbers.MguiBoolean;
 import mgui.numbers.MguiInteger;
 import mgui.numbers.MguiNumber;
 
-import org.jogamp.java3d.utils.pickfast.PickCanvas;
 
 
 /********************************************
@@ -70,13 +68,9 @@ public class ToolSelectRegionBoundaryNodes extends Tool3D {
 			case ToolConstants.TOOL_MOUSE_CLICKED:
 				
 				//get selected vertex, then call getBoundaryNodes
-				PickCanvas pickNode = targetPanel.getPickCanvasNode();
-				if (pickNode == null) return;
-				PickCanvas pickGeom = targetPanel.getPickCanvasGeom();
-				if (pickGeom == null) return;
 				MguiInteger node = new MguiInteger(-1);
 				
-				Shape3DInt shape = ShapeFunctions.getPickedShape(pickNode, pickGeom, e.getPoint(), node);
+				Shape3DInt shape = targetPanel.getPickedShape(e.getPoint(), node);
 				if (shape == null || !(shape instanceof Mesh3DInt) ||  node.getValue() < 0){
 					InterfaceSession.log("ToolSelectRegionBoundaryNodes: No shape or node chosen...");
 					return;
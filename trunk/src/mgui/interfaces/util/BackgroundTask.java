@@ -0,0 +1,140 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.interfaces.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import javax.swing.SwingUtilities;
+
+import mgui.interfaces.ProgressUpdater;
+
+/**************************************************************
+ * A long-running operation submitted to the {@link TaskEngine}. The task is optionally bound to a 
+ * {@link ProgressUpdater}: the updater is registered when the task starts and deregistered when it ends,
+ * and cancelling the task with {@link #cancel(boolean)} also cancels the updater, which is how running
+ * jobs are notified of cancellation.
+ * 
+ * <p>Completion callbacks can be added with {@link #addCompletionCallback(Runnable)}; these are run on
+ * the event dispatch thread, so they can safely update the interface.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ * @param <T> The type of result
+ */
+public class BackgroundTask<T> extends FutureTask<T> {
+
+	protected final String name;
+	protected final ProgressUpdater progress;
+	protected final boolean register_progress;
+	protected ArrayList<Runnable> callbacks = new ArrayList<Runnable>();
+	
+	public BackgroundTask(String name, Callable<T> callable, ProgressUpdater progress){
+		this(name, callable, progress, true);
+	}
+	
+	/**************************************************************
+	 * Creates a new task.
+	 * 
+	 * @param name
+	 * @param callable
+	 * @param progress			Progress updater bound to this task; can be {@code null}
+	 * @param register_progress	Whether {@code progress} should be registered while this task runs; 
+	 * 							if {@code false}, the caller is responsible for registering it, and it is 
+	 * 							bound to this task only for cancellation 
+	 */
+	public BackgroundTask(String name, Callable<T> callable, ProgressUpdater progress, boolean register_progress){
+		super(callable);
+		this.name = name;
+		this.progress = progress;
+		this.register_progress = register_progress;
+	}
+	
+	/**************************************************************
+	 * Returns the name of this task.
+	 * 
+	 * @return
+	 */
+	public String getName(){
+		return name;
+	}
+	
+	/**************************************************************
+	 * Returns the progress updater bound to this task; can be {@code null}.
+	 * 
+	 * @return
+	 */
+	public ProgressUpdater getProgressUpdater(){
+		return progress;
+	}
+	
+	@Override
+	public void run(){
+		if (progress == null || !register_progress){
+			super.run();
+			return;
+			}
+		progress.register();
+		try{
+			super.run();
+		}finally{
+			progress.deregister();
+			}
+	}
+	
+	@Override
+	public boolean cancel(boolean interrupt){
+		if (progress != null)
+			progress.cancel();
+		return super.cancel(interrupt);
+	}
+	
+	/**************************************************************
+	 * Adds a callback to be run on the event dispatch thread when this task completes, fails or
+	 * is cancelled. If the task is already done, the callback is scheduled immediately.
+	 * 
+	 * @param callback
+	 */
+	public void addCompletionCallback(Runnable callback){
+		synchronized(callbacks){
+			if (!isDone()){
+				callbacks.add(callback);
+				return;
+				}
+			}
+		SwingUtilities.invokeLater(callback);
+	}
+	
+	@Override
+	protected void done(){
+		TaskEngine.taskDone(this);
+		ArrayList<Runnable> to_run;
+		synchronized(callbacks){
+			to_run = new ArrayList<Runnable>(callbacks);
+			callbacks.clear();
+			}
+		for (int i = 0; i < to_run.size(); i++)
+			SwingUtilities.invokeLater(to_run.get(i));
+	}
+	
+}
@@ -0,0 +1,217 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.interfaces.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mgui.interfaces.Utility;
+
+/***************************************************************
+ * Utility class for data-parallel computations. Work over an index range is split into contiguous
+ * partitions, which are processed concurrently on a shared pool of daemon threads; the calling
+ * thread waits for all partitions to complete.
+ * 
+ * <p>Calls made from a thread which is itself a worker of this pool are run sequentially on that
+ * thread, so nested parallel calls cannot deadlock the pool.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class ParallelFunctions extends Utility {
+
+	static int thread_count = Math.max(1, Runtime.getRuntime().availableProcessors());
+	static ExecutorService executor;
+	static final ThreadLocal<Boolean> is_worker = new ThreadLocal<Boolean>();
+	
+	/************************************************************
+	 * A job executed on one partition [{@code start}, {@code end}) of an index range.
+	 *
+	 */
+	public interface PartitionJob {
+		public void run(int partition, int start, int end) throws Exception;
+	}
+	
+	/************************************************************
+	 * Returns the number of threads used for parallel computations; by default, the number
+	 * of available processors.
+	 * 
+	 * @return
+	 */
+	public static int getThreadCount(){
+		return thread_count;
+	}
+	
+	/************************************************************
+	 * Sets the number of threads used for parallel computations. Takes effect for the shared
+	 * pool only if it has not yet been created.
+	 * 
+	 * @param count
+	 */
+	public static synchronized void setThreadCount(int count){
+		thread_count = Math.max(1, count);
+	}
+	
+	/************************************************************
+	 * Returns the shared pool used for parallel computations, creating it if necessary.
+	 * 
+	 * @return
+	 */
+	public static synchronized ExecutorService getExecutor(){
+		if (executor == null){
+			final AtomicInteger count = new AtomicInteger();
+			executor = Executors.newFixedThreadPool(thread_count, new ThreadFactory(){
+				public Thread newThread(final Runnable r){
+					Thread thread = new Thread(new Runnable(){
+						public void run(){
+							is_worker.set(true);
+							r.run();
+							}
+						}, "mgui-parallel-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+					}
+				});
+			}
+		return executor;
+	}
+	
+	/************************************************************
+	 * Indicates whether the current thread is a worker of the shared parallel pool.
+	 * 
+	 * @return
+	 */
+	public static boolean isWorkerThread(){
+		return Boolean.TRUE.equals(is_worker.get());
+	}
+	
+	/************************************************************
+	 * Splits [0, {@code n}) into at most {@code parts} contiguous ranges of (nearly) equal size.
+	 * 
+	 * @param n
+	 * @param parts
+	 * @return an array of {start, end} pairs
+	 */
+	public static int[][] getPartitions(int n, int parts){
+		parts = Math.max(1, Math.min(parts, n));
+		int[][] ranges = new int[parts][2];
+		int size = n / parts;
+		int extra = n % parts;
+		int start = 0;
+		for (int i = 0; i < parts; i++){
+			int end = start + size + (i < extra ? 1 : 0);
+			ranges[i][0] = start;
+			ranges[i][1] = end;
+			start = end;
+			}
+		return ranges;
+	}
+	
+	/************************************************************
+	 * Returns the number of partitions {@link #runPartitioned(int, PartitionJob)} will use for
+	 * a range of size {@code n}.
+	 * 
+	 * @param n
+	 * @return
+	 */
+	public static int getPartitionCount(int n){
+		if (n <= 0) return 0;
+		if (isWorkerThread()) return 1;
+		return Math.min(n, thread_count);
+	}
+	
+	/************************************************************
+	 * Runs {@code job} over [0, {@code n}), split into {@link #getPartitionCount(int)} partitions,
+	 * and waits for all partitions to complete.
+	 * 
+	 * @param n
+	 * @param job
+	 * @throws Exception the first exception thrown by any partition
+	 */
+	public static void runPartitioned(int n, PartitionJob job) throws Exception{
+		runPartitioned(getPartitions(n, getPartitionCount(n)), job);
+	}
+	
+	/************************************************************
+	 * Runs {@code job} over each of the given partitions, and waits for all to complete.
+	 * 
+	 * @param partitions 	{start, end} pairs, as returned by {@link #getPartitions(int, int)}
+	 * @param job
+	 * @throws Exception the first exception thrown by any partition
+	 */
+	public static void runPartitioned(final int[][] partitions, final PartitionJob job) throws Exception{
+		if (partitions.length == 0) return;
+		if (partitions.length == 1 || isWorkerThread()){
+			for (int p = 0; p < partitions.length; p++)
+				job.run(p, partitions[p][0], partitions[p][1]);
+			return;
+			}
+		
+		ExecutorService pool = getExecutor();
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>(partitions.length);
+		for (int p = 1; p < partitions.length; p++){
+			final int part = p;
+			futures.add(pool.submit(new Callable<Object>(){
+				public Object call() throws Exception{
+					job.run(part, partitions[part][0], partitions[part][1]);
+					return null;
+					}
+				}));
+			}
+		
+		// Run the first partition on this thread
+		Exception first = null;
+		try{
+			job.run(0, partitions[0][0], partitions[0][1]);
+		}catch (Exception e){
+			first = e;
+			}
+		
+		for (int i = 0; i < futures.size(); i++){
+			try{
+				futures.get(i).get();
+			}catch (ExecutionException e){
+				if (first == null){
+					Throwable cause = e.getCause();
+					if (cause instanceof Exception)
+						first = (Exception)cause;
+					else
+						first = e;
+					}
+			}catch (InterruptedException e){
+				for (int j = i; j < futures.size(); j++)
+					futures.get(j).cancel(true);
+				Thread.currentThread().interrupt();
+				throw e;
+				}
+			}
+		
+		if (first != null) throw first;
+	}
+	
+}
@@ -0,0 +1,371 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.interfaces.util;
+
+import java.awt.SecondaryLoop;
+import java.awt.Toolkit;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+
+import foxtrot.Job;
+import foxtrot.Task;
+import foxtrot.Worker;
+
+import mgui.interfaces.InterfaceSession;
+import mgui.interfaces.ProgressUpdater;
+import mgui.interfaces.logs.LoggingType;
+import mgui.interfaces.shapes.InterfaceShape;
+
+/************************************************************
+ * Runs long operations on a sized pool of background threads, so that independent operations (e.g., 
+ * loading two volumes) can proceed concurrently.
+ * 
+ * <p>Three styles of use are supported:
+ * 
+ * <ul>
+ * <li>{@link #post(Job)} runs a job synchronously from the caller's point of view. If called on the event 
+ * dispatch thread, it is posted to foxtrot's (single, sequential) worker thread, and events continue to be 
+ * pumped while it runs; if called from any other thread, the job runs directly on the calling thread.
+ * <li>{@link #postConcurrent(Job, ProgressUpdater)} behaves as {@link #post(Job)}, but runs the job on this 
+ * engine's pool, so that it can run concurrently with other posted jobs. The job is tracked as a 
+ * {@link BackgroundTask} bound to its progress updater, so that it is listed by {@link #getActiveTasks()}
+ * and can be cancelled with {@link #cancelAll()}. This is used for independent operations, such as 
+ * loading or writing a file, or computing a result from a given mesh or volume; callers must ensure 
+ * their jobs are safe to run concurrently.
+ * <li>{@link #submit(String, Callable, ProgressUpdater)} runs a task asynchronously and returns a 
+ * {@link BackgroundTask}, which can be cancelled, waited on, or given completion callbacks which run on
+ * the event dispatch thread.
+ * </ul>
+ * 
+ * <p>The size of the pool can be set with {@link #setThreadCount(int)}, or with the {@code setTaskThreads}
+ * command in the init file.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class TaskEngine {
+
+	static int thread_count = Math.max(2, Runtime.getRuntime().availableProcessors());
+	static ExecutorService executor;
+	static final ThreadLocal<Boolean> is_task_thread = new ThreadLocal<Boolean>();
+	static final ArrayList<BackgroundTask<?>> active_tasks = new ArrayList<BackgroundTask<?>>();
+	
+	/************************************************************
+	 * Returns the number of threads used to run tasks.
+	 * 
+	 * @return
+	 */
+	public static int getThreadCount(){
+		return thread_count;
+	}
+	
+	/************************************************************
+	 * Sets the number of threads used to run tasks. If the pool has already been created, it is resized.
+	 * 
+	 * @param count
+	 */
+	public static synchronized void setThreadCount(int count){
+		count = Math.max(1, count);
+		if (executor instanceof ThreadPoolExecutor){
+			ThreadPoolExecutor pool = (ThreadPoolExecutor)executor;
+			if (count > pool.getMaximumPoolSize()){
+				pool.setMaximumPoolSize(count);
+				pool.setCorePoolSize(count);
+			}else{
+				pool.setCorePoolSize(count);
+				pool.setMaximumPoolSize(count);
+				}
+			}
+		thread_count = count;
+	}
+	
+	/************************************************************
+	 * Returns the pool used to run tasks, creating it if necessary.
+	 * 
+	 * @return
+	 */
+	public static synchronized ExecutorService getExecutor(){
+		if (executor == null){
+			final AtomicInteger count = new AtomicInteger();
+			executor = Executors.newFixedThreadPool(thread_count, new ThreadFactory(){
+				public Thread newThread(final Runnable r){
+					Thread thread = new Thread(new Runnable(){
+						public void run(){
+							is_task_thread.set(true);
+							r.run();
+							}
+						}, "mgui-task-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+					}
+				});
+			}
+		return executor;
+	}
+	
+	/************************************************************
+	 * Indicates whether the current thread is a task thread of this engine.
+	 * 
+	 * @return
+	 */
+	public static boolean isTaskThread(){
+		return Boolean.TRUE.equals(is_task_thread.get());
+	}
+	
+	/************************************************************
+	 * Runs {@code job} and returns its result. If called on the event dispatch thread, the job is posted
+	 * to foxtrot's worker thread while events continue to be pumped; otherwise it runs on the calling thread.
+	 * Jobs posted this way run one at a time.
+	 * 
+	 * @param job
+	 * @return
+	 */
+	public static Object post(Job job){
+		if (!SwingUtilities.isEventDispatchThread())
+			return job.run();
+		// Events pumped while waiting are unrelated to any batch open on this thread
+		InterfaceShape.suspendBatch();
+		try{
+			return Worker.post(job);
+		}finally{
+			InterfaceShape.resumeBatch();
+			}
+	}
+	
+	/************************************************************
+	 * Runs {@code task} and returns its result. If called on the event dispatch thread, the task is posted
+	 * to foxtrot's worker thread while events continue to be pumped; otherwise it runs on the calling thread.
+	 * Tasks posted this way run one at a time.
+	 * 
+	 * @param task
+	 * @return
+	 * @throws Exception if thrown by {@code task}
+	 */
+	public static Object post(Task task) throws Exception{
+		if (!SwingUtilities.isEventDispatchThread())
+			return task.run();
+		InterfaceShape.suspendBatch();
+		try{
+			return Worker.post(task);
+		}finally{
+			InterfaceShape.resumeBatch();
+			}
+	}
+	
+	/************************************************************
+	 * Runs {@code job} and returns its result, as for {@link #postConcurrent(Job, ProgressUpdater)}.
+	 * 
+	 * @param job
+	 * @return
+	 */
+	public static Object postConcurrent(Job job){
+		return postConcurrent(job, null);
+	}
+	
+	/************************************************************
+	 * Runs {@code job} and returns its result. If called on the event dispatch thread, the job runs on this
+	 * engine's pool while events continue to be pumped, and may therefore run concurrently with other jobs;
+	 * otherwise it runs on the calling thread. 
+	 * 
+	 * <p>While it runs on the pool, the job is tracked as a {@link BackgroundTask} bound to {@code progress};
+	 * cancelling the task cancels {@code progress}, which the job is expected to check. Registering 
+	 * {@code progress} remains the caller's responsibility. If the task is cancelled before the job
+	 * returns, {@code null} is returned.
+	 * 
+	 * @param job
+	 * @param progress		Progress updater for this job; can be {@code null}
+	 * @return
+	 */
+	public static Object postConcurrent(final Job job, ProgressUpdater progress){
+		if (!SwingUtilities.isEventDispatchThread())
+			return job.run();
+		try{
+			return postConcurrent(new Task(){
+				public Object run(){
+					return job.run();
+					}
+				}, progress, job.getClass().getName());
+		}catch (RuntimeException ex){
+			throw ex;
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
+	}
+	
+	/************************************************************
+	 * Runs {@code task} and returns its result, as for {@link #postConcurrent(Task, ProgressUpdater)}.
+	 * 
+	 * @param task
+	 * @return
+	 * @throws Exception if thrown by {@code task}
+	 */
+	public static Object postConcurrent(Task task) throws Exception{
+		return postConcurrent(task, null);
+	}
+	
+	/************************************************************
+	 * Runs {@code task} and returns its result. If called on the event dispatch thread, the task runs on this
+	 * engine's pool while events continue to be pumped, and may therefore run concurrently with other tasks;
+	 * otherwise it runs on the calling thread. Progress and cancellation are handled as for 
+	 * {@link #postConcurrent(Job, ProgressUpdater)}.
+	 * 
+	 * @param task
+	 * @param progress		Progress updater for this task; can be {@code null}
+	 * @return
+	 * @throws Exception if thrown by {@code task}
+	 */
+	public static Object postConcurrent(Task task, ProgressUpdater progress) throws Exception{
+		if (!SwingUtilities.isEventDispatchThread())
+			return task.run();
+		return postConcurrent(task, progress, task.getClass().getName());
+	}
+	
+	private static Object postConcurrent(final Task task, ProgressUpdater progress, String name) throws Exception{
+		
+		BackgroundTask<Object> future = new BackgroundTask<Object>(name, new Callable<Object>(){
+			public Object call() throws Exception{
+				return task.run();
+				}
+			}, progress, false);
+		
+		// Pump events in a secondary loop until the task is done; exit is posted as an event (by the
+		// completion callback) so that it cannot be missed if the task completes before the loop is entered
+		final SecondaryLoop loop = Toolkit.getDefaultToolkit().getSystemEventQueue().createSecondaryLoop();
+		future.addCompletionCallback(new Runnable(){
+			public void run(){
+				loop.exit();
+				}
+			});
+		synchronized(active_tasks){
+			active_tasks.add(future);
+			}
+		getExecutor().execute(future);
+		InterfaceShape.suspendBatch();
+		try{
+			loop.enter();
+		}finally{
+			InterfaceShape.resumeBatch();
+			}
+		
+		try{
+			return future.get();
+		}catch (CancellationException ex){
+			InterfaceSession.log("TaskEngine: Task '" + name + "' was cancelled.", LoggingType.Debug);
+			return null;
+		}catch (ExecutionException ex){
+			Throwable cause = ex.getCause();
+			if (cause instanceof Exception) throw (Exception)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			throw ex;
+			}
+	}
+	
+	/************************************************************
+	 * Runs {@code job} as for {@link #post(Job)}, registering {@code progress} for the duration of the job.
+	 * 
+	 * @param job
+	 * @param progress
+	 * @return
+	 */
+	public static Object post(Job job, ProgressUpdater progress){
+		if (progress == null) return post(job);
+		progress.register();
+		try{
+			return post(job);
+		}finally{
+			progress.deregister();
+			}
+	}
+	
+	/************************************************************
+	 * Submits {@code callable} to run asynchronously on the task pool.
+	 * 
+	 * @param name			A name for this task
+	 * @param callable		The operation to run
+	 * @param progress		Progress updater bound to the task; can be {@code null}
+	 * @return the submitted task
+	 */
+	public static <T> BackgroundTask<T> submit(String name, Callable<T> callable, ProgressUpdater progress){
+		BackgroundTask<T> task = new BackgroundTask<T>(name, callable, progress);
+		synchronized(active_tasks){
+			active_tasks.add(task);
+			}
+		getExecutor().execute(task);
+		return task;
+	}
+	
+	/************************************************************
+	 * Submits {@code callable} to run asynchronously on the task pool, and runs {@code on_done} on the
+	 * event dispatch thread when it completes, fails or is cancelled.
+	 * 
+	 * @param name			A name for this task
+	 * @param callable		The operation to run
+	 * @param progress		Progress updater bound to the task; can be {@code null}
+	 * @param on_done		Completion callback
+	 * @return the submitted task
+	 */
+	public static <T> BackgroundTask<T> submit(String name, Callable<T> callable, ProgressUpdater progress, Runnable on_done){
+		BackgroundTask<T> task = submit(name, callable, progress);
+		if (on_done != null)
+			task.addCompletionCallback(on_done);
+		return task;
+	}
+	
+	/************************************************************
+	 * Returns a list of the submitted tasks which have not yet completed.
+	 * 
+	 * @return
+	 */
+	public static ArrayList<BackgroundTask<?>> getActiveTasks(){
+		synchronized(active_tasks){
+			return new ArrayList<BackgroundTask<?>>(active_tasks);
+			}
+	}
+	
+	/************************************************************
+	 * Cancels all submitted tasks which have not yet completed.
+	 * 
+	 */
+	public static void cancelAll(){
+		ArrayList<BackgroundTask<?>> tasks = getActiveTasks();
+		for (int i = 0; i < tasks.size(); i++)
+			tasks.get(i).cancel(true);
+		if (tasks.size() > 0)
+			InterfaceSession.log("TaskEngine: Cancelled " + tasks.size() + " task(s).", LoggingType.Debug);
+	}
+	
+	static void taskDone(BackgroundTask<?> task){
+		synchronized(active_tasks){
+			active_tasks.remove(task);
+			}
+	}
+	
+}
@@ -90,6 +90,9 @@ public class DataSourceXMLHandler extends DefaultHandler {
 			String filename = attributes.getValue("file");
 			if (filename != null && filename.length() > 0)
 				connection.setFile(new File(filename));
+			String pool_size = attributes.getValue("pool_size");
+			if (pool_size != null && pool_size.length() > 0)
+				connection.setPoolSize(Integer.valueOf(pool_size));
 			
 			return;
 			}
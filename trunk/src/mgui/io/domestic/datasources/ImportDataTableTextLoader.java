@@ -23,19 +23,24 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
 
 import mgui.datasources.DataField;
+import mgui.datasources.DataQueryTask;
 import mgui.datasources.DataRecordSet;
 import mgui.datasources.DataSourceException;
 import mgui.datasources.DataTable;
+import mgui.datasources.ResultSetHandler;
 import mgui.interfaces.InterfaceSession;
 import mgui.interfaces.ProgressUpdater;
 import mgui.interfaces.logs.LoggingType;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.InterfaceIOOptions;
 import foxtrot.Job;
-import foxtrot.Worker;
 
 /******************************************************************
  * Imports data from a delimited text file into a new {@code DataSource} table. 
@@ -87,7 +92,7 @@ public class ImportDataTableTextLoader extends ImportDataTableLoader {
 				final String name = names.get(i);
 				final ArrayList<DataField> fields = data_fields.get(i);
 				final ArrayList<Boolean> include = include_fields.get(i);
-				success &= (Boolean)Worker.post(new Job(){
+				success &= (Boolean)TaskEngine.postConcurrent(new Job(){
 					public Boolean run(){
 						try{
 							return loadDataTable(name, fields, include,  progress_bar);
@@ -98,7 +103,7 @@ public class ImportDataTableTextLoader extends ImportDataTableLoader {
 							return false;
 							}
 						}
-					});
+					}, progress_bar);
 				
 				if (progress_bar != null){
 					if (progress_bar.isCancelled()){
@@ -186,9 +191,9 @@ public class ImportDataTableTextLoader extends ImportDataTableLoader {
 				}
 			
 			// Import data into the new table
+			BufferedReader reader = null;
 			try{
-				BufferedReader reader = new BufferedReader(new FileReader(dataFile));
-				
+				reader = new BufferedReader(new FileReader(dataFile));
 				String line = reader.readLine();
 				
 				if (progress_bar != null){
@@ -211,84 +216,54 @@ public class ImportDataTableTextLoader extends ImportDataTableLoader {
 						line = reader.readLine();
 					}
 				
-				DataRecordSet record_set = data_source.getRecordSet(new_table);
+				// Insert records through an updatable result set on a pooled connection
+				final BufferedReader _reader = reader;
+				final String first_line = line;
+				final String _uid_field = uid_field;
+				final DataTable _table = new_table;
+				DataQueryTask<Boolean> task = data_source.submitQuery(new_table.getSQLStatement(data_source.getDataSourceDriver()), 
+						new ResultSetHandler<Boolean>(){
+							public Boolean handleResultSet(ResultSet result_set) throws SQLException{
+								try{
+									DataRecordSet record_set = new DataRecordSet(data_source);
+									if (!record_set.set(result_set, _table.hasSortedFields())) return false;
+									return importRecords(record_set, _reader, first_line, fields, _uid_field, progress_bar);
+								}catch (IOException ex){
+									throw new SQLException(ex.getMessage(), ex);
+								}catch (DataSourceException ex){
+									throw new SQLException(ex.getMessage(), ex);
+									}
+								}
+							}, true);
 				
-				int line_no = start_at;
-				while (line != null){
-					record_set.addNew();
-					String[] tokens = line.split(delimiter + "(?=([^\"]*\"[^\"]*\")*[^\"]*$)", -1);
-					
-					//String[] tokens = line.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)", -1);
-					
-					int n = tokens.length;
-					
-					if (n > fields.size()){
-						InterfaceSession.log("ImportDataTableTextLoader: Warning: line " + line_no + " has incorrect field count.", 
+				boolean success = false;
+				try{
+					success = task.get();
+				}catch (InterruptedException ex){
+					task.cancel(true);
+				}catch (ExecutionException ex){
+					Throwable cause = ex.getCause();
+					if (cause != null && cause.getCause() instanceof IOException)
+						throw (IOException)cause.getCause();
+					InterfaceSession.log("ImportDataTableTextLoader: Exception importing table '" + new_table.getName() +
+							 "' to data source '" + data_source + "': " + (cause == null ? ex.getMessage() : cause.getMessage()), 
+							 LoggingType.Errors);
+					}
+				
+				if (!success){
+					if (progress_bar != null && progress_bar.isCancelled()){
+						InterfaceSession.log("ImportDataTableTextLoader: Operation cancelled by user..",
 								 			 LoggingType.Warnings);
-						if (fail_on_error){
-							reader.close();
-							if (!data_source.removeDataTable(new_table)){
-								InterfaceSession.log("ImportDataTableTextLoader: Could not remove new table '" + new_table.getName() +
-													 "' from data source '" + data_source + "' after failed import attempt.", 
-													 LoggingType.Errors);
-								}
-								return false;
-							}
-							
-						}
-					
-					// Add uid field if set
-					if (uid_field != null){
-						record_set.updateField(uid_field, "" + line_no);
-						}
-					
-					//while (tokens.hasMoreTokens() && i < fields.size()){
-					for (int i = 0; i < n && i < fields.size(); i++){
-						DataField field = fields.get(i);
-						String token = null;
-						token = tokens[i];
-						
-						//Remove all quotes
-						token = token.replaceAll("\"", "");
-						token = token.replaceAll("'", "");
-						token = token.replaceAll("\u0000", "");	// Needed for PostgreSQL??
-							
-						record_set.updateField(field.getName(), token);
+						return false;
 						}
-					
-					if (!record_set.update()){
-						if (!fail_on_error){
-							InterfaceSession.log("ImportDataTableTextLoader: Warning: Could not update line " + line_no + ".", 
-						 			 			 LoggingType.Warnings);
-						}else{
-							InterfaceSession.log("ImportDataTableTextLoader: Warning: Could not update line " + line_no + "... failing.", 
-			 			 			 			  LoggingType.Errors);
-							reader.close();
-							if (!data_source.removeDataTable(new_table)){
-								InterfaceSession.log("ImportDataTableTextLoader: Could not remove new table '" + new_table.getName() +
-													 "' from data source '" + data_source + "' after failed import attempt.", 
-													 LoggingType.Errors);
-								}
-								return false;
-							}
+					if (!data_source.removeDataTable(new_table)){
+						InterfaceSession.log("ImportDataTableTextLoader: Could not remove new table '" + new_table.getName() +
+											 "' from data source '" + data_source + "' after failed import attempt.", 
+											 LoggingType.Errors);
 						}
-					
-					if (progress_bar != null){
-						if (progress_bar.isCancelled()){
-							InterfaceSession.log("ImportDataTableTextLoader: Operation cancelled by user..",
-									 			 LoggingType.Warnings);
-							reader.close();
-							return false;
-							}
-						progress_bar.update(line_no);
-						}
-					
-					line = reader.readLine();
-					line_no++;
+					return false;
 					}
 				
-				reader.close();
-				
 			}catch (IOException ex){
 				// If import fails, destroy new table and rethrow
 				if (!data_source.removeDataTable(new_table)){
@@ -309,11 +284,79 @@ public class ImportDataTableTextLoader extends ImportDataTableLoader {
 										 LoggingType.Errors);
 					}
 				return false;
+			}finally{
+				if (reader != null) reader.close();
 				}
 			
 			return true;
 	}
 	
+	/******************************************************************
+	 * Reads lines from {@code reader}, starting with {@code line}, and appends them as new records
+	 * to {@code record_set}. This is called on the pooled connection's query thread.
+	 * 
+	 * @return {@code false} if the import failed or was cancelled
+	 */
+	protected boolean importRecords(DataRecordSet record_set, 
+									BufferedReader reader, 
+									String line,
+									ArrayList<DataField> fields, 
+									String uid_field,
+									ProgressUpdater progress_bar) throws IOException, DataSourceException{
+		
+		int line_no = start_at;
+		while (line != null){
+			record_set.addNew();
+			String[] tokens = line.split(delimiter + "(?=([^\"]*\"[^\"]*\")*[^\"]*$)", -1);
+			
+			int n = tokens.length;
+			
+			if (n > fields.size()){
+				InterfaceSession.log("ImportDataTableTextLoader: Warning: line " + line_no + " has incorrect field count.", 
+						 			 LoggingType.Warnings);
+				if (fail_on_error) return false;
+				}
+			
+			// Add uid field if set
+			if (uid_field != null){
+				record_set.updateField(uid_field, "" + line_no);
+				}
+			
+			for (int i = 0; i < n && i < fields.size(); i++){
+				DataField field = fields.get(i);
+				String token = tokens[i];
+				
+				//Remove all quotes
+				token = token.replaceAll("\"", "");
+				token = token.replaceAll("'", "");
+				token = token.replaceAll("\u0000", "");	// Needed for PostgreSQL??
+					
+				record_set.updateField(field.getName(), token);
+				}
+			
+			if (!record_set.update()){
+				if (!fail_on_error){
+					InterfaceSession.log("ImportDataTableTextLoader: Warning: Could not update line " + line_no + ".", 
+				 			 			 LoggingType.Warnings);
+				}else{
+					InterfaceSession.log("ImportDataTableTextLoader: Warning: Could not update line " + line_no + "... failing.", 
+	 			 			 			  LoggingType.Errors);
+					return false;
+					}
+				}
+			
+			if (progress_bar != null){
+				if (progress_bar.isCancelled()) return false;
+				progress_bar.update(line_no);
+				}
+			
+			line = reader.readLine();
+			line_no++;
+			}
+		
+		return true;
+	}
+	
 	@Override
 	public Object loadObject(ProgressUpdater progress_bar, InterfaceIOOptions options) throws IOException {
 		
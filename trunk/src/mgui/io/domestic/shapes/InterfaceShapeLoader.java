@@ -58,30 +58,38 @@ public abstract class InterfaceShapeLoader extends FileLoader {
 		
 		File[] input_files = _options.getFiles();
 		boolean success = true;
-		for (int i = 0; i < input_files.length; i++){
-			setFile(input_files[i]);
-			try{
-				InterfaceShape shape = loadShape(_options, progress_bar);
-				if (shape == null){
-					InterfaceSession.log("InterfaceShapeLoader: No target shape set specified!", LoggingType.Errors);
-				}else{
-					if (!_options.shape_set.addShape(shape)){
-						InterfaceSession.log("InterfaceShapeLoader: Problem loading '" + 
-											input_files[i].getAbsolutePath() + "'. See log for details.", 
-											LoggingType.Errors);
-						success = false;
+		
+		// Coalesce shape events until all shapes are loaded; this only applies off the event
+		// dispatch thread, otherwise loaders batch the work they post to a worker
+		InterfaceShape.beginBatch();
+		try{
+			for (int i = 0; i < input_files.length; i++){
+				setFile(input_files[i]);
+				try{
+					InterfaceShape shape = loadShape(_options, progress_bar);
+					if (shape == null){
+						InterfaceSession.log("InterfaceShapeLoader: No target shape set specified!", LoggingType.Errors);
 					}else{
-						InterfaceSession.log("Loaded '" + input_files[i].getName() + "'.", LoggingType.Verbose);
+						if (!_options.shape_set.addShape(shape)){
+							InterfaceSession.log("InterfaceShapeLoader: Problem loading '" + 
+												input_files[i].getAbsolutePath() + "'. See log for details.", 
+												LoggingType.Errors);
+							success = false;
+						}else{
+							InterfaceSession.log("Loaded '" + input_files[i].getName() + "'.", LoggingType.Verbose);
 						
+							}
 						}
+				}catch (IOException ex){
+					InterfaceSession.log("InterfaceShapeLoader: Problem loading '" + 
+												input_files[i].getAbsolutePath() + "'. See log for details.", 
+												LoggingType.Errors);
+					InterfaceSession.handleException(ex);
+					success = false;
 					}
-			}catch (IOException ex){
-				InterfaceSession.log("InterfaceShapeLoader: Problem loading '" + 
-											input_files[i].getAbsolutePath() + "'. See log for details.", 
-											LoggingType.Errors);
-				InterfaceSession.handleException(ex);
-				success = false;
 				}
+		}finally{
+			InterfaceShape.endBatch();
 			}
 		
 		return success;
@@ -33,10 +33,10 @@ import mgui.interfaces.InterfaceSession;
 import mgui.interfaces.ProgressUpdater;
 import mgui.interfaces.io.InterfaceIOType;
 import mgui.interfaces.shapes.Mesh3DInt;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.InterfaceIOOptions;
 import mgui.numbers.MguiDouble;
 import foxtrot.Job;
-import foxtrot.Worker;
 
 /****************************************************************
  * Default writer for a {@code Mesh3DInt} object. Writes as an Ascii tri file.
@@ -62,12 +62,12 @@ public class Mesh3DWriter extends SurfaceFileWriter {
 		
 		if (progress_bar != null){
 			
-			return ((Boolean)Worker.post(new Job(){
+			return ((Boolean)TaskEngine.postConcurrent(new Job(){
 				
 				@Override
 				public Boolean run(){
 					return writeSurfaceBlocking(mesh, progress_bar);
-				}}));
+				}}, progress_bar));
 		}
 		
 		return writeSurfaceBlocking(mesh, null);
@@ -29,9 +29,9 @@ import mgui.geometry.PointSet2D;
 import mgui.interfaces.ProgressUpdater;
 import mgui.interfaces.shapes.InterfaceShape;
 import mgui.interfaces.shapes.PointSet2DInt;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.InterfaceIOOptions;
 import foxtrot.Job;
-import foxtrot.Worker;
 
 /*************************************************************
  * Loader class for {@linkplain PointSet2DInt} objects.
@@ -84,7 +84,7 @@ public class PointSet2DLoader extends InterfaceShapeLoader {
 		PointSet2DInt point_set = null;
 		
 		if (progress_bar != null){
-			point_set = (PointSet2DInt)Worker.post(new Job(){
+			point_set = (PointSet2DInt)TaskEngine.postConcurrent(new Job(){
 				@Override
 				public PointSet2DInt run(){
 					try{
@@ -94,7 +94,7 @@ public class PointSet2DLoader extends InterfaceShapeLoader {
 						return null;
 						}
 				}
-			});
+			}, progress_bar);
 		}else{
 			point_set = loadPointSetBlocking(progress_bar);
 			}
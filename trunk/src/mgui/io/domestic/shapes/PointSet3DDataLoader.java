@@ -27,12 +27,12 @@ import java.util.ArrayList;
 import java.util.StringTokenizer;
 
 import mgui.interfaces.ProgressUpdater;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.FileLoader;
 import mgui.io.InterfaceIOOptions;
 import mgui.numbers.MguiDouble;
 import mgui.numbers.MguiNumber;
 import foxtrot.Job;
-import foxtrot.Worker;
 
 
 public class PointSet3DDataLoader extends FileLoader {
@@ -82,7 +82,7 @@ public class PointSet3DDataLoader extends FileLoader {
 		ArrayList<ArrayList<MguiNumber>> data = null;
 		
 		if (progress_bar != null){
-			data = (ArrayList<ArrayList<MguiNumber>>)Worker.post(new Job(){
+			data = (ArrayList<ArrayList<MguiNumber>>)TaskEngine.postConcurrent(new Job(){
 				@Override
 				public ArrayList<ArrayList<MguiNumber>> run(){
 					try{
@@ -92,7 +92,7 @@ public class PointSet3DDataLoader extends FileLoader {
 						return null;
 						}
 				}
-			});
+			}, progress_bar);
 		}else{
 			data = loadValuesBlocking(progress_bar);
 			}
@@ -28,10 +28,10 @@ import java.util.StringTokenizer;
 import mgui.geometry.PointSet3D;
 import mgui.interfaces.ProgressUpdater;
 import mgui.interfaces.shapes.PointSet3DInt;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.FileLoader;
 import mgui.io.InterfaceIOOptions;
 import foxtrot.Job;
-import foxtrot.Worker;
 
 /*******************************
  * Domestic loader for a 3D point set.
@@ -84,7 +84,7 @@ public class PointSet3DLoader extends FileLoader {
 		PointSet3DInt point_set = null;
 		
 		if (progress_bar != null){
-			point_set = (PointSet3DInt)Worker.post(new Job(){
+			point_set = (PointSet3DInt)TaskEngine.postConcurrent(new Job(){
 				@Override
 				public PointSet3DInt run(){
 					try{
@@ -94,7 +94,7 @@ public class PointSet3DLoader extends FileLoader {
 						return null;
 						}
 				}
-			});
+			}, progress_bar);
 		}else{
 			point_set = loadPointSetBlocking(progress_bar);
 			}
@@ -26,7 +26,6 @@ import java.util.ArrayList;
 import java.util.StringTokenizer;
 
 import foxtrot.Job;
-import foxtrot.Worker;
 import mgui.datasources.DataTypes;
 import mgui.geometry.Polygon3D;
 import mgui.interfaces.InterfaceSession;
@@ -35,6 +34,7 @@ import mgui.interfaces.maps.NameMap;
 import mgui.interfaces.shapes.Polygon3DInt;
 import mgui.interfaces.shapes.Shape3DInt;
 import mgui.interfaces.shapes.ShapeSet3DInt;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.FileLoader;
 import mgui.io.InterfaceIOOptions;
 import mgui.numbers.MguiBoolean;
@@ -160,7 +160,7 @@ public class PolygonSet3DLoader extends FileLoader {
 		ShapeSet3DInt polygon_set = null;
 		
 		if (progress_bar != null){
-			polygon_set = (ShapeSet3DInt)Worker.post(new Job(){
+			polygon_set = (ShapeSet3DInt)TaskEngine.postConcurrent(new Job(){
 				@Override
 				public ShapeSet3DInt run(){
 					try{
@@ -170,7 +170,7 @@ public class PolygonSet3DLoader extends FileLoader {
 						return null;
 						}
 				}
-			});
+			}, progress_bar);
 		}else{
 			polygon_set = loadPolygonSetBlocking(progress_bar);
 			}
@@ -36,6 +36,7 @@ import mgui.interfaces.InterfaceSession;
 import mgui.interfaces.ProgressUpdater;
 import mgui.interfaces.logs.LoggingType;
 import mgui.interfaces.shapes.InterfaceShape;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.FileLoader;
 import mgui.io.InterfaceIOOptions;
 import mgui.numbers.MguiBoolean;
@@ -44,7 +45,6 @@ import mgui.numbers.MguiFloat;
 import mgui.numbers.MguiInteger;
 import mgui.numbers.MguiNumber;
 import foxtrot.Job;
-import foxtrot.Worker;
 
 /**********************************************************
  * Loads vertex-wise data from tabular text files into shapes. 
@@ -140,12 +140,12 @@ public class ShapeDataLoader extends FileLoader {
 		progress_bar.setMinimum(0);
 		progress_bar.setMaximum(size);
 		
-		return (HashMap<String, ArrayList<MguiNumber>>)Worker.post(new Job(){
+		return (HashMap<String, ArrayList<MguiNumber>>)TaskEngine.postConcurrent(new Job(){
 			@Override
 			public HashMap<String, ArrayList<MguiNumber>> run(){
 				return loadDataBlocking(options, progress_bar);
 			}
-		});
+		}, progress_bar);
 	}
 	
 	public HashMap<String, ArrayList<MguiNumber>> loadDataBlocking(ShapeDataInputOptions options, ProgressUpdater progress_bar){
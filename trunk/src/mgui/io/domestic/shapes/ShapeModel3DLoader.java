@@ -36,12 +36,13 @@ import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.XMLReaderFactory;
 
 import foxtrot.Job;
-import foxtrot.Worker;
 import mgui.interfaces.InterfaceEnvironment;
 import mgui.interfaces.InterfaceSession;
 import mgui.interfaces.ProgressUpdater;
+import mgui.interfaces.shapes.InterfaceShape;
 import mgui.interfaces.shapes.ShapeModel3D;
 import mgui.interfaces.shapes.ShapeSet3DInt;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.FileLoader;
 import mgui.io.InterfaceIOOptions;
 import mgui.io.domestic.shapes.xml.ShapeModel3DXMLHandler;
@@ -74,30 +75,36 @@ public class ShapeModel3DLoader extends FileLoader {
 		ShapeModel3DInputOptions _options = (ShapeModel3DInputOptions)options;
 		boolean success = true;
 		
-		for (int i = 0; i < _options.files.length; i++){
-			setFile(_options.files[i]);
-			if (progress_bar != null){
-				progress_bar.setMessage("Loading '" + dataFile.getName() + "':");
-				}
-			ShapeModel3D model = loadModel(_options, progress_bar);
-			if (model == null)
-				success = false;
-			else{
-				if (_options.merge_with_model != null ){
-					ShapeModel3D merge_model = _options.merge_with_model; //.getModelSet().addShape(model.getModelSet());
-					ShapeSet3DInt model_set = merge_model.getModelSet();
-					// If they have the same name or options.merge_model_set, merge
-					if (_options.merge_model_set || model_set.getName().equals(model.getModelSet().getName())){
-						model_set.mergeWithSet(model.getModelSet(), _options.existing_shapes, true);
-					// Otherwise simply add
+		// Coalesce shape events until all models are loaded; work posted by loadModel batches its own events
+		InterfaceShape.beginBatch();
+		try{
+			for (int i = 0; i < _options.files.length; i++){
+				setFile(_options.files[i]);
+				if (progress_bar != null){
+					progress_bar.setMessage("Loading '" + dataFile.getName() + "':");
+					}
+				ShapeModel3D model = loadModel(_options, progress_bar);
+				if (model == null)
+					success = false;
+				else{
+					if (_options.merge_with_model != null ){
+						ShapeModel3D merge_model = _options.merge_with_model; //.getModelSet().addShape(model.getModelSet());
+						ShapeSet3DInt model_set = merge_model.getModelSet();
+						// If they have the same name or options.merge_model_set, merge
+						if (_options.merge_model_set || model_set.getName().equals(model.getModelSet().getName())){
+							model_set.mergeWithSet(model.getModelSet(), _options.existing_shapes, true);
+						// Otherwise simply add
+						}else{
+							model_set.addShape(model.getModelSet());
+							}
+					
 					}else{
-						model_set.addShape(model.getModelSet());
+						InterfaceSession.getWorkspace().addShapeModel(model, true);
 						}
-					
-				}else{
-					InterfaceSession.getWorkspace().addShapeModel(model, true);
 					}
 				}
+		}finally{
+			InterfaceShape.endBatch();
 			}
 			
 		return success;
@@ -111,16 +118,28 @@ public class ShapeModel3DLoader extends FileLoader {
 	public ShapeModel3D loadModel(final ShapeModel3DInputOptions options,
 			  					  final ProgressUpdater progress_bar) {
 		
-		if (progress_bar == null)
-			return loadModelBlocking(options, null);
+		if (progress_bar == null){
+			InterfaceShape.beginBatch();
+			try{
+				return loadModelBlocking(options, null);
+			}finally{
+				InterfaceShape.endBatch();
+				}
+			}
 		
-		return (ShapeModel3D)Worker.post(new Job(){
+		return (ShapeModel3D)TaskEngine.postConcurrent(new Job(){
 			
 			public ShapeModel3D run(){
-				return loadModelBlocking(options, progress_bar);
+				// Coalesce the shape events fired on this thread while the model is built
+				InterfaceShape.beginBatch();
+				try{
+					return loadModelBlocking(options, progress_bar);
+				}finally{
+					InterfaceShape.endBatch();
+					}
 			}
 			
-		});
+		}, progress_bar);
 		
 	}
 	
@@ -32,11 +32,11 @@ import javax.swing.Icon;
 import javax.swing.ImageIcon;
 
 import foxtrot.Job;
-import foxtrot.Worker;
 import mgui.interfaces.InterfaceSession;
 import mgui.interfaces.ProgressUpdater;
 import mgui.interfaces.logs.LoggingType;
 import mgui.interfaces.shapes.ShapeModel3D;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.InterfaceIOOptions;
 import mgui.io.standard.xml.XMLWriter;
 import mgui.io.util.IoFunctions;
@@ -164,7 +164,7 @@ public class ShapeModel3DWriter extends XMLWriter {
 			
 				progress_bar.setMessage("Writing '" + dataFile.getName() + "':");
 				progress_bar.setIndeterminate(true);
-				success = (Boolean)Worker.post(new Job(){
+				success = (Boolean)TaskEngine.postConcurrent(new Job(){
 					@Override
 					public Boolean run(){
 						try{
@@ -175,7 +175,7 @@ public class ShapeModel3DWriter extends XMLWriter {
 							return false;
 							}
 						}
-				});
+				}, progress_bar);
 			}
 			
 			// Reset original dataFile
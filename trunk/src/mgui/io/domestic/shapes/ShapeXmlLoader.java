@@ -26,6 +26,7 @@ import java.io.IOException;
 import mgui.interfaces.InterfaceSession;
 import mgui.interfaces.ProgressUpdater;
 import mgui.interfaces.shapes.InterfaceShape;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.domestic.shapes.xml.InterfaceShapeXMLHandler;
 import mgui.io.util.IoFunctions;
 
@@ -34,7 +35,6 @@ import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.XMLReaderFactory;
 
 import foxtrot.Job;
-import foxtrot.Worker;
 
 /*********************************************************
  * Loader for an {@linkplain InterfaceShape} stored in domestic XML format.
@@ -60,13 +60,18 @@ public class ShapeXmlLoader extends InterfaceShapeLoader {
 		if (progress_bar == null)
 			return loadShapeBlocking(options, null);
 		
-		return (InterfaceShape)Worker.post(new Job(){
+		return (InterfaceShape)TaskEngine.postConcurrent(new Job(){
 			
 			public InterfaceShape run(){
-				return loadShapeBlocking(options, progress_bar);
+				InterfaceShape.beginBatch();
+				try{
+					return loadShapeBlocking(options, progress_bar);
+				}finally{
+					InterfaceShape.endBatch();
+					}
 			}
 			
-		});
+		}, progress_bar);
 		
 	}
 	
@@ -28,6 +28,7 @@ import javax.swing.ImageIcon;
 import mgui.geometry.Mesh3D;
 import mgui.geometry.mesh.MeshFunctionException;
 import mgui.geometry.mesh.MeshFunctions;
+import mgui.geometry.mesh.MeshWelder;
 import mgui.interfaces.InterfaceSession;
 import mgui.interfaces.ProgressUpdater;
 import mgui.interfaces.logs.LoggingType;
@@ -62,6 +63,17 @@ public abstract class SurfaceFileLoader extends InterfaceShapeLoader {
 				Mesh3DInt mesh = loadSurface(progress_bar, s_options);
 				if (mesh == null) return false;
 				
+				// Weld coincident vertices (e.g., from triangle soup formats); skip meshes with vertex
+				// data, since welding would invalidate its indexing
+				if (s_options.weld_vertices && !s_options.merge_shapes && 
+						mesh.getVertexDataColumnNames().isEmpty()){
+					// Welding may drop degenerate or duplicate faces without merging any vertices, so
+					// always update the shape
+					Mesh3D mesh3d = mesh.getMesh();
+					MeshWelder.weld(mesh3d, MeshFunctions.tolerance);
+					mesh.setMesh(mesh3d);
+					}
+				
 				if (!s_options.merge_shapes){
 					mesh.setName(s_options.names[i]);
 					s_options.shapeSet.addShape(mesh);
@@ -74,7 +86,7 @@ public abstract class SurfaceFileLoader extends InterfaceShapeLoader {
 			}
 		if (s_options.merge_shapes && merge_shapes.size() > 1){
 			try{
-				Mesh3DInt mesh = new Mesh3DInt(MeshFunctions.mergeMeshes(merge_shapes));
+				Mesh3DInt mesh = new Mesh3DInt(MeshFunctions.mergeMeshes(merge_shapes, null, s_options.weld_vertices));
 				mesh.setName(s_options.merge_name);
 				s_options.shapeSet.addShape(mesh);
 			}catch (MeshFunctionException ex){
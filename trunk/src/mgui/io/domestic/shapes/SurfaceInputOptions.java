@@ -45,6 +45,9 @@ public class SurfaceInputOptions extends ShapeInputOptions {
 	public String[] names;
 	public boolean merge_shapes;
 	public String merge_name ="";
+	/** Whether to weld coincident vertices of loaded surfaces (e.g., from triangle soup formats). Off by 
+	 *  default, since welding changes vertex counts and order, which breaks per-vertex data loaded later. */
+	public boolean weld_vertices = false;
 	
 	public SurfaceInputOptions(){
 		
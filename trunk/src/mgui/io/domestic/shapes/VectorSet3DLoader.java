@@ -32,11 +32,11 @@ import mgui.geometry.Vector3D;
 import mgui.interfaces.InterfaceSession;
 import mgui.interfaces.ProgressUpdater;
 import mgui.interfaces.shapes.VectorSet3DInt;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.FileLoader;
 import mgui.io.InterfaceIOOptions;
 import mgui.io.domestic.graphs.GraphFileLoader;
 import foxtrot.Job;
-import foxtrot.Worker;
 
 
 public class VectorSet3DLoader extends FileLoader {
@@ -88,7 +88,7 @@ public class VectorSet3DLoader extends FileLoader {
 		VectorSet3DInt vector_set = null;
 		
 		if (progress_bar != null){
-			vector_set = (VectorSet3DInt)Worker.post(new Job(){
+			vector_set = (VectorSet3DInt)TaskEngine.postConcurrent(new Job(){
 				@Override
 				public VectorSet3DInt run(){
 					try{
@@ -98,7 +98,7 @@ public class VectorSet3DLoader extends FileLoader {
 						return null;
 						}
 				}
-			});
+			}, progress_bar);
 		}else{
 			vector_set = loadVectorSetBlocking(progress_bar);
 			}
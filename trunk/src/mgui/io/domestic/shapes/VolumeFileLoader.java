@@ -29,7 +29,6 @@ import javax.swing.ImageIcon;
 import javax.swing.SwingUtilities;
 
 import foxtrot.Job;
-import foxtrot.Worker;
 import mgui.geometry.Box3D;
 import mgui.geometry.Grid3D;
 import mgui.image.util.WindowedColourModel;
@@ -38,6 +37,7 @@ import mgui.interfaces.ProgressUpdater;
 import mgui.interfaces.shapes.InterfaceShape;
 import mgui.interfaces.shapes.Volume3DInt;
 import mgui.interfaces.shapes.volume.VolumeMetadata;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.InterfaceIOOptions;
 
 /************************************************************
@@ -283,20 +283,25 @@ public abstract class VolumeFileLoader extends InterfaceShapeLoader {
     
     protected boolean setVolume3DWorker(final Volume3DInt volume, final String column, final int v, final VolumeInputOptions options, final ProgressUpdater progress){
 		
-    	boolean success = ((Boolean)Worker.post(new Job(){
+    	// Each load fills its own volume, so loads can safely run concurrently
+    	boolean success = ((Boolean)TaskEngine.postConcurrent(new Job(){
 			
 			@Override
 			public Boolean run(){
 				
+				// Coalesce the shape events fired on this thread while the volume is filled
+				InterfaceShape.beginBatch();
 				try{
 					return setVolume3DBlocking(volume, column, v, options, progress);
 				}catch (Exception e){
 					InterfaceSession.handleException(e);
 					return false;
+				}finally{
+					InterfaceShape.endBatch();
 					}
 				}
 		
-		})).booleanValue();
+		}, progress)).booleanValue();
 		
 		return success;
 	}
@@ -26,11 +26,11 @@ import java.io.IOException;
 import java.util.StringTokenizer;
 
 import mgui.interfaces.ProgressUpdater;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.InterfaceIOException;
 import mgui.io.InterfaceIOOptions;
 import Jama.Matrix;
 import foxtrot.Job;
-import foxtrot.Worker;
 
 /***********************************************
  * Default implementation of a matrix loader. Loads four standard formats:
@@ -84,7 +84,7 @@ public class DefaultMatrixFileLoader extends MatrixFileLoader {
 				}
 			throw new InterfaceIOException("Invalid matrix format specified.");
 		}else{
-			Matrix matrix = ((Matrix)Worker.post(new Job(){
+			Matrix matrix = ((Matrix)TaskEngine.postConcurrent(new Job(){
 				@Override
 				public Matrix run(){
 					try{
@@ -104,7 +104,7 @@ public class DefaultMatrixFileLoader extends MatrixFileLoader {
 						}
 					return null;
 				}
-			}));
+			}, progress_bar));
 			//TODO: define this exception
 			if (matrix == null){
 				if (last_exception != null){
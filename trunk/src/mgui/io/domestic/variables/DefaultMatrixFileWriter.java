@@ -29,13 +29,13 @@ import java.io.RandomAccessFile;
 
 import mgui.interfaces.InterfaceEnvironment;
 import mgui.interfaces.ProgressUpdater;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.InterfaceIOException;
 import mgui.io.InterfaceIOOptions;
 import mgui.numbers.MguiDouble;
 import mgui.numbers.NumberFunctions;
 import Jama.Matrix;
 import foxtrot.Job;
-import foxtrot.Worker;
 
 public class DefaultMatrixFileWriter extends MatrixFileWriter {
 	
@@ -307,7 +307,7 @@ public class DefaultMatrixFileWriter extends MatrixFileWriter {
 				}
 			return false;
 		}else{
-			return ((Boolean)Worker.post(new Job(){
+			return ((Boolean)TaskEngine.postConcurrent(new Job(){
 					@Override
 					public Boolean run(){
 						try{
@@ -324,7 +324,7 @@ public class DefaultMatrixFileWriter extends MatrixFileWriter {
 						}catch (Exception e) { }
 						return false;
 					}
-				}));
+				}, progress_bar));
 			}
 		
 	}
@@ -49,10 +49,10 @@ import mgui.interfaces.graphics.video.Video;
 import mgui.interfaces.graphics.video.VideoEvent;
 import mgui.interfaces.graphics.video.VideoTask;
 import mgui.interfaces.logs.LoggingType;
+import mgui.interfaces.util.TaskEngine;
 import mgui.numbers.MguiFloat;
 import mgui.util.ImageFunctions;
 import foxtrot.Job;
-import foxtrot.Worker;
 
 /**********************************************************
  * Outputs a <code>Video</code> to a stack of images which can be used to compile a video using a utility
@@ -99,7 +99,7 @@ public class ImageStackVideoWriter extends VideoWriter {
 				return writeFromScreenshotsBlocking(options, progress_bar);
 			}
 		
-		return (Boolean)Worker.post(new Job(){
+		return (Boolean)TaskEngine.postConcurrent(new Job(){
 			@Override
 			public Boolean run(){
 				progress_bar.setMinimum((int)(options.start_time / 1000));
@@ -110,7 +110,7 @@ public class ImageStackVideoWriter extends VideoWriter {
 				else
 					return writeFromScreenshotsBlocking(options, progress_bar);
 				}
-			});
+			}, progress_bar);
 		
 	}
 	
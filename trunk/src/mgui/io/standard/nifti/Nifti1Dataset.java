@@ -29,6 +29,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.ByteOrder;
 import java.text.NumberFormat;
@@ -826,9 +827,35 @@ public class Nifti1Dataset {
 	*/
 	public void writeHeader() throws IOException, FileNotFoundException {
 
+		FileOutputStream fos;
+		
+		if (ds_datname.endsWith(GZIP_EXT)) {
+			String temp_unzipped = ds_datname.substring(0, ds_datname.indexOf(GZIP_EXT));
+			fos = new FileOutputStream(temp_unzipped);
+		}else{
+			fos = new FileOutputStream(ds_hdrname);
+			}
+		
+		try {
+			writeHeader(fos);
+		}finally{
+			fos.close();
+			}
+	
+	return;
+	}
+	
+	//////////////////////////////////////////////////////////////////
+	/**
+	* Write header information, and any extensions, to {@code fos}; the stream is 
+	* not closed. Edit AR: used for streaming output, see {@link NiftiVolumeWriter}.
+	* @param fos stream to write to
+	* @exception IOException 
+	*/
+	public void writeHeader(OutputStream fos) throws IOException {
+
 		EndianCorrectOutputStream ecs;
 		ByteArrayOutputStream baos;
-		FileOutputStream fos;
 		short s, ss[];
 		byte b, bb[], ext_blob[];
 		int hsize;
@@ -843,13 +870,6 @@ public class Nifti1Dataset {
 
 		try {
 
-			if (ds_datname.endsWith(GZIP_EXT)) {
-				String temp_unzipped = ds_datname.substring(0, ds_datname.indexOf(GZIP_EXT));
-				fos = new FileOutputStream(temp_unzipped);
-			}else{
-				fos = new FileOutputStream(ds_hdrname);
-				}
-			
 		baos = new ByteArrayOutputStream(hsize);
 		
 
@@ -988,7 +1008,6 @@ public class Nifti1Dataset {
 			}
 		}
 
-		fos.close();
 		}
 
 		catch (IOException ex) {
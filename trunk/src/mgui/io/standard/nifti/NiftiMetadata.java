@@ -21,8 +21,8 @@ package mgui.io.standard.nifti;
 
 import java.awt.image.DataBuffer;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
@@ -138,7 +138,7 @@ public class NiftiMetadata extends Nifti1Dataset implements Serializable, Volume
 	}
 	
 	@Override
-	public void writeHeader() throws IOException, FileNotFoundException {
+	public void writeHeader(OutputStream out) throws IOException {
 		this.big_endian = byteOrder == ByteOrder.BIG_ENDIAN;
 		
 		bitpix = getSize(datatype);
@@ -153,7 +153,7 @@ public class NiftiMetadata extends Nifti1Dataset implements Serializable, Volume
 		sform_code = 1; // Simple affine transform, thanks
 		this.qoffset = new float[]{0,0,0};
 		
-		super.writeHeader();
+		super.writeHeader(out);
 	}
 	
 	public void setFromMetadata(VolumeMetadata metadata){
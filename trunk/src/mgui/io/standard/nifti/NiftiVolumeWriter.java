@@ -20,8 +20,14 @@
 package mgui.io.standard.nifti;
 
 import java.awt.image.DataBuffer;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 
 import mgui.geometry.Grid3D;
@@ -32,6 +38,7 @@ import mgui.interfaces.shapes.Volume3DInt;
 import mgui.interfaces.shapes.volume.VolumeMetadata;
 import mgui.io.domestic.shapes.VolumeFileWriter;
 import mgui.io.domestic.shapes.VolumeOutputOptions;
+import mgui.io.util.ParallelGzipOutputStream;
 import mgui.numbers.MguiNumber;
 
 /*********************************************
@@ -153,7 +160,11 @@ public class NiftiVolumeWriter extends VolumeFileWriter {
 	
 	/******************************************************
 	 * Writes {@code volume} to the current file, using the specified column and
-	 * {@code NiftiMetadata}.
+	 * {@code NiftiMetadata}. 
+	 * 
+	 * <p>Voxel values are serialised directly from the column, in the datatype of {@code dataset}, and
+	 * streamed to file; compressed output is gzipped on multiple threads as it is written (see 
+	 * {@link ParallelGzipOutputStream}), without an intermediate uncompressed file.
 	 * 
 	 * @param volume
 	 * @param column
@@ -176,45 +187,140 @@ public class NiftiVolumeWriter extends VolumeFileWriter {
 		
 		dataset.db_name = new StringBuffer(volume.getName());
 		
-		// TODO: implement time dimension
-		int v_size = 1; //volume.getSizeV();
+		ArrayList<MguiNumber> v_data = volume.getVertexData(column);
+		if (v_data == null){
+			InterfaceSession.log("NiftiVolumeWriter: Column '" + column + "' not found for volume '" + volume.getName() + "'.", 
+								 LoggingType.Errors);
+			return false;
+			}
+		
+		Grid3D grid = volume.getGrid();
+		int r_size = dataset.dim[0] == 2 ? 1 : dataset.ZDIM;
+		if (dataset.XDIM != grid.getSizeS() || dataset.YDIM != grid.getSizeT() || r_size != grid.getSizeR())
+			throw new IOException("NiftiVolumeWriter: Header dimensions do not match volume '" + volume.getName() + "'.");
 		
-		//write header
-		dataset.writeHeader();
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		dataset.writeHeader(header);
 		
-		//write each subsequent time point
-		for (short v = 0; v < v_size; v++){
-			double[][][] data = getDoubleArray(volume, column);
-			dataset.writeVol(data, v);
+		OutputStream data_out = null, header_out = null;
+		try{
+			data_out = getOutputStream(dataset.getDataFilename());
+			if (dataset.ds_is_nii){
+				// Single file; data starts at vox_offset
+				data_out.write(header.toByteArray());
+				for (long i = header.size(); i < (long)dataset.vox_offset; i++)
+					data_out.write(0);
+			}else{
+				header_out = getOutputStream(dataset.getHeaderFilename());
+				header_out.write(header.toByteArray());
+				header_out.close();
+				header_out = null;
+				for (long i = 0; i < (long)dataset.vox_offset; i++)
+					data_out.write(0);
+				}
+			
+			// TODO: implement time dimension
+			writeData(v_data, grid, dataset, data_out);
+			
+			data_out.close();
+			data_out = null;
+		}finally{
+			if (header_out != null) header_out.close();
+			if (data_out != null) data_out.close();
 			}
 		
 		return true;
 		
 	}
 	
-	public boolean setFromVolume(Volume3DInt volume){
-		return false;
+	/******************************************************
+	 * Opens a buffered stream to {@code file_name}, which is gzip-compressed if the name ends with ".gz".
+	 * 
+	 * @param file_name
+	 * @return
+	 * @throws IOException
+	 */
+	protected OutputStream getOutputStream(String file_name) throws IOException{
+		OutputStream out = new FileOutputStream(file_name);
+		if (file_name.endsWith(".gz"))
+			return new ParallelGzipOutputStream(out);
+		return new BufferedOutputStream(out, 1 << 16);
 	}
 	
-	protected double[][][] getDoubleArray(Volume3DInt volume, String column){
+	/******************************************************
+	 * Serialises {@code data} to {@code out} as one volume of the datatype, byte order and scaling of 
+	 * {@code dataset}, one R slice at a time.
+	 * 
+	 * @param data
+	 * @param grid
+	 * @param dataset
+	 * @param out
+	 * @throws IOException
+	 */
+	protected void writeData(ArrayList<MguiNumber> data, Grid3D grid, NiftiMetadata dataset, OutputStream out) throws IOException{
 		
-		Grid3D grid = volume.getGrid();
-		int s_size = grid.getSizeS();
-		int t_size = grid.getSizeT();
-		int r_size = grid.getSizeR();
+		short datatype = dataset.getDatatype();
+		int bytes = dataset.bytesPerVoxel(datatype);
+		switch (datatype){
+			case Nifti1Dataset.NIFTI_TYPE_INT8:
+			case Nifti1Dataset.NIFTI_TYPE_UINT8:
+			case Nifti1Dataset.NIFTI_TYPE_INT16:
+			case Nifti1Dataset.NIFTI_TYPE_UINT16:
+			case Nifti1Dataset.NIFTI_TYPE_INT32:
+			case Nifti1Dataset.NIFTI_TYPE_UINT32:
+			case Nifti1Dataset.NIFTI_TYPE_INT64:
+			case Nifti1Dataset.NIFTI_TYPE_UINT64:
+			case Nifti1Dataset.NIFTI_TYPE_FLOAT32:
+			case Nifti1Dataset.NIFTI_TYPE_FLOAT64:
+				break;
+			default:
+				throw new IOException("NiftiVolumeWriter: Cannot write datatype " + dataset.decodeDatatype(datatype));
+			}
 		
-		double[][][] data = new double[r_size][t_size][s_size];
-		ArrayList<MguiNumber> v_data = volume.getVertexData(column);
+		int slice_size = grid.getSizeS() * grid.getSizeT();
+		ByteBuffer buffer = ByteBuffer.allocate(slice_size * bytes);
+		buffer.order(dataset.big_endian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+		boolean scaled = dataset.scl_slope != 0;
+		double slope = dataset.scl_slope, intercept = dataset.scl_inter;
 		
-		for (int i = 0; i < s_size; i++)
-			for (int j = 0; j < t_size; j++)
-				for (int k = 0; k < r_size; k++){
-					if (i==51 && j==58 && k==48)
-						i+=0;
-					data[k][j][i] = v_data.get(grid.getAbsoluteIndex(i, j, k)).getValue();
+		for (int k = 0; k < grid.getSizeR(); k++){
+			buffer.clear();
+			int idx = k * slice_size;
+			for (int n = 0; n < slice_size; n++){
+				double value = data.get(idx + n).getValue();
+				if (scaled) value = (value - intercept) / slope;
+				switch (datatype){
+					case Nifti1Dataset.NIFTI_TYPE_INT8:
+					case Nifti1Dataset.NIFTI_TYPE_UINT8:
+						buffer.put((byte)value);
+						break;
+					case Nifti1Dataset.NIFTI_TYPE_INT16:
+					case Nifti1Dataset.NIFTI_TYPE_UINT16:
+						buffer.putShort((short)value);
+						break;
+					case Nifti1Dataset.NIFTI_TYPE_INT32:
+					case Nifti1Dataset.NIFTI_TYPE_UINT32:
+						buffer.putInt((int)value);
+						break;
+					case Nifti1Dataset.NIFTI_TYPE_INT64:
+					case Nifti1Dataset.NIFTI_TYPE_UINT64:
+						buffer.putLong((long)Math.rint(value));
+						break;
+					case Nifti1Dataset.NIFTI_TYPE_FLOAT32:
+						buffer.putFloat((float)value);
+						break;
+					default:
+						buffer.putDouble(value);
+						break;
 					}
+				}
+			out.write(buffer.array(), 0, buffer.position());
+			}
 		
-		return data;
+	}
+	
+	public boolean setFromVolume(Volume3DInt volume){
+		return false;
 	}
 	
 //	/********************************************
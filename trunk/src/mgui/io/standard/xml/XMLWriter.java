@@ -24,11 +24,11 @@ import java.io.IOException;
 
 import mgui.interfaces.InterfaceSession;
 import mgui.interfaces.ProgressUpdater;
+import mgui.interfaces.util.TaskEngine;
 import mgui.interfaces.xml.XMLFunctions;
 import mgui.interfaces.xml.XMLObject;
 import mgui.io.FileWriter;
 import foxtrot.Job;
-import foxtrot.Worker;
 
 /********************************************
  * Writes an XML object (i.e., any instance of {@link XMLObject}). Provides generic implementations which
@@ -74,7 +74,7 @@ public abstract class XMLWriter extends FileWriter {
 			writeXMLObject(options, null);
 			return true;
 		}else{
-			return (Boolean)Worker.post(new Job(){
+			return (Boolean)TaskEngine.postConcurrent(new Job(){
 				@Override
 				public Boolean run(){
 					try{
@@ -85,7 +85,7 @@ public abstract class XMLWriter extends FileWriter {
 						return false;
 						}
 					}
-			});
+			}, progress_bar);
 		}
 		
 	}
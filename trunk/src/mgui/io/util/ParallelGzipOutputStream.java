@@ -0,0 +1,228 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.io.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import mgui.interfaces.util.ParallelFunctions;
+
+/***********************************************
+ * Output stream which gzip-compresses its data using several threads. Data is split into blocks of
+ * {@link #getBlockSize()} bytes, each of which is deflated concurrently on the pool of
+ * {@link ParallelFunctions} and written, in order, as a complete gzip member. The output is thus a 
+ * sequence of concatenated gzip members, which is a valid gzip stream (RFC 1952), and is read as a single 
+ * stream by {@link java.util.zip.GZIPInputStream} and standard tools.
+ * 
+ * <p>At most twice the number of threads blocks are held in memory at once. If created on a worker
+ * thread of the parallel pool, or if the pool has a single thread, blocks are compressed on the calling
+ * thread.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+	/** Default size of an uncompressed block, in bytes. */
+	public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+	
+	static final byte[] GZIP_HEADER = new byte[]{0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte)0xff};
+	
+	protected OutputStream out;
+	protected int level;
+	protected byte[] buffer;
+	protected int count = 0;
+	protected boolean parallel;
+	protected int max_pending;
+	protected LinkedList<Future<byte[]>> pending = new LinkedList<Future<byte[]>>();
+	protected boolean closed = false;
+	
+	public ParallelGzipOutputStream(OutputStream out){
+		this(out, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+	}
+	
+	/***********************************************
+	 * Creates a new stream writing to {@code out}.
+	 * 
+	 * @param out
+	 * @param block_size	Size of an uncompressed block, in bytes
+	 * @param level			Compression level (0-9), or {@link Deflater#DEFAULT_COMPRESSION}
+	 */
+	public ParallelGzipOutputStream(OutputStream out, int block_size, int level){
+		this.out = out;
+		this.level = level;
+		this.buffer = new byte[Math.max(1024, block_size)];
+		this.parallel = ParallelFunctions.getThreadCount() > 1 && !ParallelFunctions.isWorkerThread();
+		this.max_pending = 2 * ParallelFunctions.getThreadCount();
+	}
+	
+	public int getBlockSize(){
+		return buffer.length;
+	}
+	
+	@Override
+	public void write(int b) throws IOException {
+		if (count == buffer.length) submitBlock();
+		buffer[count++] = (byte)b;
+	}
+	
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0){
+			if (count == buffer.length) submitBlock();
+			int n = Math.min(len, buffer.length - count);
+			System.arraycopy(b, off, buffer, count, n);
+			count += n;
+			off += n;
+			len -= n;
+			}
+	}
+	
+	/***********************************************
+	 * Compresses and writes all buffered data, and flushes the underlying stream. Since each flush ends a
+	 * gzip member, frequent flushing reduces the compression ratio.
+	 * 
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (count > 0) submitBlock();
+		drain(0);
+		out.flush();
+	}
+	
+	/***********************************************
+	 * Compresses and writes all remaining data, without closing the underlying stream.
+	 * 
+	 * @throws IOException
+	 */
+	public void finish() throws IOException {
+		if (count > 0) submitBlock();
+		drain(0);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if (closed) return;
+		closed = true;
+		try{
+			finish();
+		}finally{
+			for (Future<byte[]> f : pending)
+				f.cancel(true);
+			pending.clear();
+			out.close();
+			}
+	}
+	
+	/***********************************************
+	 * Submits the current buffer for compression, and writes completed members so that no more than
+	 * the maximum number of blocks are pending.
+	 * 
+	 * @throws IOException
+	 */
+	protected void submitBlock() throws IOException {
+		final byte[] block = buffer;
+		final int length = count;
+		buffer = new byte[block.length];
+		count = 0;
+		
+		if (!parallel){
+			out.write(compress(block, length, level));
+			return;
+			}
+		
+		drain(max_pending - 1);
+		pending.addLast(ParallelFunctions.getExecutor().submit(new Callable<byte[]>(){
+			public byte[] call(){
+				return compress(block, length, level);
+				}
+			}));
+	}
+	
+	/***********************************************
+	 * Writes completed members, in order, until at most {@code max} remain pending.
+	 * 
+	 * @param max
+	 * @throws IOException
+	 */
+	protected void drain(int max) throws IOException {
+		while (pending.size() > max){
+			Future<byte[]> next = pending.removeFirst();
+			try{
+				out.write(next.get());
+			}catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new IOException("ParallelGzipOutputStream: Interrupted while compressing.");
+			}catch (ExecutionException e){
+				throw new IOException("ParallelGzipOutputStream: Compression failed.", e.getCause());
+				}
+			}
+	}
+	
+	/***********************************************
+	 * Compresses the first {@code length} bytes of {@code data} as a complete gzip member.
+	 * 
+	 * @param data
+	 * @param length
+	 * @param level
+	 * @return
+	 */
+	public static byte[] compress(byte[] data, int length, int level){
+		Deflater deflater = new Deflater(level, true);
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, length);
+		deflater.setInput(data, 0, length);
+		deflater.finish();
+		
+		// Deflate may expand incompressible data slightly
+		byte[] output = new byte[GZIP_HEADER.length + length + (length >> 9) + 64 + 8];
+		System.arraycopy(GZIP_HEADER, 0, output, 0, GZIP_HEADER.length);
+		int n = GZIP_HEADER.length;
+		while (!deflater.finished()){
+			if (n == output.length - 8){
+				byte[] larger = new byte[output.length * 2];
+				System.arraycopy(output, 0, larger, 0, n);
+				output = larger;
+				}
+			n += deflater.deflate(output, n, output.length - 8 - n);
+			}
+		deflater.end();
+		
+		// Trailer: CRC32 and input size, little-endian
+		long value = crc.getValue();
+		for (int i = 0; i < 4; i++)
+			output[n++] = (byte)(value >>> (8 * i));
+		for (int i = 0; i < 4; i++)
+			output[n++] = (byte)(length >>> (8 * i));
+		
+		byte[] member = new byte[n];
+		System.arraycopy(output, 0, member, 0, n);
+		return member;
+	}
+	
+}
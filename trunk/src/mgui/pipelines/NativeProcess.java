@@ -32,6 +32,7 @@ import javax.swing.ImageIcon;
 
 import mgui.command.CommandFunctions;
 import mgui.command.CommandFunctions.ProcessState;
+import mgui.command.ProcessOutputCapture;
 import mgui.interfaces.InterfaceSession;
 import mgui.interfaces.ProgressUpdater;
 import mgui.interfaces.logs.LoggingType;
@@ -263,6 +264,24 @@ public class NativeProcess extends PipelineProcess {
 
 	
 	
+	/**********************************
+	 * Logs the last lines written to the error stream of a failed process.
+	 * 
+	 * @param capture
+	 */
+	protected void logErrorTail(ProcessOutputCapture capture){
+		if (capture == null) return;
+		ArrayList<String> tail = capture.getTail(ProcessOutputCapture.Stream.Error);
+		if (tail.isEmpty()) return;
+		int start = Math.max(0, tail.size() - 20);
+		StringBuilder message = new StringBuilder("NativeProcess: Error output from '" + getName() + "':");
+		for (int i = start; i < tail.size(); i++)
+			message.append("\n  ").append(tail.get(i));
+		if (capture.getLogFile() != null)
+			message.append("\nFull output in '").append(capture.getLogFile().getAbsolutePath()).append("'.");
+		InterfaceSession.log(message.toString(), LoggingType.Errors);
+	}
+	
 	@Override
 	public boolean run(String[] args, long uid) throws PipelineException {
 		
@@ -283,6 +302,11 @@ public class NativeProcess extends PipelineProcess {
 			int exitVal = system_process.waitFor();
 			CommandFunctions.ProcessState state = CommandFunctions.getProcessState(exitVal);
 			
+			// Make sure all output has been drained before reporting completion
+			ProcessOutputCapture capture = CommandFunctions.getOutputCapture(system_process);
+			if (capture != null)
+				capture.waitFor(CommandFunctions.CAPTURE_TIMEOUT);
+			
 			current_system_processes.remove(uid);
 			
 			switch (state){
@@ -290,6 +314,7 @@ public class NativeProcess extends PipelineProcess {
 					throw new PipelineException("Process was interrupted.");
 					
 				case TerminatedWithError:
+					logErrorTail(capture);
 					throw new PipelineException("Process terminated with error.");
 					
 				default:
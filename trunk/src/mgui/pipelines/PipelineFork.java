@@ -25,18 +25,35 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
 
+import foxtrot.Job;
+
 import mgui.interfaces.InterfaceSession;
+import mgui.interfaces.logs.LoggingType;
 import mgui.interfaces.projects.InterfaceProject;
+import mgui.interfaces.util.TaskEngine;
 
 /******************************************
  * Represents a fork in a pipeline; i.e., a branching point, where the output of the previous process becomes the
  * input of two or more independent pipelines. Tasks can be launched in parallel or in series, as determined by the
  * <code>setLaunchParallel</code> method.
  * 
+ * <p>When launched in parallel, each branch runs on its own thread, with at most <code>getMaxConcurrent</code>
+ * branches running at once. The fork waits for all branches to complete before setting its output, and its
+ * status is the aggregate of its branches: <code>Success</code> if all succeed, <code>Interrupted</code> if 
+ * it was interrupted, and <code>Failure</code> otherwise. Interrupting the fork interrupts all running branches.
+ * 
  * <p>The output of the fork is specified by the <code>setOutputPipeline</code> method.
  * 
  * @author Andrew Reid
@@ -47,8 +64,10 @@ import mgui.interfaces.projects.InterfaceProject;
 public class PipelineFork extends PipelineTask {
 
 	protected boolean launch_parallel = false;
+	protected int max_concurrent = 0;
 	protected LinkedList<InterfacePipeline> pipelines;
 	protected InterfacePipeline pipeline, output_pipeline;
+	protected ArrayList<Future<Boolean>> running_branches;
 	
 	protected static DataFlavor data_flavor;
 	
@@ -57,7 +76,7 @@ public class PipelineFork extends PipelineTask {
 	}
 	
 	public PipelineFork(String name, boolean launch_parallel){
-		this (name, false, new LinkedList<InterfacePipeline>());
+		this (name, launch_parallel, new LinkedList<InterfacePipeline>());
 	}
 	
 	public PipelineFork(String name, boolean launch_parallel, Collection<InterfacePipeline> tasks){
@@ -75,6 +94,40 @@ public class PipelineFork extends PipelineTask {
 		output_pipeline = output_pipe;
 	}
 	
+	public void setLaunchParallel(boolean b){
+		launch_parallel = b;
+	}
+	
+	public boolean getLaunchParallel(){
+		return launch_parallel;
+	}
+	
+	/******************************************
+	 * Sets the maximum number of branches which can run concurrently, when launched in parallel. A value 
+	 * of zero or less (the default) allows all branches to run at once.
+	 * 
+	 * @param max
+	 */
+	public void setMaxConcurrent(int max){
+		max_concurrent = max;
+	}
+	
+	public int getMaxConcurrent(){
+		return max_concurrent;
+	}
+	
+	/******************************************
+	 * Returns the current status of each branch of this fork.
+	 * 
+	 * @return
+	 */
+	public Status[] getBranchStatus(){
+		Status[] status = new Status[pipelines.size()];
+		for (int i = 0; i < status.length; i++)
+			status[i] = pipelines.get(i).getStatus();
+		return status;
+	}
+	
 	public void push(InterfacePipeline pipe){
 		pipelines.addFirst(pipe);
 	}
@@ -159,6 +212,40 @@ public class PipelineFork extends PipelineTask {
 		return launch(false);
 	}
 	
+	@Override
+	public void reset(){
+		super.reset();
+		for (int i = 0; i < pipelines.size(); i++)
+			pipelines.get(i).reset();
+	}
+	
+	@Override
+	public boolean interrupt() throws PipelineException{
+		super.interrupt();
+		return interruptBranches();
+	}
+	
+	/******************************************
+	 * Interrupts all running branches, and prevents queued branches from starting.
+	 * 
+	 * @return
+	 * @throws PipelineException
+	 */
+	protected boolean interruptBranches() throws PipelineException{
+		boolean success = true;
+		
+		for (int i = 0; i < pipelines.size(); i++)
+			if (pipelines.get(i).getStatus().equals(Status.Processing))
+				success &= pipelines.get(i).interrupt();
+		
+		ArrayList<Future<Boolean>> branches = running_branches;
+		if (branches != null)
+			for (int i = 0; i < branches.size(); i++)
+				branches.get(i).cancel(false);
+		
+		return success;
+	}
+	
 	@Override
 	public boolean launch(boolean blocking) throws PipelineException{
 		
@@ -171,24 +258,43 @@ public class PipelineFork extends PipelineTask {
 		if (!launch_parallel) mode = "series";
 		
 		InterfaceSession.log("Starting fork '" + getName() + "' in " + mode + ".");
+		start = System.currentTimeMillis();
+		current = start;
+		setStatus(Status.Processing);
 		
 		boolean success = true;
+		PipelineException exception = null;
 		
 		//Launch pipelines in parallel or in series, depending on the flag
-		for (int i = 0; i < pipelines.size(); i++){
+		if (launch_parallel){
 			try{
-				if (this.launch_parallel){
-					success &= PipelineFunctions.launchPipelineAsJob(pipeline, blocking);
-				}else{
+				success = launchParallel(blocking);
+			}catch (PipelineException ex){
+				exception = ex;
+				success = false;
+				}
+		}else{
+			for (int i = 0; i < pipelines.size() && !status.equals(Status.Interrupted); i++){
+				try{
 					success &= pipelines.get(i).launch(blocking);
+				}catch (PipelineException ex){
+					ex.printStackTrace();
+					success = false;
+					if (PipelineFunctions.fail_on_exception){
+						exception = ex;
+						break;
+						}
 					}
-			}catch (PipelineException ex){
-				ex.printStackTrace();
-				if (PipelineFunctions.fail_on_exception)
-					throw ex;
 				}
 			}
 		
+		current = System.currentTimeMillis();
+		if (!status.equals(Status.Interrupted))
+			setStatus(success ? Status.Success : Status.Failure);
+		
+		if (exception != null)
+			throw exception;
+		
 		//now set output to the temporary output of the output pipeline, if one is set
 		if (output_pipeline != null){
 			pipeline.getState().temp_input = output_pipeline.getState().temp_output;
@@ -196,6 +302,92 @@ public class PipelineFork extends PipelineTask {
 		
 		return success;
 	}
+	
+	/******************************************
+	 * Launches all branches concurrently, limited by <code>getMaxConcurrent</code>, and waits for them all
+	 * to complete. If called from the event dispatch thread, events continue to be pumped while waiting.
+	 * 
+	 * @param blocking
+	 * @return <code>true</code> if all branches succeeded
+	 * @throws PipelineException if a branch throws an exception and <code>PipelineFunctions.fail_on_exception</code>
+	 * 							 is set; remaining branches are interrupted
+	 */
+	protected boolean launchParallel(final boolean blocking) throws PipelineException{
+		
+		final int n = pipelines.size();
+		if (n == 0) return true;
+		int limit = n;
+		if (max_concurrent > 0) limit = Math.min(max_concurrent, n);
+		
+		final AtomicInteger count = new AtomicInteger();
+		final String prefix = "PipelineFork-" + getName() + "-";
+		ExecutorService executor = Executors.newFixedThreadPool(limit, new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, prefix + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+				}
+			});
+		
+		final ArrayList<Future<Boolean>> branches = new ArrayList<Future<Boolean>>(n);
+		for (int i = 0; i < n; i++){
+			final InterfacePipeline branch = pipelines.get(i);
+			branches.add(executor.submit(new Callable<Boolean>(){
+				public Boolean call() throws Exception{
+					if (status.equals(Status.Interrupted)) return false;
+					return branch.launch(blocking);
+					}
+				}));
+			}
+		running_branches = branches;
+		executor.shutdown();
+		
+		// Join barrier: wait for all branches before the fork's output is set
+		Object result = TaskEngine.post(new Job(){
+			public Object run(){
+				boolean success = true;
+				PipelineException exception = null;
+				for (int i = 0; i < n; i++){
+					try{
+						success &= branches.get(i).get();
+					}catch (CancellationException ex){
+						success = false;
+					}catch (InterruptedException ex){
+						Thread.currentThread().interrupt();
+						try{
+							interrupt();
+						}catch (PipelineException e){
+							InterfaceSession.handleException(e);
+							}
+						return false;
+					}catch (ExecutionException ex){
+						success = false;
+						Throwable cause = ex.getCause();
+						InterfaceSession.log("PipelineFork: Branch '" + pipelines.get(i).getName() + "' failed: " + 
+											 cause.getMessage(), LoggingType.Errors);
+						if (PipelineFunctions.fail_on_exception && exception == null){
+							exception = cause instanceof PipelineException ? (PipelineException)cause : 
+													new PipelineException(cause.getMessage());
+							try{
+								interruptBranches();
+							}catch (PipelineException e){
+								InterfaceSession.handleException(e);
+								}
+							}
+						}
+					}
+				if (exception != null) return exception;
+				return success;
+				}
+			});
+		
+		running_branches = null;
+		
+		if (result instanceof PipelineException)
+			throw (PipelineException)result;
+		return (Boolean)result;
+		
+	}
 
 	@Override
 	public boolean launch(String instance, String root) throws PipelineException {
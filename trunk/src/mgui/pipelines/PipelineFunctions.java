@@ -33,12 +33,12 @@ import javax.swing.SwingWorker;
 import mgui.interfaces.InterfaceSession;
 import mgui.interfaces.logs.LoggingType;
 import mgui.interfaces.projects.InterfaceProject;
+import mgui.interfaces.util.TaskEngine;
 import mgui.io.util.IoFunctions;
 import mgui.pipelines.PipelineTask.Status;
 
 import org.apache.commons.io.filefilter.WildcardFileFilter;
 
-import foxtrot.Worker;
 
 /***********************************************************************
  * Provides a set of common functions operating on pipeline objects.
@@ -328,7 +328,7 @@ public class PipelineFunctions {
 		
 		boolean success = false;
 		try{
-			Object result = Worker.post(current_task);
+			Object result = TaskEngine.postConcurrent(current_task);
 			if (result instanceof Boolean)
 				success = (Boolean)result;
 			else
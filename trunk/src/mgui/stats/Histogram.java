@@ -166,23 +166,33 @@ public class Histogram {
 	}
 	
 	public void addValue(double val){
+		addValue(val, 1);
+	}
+	
+	/*********************************************
+	 * Adds {@code count} occurrences of {@code val} to this histogram.
+	 * 
+	 * @param val
+	 * @param count
+	 */
+	public void addValue(double val, double count){
 		
 		if (val < minX){
-			bins.get(0).y++;
+			bins.get(0).y += count;
 			return;
 			}
 		if (val > maxX){
-			bins.get(bins.size() - 1).y++;
+			bins.get(bins.size() - 1).y += count;
 			return;
 			}
 		//int b = (int) Math.round(((val - minX) / (maxX - minX)) * bin_size);
 		int b = (int)Math.floor((val - minX) / (maxX - minX) * bins.size());
 		b = Math.min(bins.size() - 1, b);
 		b = Math.max(0, b);
-		bins.get(b).y++;
+		bins.get(b).y += count;
 		maxY = Math.max(bins.get(b).y, maxY);
 		minY = Math.min(bins.get(b).y, maxY);
-		dataN++;
+		dataN += count;
 	}
 	
 	public void set(ArrayList<MguiNumber> d, int bins, double min, double max){
@@ -26,6 +26,8 @@ import java.util.HashMap;
 
 import mgui.geometry.util.GeometryFunctions;
 import mgui.interfaces.Utility;
+import mgui.interfaces.shapes.VertexDataColumn;
+import mgui.interfaces.util.ParallelFunctions;
 import mgui.numbers.MguiDouble;
 import mgui.numbers.MguiInteger;
 import mgui.numbers.MguiNumber;
@@ -44,6 +46,9 @@ import Jama.Matrix;
  */
 public class StatFunctions extends Utility {
 
+	/** Lists at least this large have their mode and median estimated from a {@link StreamingSummary}
+	 *  rather than computed exactly. */
+	public static int summary_threshold = 100000;
 	
 	/*************************
 	 * Return statistics describing a set of normally distributed values ordered as follows:
@@ -61,52 +66,106 @@ public class StatFunctions extends Utility {
 	 * @return
 	 */
 	
-	public static double[] getBasicNormalStats(ArrayList<MguiNumber> data){
-		double sum = 0;
-		double max = -Double.MAX_VALUE;
-		double min = Double.MAX_VALUE;
-		double v;
-		
-		for (int i = 0; i < data.size(); i++){
-			v = data.get(i).getValue();
-			sum += v;
-			min = Math.min(v, min);
-			max = Math.max(v, max);
-			}
+	public static double[] getBasicNormalStats(final ArrayList<MguiNumber> data){
+		
+		// Partial sums are computed per partition and combined in partition order
+		int[][] partitions = ParallelFunctions.getPartitions(data.size(), ParallelFunctions.getPartitionCount(data.size()));
+		final double[][] partial = new double[partitions.length][4];
+		
+		try{
+			ParallelFunctions.runPartitioned(partitions, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					double sum = 0;
+					double max = -Double.MAX_VALUE;
+					double min = Double.MAX_VALUE;
+					for (int i = start; i < end; i++){
+						double v = data.get(i).getValue();
+						sum += v;
+						min = Math.min(v, min);
+						max = Math.max(v, max);
+						}
+					partial[partition][0] = sum;
+					partial[partition][1] = min;
+					partial[partition][2] = max;
+				}
+			});
+		
+			double sum = 0;
+			double max = -Double.MAX_VALUE;
+			double min = Double.MAX_VALUE;
+			for (int p = 0; p < partial.length; p++){
+				sum += partial[p][0];
+				min = Math.min(partial[p][1], min);
+				max = Math.max(partial[p][2], max);
+				}
+				
+			final double mean = sum / data.size();
 			
-		double mean = sum / data.size();
-		double sum_sq = 0;
-		
-		for (int i = 0; i < data.size(); i++)
-			sum_sq += Math.pow((data.get(i).getValue() - mean), 2);
-		
-		double st_dev = Math.sqrt(sum_sq / (data.size() - 1));
-		
-		return new double[] {mean, sum, st_dev, sum_sq, min, max};
+			ParallelFunctions.runPartitioned(partitions, new ParallelFunctions.PartitionJob(){
+				public void run(int partition, int start, int end){
+					double sum_sq = 0;
+					for (int i = start; i < end; i++){
+						double d = data.get(i).getValue() - mean;
+						sum_sq += d * d;
+						}
+					partial[partition][3] = sum_sq;
+				}
+			});
+			
+			double sum_sq = 0;
+			for (int p = 0; p < partial.length; p++)
+				sum_sq += partial[p][3];
+			
+			double st_dev = Math.sqrt(sum_sq / (data.size() - 1));
+			
+			return new double[] {mean, sum, st_dev, sum_sq, min, max};
+			
+		}catch (Exception ex){
+			throw new RuntimeException(ex);
+			}
 	}
 	
 	/*************************
 	 * Returns the mode of a list of values, where equality is determined as 
-	 * {@code abs(values[i] - values[j]) < default_precision}.
+	 * {@code abs(values[i] - values[j]) < default_precision}. Lists of at least {@link #summary_threshold}
+	 * values are binned instead (see {@link StreamingSummary#getMode()}).
 	 * 
 	 * @param values
 	 * @return
 	 */
 	public static double getMode(ArrayList<MguiNumber> values){
+		if (values.size() >= summary_threshold)
+			return StreamingSummary.getSummary(values).getMode();
 		double[] array = new double[values.size()];
 		for (int i = 0; i < values.size(); i++)
 			array[i] = values.get(i).getValue();
 		return getMode(array, GeometryFunctions.error);
 	}
 	
+	/*************************
+	 * Returns an estimate of the mode of the values in {@code column}, from its maintained data summary
+	 * (see {@link VertexDataColumn#getDataSummary()}).
+	 * 
+	 * @param column
+	 * @return
+	 */
+	public static double getMode(VertexDataColumn column){
+		StreamingSummary summary = column.getDataSummary();
+		if (summary == null) return Double.NaN;
+		return summary.getMode();
+	}
+	
 	/*************************
 	 * Returns the mode of a list of values, where equality is determined as 
-	 * {@code abs(values[i] - values[j]) < default_precision}.
+	 * {@code abs(values[i] - values[j]) < default_precision}. Lists of at least {@link #summary_threshold}
+	 * values are binned instead (see {@link StreamingSummary#getMode()}).
 	 * 
 	 * @param values
 	 * @return
 	 */
 	public static double getMode(double[] values){
+		if (values.length >= summary_threshold)
+			return StreamingSummary.getSummary(values).getMode();
 		return getMode(values, GeometryFunctions.error);
 	}
 	
@@ -161,12 +220,15 @@ public class StatFunctions extends Utility {
 	
 	/*************************
 	 * Returns the median of a list of values. If the list has an odd number of elements, returns
-	 * the lowest-index median value.
+	 * the lowest-index median value. For lists of at least {@link #summary_threshold} values, this is
+	 * estimated without sorting (see {@link StreamingSummary#getMedian()}).
 	 * 
 	 * @param values
 	 * @return
 	 */
 	public static double getMedian(ArrayList<MguiNumber> values){
+		if (values.size() >= summary_threshold)
+			return StreamingSummary.getSummary(values).getMedian();
 		ArrayList<MguiNumber> copy = new ArrayList<MguiNumber>(values);
 		Collections.sort(copy);
 		return copy.get((int)Math.floor(copy.size()/2.0)).getValue();
@@ -174,13 +236,17 @@ public class StatFunctions extends Utility {
 	
 	/*************************
 	 * Returns the median of a list of values. If the list has an odd number of elements, returns
-	 * the lowest-index median value.
+	 * the lowest-index median value. For lists of at least {@link #summary_threshold} values, this is
+	 * estimated without sorting (see {@link StreamingSummary#getMedian()}).
 	 * 
 	 * @param values
 	 * @return
 	 */
 	public static double getMedian(double[] values){
 		
+		if (values.length >= summary_threshold)
+			return StreamingSummary.getSummary(values).getMedian();
+		
 		double[] copy = new double[values.length];
 		System.arraycopy(values, 0, copy, 0, values.length);
 		Arrays.sort(copy);
@@ -189,6 +255,19 @@ public class StatFunctions extends Utility {
 		
 	}
 	
+	/*************************
+	 * Returns an estimate of the median of the values in {@code column}, from its maintained data summary
+	 * (see {@link VertexDataColumn#getDataSummary()}).
+	 * 
+	 * @param column
+	 * @return
+	 */
+	public static double getMedian(VertexDataColumn column){
+		StreamingSummary summary = column.getDataSummary();
+		if (summary == null) return Double.NaN;
+		return summary.getMedian();
+	}
+	
 	/*************************
 	 * Return statistics describing a set of weighted normally distributed values ordered as follows
 	 * (see http://en.wikipedia.org/wiki/Weighted_mean):
@@ -389,14 +468,33 @@ public class StatFunctions extends Utility {
 	 * occurring between the minimum and maximum values of d
 	 */
 	public static Histogram getHistogram(ArrayList<MguiNumber> values, int bins, double min, double max, boolean sorted){
-		ArrayList<MguiNumber> d = new ArrayList<MguiNumber>(values);
-		if (!sorted){
-			Collections.sort(d);
-			}
 		
 		double bin_size = (max - min) / bins;
 		Histogram hist = new Histogram();
 		
+		if (!sorted){
+			// Bin directly rather than copying and sorting; values below min fall into the 
+			// first bin and values at or above max are excluded, as for sorted input
+			double[] counts = new double[bins];
+			for (int i = 0; i < values.size(); i++){
+				double v = values.get(i).getValue();
+				if (!(v < min + bin_size * bins)) continue;
+				int b = (int)Math.floor((v - min) / bin_size);
+				if (b < 0) b = 0;
+				if (b >= bins) b = bins - 1;
+				counts[b]++;
+				}
+			for (int i = 1; i <= bins; i++){
+				Histogram.Bin bin = hist.new Bin(min + (bin_size * i) - (bin_size / 2.0), counts[i - 1]);
+				hist.bins.add(bin);
+				hist.dataN += bin.y;
+				}
+			hist.setLimits();
+			return hist;
+			}
+		
+		ArrayList<MguiNumber> d = values;
+		
 		int i = 1;
 		int j = 0;
 		for (i = 1; i <= bins && j < d.size(); i++){
@@ -0,0 +1,441 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.stats;
+
+import java.util.ArrayList;
+
+import mgui.interfaces.util.ParallelFunctions;
+import mgui.numbers.MguiNumber;
+
+/*****************************************************
+ * Mergeable, incrementally updatable summary of a set of values, comprised of moments (count, 
+ * mean, variance), observed limits, and a fine fixed-bin histogram over a fixed range. The fine
+ * histogram also serves as a quantile sketch: quantiles (including the median) are estimated by
+ * interpolating within the bin containing the requested rank, so their error is bounded by one bin
+ * width, {@code (max - min) / resolution}.
+ * 
+ * <p>Unlike a sort-based computation, values can be added and removed individually 
+ * ({@link #add(double)}, {@link #remove(double)}), and summaries of disjoint partitions of the data
+ * can be combined with {@link #merge(StreamingSummary)}. Values outside the range are counted
+ * as underflow/overflow; callers maintaining a summary under edits can test {@link #inRange(double)}
+ * and rebuild when necessary.
+ * 
+ * <p>{@code NaN} values are counted separately and otherwise ignored.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class StreamingSummary {
+
+	/** Default number of fine bins. This is divisible by common histogram bin counts (e.g., 64, 80, 100,
+	 *  128 or 256), so that histograms over the full data range can be obtained exactly (see 
+	 *  {@link #isAligned(int, double, double)}). */
+	public static int default_resolution = 6400;
+	
+	protected final double range_min, range_max;
+	protected final double bin_width;
+	protected final long[] counts;
+	protected long underflow, overflow, nan_count;
+	protected long n;
+	protected double mean, m2;
+	protected double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+	
+	/*****************************************************
+	 * Creates an empty summary over the range [{@code min}, {@code max}].
+	 * 
+	 * @param min
+	 * @param max
+	 * @param resolution	Number of fine bins
+	 */
+	public StreamingSummary(double min, double max, int resolution){
+		if (!(max > min)) max = min + 1;
+		this.range_min = min;
+		this.range_max = max;
+		this.counts = new long[Math.max(1, resolution)];
+		this.bin_width = (max - min) / counts.length;
+	}
+	
+	/*****************************************************
+	 * Builds a summary of {@code values}, computed in parallel partitions which are then merged.
+	 * 
+	 * @param values
+	 * @return
+	 */
+	public static StreamingSummary getSummary(final double[] values){
+		return getSummary(values, default_resolution);
+	}
+	
+	/*****************************************************
+	 * Builds a summary of {@code values}, computed in parallel partitions which are then merged.
+	 * 
+	 * @param values
+	 * @param resolution	Number of fine bins
+	 * @return
+	 */
+	public static StreamingSummary getSummary(final double[] values, final int resolution){
+		
+		final int[][] partitions = ParallelFunctions.getPartitions(values.length, 
+										ParallelFunctions.getPartitionCount(values.length));
+		
+		// Pass 1: range
+		final double[][] limits = new double[partitions.length][];
+		runPartitioned(partitions, new ParallelFunctions.PartitionJob(){
+			public void run(int partition, int start, int end){
+				double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+				for (int i = start; i < end; i++){
+					double v = values[i];
+					if (v < min) min = v;
+					if (v > max) max = v;
+					}
+				limits[partition] = new double[]{min, max};
+				}
+			});
+		
+		double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+		for (int p = 0; p < limits.length; p++){
+			min = Math.min(min, limits[p][0]);
+			max = Math.max(max, limits[p][1]);
+			}
+		if (min > max){
+			min = 0; 
+			max = 1;
+			}
+		
+		// Pass 2: partial summaries
+		final double range_min = min, range_max = max;
+		final StreamingSummary[] partials = new StreamingSummary[partitions.length];
+		runPartitioned(partitions, new ParallelFunctions.PartitionJob(){
+			public void run(int partition, int start, int end){
+				StreamingSummary summary = new StreamingSummary(range_min, range_max, resolution);
+				for (int i = start; i < end; i++)
+					summary.add(values[i]);
+				partials[partition] = summary;
+				}
+			});
+		
+		if (partials.length == 0)
+			return new StreamingSummary(range_min, range_max, resolution);
+		StreamingSummary summary = partials[0];
+		for (int p = 1; p < partials.length; p++)
+			summary.merge(partials[p]);
+		return summary;
+	}
+	
+	/*****************************************************
+	 * Builds a summary of {@code values}, computed in parallel partitions which are then merged.
+	 * 
+	 * @param values
+	 * @return
+	 */
+	public static StreamingSummary getSummary(ArrayList<MguiNumber> values){
+		double[] array = new double[values.size()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = values.get(i).getValue();
+		return getSummary(array, default_resolution);
+	}
+	
+	private static void runPartitioned(int[][] partitions, ParallelFunctions.PartitionJob job){
+		try{
+			ParallelFunctions.runPartitioned(partitions, job);
+		}catch (RuntimeException e){
+			throw e;
+		}catch (Exception e){
+			throw new RuntimeException(e);
+			}
+	}
+	
+	/*****************************************************
+	 * Returns {@code true} if {@code value} falls within the range of this summary's fine histogram.
+	 * 
+	 * @param value
+	 * @return
+	 */
+	public boolean inRange(double value){
+		return value >= range_min && value <= range_max;
+	}
+	
+	public double getRangeMin(){
+		return range_min;
+	}
+	
+	public double getRangeMax(){
+		return range_max;
+	}
+	
+	public int getResolution(){
+		return counts.length;
+	}
+	
+	protected int getBin(double value){
+		int b = (int)((value - range_min) / bin_width);
+		if (b >= counts.length) b = counts.length - 1;
+		return b;
+	}
+	
+	/*****************************************************
+	 * Adds {@code value} to this summary.
+	 * 
+	 * @param value
+	 */
+	public void add(double value){
+		if (Double.isNaN(value)){
+			nan_count++;
+			return;
+			}
+		n++;
+		double delta = value - mean;
+		mean += delta / n;
+		m2 += delta * (value - mean);
+		if (value < min) min = value;
+		if (value > max) max = value;
+		if (value < range_min)
+			underflow++;
+		else if (value > range_max)
+			overflow++;
+		else
+			counts[getBin(value)]++;
+	}
+	
+	/*****************************************************
+	 * Removes {@code value}, which must previously have been added, from this summary. Observed 
+	 * limits ({@link #getMin()}, {@link #getMax()}) are not narrowed by removals.
+	 * 
+	 * @param value
+	 */
+	public void remove(double value){
+		if (Double.isNaN(value)){
+			nan_count--;
+			return;
+			}
+		if (n <= 1){
+			n = 0;
+			mean = 0;
+			m2 = 0;
+		}else{
+			double mean_old = (n * mean - value) / (n - 1);
+			m2 -= (value - mean) * (value - mean_old);
+			if (m2 < 0) m2 = 0;
+			mean = mean_old;
+			n--;
+			}
+		if (value < range_min)
+			underflow--;
+		else if (value > range_max)
+			overflow--;
+		else
+			counts[getBin(value)]--;
+	}
+	
+	/*****************************************************
+	 * Replaces {@code old_value} with {@code new_value}.
+	 * 
+	 * @param old_value
+	 * @param new_value
+	 */
+	public void replace(double old_value, double new_value){
+		remove(old_value);
+		add(new_value);
+	}
+	
+	/*****************************************************
+	 * Merges {@code other} into this summary. Both summaries must have the same range and resolution.
+	 * 
+	 * @param other
+	 */
+	public void merge(StreamingSummary other){
+		if (other.range_min != range_min || other.range_max != range_max || other.counts.length != counts.length)
+			throw new IllegalArgumentException("StreamingSummary: Cannot merge summaries with different ranges.");
+		
+		if (other.n > 0){
+			long n_ab = n + other.n;
+			double delta = other.mean - mean;
+			mean += delta * other.n / n_ab;
+			m2 += other.m2 + delta * delta * ((double)n * other.n / n_ab);
+			n = n_ab;
+			}
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		underflow += other.underflow;
+		overflow += other.overflow;
+		nan_count += other.nan_count;
+		for (int i = 0; i < counts.length; i++)
+			counts[i] += other.counts[i];
+	}
+	
+	/*****************************************************
+	 * Returns the number of (non-NaN) values in this summary.
+	 * 
+	 * @return
+	 */
+	public long getCount(){
+		return n;
+	}
+	
+	public long getNaNCount(){
+		return nan_count;
+	}
+	
+	public double getMean(){
+		return mean;
+	}
+	
+	/*****************************************************
+	 * Returns the sample variance (i.e., with denominator {@code N - 1}).
+	 * 
+	 * @return
+	 */
+	public double getVariance(){
+		if (n < 2) return 0;
+		return m2 / (n - 1);
+	}
+	
+	public double getStandardDeviation(){
+		return Math.sqrt(getVariance());
+	}
+	
+	public double getMin(){
+		return min;
+	}
+	
+	public double getMax(){
+		return max;
+	}
+	
+	/*****************************************************
+	 * Returns an estimate of the {@code q}th quantile, where {@code q} is in [0, 1]. Values outside the
+	 * fine histogram's range are clamped to its limits.
+	 * 
+	 * @param q
+	 * @return
+	 */
+	public double getQuantile(double q){
+		if (n == 0) return Double.NaN;
+		if (q < 0) q = 0;
+		if (q > 1) q = 1;
+		
+		double rank = q * (n - 1);
+		if (rank < underflow) return range_min;
+		double cum = underflow;
+		for (int i = 0; i < counts.length; i++){
+			long c = counts[i];
+			if (c > 0 && rank < cum + c){
+				double frac = (rank - cum + 0.5) / c;
+				return range_min + bin_width * (i + frac);
+				}
+			cum += c;
+			}
+		return range_max;
+	}
+	
+	/*****************************************************
+	 * Returns an estimate of the median.
+	 * 
+	 * @return
+	 */
+	public double getMedian(){
+		return getQuantile(0.5);
+	}
+	
+	/*****************************************************
+	 * Returns an estimate of the value at percentile {@code pct}, where {@code pct} is in [0, 100].
+	 * 
+	 * @param pct
+	 * @return
+	 */
+	public double getPercentileValue(double pct){
+		return getQuantile(pct / 100.0);
+	}
+	
+	/*****************************************************
+	 * Returns an estimate of the mode, as the midpoint of the most populated fine bin.
+	 * 
+	 * @return
+	 */
+	public double getMode(){
+		int best = 0;
+		for (int i = 1; i < counts.length; i++)
+			if (counts[i] > counts[best]) best = i;
+		return range_min + bin_width * (best + 0.5);
+	}
+	
+	/*****************************************************
+	 * Determines whether a histogram with {@code bins} bins over [{@code min}, {@code max}] can be obtained
+	 * exactly from this summary; i.e., whether {@code min} and {@code max} lie on fine bin boundaries within
+	 * its range, and each of the requested bins spans a whole number of fine bins.
+	 * 
+	 * @param bins
+	 * @param min
+	 * @param max
+	 * @return
+	 */
+	public boolean isAligned(int bins, double min, double max){
+		return isAligned(counts.length, range_min, range_max, bins, min, max);
+	}
+	
+	/*****************************************************
+	 * Determines whether a histogram with {@code bins} bins over [{@code min}, {@code max}] could be obtained
+	 * exactly from a summary with {@code resolution} fine bins over [{@code range_min}, {@code range_max}]. 
+	 * Allows callers to decide whether building a summary is worthwhile before scanning the data.
+	 * 
+	 * @param resolution
+	 * @param range_min
+	 * @param range_max
+	 * @param bins
+	 * @param min
+	 * @param max
+	 * @return
+	 */
+	public static boolean isAligned(int resolution, double range_min, double range_max, int bins, double min, double max){
+		if (!(range_max > range_min)) range_max = range_min + 1;
+		if (bins < 1 || !(max > min) || min < range_min || max > range_max) return false;
+		double bin_width = (range_max - range_min) / Math.max(1, resolution);
+		double start = (min - range_min) / bin_width;
+		double end = (max - range_min) / bin_width;
+		long first = Math.round(start), last = Math.round(end);
+		double tolerance = 1e-6;
+		if (Math.abs(start - first) > tolerance || Math.abs(end - last) > tolerance) return false;
+		return (last - first) % bins == 0;
+	}
+	
+	/*****************************************************
+	 * Returns a histogram with {@code bins} bins over [{@code min}, {@code max}], as would be returned
+	 * by adding each value with {@link Histogram#addValue(double)}; values are assigned to bins by the
+	 * midpoint of their fine bin. This is exact only if {@link #isAligned(int, double, double)} is 
+	 * {@code true}; otherwise values may be assigned to neighbouring bins.
+	 * 
+	 * @param bins
+	 * @param min
+	 * @param max
+	 * @return
+	 */
+	public Histogram getHistogram(int bins, double min, double max){
+		Histogram h = new Histogram();
+		h.set(bins, min, max);
+		if (underflow > 0) h.addValue(range_min, underflow);
+		for (int i = 0; i < counts.length; i++)
+			if (counts[i] > 0)
+				h.addValue(range_min + bin_width * (i + 0.5), counts[i]);
+		if (overflow > 0) h.addValue(range_max, overflow);
+		return h;
+	}
+	
+}
@@ -0,0 +1,567 @@
+/*
+* Copyright (C) 2020 Andrew Reid and the ModelGUI Project <http://www.modelgui.org>
+* 
+* This file is part of ModelGUI[core] (mgui-core).
+* 
+* ModelGUI[core] is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+* 
+* ModelGUI[core] is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License
+* along with ModelGUI[core]. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package mgui.stats;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jogamp.vecmath.Point3f;
+import org.jogamp.vecmath.Vector3f;
+
+import mgui.geometry.Grid3D;
+import mgui.interfaces.InterfaceSession;
+import mgui.interfaces.ProgressUpdater;
+import mgui.interfaces.logs.LoggingType;
+import mgui.interfaces.shapes.Shape3DInt;
+import mgui.interfaces.shapes.VertexDataColumn;
+import mgui.interfaces.shapes.Volume3DInt;
+import mgui.interfaces.util.ParallelFunctions;
+
+/**********************************************************************
+ * Computes zonal (per-label) statistics for any number of value columns in a single pass over
+ * the vertices of a shape. For each distinct label, the following are computed:
+ * 
+ * <ul>
+ * <li>count
+ * <li>mean, variance, minimum and maximum of each value column
+ * <li>median of each value column (optional; requires a second pass)
+ * <li>centroid of the labelled vertices
+ * </ul>
+ * 
+ * <p>Vertices are split into partitions which are accumulated concurrently (see {@link ParallelFunctions}),
+ * and the partial results are merged at the end; means and variances are merged using the pairwise
+ * algorithm of Chan et al. The median follows the convention of {@link StatFunctions#getMedian(double[])}.
+ * 
+ * @author Andrew Reid
+ * @version 1.0
+ * @since 1.0
+ *
+ */
+public class ZonalStatistics {
+
+	/** Labels spanning a range larger than this are indexed by binary search rather than directly. */
+	public static int max_direct_label_range = 1 << 20;
+	
+	protected int[] labels;
+	protected long[] counts;
+	protected String[] columns;
+	protected double[][] mean, variance, min, max, median;
+	protected float[][] centroids;
+	
+	protected ZonalStatistics(){
+		
+	}
+	
+	/**************************************
+	 * Returns the distinct labels, in ascending order.
+	 * 
+	 * @return
+	 */
+	public int[] getLabels(){
+		return labels;
+	}
+	
+	public int getLabelCount(){
+		return labels.length;
+	}
+	
+	/**************************************
+	 * Returns the names of the value columns, or {@code null} if none were specified.
+	 * 
+	 * @return
+	 */
+	public String[] getColumns(){
+		return columns;
+	}
+	
+	public int getColumnCount(){
+		return mean.length;
+	}
+	
+	/**************************************
+	 * Returns the position of {@code label} in {@link #getLabels()}, or -1 if it does not occur.
+	 * 
+	 * @param label
+	 * @return
+	 */
+	public int getLabelIndex(int label){
+		int idx = Arrays.binarySearch(labels, label);
+		if (idx < 0) return -1;
+		return idx;
+	}
+	
+	/**************************************
+	 * Returns the number of vertices with the label at {@code label_index}.
+	 * 
+	 * @param label_index
+	 * @return
+	 */
+	public long getCount(int label_index){
+		return counts[label_index];
+	}
+	
+	public double getMean(int column, int label_index){
+		return mean[column][label_index];
+	}
+	
+	/**************************************
+	 * Returns the sample variance (i.e., with denominator {@code N - 1}).
+	 * 
+	 * @param column
+	 * @param label_index
+	 * @return
+	 */
+	public double getVariance(int column, int label_index){
+		return variance[column][label_index];
+	}
+	
+	public double getStandardDeviation(int column, int label_index){
+		return Math.sqrt(variance[column][label_index]);
+	}
+	
+	public double getMinimum(int column, int label_index){
+		return min[column][label_index];
+	}
+	
+	public double getMaximum(int column, int label_index){
+		return max[column][label_index];
+	}
+	
+	/**************************************
+	 * Returns the median, or {@code NaN} if medians were not computed.
+	 * 
+	 * @param column
+	 * @param label_index
+	 * @return
+	 */
+	public double getMedian(int column, int label_index){
+		if (median == null) return Double.NaN;
+		return median[column][label_index];
+	}
+	
+	public boolean hasMedians(){
+		return median != null;
+	}
+	
+	/**************************************
+	 * Returns the centroid of the vertices with the label at {@code label_index}, or {@code null}
+	 * if no coordinates were supplied.
+	 * 
+	 * @param label_index
+	 * @return
+	 */
+	public Point3f getCentroid(int label_index){
+		if (centroids == null) return null;
+		float[] c = centroids[label_index];
+		return new Point3f(c[0], c[1], c[2]);
+	}
+	
+	/**************************************
+	 * Computes zonal statistics for the vertex data columns of {@code shape}. If {@code shape} is a 
+	 * {@link Volume3DInt}, centroids are computed from voxel midpoints.
+	 * 
+	 * @param shape
+	 * @param label_column		Column providing the labels; values are rounded to integers
+	 * @param value_columns		Columns for which to compute statistics
+	 * @param compute_median	Whether to compute medians; this requires a second pass over the data
+	 * @param progress			Optional progress updater; can be {@code null}
+	 * @return the statistics, or {@code null} if a column does not exist or the process was cancelled
+	 */
+	public static ZonalStatistics getZonalStatistics(Shape3DInt shape, String label_column, 
+													 List<String> value_columns, boolean compute_median,
+													 ProgressUpdater progress){
+		
+		VertexDataColumn l_column = shape.getVertexDataColumn(label_column);
+		if (l_column == null){
+			InterfaceSession.log("ZonalStatistics: label column '" + label_column + "' not found.", 
+								 LoggingType.Errors);
+			return null;
+			}
+		
+		double[] l_data = l_column.getDataAsDouble();
+		int[] labels = new int[l_data.length];
+		for (int i = 0; i < labels.length; i++)
+			labels[i] = (int)Math.round(l_data[i]);
+		l_data = null;
+		
+		double[][] values = new double[value_columns.size()][];
+		for (int c = 0; c < values.length; c++){
+			VertexDataColumn v_column = shape.getVertexDataColumn(value_columns.get(c));
+			if (v_column == null){
+				InterfaceSession.log("ZonalStatistics: value column '" + value_columns.get(c) + "' not found.", 
+									 LoggingType.Errors);
+				return null;
+				}
+			values[c] = v_column.getDataAsDouble();
+			}
+		
+		try{
+			ZonalStatistics stats;
+			if (shape instanceof Volume3DInt)
+				stats = getZonalStatistics(labels, values, ((Volume3DInt)shape).getGrid(), compute_median, progress);
+			else
+				stats = getZonalStatistics(labels, values, shape.getShape().getCoords(), compute_median, progress);
+			if (stats != null)
+				stats.columns = value_columns.toArray(new String[0]);
+			return stats;
+		}catch (Exception ex){
+			InterfaceSession.handleException(ex);
+			return null;
+			}
+		
+	}
+	
+	/**************************************
+	 * Computes zonal statistics over vertex-wise arrays.
+	 * 
+	 * @param labels			The label of each vertex
+	 * @param values			Value columns, each of length {@code labels.length}
+	 * @param coords			Vertex coordinates as {x, y, z} triplets, or {@code null} to skip centroids
+	 * @param compute_median	Whether to compute medians
+	 * @param progress			Optional progress updater; can be {@code null}
+	 * @return the statistics, or {@code null} if the process was cancelled
+	 * @throws Exception
+	 */
+	public static ZonalStatistics getZonalStatistics(int[] labels, double[][] values, float[] coords, 
+													 boolean compute_median, ProgressUpdater progress) throws Exception{
+		return getZonalStatistics(labels, values, coords, null, compute_median, progress);
+	}
+	
+	/**************************************
+	 * Computes zonal statistics over the voxels of {@code grid}; centroids are computed from voxel
+	 * midpoints.
+	 * 
+	 * @param labels			The label of each voxel
+	 * @param values			Value columns, each of length {@code labels.length}
+	 * @param grid				The grid defining voxel geometry, or {@code null} to skip centroids
+	 * @param compute_median	Whether to compute medians
+	 * @param progress			Optional progress updater; can be {@code null}
+	 * @return the statistics, or {@code null} if the process was cancelled
+	 * @throws Exception
+	 */
+	public static ZonalStatistics getZonalStatistics(int[] labels, double[][] values, Grid3D grid, 
+													 boolean compute_median, ProgressUpdater progress) throws Exception{
+		return getZonalStatistics(labels, values, null, grid, compute_median, progress);
+	}
+	
+	protected static ZonalStatistics getZonalStatistics(final int[] labels, final double[][] values, 
+														final float[] coords, final Grid3D grid,
+														boolean compute_median, final ProgressUpdater progress) throws Exception{
+		
+		final int n = labels.length;
+		final int n_cols = values.length;
+		for (int c = 0; c < n_cols; c++)
+			if (values[c].length != n)
+				throw new IllegalArgumentException("ZonalStatistics: value column " + c + " has " + values[c].length +
+											   " values; expected " + n + ".");
+		
+		final boolean do_centroids = coords != null || grid != null;
+		final int s_size = grid == null ? 0 : grid.getSizeS();
+		final int t_size = grid == null ? 0 : grid.getSizeT();
+		
+		if (progress != null){
+			progress.setMinimum(0);
+			progress.setMaximum(compute_median ? 3 : 2);
+			progress.update(0);
+			}
+		
+		// Pass 1: distinct labels
+		final LabelIndex index = getLabelIndex(labels);
+		final int n_labels = index.labels.length;
+		
+		if (progress != null){
+			if (progress.isCancelled()) return null;
+			progress.update(1);
+			}
+		
+		// Pass 2: per-partition accumulation
+		final int[][] partitions = ParallelFunctions.getPartitions(n, ParallelFunctions.getPartitionCount(n));
+		final Accumulator[] partials = new Accumulator[partitions.length];
+		
+		ParallelFunctions.runPartitioned(partitions, new ParallelFunctions.PartitionJob(){
+			public void run(int partition, int start, int end){
+				Accumulator acc = new Accumulator(n_labels, n_cols, do_centroids);
+				for (int i = start; i < end; i++){
+					if (progress != null && (i & 0xFFFF) == 0 && progress.isCancelled()) return;
+					int l = index.getIndex(labels[i]);
+					long count = ++acc.count[l];
+					int offset = l * n_cols;
+					for (int c = 0; c < n_cols; c++){
+						double v = values[c][i];
+						int o = offset + c;
+						double delta = v - acc.mean[o];
+						acc.mean[o] += delta / count;
+						acc.m2[o] += delta * (v - acc.mean[o]);
+						if (v < acc.min[o]) acc.min[o] = v;
+						if (v > acc.max[o]) acc.max[o] = v;
+						}
+					if (do_centroids){
+						int o = l * 3;
+						if (grid != null){
+							acc.coord_sum[o] += i % s_size;
+							acc.coord_sum[o + 1] += (i / s_size) % t_size;
+							acc.coord_sum[o + 2] += i / (s_size * t_size);
+						}else{
+							acc.coord_sum[o] += coords[i * 3];
+							acc.coord_sum[o + 1] += coords[i * 3 + 1];
+							acc.coord_sum[o + 2] += coords[i * 3 + 2];
+							}
+						}
+					}
+				partials[partition] = acc;
+				}
+			});
+		
+		if (progress != null){
+			if (progress.isCancelled()) return null;
+			progress.update(2);
+			}
+		
+		Accumulator total = partials[0];
+		for (int p = 1; p < partials.length; p++)
+			total.merge(partials[p]);
+		
+		ZonalStatistics stats = new ZonalStatistics();
+		stats.labels = index.labels;
+		stats.counts = total.count;
+		stats.mean = new double[n_cols][n_labels];
+		stats.variance = new double[n_cols][n_labels];
+		stats.min = new double[n_cols][n_labels];
+		stats.max = new double[n_cols][n_labels];
+		
+		for (int l = 0; l < n_labels; l++){
+			long count = total.count[l];
+			for (int c = 0; c < n_cols; c++){
+				int o = l * n_cols + c;
+				stats.mean[c][l] = total.mean[o];
+				stats.variance[c][l] = count > 1 ? total.m2[o] / (count - 1) : 0;
+				stats.min[c][l] = total.min[o];
+				stats.max[c][l] = total.max[o];
+				}
+			}
+		
+		if (do_centroids){
+			stats.centroids = new float[n_labels][3];
+			Point3f origin = null;
+			Vector3f s_step = null, t_step = null, r_step = null;
+			if (grid != null){
+				// Voxel midpoints are affine in (i, j, k), so the centroid is the midpoint at the mean index
+				origin = grid.getVoxelMidPoint(0, 0, 0);
+				s_step = new Vector3f(grid.getVoxelMidPoint(1, 0, 0));
+				s_step.sub(origin);
+				t_step = new Vector3f(grid.getVoxelMidPoint(0, 1, 0));
+				t_step.sub(origin);
+				r_step = new Vector3f(grid.getVoxelMidPoint(0, 0, 1));
+				r_step.sub(origin);
+				}
+			for (int l = 0; l < n_labels; l++){
+				double count = total.count[l];
+				double x = total.coord_sum[l * 3] / count;
+				double y = total.coord_sum[l * 3 + 1] / count;
+				double z = total.coord_sum[l * 3 + 2] / count;
+				float[] c = stats.centroids[l];
+				if (grid != null){
+					c[0] = (float)(origin.x + x * s_step.x + y * t_step.x + z * r_step.x);
+					c[1] = (float)(origin.y + x * s_step.y + y * t_step.y + z * r_step.y);
+					c[2] = (float)(origin.z + x * s_step.z + y * t_step.z + z * r_step.z);
+				}else{
+					c[0] = (float)x;
+					c[1] = (float)y;
+					c[2] = (float)z;
+					}
+				}
+			}
+		
+		if (compute_median){
+			stats.median = getMedians(labels, values, index, total.count, progress);
+			if (stats.median == null) return null;
+			if (progress != null) progress.update(3);
+			}
+		
+		return stats;
+	}
+	
+	/**************************************
+	 * Groups values by label with a counting sort, then selects the median of each group in parallel.
+	 * 
+	 */
+	protected static double[][] getMedians(final int[] labels, final double[][] values, final LabelIndex index, 
+										   final long[] counts, final ProgressUpdater progress) throws Exception{
+		
+		final int n = labels.length;
+		final int n_labels = counts.length;
+		final int[] offsets = new int[n_labels + 1];
+		for (int l = 0; l < n_labels; l++)
+			offsets[l + 1] = offsets[l] + (int)counts[l];
+		
+		// Vertex indices ordered by label
+		final int[] order = new int[n];
+		int[] next = Arrays.copyOf(offsets, n_labels);
+		for (int i = 0; i < n; i++)
+			order[next[index.getIndex(labels[i])]++] = i;
+		next = null;
+		
+		final double[][] median = new double[values.length][n_labels];
+		
+		ParallelFunctions.runPartitioned(n_labels, new ParallelFunctions.PartitionJob(){
+			public void run(int partition, int start, int end){
+				double[] buffer = new double[0];
+				for (int l = start; l < end; l++){
+					if (progress != null && progress.isCancelled()) return;
+					int size = offsets[l + 1] - offsets[l];
+					if (buffer.length < size) buffer = new double[size];
+					for (int c = 0; c < values.length; c++){
+						double[] column = values[c];
+						for (int j = 0; j < size; j++)
+							buffer[j] = column[order[offsets[l] + j]];
+						Arrays.sort(buffer, 0, size);
+						median[c][l] = buffer[size / 2];
+						}
+					}
+				}
+			});
+		
+		if (progress != null && progress.isCancelled()) return null;
+		return median;
+	}
+	
+	/**************************************
+	 * Builds an index of the distinct values in {@code labels}. 
+	 * 
+	 * @param labels
+	 * @return
+	 * @throws Exception
+	 */
+	protected static LabelIndex getLabelIndex(final int[] labels) throws Exception{
+		
+		final int[][] partitions = ParallelFunctions.getPartitions(labels.length, 
+											ParallelFunctions.getPartitionCount(labels.length));
+		final int[][] limits = new int[partitions.length][];
+		
+		ParallelFunctions.runPartitioned(partitions, new ParallelFunctions.PartitionJob(){
+			public void run(int partition, int start, int end){
+				int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+				for (int i = start; i < end; i++){
+					if (labels[i] < min) min = labels[i];
+					if (labels[i] > max) max = labels[i];
+					}
+				limits[partition] = new int[]{min, max};
+				}
+			});
+		
+		int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+		for (int p = 0; p < limits.length; p++){
+			min = Math.min(min, limits[p][0]);
+			max = Math.max(max, limits[p][1]);
+			}
+		
+		LabelIndex index = new LabelIndex();
+		if (labels.length == 0){
+			index.labels = new int[0];
+			return index;
+			}
+		
+		long range = (long)max - (long)min + 1;
+		if (range <= max_direct_label_range){
+			boolean[] present = new boolean[(int)range];
+			for (int i = 0; i < labels.length; i++)
+				present[labels[i] - min] = true;
+			int count = 0;
+			for (int j = 0; j < present.length; j++)
+				if (present[j]) count++;
+			index.labels = new int[count];
+			index.direct = new int[(int)range];
+			index.offset = min;
+			Arrays.fill(index.direct, -1);
+			count = 0;
+			for (int j = 0; j < present.length; j++)
+				if (present[j]){
+					index.labels[count] = j + min;
+					index.direct[j] = count++;
+					}
+			return index;
+			}
+		
+		// Sparse labels
+		int[] sorted = Arrays.copyOf(labels, labels.length);
+		Arrays.sort(sorted);
+		int count = 1;
+		for (int i = 1; i < sorted.length; i++)
+			if (sorted[i] != sorted[count - 1])
+				sorted[count++] = sorted[i];
+		index.labels = Arrays.copyOf(sorted, count);
+		return index;
+	}
+	
+	static class LabelIndex {
+		
+		int[] labels;
+		int[] direct;
+		int offset;
+		
+		int getIndex(int label){
+			if (direct != null) return direct[label - offset];
+			return Arrays.binarySearch(labels, label);
+		}
+		
+	}
+	
+	static class Accumulator {
+		
+		final int n_cols;
+		final long[] count;
+		final double[] mean, m2, min, max, coord_sum;
+		
+		Accumulator(int n_labels, int n_cols, boolean centroids){
+			this.n_cols = n_cols;
+			count = new long[n_labels];
+			mean = new double[n_labels * n_cols];
+			m2 = new double[n_labels * n_cols];
+			min = new double[n_labels * n_cols];
+			max = new double[n_labels * n_cols];
+			Arrays.fill(min, Double.MAX_VALUE);
+			Arrays.fill(max, -Double.MAX_VALUE);
+			coord_sum = centroids ? new double[n_labels * 3] : null;
+		}
+		
+		void merge(Accumulator other){
+			for (int l = 0; l < count.length; l++){
+				long n_b = other.count[l];
+				if (n_b == 0) continue;
+				long n_a = count[l];
+				long n_ab = n_a + n_b;
+				for (int c = 0; c < n_cols; c++){
+					int o = l * n_cols + c;
+					double delta = other.mean[o] - mean[o];
+					mean[o] += delta * n_b / n_ab;
+					m2[o] += other.m2[o] + delta * delta * ((double)n_a * n_b / n_ab);
+					min[o] = Math.min(min[o], other.min[o]);
+					max[o] = Math.max(max[o], other.max[o]);
+					}
+				count[l] = n_ab;
+				if (coord_sum != null)
+					for (int j = 0; j < 3; j++)
+						coord_sum[l * 3 + j] += other.coord_sum[l * 3 + j];
+				}
+		}
+		
+	}
+	
+}